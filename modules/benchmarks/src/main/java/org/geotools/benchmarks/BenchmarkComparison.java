@@ -0,0 +1,148 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Compares two JMH JSON result files, as produced by {@link BenchmarkRunner}, and reports the
+ * relative change of each benchmark score.
+ * <p>
+ * Usage: <code>BenchmarkComparison baseline.json current.json [threshold]</code>. A benchmark is
+ * reported as a regression when its score got worse by more than the threshold percentage (10 by
+ * default) and by more than the combined score errors. The exit status is 1 if any regression is
+ * found, so that the comparison can be used in a build.
+ */
+public class BenchmarkComparison {
+
+    /**
+     * The score of a single benchmark, with its parameters
+     */
+    static class Score {
+        double value;
+
+        double error;
+
+        String unit;
+
+        /** Average time modes are better when lower, throughput ones when higher */
+        boolean lowerIsBetter;
+
+        Score(double value, double error, String unit, boolean lowerIsBetter) {
+            this.value = value;
+            this.error = error;
+            this.unit = unit;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> "
+                    + "[threshold percentage]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : new TreeMap<String, Score>(current).entrySet()) {
+            String name = entry.getKey();
+            Score now = entry.getValue();
+            Score before = baseline.get(name);
+            if (before == null) {
+                System.out.println(String.format("%-100s %14.3f %s (new)", name, now.value,
+                        now.unit));
+                continue;
+            }
+            double change = (now.value - before.value) / before.value * 100;
+            double worsening = now.lowerIsBetter ? change : -change;
+            boolean significant = Math.abs(now.value - before.value) > now.error + before.error;
+            String status = "";
+            if (significant && worsening > threshold) {
+                status = " REGRESSION";
+                regressions++;
+            } else if (significant && worsening < -threshold) {
+                status = " improvement";
+            }
+            System.out.println(String.format("%-100s %14.3f -> %14.3f %s %+8.2f%%%s", name,
+                    before.value, now.value, now.unit, change, status));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.println(String.format("%-100s (removed)", name));
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) found");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH JSON result file, keyed by benchmark name, mode and parameters
+     */
+    static Map<String, Score> read(File file) throws IOException, ParseException {
+        Map<String, Score> scores = new LinkedHashMap<String, Score>();
+        try (Reader reader = new FileReader(file)) {
+            JSONArray results = (JSONArray) new JSONParser().parse(reader);
+            for (Object o : results) {
+                JSONObject result = (JSONObject) o;
+                String mode = (String) result.get("mode");
+                StringBuilder name = new StringBuilder((String) result.get("benchmark"));
+                name.append(" [").append(mode).append("]");
+                JSONObject params = (JSONObject) result.get("params");
+                if (params != null) {
+                    for (Object key : new TreeMap<Object, Object>(params).keySet()) {
+                        name.append(" ").append(key).append("=").append(params.get(key));
+                    }
+                }
+                JSONObject metric = (JSONObject) result.get("primaryMetric");
+                double score = toDouble(metric.get("score"));
+                double error = toDouble(metric.get("scoreError"));
+                if (Double.isNaN(error)) {
+                    // single iteration runs have no error estimate
+                    error = 0;
+                }
+                String unit = (String) metric.get("scoreUnit");
+                boolean lowerIsBetter = !"thrpt".equals(mode);
+                scores.put(name.toString(), new Score(score, error, unit, lowerIsBetter));
+            }
+        }
+        return scores;
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        // JMH writes "NaN" as a string when the value cannot be computed
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Generates the synthetic data sets used by the benchmarks. The data is built from a fixed random
+ * seed so that every run works against the same features.
+ */
+public class BenchmarkData {
+
+    static final String TYPE_NAME = "polygons";
+
+    static final String TYPE_SPEC = "the_geom:MultiPolygon:srid=4326,id:Integer,name:String,value:Double";
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    /**
+     * Builds the feature type shared by all the data sets
+     */
+    public static SimpleFeatureType createType() {
+        try {
+            return DataUtilities.createType(TYPE_NAME, TYPE_SPEC);
+        } catch (SchemaException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builds a grid of small polygons covering the whole world, each with a few dozen vertices
+     */
+    public static List<SimpleFeature> createFeatures(int count) {
+        SimpleFeatureType type = createType();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        Random random = new Random(0);
+        int side = (int) Math.ceil(Math.sqrt(count));
+        double dx = 360d / side;
+        double dy = 180d / side;
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(count);
+        for (int i = 0; i < count; i++) {
+            double cx = -180 + (i % side + 0.5) * dx;
+            double cy = -90 + (i / side + 0.5) * dy;
+            fb.add(createMultiPolygon(cx, cy, dx / 2, dy / 2, 32, random));
+            fb.add(i);
+            fb.add("feature" + (i % 100));
+            fb.add(random.nextDouble() * 1000);
+            features.add(fb.buildFeature(TYPE_NAME + "." + i));
+        }
+        return features;
+    }
+
+    /**
+     * Builds a star shaped polygon with the specified number of vertices
+     */
+    public static MultiPolygon createMultiPolygon(double cx, double cy, double rx, double ry,
+            int vertices, Random random) {
+        Coordinate[] coords = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double scale = 0.5 + random.nextDouble() * 0.5;
+            coords[i] = new Coordinate(cx + Math.cos(angle) * rx * scale,
+                    cy + Math.sin(angle) * ry * scale);
+        }
+        coords[vertices] = coords[0];
+        LinearRing shell = GF.createLinearRing(coords);
+        return GF.createMultiPolygon(new Polygon[] { GF.createPolygon(shell, null) });
+    }
+
+    /**
+     * Writes the features in a new shapefile in the specified directory
+     */
+    public static File createShapefile(File directory, List<SimpleFeature> features)
+            throws IOException {
+        File file = new File(directory, TYPE_NAME + ".shp");
+        ShapefileDataStore store = new ShapefileDataStore(file.toURI().toURL());
+        try {
+            fill(store, features);
+        } finally {
+            store.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * Creates the benchmark feature type in the store and adds the features to it
+     */
+    public static void fill(DataStore store, List<SimpleFeature> features) throws IOException {
+        store.createSchema(createType());
+        SimpleFeatureStore fs = (SimpleFeatureStore) store.getFeatureSource(TYPE_NAME);
+        SimpleFeatureCollection collection = DataUtilities.collection(features);
+        fs.addFeatures(collection);
+    }
+
+    /**
+     * Creates a new empty temporary directory
+     */
+    public static File createTempDirectory(String prefix) throws IOException {
+        File directory = File.createTempFile(prefix, "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create temporary directory " + directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Removes a directory created by {@link #createTempDirectory(String)} along with its contents
+     */
+    public static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    delete(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and stores the results as JMH JSON files, one per run, that can be compared
+ * with {@link BenchmarkComparison}.
+ * <p>
+ * Usage: <code>java -jar benchmarks.jar [regexp...]</code>, where the optional regular expressions
+ * select the benchmarks to run (all of them by default). The results are written in the directory
+ * specified by the <code>benchmarks.output</code> system property, <code>target/jmh</code> by
+ * default.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        File directory = new File(System.getProperty("benchmarks.output", "target/jmh"));
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create the output directory "
+                    + directory);
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File output = new File(directory, "results-" + timestamp + ".json");
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().resultFormat(ResultFormatType.JSON)
+                .result(output.getPath());
+        if (args.length == 0) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        } else {
+            for (String include : args) {
+                builder.include(include);
+            }
+        }
+        new Runner(builder.build()).run();
+        System.out.println("Results stored in " + output.getAbsolutePath());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.filter.text.ecql.ECQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+
+/**
+ * Measures the parsing of ECQL filters and their evaluation against in memory features
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({ "value < 100",
+            "name LIKE 'feature1%' AND value BETWEEN 100 AND 500",
+            "id IN (1, 10, 100, 1000) OR name = 'feature42'",
+            "INTERSECTS(the_geom, POLYGON((-10 -10, -10 10, 10 10, 10 -10, -10 -10))) AND value > 500" })
+    String cql;
+
+    List<SimpleFeature> features;
+
+    Filter filter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        features = BenchmarkData.createFeatures(10000);
+        filter = ECQL.toFilter(cql);
+    }
+
+    @Benchmark
+    public Filter parse() throws Exception {
+        return ECQL.toFilter(cql);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int matches = 0;
+        for (SimpleFeature feature : features) {
+            if (filter.evaluate(feature)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
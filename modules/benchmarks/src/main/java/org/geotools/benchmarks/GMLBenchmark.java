@@ -0,0 +1,89 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.gml3.GML;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.xml.Encoder;
+import org.geotools.xml.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.MultiPolygon;
+
+/**
+ * Measures the encoding of a GML3 multipolygon, its parsing, and the full round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GMLBenchmark {
+
+    @Param({ "32", "10000" })
+    int vertices;
+
+    GMLConfiguration configuration;
+
+    MultiPolygon geometry;
+
+    byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        configuration = new GMLConfiguration();
+        geometry = BenchmarkData.createMultiPolygon(0, 0, 10, 10, vertices, new Random(0));
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        Encoder encoder = new Encoder(configuration);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoder.encode(geometry, GML.MultiPolygon, bos);
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        Parser parser = new Parser(configuration);
+        return parser.parse(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        Parser parser = new Parser(configuration);
+        return parser.parse(new ByteArrayInputStream(encode()));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.jai.Interpolation;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+
+import org.geotools.image.ImageWorker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures typical {@link ImageWorker} chains, forcing the computation of the whole result
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ImageWorkerBenchmark {
+
+    static final int SIZE = 2048;
+
+    BufferedImage rgb;
+
+    RenderedImage dem;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(0);
+        rgb = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        WritableRaster rgbRaster = rgb.getRaster();
+        WritableRaster demRaster = RasterFactory.createBandedRaster(DataBuffer.TYPE_FLOAT, SIZE,
+                SIZE, 1, null);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                rgbRaster.setSample(x, y, 0, (x + y) & 0xFF);
+                rgbRaster.setSample(x, y, 1, x & 0xFF);
+                rgbRaster.setSample(x, y, 2, random.nextInt(256));
+                demRaster.setSample(x, y, 0, (float) (Math.sin(x / 100d) * Math.cos(y / 100d)
+                        * 1000));
+            }
+        }
+        dem = new BufferedImage(PlanarImage.createColorModel(demRaster.getSampleModel()),
+                demRaster, false, null);
+    }
+
+    @Benchmark
+    public RenderedImage scaleAndCrop() {
+        ImageWorker worker = new ImageWorker(rgb);
+        worker.scale(0.5f, 0.5f, 0f, 0f, Interpolation.getInstance(Interpolation.INTERP_BILINEAR));
+        worker.crop(128, 128, 512, 512);
+        return worker.getBufferedImage();
+    }
+
+    @Benchmark
+    public RenderedImage affine() {
+        ImageWorker worker = new ImageWorker(rgb);
+        AffineTransform tx = AffineTransform.getRotateInstance(Math.PI / 12, SIZE / 2, SIZE / 2);
+        worker.affine(tx, Interpolation.getInstance(Interpolation.INTERP_NEAREST), null);
+        return worker.getBufferedImage();
+    }
+
+    @Benchmark
+    public RenderedImage rescaleToBytes() {
+        ImageWorker worker = new ImageWorker(dem);
+        worker.rescaleToBytes().forceComponentColorModel();
+        return worker.getBufferedImage();
+    }
+}
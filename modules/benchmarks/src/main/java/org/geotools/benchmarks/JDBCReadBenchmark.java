@@ -0,0 +1,115 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.h2.H2DataStoreFactory;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.JDBCDataStoreFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory2;
+
+/**
+ * Measures the JDBC feature readers against an embedded H2 database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JDBCReadBenchmark {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    @Param({ "20000" })
+    int features;
+
+    File directory;
+
+    JDBCDataStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = BenchmarkData.createTempDirectory("h2");
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(JDBCDataStoreFactory.DBTYPE.key, "h2");
+        params.put(JDBCDataStoreFactory.DATABASE.key,
+                new File(directory, "benchmark").getAbsolutePath());
+        params.put(JDBCDataStoreFactory.USER.key, "geotools");
+        params.put(JDBCDataStoreFactory.PASSWD.key, "geotools");
+        store = (JDBCDataStore) new H2DataStoreFactory().createDataStore(params);
+        BenchmarkData.fill(store, BenchmarkData.createFeatures(features));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void fullScan(Blackhole bh) throws IOException {
+        scan(new Query(BenchmarkData.TYPE_NAME), bh);
+    }
+
+    @Benchmark
+    public void attributeFilterScan(Blackhole bh) throws IOException {
+        Query query = new Query(BenchmarkData.TYPE_NAME, FF.less(FF.property("value"),
+                FF.literal(100)));
+        scan(query, bh);
+    }
+
+    @Benchmark
+    public void bboxScan(Blackhole bh) throws IOException {
+        scan(new Query(BenchmarkData.TYPE_NAME, FF.bbox("the_geom", -10, -10, 10, 10, null)), bh);
+    }
+
+    void scan(Query query, Blackhole bh) throws IOException {
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader(
+                query, Transaction.AUTO_COMMIT)) {
+            while (reader.hasNext()) {
+                bh.consume(reader.next());
+            }
+        }
+    }
+}
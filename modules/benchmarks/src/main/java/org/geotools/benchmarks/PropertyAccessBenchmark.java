@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Measures the evaluation of a property name shared among threads, as it happens with styles
+ * and filters in a server, to spot contention in the property accessor lookup. The "mixed" mode
+ * alternates features of two different types, each one needing a different attribute index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PropertyAccessBenchmark {
+
+    @Param({ "single", "mixed" })
+    String types;
+
+    PropertyName property;
+
+    SimpleFeature[] features;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+        property = ff.property("value");
+        List<SimpleFeature> source = BenchmarkData.createFeatures(1024);
+        features = source.toArray(new SimpleFeature[source.size()]);
+        if ("mixed".equals(types)) {
+            // same attributes, in a different order
+            SimpleFeatureType reordered = DataUtilities.createType("reordered",
+                    "value:Double,name:String,id:Integer,the_geom:MultiPolygon:srid=4326");
+            for (int i = 1; i < features.length; i += 2) {
+                SimpleFeature f = features[i];
+                features[i] = SimpleFeatureBuilder.build(reordered,
+                        new Object[] { f.getAttribute("value"), f.getAttribute("name"),
+                                f.getAttribute("id"), f.getDefaultGeometry() }, f.getID());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object evaluate(Cursor cursor) {
+        return evaluateNext(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object evaluateContended(Cursor cursor) {
+        return evaluateNext(cursor);
+    }
+
+    private Object evaluateNext(Cursor cursor) {
+        SimpleFeature feature = features[cursor.index];
+        cursor.index = (cursor.index + 1) & (features.length - 1);
+        return property.evaluate(feature);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.referencing.CRS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Measures the lookup of a math transform between two common coordinate reference systems, and
+ * the transformation of a block of coordinates with it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReferencingBenchmark {
+
+    static final int POINTS = 10000;
+
+    /**
+     * Web mercator, UTM and a Lambert conic from geographic coordinates
+     */
+    @Param({ "EPSG:3857", "EPSG:32632", "EPSG:3035" })
+    String target;
+
+    CoordinateReferenceSystem sourceCRS;
+
+    CoordinateReferenceSystem targetCRS;
+
+    MathTransform transform;
+
+    double[] source;
+
+    double[] destination;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        sourceCRS = CRS.decode("EPSG:4326", true);
+        targetCRS = CRS.decode(target, true);
+        transform = CRS.findMathTransform(sourceCRS, targetCRS, true);
+        // points around the center of Europe, valid for all the targets
+        Random random = new Random(0);
+        source = new double[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            source[i * 2] = 5 + random.nextDouble() * 10;
+            source[i * 2 + 1] = 40 + random.nextDouble() * 15;
+        }
+        destination = new double[POINTS * 2];
+    }
+
+    @Benchmark
+    public MathTransform findMathTransform() throws Exception {
+        return CRS.findMathTransform(sourceCRS, targetCRS, true);
+    }
+
+    @Benchmark
+    public double[] transform() throws Exception {
+        transform.transform(source, 0, destination, 0, POINTS);
+        return destination;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.SLD;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link StreamingRenderer#paint} of two polygon layers read from a shapefile, either
+ * sequentially or with the layers rendered in parallel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({ "10000" })
+    int features;
+
+    @Param({ "false", "true" })
+    boolean parallel;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    MapContent map;
+
+    ExecutorService executor;
+
+    BufferedImage image;
+
+    ReferencedEnvelope world = new ReferencedEnvelope(-180, 180, -90, 90,
+            DefaultGeographicCRS.WGS84);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = BenchmarkData.createTempDirectory("render");
+        File shp = BenchmarkData.createShapefile(directory,
+                BenchmarkData.createFeatures(features));
+        store = new ShapefileDataStore(shp.toURI().toURL());
+        map = new MapContent();
+        map.addLayer(new FeatureLayer(store.getFeatureSource(),
+                SLD.createPolygonStyle(Color.BLACK, Color.LIGHT_GRAY, 1f)));
+        map.addLayer(new FeatureLayer(store.getFeatureSource(),
+                SLD.createLineStyle(Color.RED, 2f)));
+        if (parallel) {
+            executor = Executors.newFixedThreadPool(2);
+        }
+        image = new BufferedImage(1024, 512, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        map.dispose();
+        store.dispose();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(map);
+        renderer.setJava2DHints(new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON));
+        if (executor != null) {
+            renderer.setRenderingExecutor(executor);
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            renderer.paint(graphics, new Rectangle(image.getWidth(), image.getHeight()), world);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -151,7 +151,8 @@ public abstract class AbstractGridFormat implements Format {
 					OverviewPolicy.IGNORE,
 					OverviewPolicy.NEAREST,
 					OverviewPolicy.QUALITY,
-					OverviewPolicy.SPEED },
+					OverviewPolicy.SPEED,
+					OverviewPolicy.COST },
 			OverviewPolicy.QUALITY);
 	
 	/**
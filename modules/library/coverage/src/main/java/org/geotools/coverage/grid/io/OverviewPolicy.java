@@ -49,7 +49,15 @@ public enum OverviewPolicy {
      * Choose the overview with the higher resolution among the ones
      * with lower resolution than one used for rendering.
      */
-    SPEED;
+    SPEED,
+
+    /**
+     * Choose the overview and subsampling combination with the lowest estimated reading cost
+     * (bytes read and pixels decoded, given the tile layout of the overviews) among the ones
+     * whose resolution is within a quality tolerance of the one used for rendering. Readers that
+     * do not support it behave as with {@link #NEAREST}.
+     */
+    COST;
     
     public static OverviewPolicy getDefaultPolicy(){
     	return NEAREST;
@@ -0,0 +1,452 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.processing;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable statistics of the samples of a single band: count, min, max, mean, standard
+ * deviation, an optional histogram with arbitrary bins, and optional approximate quantiles.
+ * <p>
+ * Statistics gathered on separate parts of a coverage (e.g., tiles) can be combined with
+ * {@link #merge(BandStatistics)}, the result is the same as gathering them in a single pass, but
+ * for the floating point rounding of the mean and variance. Instances are not thread safe, each
+ * thread is supposed to work on its own and merge at the end.
+ */
+public class BandStatistics {
+
+    long count;
+
+    double min = Double.POSITIVE_INFINITY;
+
+    double max = Double.NEGATIVE_INFINITY;
+
+    double mean;
+
+    /** Sum of the squared differences from the mean */
+    double m2;
+
+    final double[] binEdges;
+
+    final long[] bins;
+
+    /** Set when the bins are all of the same width, to avoid the binary search */
+    final boolean uniformBins;
+
+    final QuantileSketch sketch;
+
+    /**
+     * Creates an empty statistics holder
+     *
+     * @param binEdges The sorted edges of the histogram bins (n + 1 edges for n bins), or null to
+     *        skip the histogram. Bins include their lower edge, the last one includes also its
+     *        upper edge, values out of the edges are not counted in the histogram
+     * @param quantileAccuracy The relative accuracy of the quantiles (e.g., 0.01 for 1%), or 0 to
+     *        skip quantiles
+     */
+    public BandStatistics(double[] binEdges, double quantileAccuracy) {
+        if (binEdges != null) {
+            if (binEdges.length < 2) {
+                throw new IllegalArgumentException("At least two bin edges are needed");
+            }
+            for (int i = 1; i < binEdges.length; i++) {
+                if (!(binEdges[i] > binEdges[i - 1])) {
+                    throw new IllegalArgumentException("Bin edges must be strictly increasing");
+                }
+            }
+            this.binEdges = binEdges.clone();
+            this.bins = new long[binEdges.length - 1];
+            this.uniformBins = isUniform(binEdges);
+        } else {
+            this.binEdges = null;
+            this.bins = null;
+            this.uniformBins = false;
+        }
+        this.sketch = quantileAccuracy > 0 ? new QuantileSketch(quantileAccuracy) : null;
+    }
+
+    /**
+     * Returns the edges of numBins bins of the same width between low and high
+     */
+    public static double[] uniformBins(double low, double high, int numBins) {
+        if (numBins <= 0 || !(high > low)) {
+            throw new IllegalArgumentException("Invalid bins: " + numBins + " in [" + low + ","
+                    + high + "]");
+        }
+        double[] edges = new double[numBins + 1];
+        double width = (high - low) / numBins;
+        for (int i = 0; i < numBins; i++) {
+            edges[i] = low + i * width;
+        }
+        edges[numBins] = high;
+        return edges;
+    }
+
+    private static boolean isUniform(double[] edges) {
+        double width = (edges[edges.length - 1] - edges[0]) / (edges.length - 1);
+        for (int i = 1; i < edges.length; i++) {
+            double expected = edges[0] + i * width;
+            if (Math.abs(edges[i] - expected) > width * 1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an empty holder with the same bins and quantile accuracy as this one
+     */
+    public BandStatistics newEmpty() {
+        return new BandStatistics(binEdges, sketch != null ? sketch.relativeAccuracy : 0);
+    }
+
+    /**
+     * Adds a single value
+     */
+    public void add(double value) {
+        add(new double[] { value }, 1);
+    }
+
+    /**
+     * Adds the first length values of the array, none of them should be NaN. The values are
+     * processed in two passes, the mean first and the squared differences next, which is both
+     * faster and more accurate than updating the mean value by value.
+     */
+    public void add(double[] values, int length) {
+        if (length == 0) {
+            return;
+        }
+        double sum = 0;
+        double localMin = min;
+        double localMax = max;
+        for (int i = 0; i < length; i++) {
+            final double v = values[i];
+            sum += v;
+            if (v < localMin) {
+                localMin = v;
+            }
+            if (v > localMax) {
+                localMax = v;
+            }
+        }
+        final double localMean = sum / length;
+        double localM2 = 0;
+        for (int i = 0; i < length; i++) {
+            final double d = values[i] - localMean;
+            localM2 += d * d;
+        }
+        combine(length, localMean, localM2);
+        min = localMin;
+        max = localMax;
+
+        if (bins != null) {
+            for (int i = 0; i < length; i++) {
+                int bin = getBin(values[i]);
+                if (bin >= 0) {
+                    bins[bin]++;
+                }
+            }
+        }
+        if (sketch != null) {
+            for (int i = 0; i < length; i++) {
+                sketch.add(values[i]);
+            }
+        }
+    }
+
+    int getBin(double value) {
+        final double low = binEdges[0];
+        final double high = binEdges[binEdges.length - 1];
+        if (value < low || value > high) {
+            return -1;
+        }
+        if (value == high) {
+            return bins.length - 1;
+        }
+        if (uniformBins) {
+            int bin = (int) ((value - low) / (high - low) * bins.length);
+            // guard against rounding at the edges
+            if (bin > 0 && value < binEdges[bin]) {
+                bin--;
+            } else if (bin < bins.length - 1 && value >= binEdges[bin + 1]) {
+                bin++;
+            }
+            return Math.min(bin, bins.length - 1);
+        }
+        int idx = Arrays.binarySearch(binEdges, value);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * Combines count, mean and squared differences with the ones of another set of values (Chan
+     * et al. parallel algorithm)
+     */
+    private void combine(long otherCount, double otherMean, double otherM2) {
+        if (count == 0) {
+            count = otherCount;
+            mean = otherMean;
+            m2 = otherM2;
+            return;
+        }
+        final long n = count + otherCount;
+        final double delta = otherMean - mean;
+        mean += delta * otherCount / n;
+        m2 += otherM2 + delta * delta * ((double) count) * otherCount / n;
+        count = n;
+    }
+
+    /**
+     * Merges the statistics of another set of values into this one. The two objects must have
+     * the same bins and quantile accuracy.
+     */
+    public void merge(BandStatistics other) {
+        if (!Arrays.equals(binEdges, other.binEdges)
+                || (sketch == null) != (other.sketch == null)) {
+            throw new IllegalArgumentException("Cannot merge statistics with different setups");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        combine(other.count, other.mean, other.m2);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (bins != null) {
+            for (int i = 0; i < bins.length; i++) {
+                bins[i] += other.bins[i];
+            }
+        }
+        if (sketch != null) {
+            sketch.merge(other.sketch);
+        }
+    }
+
+    /**
+     * The number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The minimum value, or NaN if there are no values
+     */
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    /**
+     * The maximum value, or NaN if there are no values
+     */
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * The mean value, or NaN if there are no values
+     */
+    public double getMean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * The sum of the values
+     */
+    public double getSum() {
+        return mean * count;
+    }
+
+    /**
+     * The population variance, or NaN if there are no values
+     */
+    public double getVariance() {
+        return count > 0 ? m2 / count : Double.NaN;
+    }
+
+    /**
+     * The population standard deviation, or NaN if there are no values
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * The bin edges, or null if no histogram was requested
+     */
+    public double[] getBinEdges() {
+        return binEdges != null ? binEdges.clone() : null;
+    }
+
+    /**
+     * The histogram counts, or null if no histogram was requested
+     */
+    public long[] getHistogram() {
+        return bins != null ? bins.clone() : null;
+    }
+
+    /**
+     * Returns an approximation of the specified quantile, within the relative accuracy specified
+     * at construction time, or NaN if there are no values
+     *
+     * @param quantile The quantile, between 0 and 1 (e.g., 0.5 for the median)
+     * @throws IllegalStateException if quantiles have not been requested
+     */
+    public double getQuantile(double quantile) {
+        if (sketch == null) {
+            throw new IllegalStateException("Quantiles have not been requested");
+        }
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("The quantile must be between 0 and 1");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double value = sketch.getQuantile(quantile);
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return "BandStatistics[count=" + count + ", min=" + getMin() + ", max=" + getMax()
+                + ", mean=" + getMean() + ", stddev=" + getStandardDeviation() + "]";
+    }
+
+    /**
+     * A mergeable quantile sketch with relative accuracy guarantees. Values are counted in
+     * logarithmic buckets, each one covering a range of values whose bounds differ by the
+     * specified relative accuracy, so that the memory used depends on the dynamic range of the
+     * values, not on their number.
+     */
+    static final class QuantileSketch {
+
+        final double relativeAccuracy;
+
+        final double gamma;
+
+        final double logGamma;
+
+        /** Values whose absolute value is below this threshold are counted as zeros */
+        final double minIndexable;
+
+        final Buckets positive = new Buckets();
+
+        final Buckets negative = new Buckets();
+
+        long zeroCount;
+
+        QuantileSketch(double relativeAccuracy) {
+            if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+                throw new IllegalArgumentException("The relative accuracy must be in ]0,1[");
+            }
+            this.relativeAccuracy = relativeAccuracy;
+            this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+            this.logGamma = Math.log(gamma);
+            this.minIndexable = Double.MIN_NORMAL * gamma;
+        }
+
+        void add(double value) {
+            if (value > minIndexable) {
+                positive.add(index(value));
+            } else if (value < -minIndexable) {
+                negative.add(index(-value));
+            } else {
+                zeroCount++;
+            }
+        }
+
+        int index(double value) {
+            return (int) Math.ceil(Math.log(value) / logGamma);
+        }
+
+        double value(int index) {
+            return 2 * Math.pow(gamma, index) / (gamma + 1);
+        }
+
+        void merge(QuantileSketch other) {
+            if (other.gamma != gamma) {
+                throw new IllegalArgumentException("Cannot merge sketches with different accuracy");
+            }
+            positive.merge(other.positive);
+            negative.merge(other.negative);
+            zeroCount += other.zeroCount;
+        }
+
+        double getQuantile(double quantile) {
+            long total = negative.total + zeroCount + positive.total;
+            long rank = (long) (quantile * (total - 1));
+            // negative values, from the largest magnitude down
+            long seen = 0;
+            for (int i = negative.counts.length - 1; i >= 0; i--) {
+                seen += negative.counts[i];
+                if (seen > rank) {
+                    return -value(i + negative.offset);
+                }
+            }
+            seen += zeroCount;
+            if (seen > rank) {
+                return 0;
+            }
+            for (int i = 0; i < positive.counts.length; i++) {
+                seen += positive.counts[i];
+                if (seen > rank) {
+                    return value(i + positive.offset);
+                }
+            }
+            return value(positive.offset + positive.counts.length - 1);
+        }
+    }
+
+    /**
+     * Dense bucket counts, growing on demand in both directions
+     */
+    static final class Buckets {
+        long[] counts = new long[0];
+
+        int offset;
+
+        long total;
+
+        void add(int index) {
+            add(index, 1);
+        }
+
+        void add(int index, long count) {
+            if (counts.length == 0) {
+                counts = new long[16];
+                offset = index - 8;
+            } else if (index < offset) {
+                int shift = Math.max(offset - index, counts.length / 2);
+                long[] grown = new long[counts.length + shift];
+                System.arraycopy(counts, 0, grown, shift, counts.length);
+                counts = grown;
+                offset -= shift;
+            } else if (index >= offset + counts.length) {
+                int grow = Math.max(index - offset - counts.length + 1, counts.length / 2);
+                counts = Arrays.copyOf(counts, counts.length + grow);
+            }
+            counts[index - offset] += count;
+            total += count;
+        }
+
+        void merge(Buckets other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] > 0) {
+                    add(i + other.offset, other.counts[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.processing;
+
+import it.geosolutions.jaiext.range.NoDataContainer;
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.resources.coverage.CoverageUtilities;
+
+/**
+ * Computes {@link BandStatistics} on a {@link GridCoverage2D} one tile at a time, in parallel.
+ * <p>
+ * Unlike the JAI based statistics operations, the image is never materialized as a whole: tiles
+ * are requested in batches of {@link #setBatchSize(int) configurable size}, each batch is
+ * processed by a task in the executor, and the per batch statistics are merged as soon as they are
+ * available. Only a bounded number of batches is in flight at any given time, so the memory used
+ * depends on the tile size, the batch size and the parallelism, but not on the coverage size.
+ * <p>
+ * NaN values, and values matching the coverage nodata (as well as the ones
+ * {@link #setNoData(double...) specified} in addition) are not accounted for.
+ */
+public class StreamingStatistics {
+
+    static final int DEFAULT_BATCH_SIZE = 16;
+
+    int[] bands;
+
+    double[] binEdges;
+
+    double quantileAccuracy;
+
+    int batchSize = DEFAULT_BATCH_SIZE;
+
+    ExecutorService executor;
+
+    double[] noData;
+
+    /**
+     * The bands to compute statistics for, by default all of them
+     */
+    public void setBands(int... bands) {
+        this.bands = bands;
+    }
+
+    /**
+     * Sets the edges of the histogram bins (n + 1 edges for n bins), or null to skip the histogram
+     * computation (the default)
+     */
+    public void setBinEdges(double... binEdges) {
+        this.binEdges = binEdges;
+    }
+
+    /**
+     * Sets numBins histogram bins of the same width between low and high
+     */
+    public void setUniformBins(double low, double high, int numBins) {
+        this.binEdges = BandStatistics.uniformBins(low, high, numBins);
+    }
+
+    /**
+     * Sets the relative accuracy of the approximate quantiles (e.g., 0.01 for 1%), or 0 to skip
+     * the quantiles computation (the default)
+     */
+    public void setQuantileAccuracy(double quantileAccuracy) {
+        this.quantileAccuracy = quantileAccuracy;
+    }
+
+    /**
+     * The number of tiles processed by each task, {@value #DEFAULT_BATCH_SIZE} by default
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * The executor running the tile batches, by default the {@link ForkJoinPool#commonPool()}.
+     * The executor is not shut down at the end of the computation.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Values to be ignored, in addition to the nodata of the coverage
+     */
+    public void setNoData(double... noData) {
+        this.noData = noData;
+    }
+
+    /**
+     * Computes the statistics of the configured bands
+     *
+     * @return One {@link BandStatistics} per band, in the same order as the requested bands
+     * @throws CoverageProcessingException if reading the tiles failed, or the computation was
+     *         interrupted
+     */
+    public BandStatistics[] compute(GridCoverage2D coverage) {
+        final RenderedImage image = coverage.getRenderedImage();
+        final int[] targetBands = getBands(image);
+        final Range noDataRange = getNoDataRange(coverage);
+        final BandStatistics[] result = newStatistics(targetBands.length);
+
+        final int minTileX = image.getMinTileX();
+        final int minTileY = image.getMinTileY();
+        final int numXTiles = image.getNumXTiles();
+        final long numTiles = ((long) numXTiles) * image.getNumYTiles();
+        if (numTiles == 0) {
+            return result;
+        }
+
+        final ExecutorService service = executor != null ? executor : ForkJoinPool.commonPool();
+        final CompletionService<BandStatistics[]> completion = new ExecutorCompletionService<BandStatistics[]>(
+                service);
+        // keep the cores busy, but do not queue up more batches than it's necessary
+        final int maxInFlight = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        final AtomicBoolean aborted = new AtomicBoolean();
+        int inFlight = 0;
+        try {
+            for (long start = 0; start < numTiles; start += batchSize) {
+                if (inFlight >= maxInFlight) {
+                    merge(result, completion.take().get());
+                    inFlight--;
+                }
+                final long first = start;
+                final long last = Math.min(numTiles, start + batchSize);
+                completion.submit(new Callable<BandStatistics[]>() {
+
+                    @Override
+                    public BandStatistics[] call() throws Exception {
+                        BandStatistics[] stats = newStatistics(targetBands.length);
+                        double[] samples = null;
+                        for (long t = first; t < last && !aborted.get(); t++) {
+                            int tx = minTileX + (int) (t % numXTiles);
+                            int ty = minTileY + (int) (t / numXTiles);
+                            samples = collect(image, image.getTile(tx, ty), targetBands,
+                                    noDataRange, stats, samples);
+                        }
+                        return stats;
+                    }
+                });
+                inFlight++;
+            }
+            while (inFlight > 0) {
+                merge(result, completion.take().get());
+                inFlight--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CoverageProcessingException(e);
+        } catch (ExecutionException e) {
+            throw new CoverageProcessingException(e.getCause());
+        } finally {
+            // batches still queued or running after a failure will stop at the next tile
+            aborted.set(true);
+        }
+
+        return result;
+    }
+
+    private int[] getBands(RenderedImage image) {
+        final int numBands = image.getSampleModel().getNumBands();
+        if (bands == null) {
+            int[] result = new int[numBands];
+            for (int i = 0; i < numBands; i++) {
+                result[i] = i;
+            }
+            return result;
+        }
+        for (int band : bands) {
+            if (band < 0 || band >= numBands) {
+                throw new IllegalArgumentException("Invalid band " + band
+                        + ", the coverage has " + numBands + " bands");
+            }
+        }
+        return bands.clone();
+    }
+
+    private Range getNoDataRange(GridCoverage2D coverage) {
+        NoDataContainer container = CoverageUtilities.getNoDataProperty(coverage);
+        return container != null ? container.getAsRange() : null;
+    }
+
+    private BandStatistics[] newStatistics(int numBands) {
+        BandStatistics[] result = new BandStatistics[numBands];
+        for (int i = 0; i < numBands; i++) {
+            result[i] = new BandStatistics(binEdges, quantileAccuracy);
+        }
+        return result;
+    }
+
+    private void merge(BandStatistics[] target, BandStatistics[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i].merge(source[i]);
+        }
+    }
+
+    /**
+     * Accumulates the valid samples of a tile in the statistics, returns the sample buffer so
+     * that it can be reused for the next tile
+     */
+    double[] collect(RenderedImage image, Raster tile, int[] targetBands, Range noDataRange,
+            BandStatistics[] stats, double[] samples) {
+        final Rectangle area = tile.getBounds().intersection(
+                new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(),
+                        image.getHeight()));
+        if (area.isEmpty()) {
+            return samples;
+        }
+        final int size = area.width * area.height;
+        if (samples == null || samples.length < size) {
+            samples = new double[size];
+        }
+        for (int b = 0; b < targetBands.length; b++) {
+            tile.getSamples(area.x, area.y, area.width, area.height, targetBands[b], samples);
+            // compact the valid values at the beginning of the buffer
+            int valid = 0;
+            for (int i = 0; i < size; i++) {
+                final double v = samples[i];
+                if (!Double.isNaN(v) && !isNoData(v, noDataRange)) {
+                    samples[valid++] = v;
+                }
+            }
+            stats[b].add(samples, valid);
+        }
+        return samples;
+    }
+
+    private boolean isNoData(double value, Range noDataRange) {
+        if (noDataRange != null && noDataRange.contains(value)) {
+            return true;
+        }
+        if (noData != null) {
+            for (double nd : noData) {
+                if (nd == value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -98,6 +98,7 @@ import javax.media.jai.registry.RenderedRegistryMode;
 
 import org.geotools.factory.Hints;
 import org.geotools.image.io.ImageIOExt;
+import org.geotools.image.jai.Registry;
 import org.geotools.referencing.ReferencingFactoryFinder;
 import org.geotools.referencing.operation.transform.WarpBuilder;
 import org.geotools.resources.Arguments;
@@ -759,6 +760,20 @@ public class ImageWorker {
         return this;
     }
 
+    /**
+     * Makes the images to be computed by this class save their tiles in the specified partition
+     * of the {@link Registry#getPartitionedTileCache() partitioned tile cache}, or in the JAI
+     * default tile cache if no partitioned cache has been set up. This method applies only to
+     * the next images to be computed.
+     * 
+     * @param partition The partition name, e.g. a coverage name or a request type
+     * @return This ImageWorker
+     * @see Registry#getTileCache(String)
+     */
+    public final ImageWorker setTileCachePartition(final String partition) {
+        return setRenderingHint(JAI.KEY_TILE_CACHE, Registry.getTileCache(partition));
+    }
+
     /**
      * Set a map of rendering hints to use for all images to be computed by this class. 
      * This method applies only to the next images to be computed;
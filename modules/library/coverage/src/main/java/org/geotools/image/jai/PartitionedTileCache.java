@@ -0,0 +1,953 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.image.jai;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.media.jai.JAI;
+import javax.media.jai.TileCache;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * A tile cache split in named partitions, each one with its own memory capacity, LRU eviction and
+ * statistics, so that a large request filling its partition (e.g., a big export) does not evict
+ * the tiles of the other partitions (e.g., the ones of the layers being rendered for maps).
+ * <p>
+ * Each {@link Partition} is a JAI {@link TileCache} on its own, to be used as the
+ * {@link JAI#KEY_TILE_CACHE} hint of the operations whose tiles should end up in it. Partitions
+ * can be organized per coverage, per request type, or any other criteria, and are created on
+ * demand with the default capacity, unless configured otherwise with
+ * {@link #setPartitionCapacity(String, long)}. The cache can be made available globally with
+ * {@link Registry#setPartitionedTileCache(PartitionedTileCache)}, and used in
+ * {@link org.geotools.image.ImageWorker} with
+ * {@link org.geotools.image.ImageWorker#setTileCachePartition(String)}.
+ * <p>
+ * When built in off-heap mode, the tile data is copied in direct buffers, outside of the Java
+ * heap, and copied back in a new raster on each cache hit. This keeps large caches from
+ * increasing the garbage collection work, at the price of a copy per hit. Rasters whose data
+ * buffer is not one of the standard {@link DataBuffer} subclasses, or that are a child of a
+ * larger raster, are kept on heap regardless.
+ * <p>
+ * Direct buffers are released only when garbage collected, so the off-heap tiles cached at any
+ * given time are accounted against an off-heap capacity, by default a share of the max direct
+ * memory of the JVM (see <code>-XX:MaxDirectMemorySize</code>). Tiles that would exceed it, or
+ * whose allocation fails, are kept on heap instead.
+ * <p>
+ * The statistics of each partition can be exposed through JMX with {@link #registerMBeans()}.
+ */
+public class PartitionedTileCache {
+
+    static final Logger LOGGER = Logging.getLogger(PartitionedTileCache.class);
+
+    /**
+     * The JMX domain used for the partition MBeans
+     */
+    public static final String JMX_DOMAIN = "org.geotools.image";
+
+    /**
+     * The default memory threshold, the same as the JAI default tile cache
+     */
+    public static final float DEFAULT_MEMORY_THRESHOLD = 0.75f;
+
+    /**
+     * The default share of the max direct memory the off-heap tiles can use
+     */
+    public static final double DEFAULT_OFF_HEAP_RATIO = 0.5;
+
+    /**
+     * The max direct memory of the JVM, in bytes
+     */
+    static final long MAX_DIRECT_MEMORY = getMaxDirectMemory();
+
+    final String name;
+
+    final long defaultCapacity;
+
+    final boolean offHeap;
+
+    final Map<String, Partition> partitions = new LinkedHashMap<String, Partition>();
+
+    /** The direct memory used by the cached off-heap tiles, in bytes */
+    final AtomicLong offHeapUsage = new AtomicLong();
+
+    volatile long offHeapCapacity = (long) (MAX_DIRECT_MEMORY * DEFAULT_OFF_HEAP_RATIO);
+
+    boolean mbeansRegistered;
+
+    /**
+     * Creates a new partitioned cache
+     *
+     * @param name The cache name, used to identify its partitions in JMX
+     * @param defaultCapacity The memory capacity of partitions that have not been explicitly
+     *        configured, in bytes
+     * @param offHeap If true, the tile data will be stored outside of the Java heap
+     */
+    public PartitionedTileCache(String name, long defaultCapacity, boolean offHeap) {
+        if (name == null) {
+            throw new IllegalArgumentException("The cache name cannot be null");
+        }
+        if (defaultCapacity < 0) {
+            throw new IllegalArgumentException("The default capacity cannot be negative");
+        }
+        this.name = name;
+        this.defaultCapacity = defaultCapacity;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * The cache name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the tile data is stored outside of the Java heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * The direct memory the off-heap tiles can use, in bytes
+     */
+    public long getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    /**
+     * Sets the direct memory the off-heap tiles can use, in bytes. Lowering it does not evict
+     * tiles, but new tiles are kept on heap until the off-heap usage gets below the capacity.
+     */
+    public void setOffHeapCapacity(long offHeapCapacity) {
+        if (offHeapCapacity < 0) {
+            throw new IllegalArgumentException("The off-heap capacity cannot be negative");
+        }
+        this.offHeapCapacity = offHeapCapacity;
+    }
+
+    /**
+     * The direct memory used by the off-heap tiles of all the partitions, in bytes
+     */
+    public long getOffHeapUsage() {
+        return offHeapUsage.get();
+    }
+
+    /**
+     * Reserves direct memory for an off-heap tile, returns false if it would exceed the off-heap
+     * capacity
+     */
+    boolean reserveOffHeap(long size) {
+        while (true) {
+            long usage = offHeapUsage.get();
+            if (usage + size > offHeapCapacity) {
+                return false;
+            }
+            if (offHeapUsage.compareAndSet(usage, usage + size)) {
+                return true;
+            }
+        }
+    }
+
+    void releaseOffHeap(long size) {
+        offHeapUsage.addAndGet(-size);
+    }
+
+    /**
+     * Returns the max direct memory, as set by <code>-XX:MaxDirectMemorySize</code>, or the max
+     * heap size, which is the default
+     */
+    static long getMaxDirectMemory() {
+        final String prefix = "-XX:MaxDirectMemorySize=";
+        try {
+            for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (argument.startsWith(prefix)) {
+                    return parseSize(argument.substring(prefix.length()));
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not determine the max direct memory", e);
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Parses a JVM memory size, e.g., 512m
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        long multiplier = 1;
+        char unit = value.charAt(value.length() - 1);
+        if (unit == 'k') {
+            multiplier = 1024;
+        } else if (unit == 'm') {
+            multiplier = 1024 * 1024;
+        } else if (unit == 'g') {
+            multiplier = 1024 * 1024 * 1024;
+        } else if (unit == 't') {
+            multiplier = 1024L * 1024 * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * multiplier;
+    }
+
+    /**
+     * Returns the partition with the given name, creating it with the default capacity if missing
+     */
+    public synchronized Partition getPartition(String partitionName) {
+        if (partitionName == null) {
+            throw new IllegalArgumentException("The partition name cannot be null");
+        }
+        Partition partition = partitions.get(partitionName);
+        if (partition == null) {
+            partition = new Partition(partitionName, defaultCapacity);
+            partitions.put(partitionName, partition);
+            if (mbeansRegistered) {
+                register(partition);
+            }
+        }
+        return partition;
+    }
+
+    /**
+     * Sets the capacity of the specified partition, creating it if missing
+     */
+    public void setPartitionCapacity(String partitionName, long capacity) {
+        getPartition(partitionName).setMemoryCapacity(capacity);
+    }
+
+    /**
+     * The names of the partitions created so far
+     */
+    public synchronized Set<String> getPartitionNames() {
+        return new TreeSet<String>(partitions.keySet());
+    }
+
+    /**
+     * The memory used by all the partitions, in bytes
+     */
+    public long getMemoryUsage() {
+        long usage = 0;
+        for (Partition partition : getPartitions()) {
+            usage += partition.getMemoryUsage();
+        }
+        return usage;
+    }
+
+    /**
+     * Removes all the tiles from all the partitions
+     */
+    public void flush() {
+        for (Partition partition : getPartitions()) {
+            partition.flush();
+        }
+    }
+
+    /**
+     * Registers the MBeans of the current partitions, and of the ones that will be created later,
+     * in the platform MBean server
+     */
+    public synchronized void registerMBeans() {
+        if (mbeansRegistered) {
+            return;
+        }
+        mbeansRegistered = true;
+        for (Partition partition : partitions.values()) {
+            register(partition);
+        }
+    }
+
+    /**
+     * Removes the partitions MBeans from the platform MBean server
+     */
+    public synchronized void unregisterMBeans() {
+        if (!mbeansRegistered) {
+            return;
+        }
+        mbeansRegistered = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Partition partition : partitions.values()) {
+            try {
+                ObjectName objectName = getObjectName(partition.getName());
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "Failed to unregister the MBean of tile cache partition "
+                        + partition.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * The name under which the MBean of the specified partition is registered
+     */
+    public ObjectName getObjectName(String partitionName) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=TileCachePartition,cache="
+                + ObjectName.quote(name) + ",partition=" + ObjectName.quote(partitionName));
+    }
+
+    private void register(Partition partition) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = getObjectName(partition.getName());
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(partition, objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register the MBean of tile cache partition "
+                    + partition.getName(), e);
+        }
+    }
+
+    private synchronized List<Partition> getPartitions() {
+        return new ArrayList<Partition>(partitions.values());
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedTileCache[name=" + name + ", partitions=" + getPartitionNames()
+                + ", offHeap=" + offHeap + ", offHeapUsage=" + getOffHeapUsage() + "/"
+                + getOffHeapCapacity() + "]";
+    }
+
+    /**
+     * A partition of the cache, with its own capacity and LRU eviction
+     */
+    public class Partition implements TileCache, TileCachePartitionMXBean {
+
+        final String partitionName;
+
+        /** The tiles, in access order */
+        final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<TileKey, CachedTile>(
+                16, 0.75f, true);
+
+        final AtomicLong hits = new AtomicLong();
+
+        final AtomicLong misses = new AtomicLong();
+
+        final AtomicLong evictions = new AtomicLong();
+
+        long memoryCapacity;
+
+        float memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+
+        long memoryUsage;
+
+        int tileCapacity;
+
+        Comparator tileComparator;
+
+        Partition(String partitionName, long memoryCapacity) {
+            this.partitionName = partitionName;
+            this.memoryCapacity = memoryCapacity;
+        }
+
+        @Override
+        public String getName() {
+            return partitionName;
+        }
+
+        /**
+         * The cache this partition is part of
+         */
+        public PartitionedTileCache getCache() {
+            return PartitionedTileCache.this;
+        }
+
+        @Override
+        public void add(RenderedImage owner, int tileX, int tileY, Raster data) {
+            add(owner, tileX, tileY, data, null);
+        }
+
+        @Override
+        public void add(RenderedImage owner, int tileX, int tileY, Raster data,
+                Object tileCacheMetric) {
+            if (owner == null || data == null) {
+                return;
+            }
+            // copy the data off heap before getting the lock
+            CachedTile tile = offHeap ? OffHeapTile.create(data, PartitionedTileCache.this) : null;
+            if (tile == null) {
+                tile = new HeapTile(data);
+            }
+            if (tile.size > memoryCapacity) {
+                tile.release();
+                return;
+            }
+            synchronized (this) {
+                CachedTile previous = tiles.put(new TileKey(owner, tileX, tileY), tile);
+                if (previous != null) {
+                    memoryUsage -= previous.size;
+                    previous.release();
+                }
+                memoryUsage += tile.size;
+                if (memoryUsage > memoryCapacity) {
+                    evict((long) (memoryCapacity * memoryThreshold));
+                }
+            }
+        }
+
+        @Override
+        public void addTiles(RenderedImage owner, Point[] tileIndices, Raster[] data,
+                Object tileCacheMetric) {
+            if (tileIndices == null || data == null) {
+                return;
+            }
+            if (tileIndices.length != data.length) {
+                throw new IllegalArgumentException(
+                        "The tile indices and the tiles must have the same size");
+            }
+            for (int i = 0; i < tileIndices.length; i++) {
+                add(owner, tileIndices[i].x, tileIndices[i].y, data[i], tileCacheMetric);
+            }
+        }
+
+        @Override
+        public Raster getTile(RenderedImage owner, int tileX, int tileY) {
+            if (owner == null) {
+                return null;
+            }
+            CachedTile tile;
+            synchronized (this) {
+                tile = tiles.get(new TileKey(owner, tileX, tileY));
+            }
+            if (tile == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return tile.getRaster();
+        }
+
+        @Override
+        public Raster[] getTiles(RenderedImage owner, Point[] tileIndices) {
+            if (tileIndices == null) {
+                return null;
+            }
+            Raster[] result = new Raster[tileIndices.length];
+            for (int i = 0; i < tileIndices.length; i++) {
+                result[i] = getTile(owner, tileIndices[i].x, tileIndices[i].y);
+            }
+            return result;
+        }
+
+        @Override
+        public Raster[] getTiles(RenderedImage owner) {
+            if (owner == null) {
+                return null;
+            }
+            List<CachedTile> found = new ArrayList<CachedTile>();
+            synchronized (this) {
+                for (Map.Entry<TileKey, CachedTile> entry : tiles.entrySet()) {
+                    if (entry.getKey().getOwner() == owner) {
+                        found.add(entry.getValue());
+                    }
+                }
+            }
+            if (found.isEmpty()) {
+                return null;
+            }
+            Raster[] result = new Raster[found.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = found.get(i).getRaster();
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized void remove(RenderedImage owner, int tileX, int tileY) {
+            if (owner == null) {
+                return;
+            }
+            CachedTile tile = tiles.remove(new TileKey(owner, tileX, tileY));
+            if (tile != null) {
+                memoryUsage -= tile.size;
+                tile.release();
+            }
+        }
+
+        @Override
+        public synchronized void removeTiles(RenderedImage owner) {
+            if (owner == null) {
+                return;
+            }
+            for (Iterator<Map.Entry<TileKey, CachedTile>> it = tiles.entrySet().iterator(); it
+                    .hasNext();) {
+                Map.Entry<TileKey, CachedTile> entry = it.next();
+                RenderedImage tileOwner = entry.getKey().getOwner();
+                // also clean up the tiles of images that have been garbage collected
+                if (tileOwner == owner || tileOwner == null) {
+                    memoryUsage -= entry.getValue().size;
+                    entry.getValue().release();
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            for (CachedTile tile : tiles.values()) {
+                tile.release();
+            }
+            tiles.clear();
+            memoryUsage = 0;
+        }
+
+        @Override
+        public synchronized void memoryControl() {
+            evict((long) (memoryCapacity * memoryThreshold));
+        }
+
+        /**
+         * Evicts the least recently used tiles until the memory usage is below the target
+         */
+        private void evict(long target) {
+            for (Iterator<CachedTile> it = tiles.values().iterator(); it.hasNext()
+                    && memoryUsage > target;) {
+                CachedTile tile = it.next();
+                it.remove();
+                memoryUsage -= tile.size;
+                tile.release();
+                evictions.incrementAndGet();
+            }
+        }
+
+        /**
+         * Not used, the capacity is controlled by memory usage only
+         */
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setTileCapacity(int tileCapacity) {
+            this.tileCapacity = tileCapacity;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public int getTileCapacity() {
+            return tileCapacity;
+        }
+
+        @Override
+        public synchronized void setMemoryCapacity(long memoryCapacity) {
+            if (memoryCapacity < 0) {
+                throw new IllegalArgumentException("The memory capacity cannot be negative");
+            }
+            this.memoryCapacity = memoryCapacity;
+            if (memoryUsage > memoryCapacity) {
+                evict((long) (memoryCapacity * memoryThreshold));
+            }
+        }
+
+        @Override
+        public synchronized long getMemoryCapacity() {
+            return memoryCapacity;
+        }
+
+        @Override
+        public synchronized void setMemoryThreshold(float memoryThreshold) {
+            if (memoryThreshold < 0 || memoryThreshold > 1) {
+                throw new IllegalArgumentException(
+                        "The memory threshold must be between 0 and 1");
+            }
+            this.memoryThreshold = memoryThreshold;
+            memoryControl();
+        }
+
+        @Override
+        public synchronized float getMemoryThreshold() {
+            return memoryThreshold;
+        }
+
+        /**
+         * Stored for compatibility, but not used, the partition always evicts the least recently
+         * used tiles first
+         */
+        @Override
+        public void setTileComparator(Comparator comparator) {
+            this.tileComparator = comparator;
+        }
+
+        @Override
+        public Comparator getTileComparator() {
+            return tileComparator;
+        }
+
+        @Override
+        public long getHits() {
+            return hits.get();
+        }
+
+        @Override
+        public long getMisses() {
+            return misses.get();
+        }
+
+        @Override
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        @Override
+        public double getHitRatio() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : h / (double) total;
+        }
+
+        @Override
+        public synchronized int getTileCount() {
+            return tiles.size();
+        }
+
+        @Override
+        public synchronized long getMemoryUsage() {
+            return memoryUsage;
+        }
+
+        @Override
+        public void resetStatistics() {
+            hits.set(0);
+            misses.set(0);
+            evictions.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "Partition[cache=" + name + ", name=" + partitionName + ", tiles="
+                    + getTileCount() + ", memoryUsage=" + getMemoryUsage() + "/"
+                    + getMemoryCapacity() + "]";
+        }
+    }
+
+    /**
+     * Identifies a tile, without preventing its owner from being garbage collected
+     */
+    static final class TileKey {
+
+        final WeakReference<RenderedImage> owner;
+
+        final int ownerHash;
+
+        final int tileX;
+
+        final int tileY;
+
+        TileKey(RenderedImage owner, int tileX, int tileY) {
+            this.owner = new WeakReference<RenderedImage>(owner);
+            this.ownerHash = System.identityHashCode(owner);
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        RenderedImage getOwner() {
+            return owner.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return (ownerHash * 31 + tileX) * 31 + tileY;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            if (tileX != other.tileX || tileY != other.tileY || ownerHash != other.ownerHash) {
+                return false;
+            }
+            RenderedImage o = owner.get();
+            return o != null && o == other.owner.get();
+        }
+    }
+
+    /**
+     * A cached tile, along with its size in bytes
+     */
+    static abstract class CachedTile {
+
+        final long size;
+
+        CachedTile(long size) {
+            this.size = size;
+        }
+
+        abstract Raster getRaster();
+
+        /**
+         * Called when the tile leaves the cache
+         */
+        void release() {
+        }
+
+        static long getSize(DataBuffer buffer) {
+            return ((long) DataBuffer.getDataTypeSize(buffer.getDataType()) / 8)
+                    * buffer.getSize() * buffer.getNumBanks();
+        }
+    }
+
+    /**
+     * A tile kept on the Java heap, as is
+     */
+    static final class HeapTile extends CachedTile {
+
+        final Raster raster;
+
+        HeapTile(Raster raster) {
+            super(getSize(raster.getDataBuffer()));
+            this.raster = raster;
+        }
+
+        @Override
+        Raster getRaster() {
+            return raster;
+        }
+    }
+
+    /**
+     * A tile whose data has been copied in a direct buffer, outside of the Java heap
+     */
+    static final class OffHeapTile extends CachedTile {
+
+        final SampleModel sampleModel;
+
+        final Point location;
+
+        final int dataType;
+
+        final int bankSize;
+
+        final int bufferSize;
+
+        final int[] offsets;
+
+        final ByteBuffer data;
+
+        final PartitionedTileCache cache;
+
+        private OffHeapTile(SampleModel sampleModel, Point location, int dataType,
+                int bankSize, int bufferSize, int[] offsets, ByteBuffer data,
+                PartitionedTileCache cache) {
+            super(data.capacity());
+            this.sampleModel = sampleModel;
+            this.location = location;
+            this.dataType = dataType;
+            this.bankSize = bankSize;
+            this.bufferSize = bufferSize;
+            this.offsets = offsets;
+            this.data = data;
+            this.cache = cache;
+        }
+
+        /**
+         * Copies the raster data in a direct buffer, or returns null if the raster cannot be
+         * stored off heap, or the off-heap capacity of the cache has been reached
+         */
+        static OffHeapTile create(Raster raster, PartitionedTileCache cache) {
+            final DataBuffer db = raster.getDataBuffer();
+            if (raster.getParent() != null
+                    || raster.getMinX() != raster.getSampleModelTranslateX()
+                    || raster.getMinY() != raster.getSampleModelTranslateY()) {
+                return null;
+            }
+            final int banks = db.getNumBanks();
+            final int bankSize = getBankSize(db);
+            if (bankSize < 0) {
+                return null;
+            }
+            final int typeSize = DataBuffer.getDataTypeSize(db.getDataType()) / 8;
+            final long capacity = ((long) bankSize) * banks * typeSize;
+            if (capacity > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (!cache.reserveOffHeap(capacity)) {
+                return null;
+            }
+            final ByteBuffer buffer;
+            try {
+                buffer = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+            } catch (OutOfMemoryError e) {
+                // the direct memory is used by something else too, or not yet garbage collected
+                cache.releaseOffHeap(capacity);
+                LOGGER.log(Level.FINE, "Could not allocate an off-heap tile, keeping it on heap",
+                        e);
+                return null;
+            }
+            for (int b = 0; b < banks; b++) {
+                final ByteBuffer bank = slice(buffer, b, bankSize, typeSize);
+                if (db instanceof DataBufferByte) {
+                    bank.put(((DataBufferByte) db).getData(b));
+                } else if (db instanceof DataBufferUShort) {
+                    bank.asShortBuffer().put(((DataBufferUShort) db).getData(b));
+                } else if (db instanceof DataBufferShort) {
+                    bank.asShortBuffer().put(((DataBufferShort) db).getData(b));
+                } else if (db instanceof DataBufferInt) {
+                    bank.asIntBuffer().put(((DataBufferInt) db).getData(b));
+                } else if (db instanceof DataBufferFloat) {
+                    bank.asFloatBuffer().put(((DataBufferFloat) db).getData(b));
+                } else {
+                    bank.asDoubleBuffer().put(((DataBufferDouble) db).getData(b));
+                }
+            }
+            return new OffHeapTile(raster.getSampleModel(), new Point(raster.getMinX(),
+                    raster.getMinY()), db.getDataType(), bankSize, db.getSize(), db.getOffsets(),
+                    buffer, cache);
+        }
+
+        /**
+         * Returns the length of the banks arrays, or -1 if the buffer is not one of the standard
+         * types, or its banks have different lengths
+         */
+        private static int getBankSize(DataBuffer db) {
+            final Class<?> type = db.getClass();
+            if (type != DataBufferByte.class && type != DataBufferUShort.class
+                    && type != DataBufferShort.class && type != DataBufferInt.class
+                    && type != DataBufferFloat.class && type != DataBufferDouble.class) {
+                return -1;
+            }
+            int size = -1;
+            for (int b = 0; b < db.getNumBanks(); b++) {
+                int length;
+                if (db instanceof DataBufferByte) {
+                    length = ((DataBufferByte) db).getData(b).length;
+                } else if (db instanceof DataBufferUShort) {
+                    length = ((DataBufferUShort) db).getData(b).length;
+                } else if (db instanceof DataBufferShort) {
+                    length = ((DataBufferShort) db).getData(b).length;
+                } else if (db instanceof DataBufferInt) {
+                    length = ((DataBufferInt) db).getData(b).length;
+                } else if (db instanceof DataBufferFloat) {
+                    length = ((DataBufferFloat) db).getData(b).length;
+                } else {
+                    length = ((DataBufferDouble) db).getData(b).length;
+                }
+                if (size >= 0 && size != length) {
+                    return -1;
+                }
+                size = length;
+            }
+            return size;
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int bank, int bankSize, int typeSize) {
+            // work on a duplicate, so that concurrent copies do not interfere with each other
+            ByteBuffer result = buffer.duplicate();
+            int start = bank * bankSize * typeSize;
+            result.position(start);
+            result.limit(start + bankSize * typeSize);
+            return result.slice().order(buffer.order());
+        }
+
+        @Override
+        Raster getRaster() {
+            final int banks = offsets.length;
+            final int typeSize = DataBuffer.getDataTypeSize(dataType) / 8;
+            final DataBuffer db;
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE: {
+                byte[][] arrays = new byte[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).get(arrays[b]);
+                }
+                db = new DataBufferByte(arrays, bufferSize, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_USHORT: {
+                short[][] arrays = new short[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).asShortBuffer().get(arrays[b]);
+                }
+                db = new DataBufferUShort(arrays, bufferSize, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_SHORT: {
+                short[][] arrays = new short[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).asShortBuffer().get(arrays[b]);
+                }
+                db = new DataBufferShort(arrays, bufferSize, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_INT: {
+                int[][] arrays = new int[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).asIntBuffer().get(arrays[b]);
+                }
+                db = new DataBufferInt(arrays, bufferSize, offsets);
+                break;
+            }
+            case DataBuffer.TYPE_FLOAT: {
+                float[][] arrays = new float[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).asFloatBuffer().get(arrays[b]);
+                }
+                db = new DataBufferFloat(arrays, bufferSize, offsets);
+                break;
+            }
+            default: {
+                double[][] arrays = new double[banks][bankSize];
+                for (int b = 0; b < banks; b++) {
+                    slice(data, b, bankSize, typeSize).asDoubleBuffer().get(arrays[b]);
+                }
+                db = new DataBufferDouble(arrays, bufferSize, offsets);
+            }
+            }
+            return Raster.createWritableRaster(sampleModel, db, location);
+        }
+
+        @Override
+        void release() {
+            cache.releaseOffHeap(size);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import javax.media.jai.JAI;
 import javax.media.jai.OperationDescriptor;
 import javax.media.jai.OperationRegistry;
 import javax.media.jai.ParameterBlockJAI;
+import javax.media.jai.TileCache;
 import javax.media.jai.registry.RIFRegistry;
 import javax.media.jai.registry.RenderedRegistryMode;
 
@@ -63,12 +64,49 @@ public final class Registry {
      */
     public static final String GEOTOOLS_PRODUCT = "org.geotools";
     
+    /**
+     * The partitioned tile cache shared by the whole application, if any
+     */
+    private static PartitionedTileCache partitionedTileCache;
+
     /**
      * Do not allows instantiation of this class.
      */
     private Registry() {
     }
 
+    /**
+     * Sets the partitioned tile cache shared by the whole application, or null to go back
+     * using the JAI default tile cache only.
+     *
+     * @see #getTileCache(String)
+     */
+    public static synchronized void setPartitionedTileCache(PartitionedTileCache cache) {
+        partitionedTileCache = cache;
+    }
+
+    /**
+     * Returns the partitioned tile cache shared by the whole application, or null if none has
+     * been set
+     */
+    public static synchronized PartitionedTileCache getPartitionedTileCache() {
+        return partitionedTileCache;
+    }
+
+    /**
+     * Returns the tile cache to be used for the given partition (e.g., a coverage name, or a
+     * request type), to be used as the {@link JAI#KEY_TILE_CACHE} hint. If no
+     * {@link #setPartitionedTileCache(PartitionedTileCache) partitioned tile cache} has been set
+     * the JAI default tile cache is returned instead.
+     */
+    public static TileCache getTileCache(String partition) {
+        final PartitionedTileCache cache = getPartitionedTileCache();
+        if (cache == null) {
+            return JAI.getDefaultInstance().getTileCache();
+        }
+        return cache.getPartition(partition);
+    }
+
   
     /**
      * Allows or disallow native acceleration for the specified operation on the given JAI instance.
@@ -0,0 +1,80 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.image.jai;
+
+/**
+ * Management interface of a {@link PartitionedTileCache} partition, exposed through JMX once the
+ * cache {@link PartitionedTileCache#registerMBeans() MBeans are registered}.
+ */
+public interface TileCachePartitionMXBean {
+
+    /**
+     * The partition name
+     */
+    String getName();
+
+    /**
+     * Number of tile lookups that found the tile in the partition
+     */
+    long getHits();
+
+    /**
+     * Number of tile lookups that did not find the tile in the partition
+     */
+    long getMisses();
+
+    /**
+     * Number of tiles removed from the partition to make room for new ones
+     */
+    long getEvictions();
+
+    /**
+     * Ratio between hits and lookups, or 0 if no lookup has been performed yet
+     */
+    double getHitRatio();
+
+    /**
+     * Number of tiles in the partition
+     */
+    int getTileCount();
+
+    /**
+     * Memory used by the tiles in the partition, in bytes
+     */
+    long getMemoryUsage();
+
+    /**
+     * Maximum memory the partition can use, in bytes
+     */
+    long getMemoryCapacity();
+
+    /**
+     * Sets the maximum memory the partition can use, in bytes. Tiles are evicted if the usage
+     * exceeds the new capacity.
+     */
+    void setMemoryCapacity(long memoryCapacity);
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    void resetStatistics();
+
+    /**
+     * Removes all the tiles from the partition
+     */
+    void flush();
+}
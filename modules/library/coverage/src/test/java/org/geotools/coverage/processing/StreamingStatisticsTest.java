@@ -0,0 +1,226 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.processing;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.resources.coverage.CoverageUtilities;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingStatisticsTest {
+
+    static final int WIDTH = 100;
+
+    static final int HEIGHT = 70;
+
+    static final double NODATA = -9999;
+
+    TiledImage image;
+
+    @Before
+    public void setup() {
+        // two bands, tiles not aligned with the image size
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_DOUBLE,
+                16, 16, 2);
+        image = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sm, null);
+        Random random = new Random(0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setSample(x, y, 0, random.nextGaussian() * 100 + 50);
+                image.setSample(x, y, 1, x * y);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        StreamingStatistics engine = new StreamingStatistics();
+        engine.setBinEdges(-1000, -10, 0, 10, 250, 1000);
+        engine.setQuantileAccuracy(0.01);
+        // small batches, to exercise merging
+        engine.setBatchSize(3);
+        BandStatistics[] stats = engine.compute(coverage(null));
+        assertEquals(2, stats.length);
+
+        for (int b = 0; b < 2; b++) {
+            double[] values = values(b);
+            assertStatistics(values, stats[b]);
+            long[] expected = new long[5];
+            double[] edges = { -1000, -10, 0, 10, 250, 1000 };
+            for (double v : values) {
+                for (int i = 0; i < 5; i++) {
+                    if (v >= edges[i] && (v < edges[i + 1] || (i == 4 && v == edges[5]))) {
+                        expected[i]++;
+                    }
+                }
+            }
+            assertArrayEquals(expected, stats[b].getHistogram());
+            assertQuantiles(values, stats[b], 0.01);
+        }
+    }
+
+    @Test
+    public void testExecutorAndBands() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            StreamingStatistics engine = new StreamingStatistics();
+            engine.setExecutor(executor);
+            engine.setBands(1);
+            engine.setUniformBins(0, 99 * 69, 10);
+            engine.setBatchSize(1);
+            BandStatistics[] stats = engine.compute(coverage(null));
+            assertEquals(1, stats.length);
+            assertStatistics(values(1), stats[0]);
+            long total = 0;
+            for (long count : stats[0].getHistogram()) {
+                total += count;
+            }
+            assertEquals(WIDTH * HEIGHT, total);
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoData() throws Exception {
+        // mark a few pixels as nodata, and a few others as NaN
+        for (int x = 0; x < WIDTH; x++) {
+            image.setSample(x, 5, 0, NODATA);
+            image.setSample(x, 6, 0, Double.NaN);
+            image.setSample(x, 7, 0, 12345);
+        }
+        StreamingStatistics engine = new StreamingStatistics();
+        engine.setBands(0);
+        engine.setNoData(12345);
+        BandStatistics stats = engine.compute(coverage(NODATA))[0];
+        assertEquals(WIDTH * (HEIGHT - 3), stats.getCount());
+        assertStatistics(values(0), stats);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        double[] edges = BandStatistics.uniformBins(-300, 300, 12);
+        BandStatistics all = new BandStatistics(edges, 0.02);
+        BandStatistics first = new BandStatistics(edges, 0.02);
+        BandStatistics second = first.newEmpty();
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            double v = random.nextGaussian() * 100;
+            all.add(v);
+            (i % 3 == 0 ? first : second).add(v);
+        }
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMin(), first.getMin(), 0);
+        assertEquals(all.getMax(), first.getMax(), 0);
+        assertEquals(all.getMean(), first.getMean(), 1e-9);
+        assertEquals(all.getStandardDeviation(), first.getStandardDeviation(), 1e-9);
+        assertArrayEquals(all.getHistogram(), first.getHistogram());
+        for (double q = 0; q <= 1; q += 0.1) {
+            assertEquals(all.getQuantile(q), first.getQuantile(q), 0);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        BandStatistics stats = new BandStatistics(null, 0.01);
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMin()));
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getQuantile(0.5)));
+        assertNull(stats.getHistogram());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testQuantilesNotRequested() throws Exception {
+        new BandStatistics(null, 0).getQuantile(0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedEdges() throws Exception {
+        new BandStatistics(new double[] { 0, 10, 5 }, 0);
+    }
+
+    private GridCoverage2D coverage(Double noData) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        CoverageUtilities.setNoDataProperty(properties, noData);
+        return new GridCoverageFactory().create("test", image, new ReferencedEnvelope(0, WIDTH,
+                0, HEIGHT, DefaultGeographicCRS.WGS84), null, null, properties);
+    }
+
+    private double[] values(int band) {
+        double[] values = new double[WIDTH * HEIGHT];
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double v = image.getSampleDouble(x, y, band);
+                if (!Double.isNaN(v) && v != NODATA && v != 12345) {
+                    values[count++] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private void assertStatistics(double[] values, BandStatistics stats) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0;
+        for (double v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            sum += v;
+        }
+        double mean = sum / values.length;
+        double squares = 0;
+        for (double v : values) {
+            squares += (v - mean) * (v - mean);
+        }
+        double stddev = Math.sqrt(squares / values.length);
+        assertEquals(values.length, stats.getCount());
+        assertEquals(min, stats.getMin(), 0);
+        assertEquals(max, stats.getMax(), 0);
+        assertEquals(mean, stats.getMean(), 1e-9 * Math.abs(mean));
+        assertEquals(stddev, stats.getStandardDeviation(), 1e-9 * stddev);
+    }
+
+    private void assertQuantiles(double[] values, BandStatistics stats, double accuracy) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[] { 0, 0.01, 0.25, 0.5, 0.75, 0.99, 1 }) {
+            double expected = sorted[(int) (q * (sorted.length - 1))];
+            double actual = stats.getQuantile(q);
+            assertEquals("Quantile " + q, expected, actual, Math.abs(expected) * accuracy + 1e-9);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.image.jai;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.media.jai.JAI;
+import javax.media.jai.TileCache;
+
+import org.geotools.image.ImageWorker;
+import org.geotools.image.jai.PartitionedTileCache.Partition;
+import org.junit.Test;
+
+public class PartitionedTileCacheTest {
+
+    /** Size in bytes of a 16x16 single band byte tile */
+    static final int TILE_SIZE = 16 * 16;
+
+    @Test
+    public void testPartitionsAreIsolated() {
+        PartitionedTileCache cache = new PartitionedTileCache("test", TILE_SIZE * 4, false);
+        Partition wms = cache.getPartition("wms");
+        Partition wcs = cache.getPartition("wcs");
+        BufferedImage wmsImage = image();
+        BufferedImage wcsImage = image();
+
+        wms.add(wmsImage, 0, 0, tile(DataBuffer.TYPE_BYTE, 0, 0));
+        wms.add(wmsImage, 1, 0, tile(DataBuffer.TYPE_BYTE, 16, 0));
+        // a large request fills up its own partition
+        for (int i = 0; i < 20; i++) {
+            wcs.add(wcsImage, i, 0, tile(DataBuffer.TYPE_BYTE, i * 16, 0));
+        }
+        assertTrue(wcs.getMemoryUsage() <= wcs.getMemoryCapacity());
+        assertTrue(wcs.getEvictions() > 0);
+
+        // but the other one is untouched
+        assertEquals(2, wms.getTileCount());
+        assertNotNull(wms.getTile(wmsImage, 0, 0));
+        assertNotNull(wms.getTile(wmsImage, 1, 0));
+        assertNull(wms.getTile(wmsImage, 2, 0));
+        assertEquals(0, wms.getEvictions());
+        assertEquals(2, wms.getHits());
+        assertEquals(1, wms.getMisses());
+        assertEquals(2 / 3d, wms.getHitRatio(), 1e-9);
+        assertEquals(wms.getMemoryUsage() + wcs.getMemoryUsage(), cache.getMemoryUsage());
+
+        // tiles are keyed by owner too
+        assertNull(wms.getTile(wcsImage, 0, 0));
+        assertNull(wcs.getTile(wmsImage, 0, 0));
+    }
+
+    @Test
+    public void testLRU() {
+        PartitionedTileCache cache = new PartitionedTileCache("test", TILE_SIZE * 3, false);
+        Partition partition = cache.getPartition("default");
+        partition.setMemoryThreshold(1);
+        BufferedImage owner = image();
+        partition.add(owner, 0, 0, tile(DataBuffer.TYPE_BYTE, 0, 0));
+        partition.add(owner, 1, 0, tile(DataBuffer.TYPE_BYTE, 16, 0));
+        partition.add(owner, 2, 0, tile(DataBuffer.TYPE_BYTE, 32, 0));
+        // touch the first one, the second becomes the least recently used
+        assertNotNull(partition.getTile(owner, 0, 0));
+        partition.add(owner, 3, 0, tile(DataBuffer.TYPE_BYTE, 48, 0));
+        assertNotNull(partition.getTile(owner, 0, 0));
+        assertNull(partition.getTile(owner, 1, 0));
+        assertNotNull(partition.getTile(owner, 2, 0));
+        assertNotNull(partition.getTile(owner, 3, 0));
+        assertEquals(1, partition.getEvictions());
+
+        // shrinking the capacity evicts
+        partition.setMemoryCapacity(TILE_SIZE);
+        assertEquals(1, partition.getTileCount());
+
+        // tiles bigger than the capacity are not cached at all
+        partition.add(owner, 5, 0, tile(DataBuffer.TYPE_INT, 0, 0));
+        assertNull(partition.getTile(owner, 5, 0));
+
+        partition.removeTiles(owner);
+        assertEquals(0, partition.getTileCount());
+        assertEquals(0, partition.getMemoryUsage());
+    }
+
+    @Test
+    public void testOffHeap() {
+        PartitionedTileCache cache = new PartitionedTileCache("test", 1024 * 1024, true);
+        Partition partition = cache.getPartition("default");
+        BufferedImage owner = image();
+        int[] types = { DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+                DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE };
+        for (int i = 0; i < types.length; i++) {
+            Raster tile = tile(types[i], i * 16, 16);
+            partition.add(owner, i, 1, tile);
+            Raster cached = partition.getTile(owner, i, 1);
+            // a copy, with the same contents
+            assertNotSame(tile, cached);
+            assertEquals(tile.getBounds(), cached.getBounds());
+            assertEquals(types[i], cached.getDataBuffer().getDataType());
+            for (int b = 0; b < tile.getNumBands(); b++) {
+                assertArrayEquals(tile.getSamples(tile.getMinX(), tile.getMinY(),
+                        tile.getWidth(), tile.getHeight(), b, (double[]) null), cached.getSamples(
+                        cached.getMinX(), cached.getMinY(), cached.getWidth(),
+                        cached.getHeight(), b, (double[]) null), 0);
+            }
+        }
+        Raster[] tiles = partition.getTiles(owner);
+        assertEquals(types.length, tiles.length);
+
+        // child rasters are kept on heap
+        Raster parent = tile(DataBuffer.TYPE_BYTE, 0, 0);
+        Raster child = parent.createChild(0, 0, 8, 8, 0, 0, null);
+        partition.add(owner, 10, 10, child);
+        assertSame(child, partition.getTile(owner, 10, 10));
+    }
+
+    @Test
+    public void testOffHeapCapacity() {
+        PartitionedTileCache cache = new PartitionedTileCache("test", TILE_SIZE * 10, true);
+        assertTrue(cache.getOffHeapCapacity() > 0);
+        cache.setOffHeapCapacity(TILE_SIZE * 2);
+        Partition partition = cache.getPartition("default");
+        BufferedImage owner = image();
+        Raster t0 = tile(DataBuffer.TYPE_BYTE, 0, 0);
+        Raster t1 = tile(DataBuffer.TYPE_BYTE, 16, 0);
+        Raster t2 = tile(DataBuffer.TYPE_BYTE, 32, 0);
+        partition.add(owner, 0, 0, t0);
+        partition.add(owner, 1, 0, t1);
+        assertEquals(TILE_SIZE * 2, cache.getOffHeapUsage());
+        assertNotSame(t1, partition.getTile(owner, 1, 0));
+
+        // over the off-heap capacity, the tile is kept on heap
+        partition.add(owner, 2, 0, t2);
+        assertSame(t2, partition.getTile(owner, 2, 0));
+        assertEquals(TILE_SIZE * 2, cache.getOffHeapUsage());
+        assertEquals(TILE_SIZE * 3, partition.getMemoryUsage());
+
+        // tiles leaving the cache release their off-heap share
+        partition.remove(owner, 0, 0);
+        assertEquals(TILE_SIZE, cache.getOffHeapUsage());
+        partition.add(owner, 3, 0, tile(DataBuffer.TYPE_BYTE, 48, 0));
+        assertEquals(TILE_SIZE * 2, cache.getOffHeapUsage());
+        partition.setMemoryCapacity(TILE_SIZE);
+        assertTrue(cache.getOffHeapUsage() <= TILE_SIZE);
+        cache.flush();
+        assertEquals(0, cache.getOffHeapUsage());
+    }
+
+    @Test
+    public void testParseSize() {
+        assertEquals(512, PartitionedTileCache.parseSize("512"));
+        assertEquals(64 * 1024, PartitionedTileCache.parseSize("64k"));
+        assertEquals(256L * 1024 * 1024, PartitionedTileCache.parseSize("256M"));
+        assertEquals(2L * 1024 * 1024 * 1024, PartitionedTileCache.parseSize("2g"));
+        assertTrue(PartitionedTileCache.MAX_DIRECT_MEMORY > 0);
+    }
+
+    @Test
+    public void testMBeans() throws Exception {
+        PartitionedTileCache cache = new PartitionedTileCache("jmxTest", TILE_SIZE * 4, false);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Partition before = cache.getPartition("before");
+        cache.registerMBeans();
+        try {
+            cache.getPartition("after");
+            ObjectName beforeName = cache.getObjectName("before");
+            ObjectName afterName = cache.getObjectName("after");
+            assertTrue(server.isRegistered(beforeName));
+            assertTrue(server.isRegistered(afterName));
+
+            BufferedImage owner = image();
+            before.add(owner, 0, 0, tile(DataBuffer.TYPE_BYTE, 0, 0));
+            before.getTile(owner, 0, 0);
+            before.getTile(owner, 1, 0);
+            assertEquals(1L, server.getAttribute(beforeName, "Hits"));
+            assertEquals(1L, server.getAttribute(beforeName, "Misses"));
+            assertEquals(1, server.getAttribute(beforeName, "TileCount"));
+            assertEquals((long) TILE_SIZE, server.getAttribute(beforeName, "MemoryUsage"));
+
+            server.invoke(beforeName, "resetStatistics", null, null);
+            assertEquals(0, before.getHits());
+        } finally {
+            cache.unregisterMBeans();
+        }
+        assertFalse(server.isRegistered(cache.getObjectName("before")));
+        assertFalse(server.isRegistered(cache.getObjectName("after")));
+    }
+
+    @Test
+    public void testRegistry() {
+        TileCache defaultCache = JAI.getDefaultInstance().getTileCache();
+        assertSame(defaultCache, Registry.getTileCache("wms"));
+        PartitionedTileCache cache = new PartitionedTileCache("global", TILE_SIZE, false);
+        Registry.setPartitionedTileCache(cache);
+        try {
+            assertSame(cache.getPartition("wms"), Registry.getTileCache("wms"));
+            ImageWorker worker = new ImageWorker(image()).setTileCachePartition("wcs");
+            assertSame(cache.getPartition("wcs"), worker.getRenderingHint(JAI.KEY_TILE_CACHE));
+        } finally {
+            Registry.setPartitionedTileCache(null);
+        }
+        assertSame(defaultCache, Registry.getTileCache("wms"));
+    }
+
+    private BufferedImage image() {
+        return new BufferedImage(256, 256, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    private Raster tile(int dataType, int x, int y) {
+        WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(dataType, 16,
+                16, 1), new Point(x, y));
+        for (int j = 0; j < 16; j++) {
+            for (int i = 0; i < 16; i++) {
+                raster.setSample(x + i, y + j, 0, (i + j * 16 + x) % 128);
+            }
+        }
+        return raster;
+    }
+}
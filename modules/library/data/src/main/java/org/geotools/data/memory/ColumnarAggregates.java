@@ -0,0 +1,384 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.memory.ColumnarTable.Column;
+import org.geotools.data.memory.ColumnarTable.DoubleColumn;
+import org.geotools.data.memory.ColumnarTable.LongColumn;
+import org.geotools.data.memory.ColumnarTable.StringColumn;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.GroupByVisitor;
+import org.geotools.feature.visitor.GroupByVisitor.GroupByRawResult;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Computes aggregates over the selected rows of a {@link ColumnarTable} working directly on the
+ * columns, for the {@link CountVisitor}, {@link SumVisitor}, {@link MinVisitor} and
+ * {@link GroupByVisitor} (the latter with count, sum, min and max aggregates). The results are
+ * the same, type included, as the ones the visitors would compute on the features.
+ */
+class ColumnarAggregates {
+
+    static final int COUNT = 0;
+
+    static final int SUM = 1;
+
+    static final int MIN = 2;
+
+    static final int MAX = 3;
+
+    final ColumnarTable table;
+
+    final Filter filter;
+
+    /**
+     * The rows matching the filter, computed only once the visitor is known to be supported
+     */
+    BitSet rows;
+
+    ColumnarAggregates(ColumnarTable table, Filter filter) {
+        this.table = table;
+        this.filter = filter;
+    }
+
+    void select() {
+        rows = new ColumnarFilter(table).select(filter);
+    }
+
+    /**
+     * Computes the visitor results, returns false if the visitor is not supported
+     */
+    boolean visit(FeatureVisitor visitor) {
+        if (visitor instanceof GroupByVisitor) {
+            return visit((GroupByVisitor) visitor);
+        }
+        // only handle visitors that have not been used yet, setting the value would
+        // override the previous results
+        if (visitor.getClass() == CountVisitor.class) {
+            CountVisitor count = (CountVisitor) visitor;
+            if (count.getResult() != CalcResult.NULL_RESULT) {
+                return false;
+            }
+            select();
+            int cardinality = rows.cardinality();
+            if (cardinality > 0) {
+                count.setValue(cardinality);
+            }
+            return true;
+        } else if (visitor.getClass() == SumVisitor.class) {
+            SumVisitor sum = (SumVisitor) visitor;
+            Column column = getNumericColumn(sum.getExpression());
+            if (column == null || sum.getResult() != CalcResult.NULL_RESULT) {
+                return false;
+            }
+            select();
+            Object result = aggregate(SUM, column, singleGroup(), 1)[0];
+            if (result != null) {
+                sum.setValue(result);
+            }
+            return true;
+        } else if (visitor.getClass() == MinVisitor.class) {
+            MinVisitor min = (MinVisitor) visitor;
+            Column column = getNumericColumn(min.getExpression());
+            if (column == null || min.getResult() != CalcResult.NULL_RESULT) {
+                return false;
+            }
+            select();
+            Object result = aggregate(MIN, column, singleGroup(), 1)[0];
+            if (result != null) {
+                min.setValue(result);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    boolean visit(GroupByVisitor visitor) {
+        FeatureVisitor prototype = visitor.getAggregateVisitor();
+        int aggregate;
+        if (prototype.getClass() == CountVisitor.class) {
+            aggregate = COUNT;
+        } else if (prototype.getClass() == SumVisitor.class) {
+            aggregate = SUM;
+        } else if (prototype.getClass() == MinVisitor.class) {
+            aggregate = MIN;
+        } else if (prototype.getClass() == MaxVisitor.class) {
+            aggregate = MAX;
+        } else {
+            return false;
+        }
+        Column column = null;
+        if (aggregate != COUNT) {
+            column = getNumericColumn(visitor.getExpression());
+            if (column == null) {
+                return false;
+            }
+        }
+        List<Expression> groupByAttributes = visitor.getGroupByAttributes();
+        Column[] groupByColumns = new Column[groupByAttributes.size()];
+        for (int i = 0; i < groupByColumns.length; i++) {
+            groupByColumns[i] = getColumn(groupByAttributes.get(i));
+            if (groupByColumns[i] == null) {
+                return false;
+            }
+        }
+        select();
+        if (rows.isEmpty()) {
+            // nothing to visit
+            return true;
+        }
+
+        // assign each row to its group, one group by column at a time
+        int[] groups = singleGroup();
+        int groupCount = 1;
+        for (Column groupByColumn : groupByColumns) {
+            int[] values = new int[table.size];
+            int valueCount = index(groupByColumn, values);
+            Map<Long, Integer> combined = new HashMap<Long, Integer>();
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                Long key = Long.valueOf((long) groups[row] * valueCount + values[row]);
+                Integer group = combined.get(key);
+                if (group == null) {
+                    group = combined.size();
+                    combined.put(key, group);
+                }
+                groups[row] = group;
+            }
+            groupCount = combined.size();
+        }
+
+        Object[] results = aggregate(aggregate, column, groups, groupCount);
+        int[] firstRows = new int[groupCount];
+        Arrays.fill(firstRows, -1);
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (firstRows[groups[row]] < 0) {
+                firstRows[groups[row]] = row;
+            }
+        }
+        List<GroupByRawResult> rawResults = new ArrayList<GroupByRawResult>(groupCount);
+        for (int group = 0; group < groupCount; group++) {
+            if (results[group] == null) {
+                // the visitor would report a null result for this group, which cannot be set
+                return false;
+            }
+            List<Object> groupByValues = new ArrayList<Object>(groupByColumns.length);
+            for (Column groupByColumn : groupByColumns) {
+                groupByValues.add(groupByColumn.get(firstRows[group]));
+            }
+            rawResults.add(new GroupByRawResult(groupByValues, results[group]));
+        }
+        visitor.setValue(rawResults);
+        return true;
+    }
+
+    /**
+     * Returns an array assigning all the selected rows to the same group, and the others to none
+     */
+    int[] singleGroup() {
+        int[] groups = new int[table.size];
+        Arrays.fill(groups, -1);
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            groups[row] = 0;
+        }
+        return groups;
+    }
+
+    /**
+     * Assigns to each selected row an identifier of its value, equal values get the same
+     * identifier. Returns the number of identifiers.
+     */
+    int index(Column column, int[] values) {
+        if (column instanceof StringColumn) {
+            int[] codes = ((StringColumn) column).codes;
+            int nullCode = ((StringColumn) column).dictionary.size();
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                values[row] = codes[row] < 0 ? nullCode : codes[row];
+            }
+            return nullCode + 1;
+        }
+        Map<Object, Integer> ids = new HashMap<Object, Integer>();
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            Object key;
+            if (column.isNull(row)) {
+                key = null;
+            } else if (column instanceof LongColumn) {
+                key = ((LongColumn) column).values[row];
+            } else if (column instanceof DoubleColumn) {
+                // same as Double.equals
+                key = Double.doubleToLongBits(((DoubleColumn) column).values[row]);
+            } else {
+                key = column.get(row);
+            }
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            values[row] = id;
+        }
+        return ids.size();
+    }
+
+    /**
+     * Computes the aggregate for each group, the result for the groups without values is null
+     */
+    Object[] aggregate(int aggregate, Column column, int[] groups, int groupCount) {
+        Object[] results = new Object[groupCount];
+        if (aggregate == COUNT) {
+            int[] counts = new int[groupCount];
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                counts[groups[row]]++;
+            }
+            for (int i = 0; i < groupCount; i++) {
+                results[i] = counts[i];
+            }
+        } else if (aggregate == SUM) {
+            sum(column, groups, results);
+        } else {
+            // track the row holding the minimum or maximum of each group
+            int[] best = new int[groupCount];
+            Arrays.fill(best, -1);
+            boolean skipNaN = aggregate == MAX && column.binding == Double.class;
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (column.isNull(row)) {
+                    continue;
+                }
+                int group = groups[row];
+                int current = best[group];
+                int comparison;
+                if (column instanceof LongColumn) {
+                    long[] values = ((LongColumn) column).values;
+                    comparison = current < 0 ? 0 : Long.compare(values[row], values[current]);
+                } else {
+                    double[] values = ((DoubleColumn) column).values;
+                    // same as MaxVisitor, NaN and infinite doubles are not considered
+                    if (skipNaN && (Double.isNaN(values[row]) || Double.isInfinite(values[row]))) {
+                        continue;
+                    }
+                    comparison = current < 0 ? 0 : Double.compare(values[row], values[current]);
+                }
+                if (current < 0 || (aggregate == MIN ? comparison < 0 : comparison > 0)) {
+                    best[group] = row;
+                }
+            }
+            for (int i = 0; i < groupCount; i++) {
+                results[i] = best[i] < 0 ? null : column.get(best[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sums the values with the same arithmetic as the {@link SumVisitor}, which depends on the
+     * type of the values
+     */
+    void sum(Column column, int[] groups, Object[] results) {
+        int groupCount = results.length;
+        boolean[] found = new boolean[groupCount];
+        Class<?> binding = column.binding;
+        if (column instanceof LongColumn) {
+            long[] values = ((LongColumn) column).values;
+            if (binding == Integer.class) {
+                int[] sums = new int[groupCount];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!column.isNull(row)) {
+                        sums[groups[row]] += (int) values[row];
+                        found[groups[row]] = true;
+                    }
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    results[i] = found[i] ? Integer.valueOf(sums[i]) : null;
+                }
+            } else if (binding == Long.class) {
+                long[] sums = new long[groupCount];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!column.isNull(row)) {
+                        sums[groups[row]] += values[row];
+                        found[groups[row]] = true;
+                    }
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    results[i] = found[i] ? Long.valueOf(sums[i]) : null;
+                }
+            } else {
+                // shorts and bytes are summed as doubles
+                double[] sums = new double[groupCount];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!column.isNull(row)) {
+                        sums[groups[row]] += values[row];
+                        found[groups[row]] = true;
+                    }
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    results[i] = found[i] ? Double.valueOf(sums[i]) : null;
+                }
+            }
+        } else {
+            double[] values = ((DoubleColumn) column).values;
+            if (binding == Float.class) {
+                float[] sums = new float[groupCount];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!column.isNull(row)) {
+                        sums[groups[row]] += (float) values[row];
+                        found[groups[row]] = true;
+                    }
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    results[i] = found[i] ? Float.valueOf(sums[i]) : null;
+                }
+            } else {
+                double[] sums = new double[groupCount];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!column.isNull(row)) {
+                        sums[groups[row]] += values[row];
+                        found[groups[row]] = true;
+                    }
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    results[i] = found[i] ? Double.valueOf(sums[i]) : null;
+                }
+            }
+        }
+    }
+
+    Column getColumn(Expression expression) {
+        if (!(expression instanceof PropertyName)) {
+            return null;
+        }
+        String name = ((PropertyName) expression).getPropertyName();
+        return ColumnarFilter.isPlainName(name) ? table.getColumn(name) : null;
+    }
+
+    Column getNumericColumn(Expression expression) {
+        Column column = getColumn(expression);
+        return ColumnarFilter.isNumeric(column) ? column : null;
+    }
+}
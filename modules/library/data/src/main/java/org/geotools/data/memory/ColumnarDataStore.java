@@ -0,0 +1,214 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.store.ContentDataStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.feature.FeatureTypes;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+
+/**
+ * A read only, in memory DataStore keeping the features in a column oriented layout (see
+ * {@link ColumnarTable}), meant for reference data sets that are kept resident and queried
+ * often, e.g., for analytics. Compared to the {@link MemoryDataStore} it uses less memory, and
+ * evaluates filters, counts, bounds and common aggregates one column at a time, building features
+ * only for the rows that are actually returned.
+ * <p>
+ * Features are appended with the <code>addFeatures</code> methods, the feature and attribute
+ * user data are not preserved.
+ */
+public class ColumnarDataStore extends ContentDataStore {
+
+    public ColumnarDataStore() {
+        super();
+    }
+
+    /**
+     * Construct a ColumnarDataStore around an empty table of the provided SimpleFeatureType
+     * 
+     * @param featureType An empty table of this type will be made available
+     */
+    public ColumnarDataStore(SimpleFeatureType featureType) throws IOException {
+        entry(featureType);
+    }
+
+    public ColumnarDataStore(SimpleFeatureCollection collection) throws IOException {
+        addFeatures(collection);
+    }
+
+    /**
+     * Adds the contents of the collection
+     * 
+     * @throws IOException If problems are encountered while reading the collection, or its
+     *         features are not compatible with the existing ones
+     */
+    public void addFeatures(SimpleFeatureCollection collection) throws IOException {
+        ColumnarEntry entry = entry(collection.getSchema());
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        try (SimpleFeatureIterator it = collection.features()) {
+            while (it.hasNext()) {
+                features.add(it.next());
+            }
+        }
+        addFeatures(entry, features);
+    }
+
+    /**
+     * Adds the contents of the reader, and closes it
+     * 
+     * @throws IOException If problems are encountered while reading, or the features are not
+     *         compatible with the existing ones
+     */
+    public void addFeatures(FeatureReader<SimpleFeatureType, SimpleFeature> reader)
+            throws IOException {
+        try {
+            ColumnarEntry entry = entry(reader.getFeatureType());
+            List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+            while (reader.hasNext()) {
+                features.add(reader.next());
+            }
+            addFeatures(entry, features);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Adds the features, possibly of different types
+     * 
+     * @throws IOException If the features are not compatible with the existing ones
+     */
+    public void addFeatures(Collection<SimpleFeature> features) throws IOException {
+        // group by type, and add each group in a single batch
+        Map<SimpleFeatureType, List<SimpleFeature>> groups = new LinkedHashMap<SimpleFeatureType, List<SimpleFeature>>();
+        for (SimpleFeature feature : features) {
+            List<SimpleFeature> group = groups.get(feature.getFeatureType());
+            if (group == null) {
+                group = new ArrayList<SimpleFeature>();
+                groups.put(feature.getFeatureType(), group);
+            }
+            group.add(feature);
+        }
+        for (Map.Entry<SimpleFeatureType, List<SimpleFeature>> group : groups.entrySet()) {
+            addFeatures(entry(group.getKey()), group.getValue());
+        }
+    }
+
+    private void addFeatures(ColumnarEntry entry, List<SimpleFeature> features)
+            throws IOException {
+        try {
+            entry.addFeatures(features);
+        } catch (IllegalArgumentException e) {
+            throw new DataSourceException("Could not add features to " + entry.getTypeName(), e);
+        }
+    }
+
+    /**
+     * Access to entry to store content of the provided schema, will create new entry if needed.
+     * 
+     * @throws IOException If new entry could not be created due to typeName conflict
+     */
+    protected ColumnarEntry entry(SimpleFeatureType schema) throws IOException {
+        Name typeName = schema.getName();
+        synchronized (entries) {
+            if (entries.containsKey(typeName)) {
+                ColumnarEntry entry = (ColumnarEntry) entries.get(typeName);
+                if (FeatureTypes.equals(entry.schema, schema)) {
+                    return entry;
+                } else {
+                    throw new IOException("Entry " + typeName + " schema " + entry.schema
+                            + " incompatible with provided " + schema);
+                }
+            } else {
+                ColumnarEntry entry = new ColumnarEntry(this, schema);
+                entries.put(typeName, entry);
+                return entry;
+            }
+        }
+    }
+
+    protected List<Name> createTypeNames() {
+        List<Name> names = new ArrayList<Name>(this.entries.keySet());
+        Collections.sort(names, new Comparator<Name>() {
+            public int compare(Name n1, Name n2) {
+                return n1.toString().compareTo(n2.toString());
+            }
+        });
+        return names;
+    }
+
+    protected ContentFeatureSource createFeatureSource(ContentEntry entry) {
+        return createFeatureSource(entry, Query.ALL);
+    }
+
+    protected ContentFeatureSource createFeatureSource(ContentEntry entry, Query query) {
+        return new ColumnarFeatureSource(entry, query);
+    }
+
+    /**
+     * Adds support for a new featureType.
+     * 
+     * @throws IOException If featureType already exists
+     */
+    public void createSchema(SimpleFeatureType featureType) throws IOException {
+        Name typeName = featureType.getName();
+        synchronized (entries) {
+            if (entries.containsKey(typeName)) {
+                // we have a conflict
+                throw new IOException(typeName + " already exists");
+            }
+            entries.put(typeName, new ColumnarEntry(this, featureType));
+        }
+    }
+
+    @Override
+    public void removeSchema(String typeName) throws IOException {
+        for (Name name : entries.keySet()) {
+            if (name.getLocalPart().equals(typeName)) {
+                removeSchema(name);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void removeSchema(Name typeName) throws IOException {
+        if (typeName != null) {
+            // graceful remove, its fine if the type has never been registered
+            synchronized (entries) {
+                entries.remove(typeName);
+            }
+        }
+    }
+}
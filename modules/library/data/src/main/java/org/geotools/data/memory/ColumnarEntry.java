@@ -0,0 +1,67 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.Collection;
+
+import org.geotools.data.store.ContentEntry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Entry storing the features of a single type in a {@link ColumnarTable}.
+ * <p>
+ * The table is immutable, adding features replaces it with a new one, so readers can work
+ * against the table they started with without locking.
+ */
+public class ColumnarEntry extends ContentEntry {
+
+    /**
+     * Schema of managed content.
+     */
+    final SimpleFeatureType schema;
+
+    volatile ColumnarTable table;
+
+    ColumnarEntry(ColumnarDataStore store, SimpleFeatureType schema) {
+        super(store, schema.getName());
+        this.schema = schema;
+        this.table = ColumnarTable.empty(schema);
+    }
+
+    /**
+     * The current table
+     */
+    public ColumnarTable getTable() {
+        return table;
+    }
+
+    /**
+     * Appends the features to the table
+     */
+    synchronized void addFeatures(Collection<SimpleFeature> features) {
+        ColumnarTable.Builder builder = table.builder();
+        for (SimpleFeature feature : features) {
+            builder.add(feature);
+        }
+        table = builder.build();
+    }
+
+    public String toString() {
+        return "ColumnarEntry '" + getTypeName() + "': " + table.size() + " features";
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.memory.ColumnarFilter.Selection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.IllegalAttributeException;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Reads the rows of a {@link ColumnarTable} selected by a filter, materializing features only for
+ * the matching ones. Rows that could not be evaluated on the columns are checked against the
+ * filter once materialized.
+ */
+public class ColumnarFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    ColumnarTable table;
+
+    final Filter filter;
+
+    final BitSet candidates;
+
+    final BitSet unknown;
+
+    final SimpleFeatureBuilder builder;
+
+    int row = -1;
+
+    SimpleFeature next;
+
+    public ColumnarFeatureReader(ColumnarTable table, Filter filter) {
+        this.table = table;
+        this.filter = filter;
+        Selection selection = new ColumnarFilter(table).evaluate(filter);
+        this.candidates = selection.candidates();
+        this.unknown = selection.unknown;
+        this.builder = new SimpleFeatureBuilder(table.schema);
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return table.schema;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (next != null) {
+            return true;
+        }
+        if (table == null) {
+            return false;
+        }
+        while ((row = candidates.nextSetBit(row + 1)) >= 0) {
+            SimpleFeature feature = table.getFeature(row, builder);
+            if (!unknown.get(row) || filter.evaluate(feature)) {
+                next = feature;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public SimpleFeature next() throws IOException, IllegalAttributeException,
+            NoSuchElementException {
+        if (table == null) {
+            throw new IOException("Feature Reader has been closed");
+        }
+        if (!hasNext()) {
+            throw new NoSuchElementException("There are no more Features");
+        }
+        SimpleFeature result = next;
+        next = null;
+        return result;
+    }
+
+    public void close() {
+        table = null;
+        next = null;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.memory.ColumnarTable.Column;
+import org.geotools.data.memory.ColumnarTable.GeometryColumn;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Read access to the feature content held in a {@link ColumnarTable}. Filters, counts, bounds and
+ * the supported aggregate visitors are evaluated on the columns, features are built only for the
+ * rows returned by the readers.
+ */
+public class ColumnarFeatureSource extends ContentFeatureSource {
+
+    public ColumnarFeatureSource(ContentEntry entry) {
+        this(entry, Query.ALL);
+    }
+
+    public ColumnarFeatureSource(ContentEntry entry, Query query) {
+        super(entry, query);
+    }
+
+    /**
+     * Access parent ColumnarDataStore.
+     */
+    public ColumnarDataStore getDataStore() {
+        return (ColumnarDataStore) super.getDataStore();
+    }
+
+    /**
+     * The entry for the feature source.
+     */
+    public ColumnarEntry getEntry() {
+        return (ColumnarEntry) super.getEntry();
+    }
+
+    @Override
+    protected boolean canFilter() {
+        return true;
+    }
+
+    @Override
+    protected ReferencedEnvelope getBoundsInternal(Query query) throws IOException {
+        if (isLimited(query)) {
+            return null; // feature by feature scan required
+        }
+        ColumnarTable table = getEntry().getTable();
+        BitSet rows = new ColumnarFilter(table).select(query.getFilter());
+        ReferencedEnvelope bounds = ReferencedEnvelope.create(table.schema
+                .getCoordinateReferenceSystem());
+        for (Column column : table.columns) {
+            if (!(column instanceof GeometryColumn)) {
+                continue;
+            }
+            double[] envelopes = ((GeometryColumn) column).envelopes;
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                int base = row * 4;
+                if (!Double.isNaN(envelopes[base])) {
+                    bounds.expandToInclude(envelopes[base], envelopes[base + 1]);
+                    bounds.expandToInclude(envelopes[base + 2], envelopes[base + 3]);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    @Override
+    protected int getCountInternal(Query query) throws IOException {
+        ColumnarTable table = getEntry().getTable();
+        return new ColumnarFilter(table).select(query.getFilter()).cardinality();
+    }
+
+    @Override
+    protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query query)
+            throws IOException {
+        return new ColumnarFeatureReader(getEntry().getTable(), query.getFilter());
+    }
+
+    @Override
+    protected SimpleFeatureType buildFeatureType() {
+        return getEntry().schema;
+    }
+
+    @Override
+    protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        if (isLimited(query)) {
+            return false;
+        }
+        return new ColumnarAggregates(getEntry().getTable(), query.getFilter()).visit(visitor);
+    }
+
+    /**
+     * Returns true if the query has paging or sorting, which are handled by wrapping the reader
+     */
+    static boolean isLimited(Query query) {
+        return query.getStartIndex() != null || !query.isMaxFeaturesUnlimited()
+                || (query.getSortBy() != null && query.getSortBy().length > 0);
+    }
+}
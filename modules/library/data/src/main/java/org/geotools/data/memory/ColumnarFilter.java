@@ -0,0 +1,586 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import org.geotools.data.memory.ColumnarTable.Column;
+import org.geotools.data.memory.ColumnarTable.DoubleColumn;
+import org.geotools.data.memory.ColumnarTable.GeometryColumn;
+import org.geotools.data.memory.ColumnarTable.LongColumn;
+import org.geotools.data.memory.ColumnarTable.StringColumn;
+import org.geotools.factory.Hints;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.DuplicatingFilterVisitor;
+import org.geotools.util.Converters;
+import org.geotools.util.ConverterFactory;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BBOX3D;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Evaluates filters against a {@link ColumnarTable} one column at a time, without materializing
+ * the features. The evaluation of a filter returns a {@link Selection}, made of the rows that
+ * surely match and the rows that need to be checked against the original filter (e.g., for
+ * filters that cannot be evaluated on the columns, or null values):
+ * <ul>
+ * <li>Logic filters combine the selections of their children</li>
+ * <li>Comparisons between a numeric attribute and a literal work on the primitive values, with
+ * the same logic as the {@link org.geotools.filter.visitor.FilterCompiler}</li>
+ * <li>Comparisons and like filters on a string attribute are evaluated once for each dictionary
+ * entry in use</li>
+ * <li>Bounding box filters are checked against the geometry envelopes</li>
+ * <li>Id and null checks are evaluated directly</li>
+ * </ul>
+ */
+class ColumnarFilter {
+
+    static final Hints SAFE_CONVERSION = new Hints(ConverterFactory.SAFE_CONVERSION, Boolean.TRUE);
+
+    static final int EQ = 0;
+
+    static final int NE = 1;
+
+    static final int LT = 2;
+
+    static final int LE = 3;
+
+    static final int GT = 4;
+
+    static final int GE = 5;
+
+    final ColumnarTable table;
+
+    final BitSet all;
+
+    ColumnarFilter(ColumnarTable table) {
+        this.table = table;
+        this.all = new BitSet(table.size);
+        all.set(0, table.size);
+    }
+
+    /**
+     * The rows matching a filter, and the ones that need to be checked against the original
+     * filter to tell
+     */
+    static final class Selection {
+        final BitSet matches;
+
+        final BitSet unknown;
+
+        Selection(BitSet matches, BitSet unknown) {
+            this.matches = matches;
+            this.unknown = unknown;
+        }
+
+        /**
+         * Rows that might match the filter
+         */
+        BitSet candidates() {
+            BitSet result = (BitSet) matches.clone();
+            result.or(unknown);
+            return result;
+        }
+    }
+
+    /**
+     * Returns the rows matching the filter, the ones that cannot be evaluated on the columns are
+     * materialized and checked against the filter
+     */
+    BitSet select(Filter filter) {
+        Selection selection = evaluate(filter);
+        BitSet result = selection.matches;
+        BitSet unknown = selection.unknown;
+        if (!unknown.isEmpty()) {
+            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(table.schema);
+            for (int row = unknown.nextSetBit(0); row >= 0; row = unknown.nextSetBit(row + 1)) {
+                if (filter.evaluate(table.getFeature(row, builder))) {
+                    result.set(row);
+                }
+            }
+        }
+        return result;
+    }
+
+    Selection evaluate(Filter filter) {
+        Selection result = null;
+        if (filter == null || filter instanceof IncludeFilter) {
+            result = new Selection((BitSet) all.clone(), new BitSet());
+        } else if (filter instanceof ExcludeFilter) {
+            result = new Selection(new BitSet(), new BitSet());
+        } else if (filter instanceof And) {
+            result = evaluate((And) filter);
+        } else if (filter instanceof Or) {
+            result = evaluate((Or) filter);
+        } else if (filter instanceof Not) {
+            result = evaluate((Not) filter);
+        } else if (filter instanceof Id) {
+            result = evaluate((Id) filter);
+        } else if (filter instanceof PropertyIsNull) {
+            result = evaluate((PropertyIsNull) filter);
+        } else if (filter instanceof BBOX && !(filter instanceof BBOX3D)) {
+            result = evaluate((BBOX) filter);
+        } else if (filter instanceof BinaryComparisonOperator) {
+            result = evaluate((BinaryComparisonOperator) filter);
+        } else if (filter instanceof PropertyIsBetween) {
+            result = evaluate((PropertyIsBetween) filter);
+        } else if (filter instanceof PropertyIsLike) {
+            result = evaluate((PropertyIsLike) filter);
+        }
+
+        if (result == null) {
+            // the whole table needs to be checked against the filter
+            result = new Selection(new BitSet(), (BitSet) all.clone());
+        }
+        return result;
+    }
+
+    Selection evaluate(And filter) {
+        BitSet matches = (BitSet) all.clone();
+        BitSet candidates = (BitSet) all.clone();
+        for (Filter child : filter.getChildren()) {
+            Selection selection = evaluate(child);
+            matches.and(selection.matches);
+            candidates.and(selection.candidates());
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        candidates.andNot(matches);
+        return new Selection(matches, candidates);
+    }
+
+    Selection evaluate(Or filter) {
+        BitSet matches = new BitSet();
+        BitSet candidates = new BitSet();
+        for (Filter child : filter.getChildren()) {
+            Selection selection = evaluate(child);
+            matches.or(selection.matches);
+            candidates.or(selection.candidates());
+        }
+        candidates.andNot(matches);
+        return new Selection(matches, candidates);
+    }
+
+    Selection evaluate(Not filter) {
+        Selection selection = evaluate(filter.getFilter());
+        BitSet matches = (BitSet) all.clone();
+        matches.andNot(selection.candidates());
+        return new Selection(matches, selection.unknown);
+    }
+
+    Selection evaluate(Id filter) {
+        Set<Object> ids = filter.getIDs();
+        BitSet matches = new BitSet();
+        for (int row = 0; row < table.size; row++) {
+            if (ids.contains(table.fids[row])) {
+                matches.set(row);
+            }
+        }
+        return new Selection(matches, new BitSet());
+    }
+
+    Selection evaluate(PropertyIsNull filter) {
+        Column column = getColumn(filter.getExpression());
+        if (column == null) {
+            return null;
+        }
+        BitSet matches = new BitSet();
+        for (int row = 0; row < table.size; row++) {
+            if (column.isNull(row)) {
+                matches.set(row);
+            }
+        }
+        return new Selection(matches, new BitSet());
+    }
+
+    Selection evaluate(BBOX filter) {
+        Expression e1 = filter.getExpression1();
+        Expression e2 = filter.getExpression2();
+        Column column;
+        Geometry literal;
+        if (e1 instanceof PropertyName && e2 instanceof Literal) {
+            column = getGeometryColumn((PropertyName) e1);
+            literal = e2.evaluate(null, Geometry.class);
+        } else if (e2 instanceof PropertyName && e1 instanceof Literal) {
+            column = getGeometryColumn((PropertyName) e2);
+            literal = e1.evaluate(null, Geometry.class);
+        } else {
+            return null;
+        }
+        if (!(column instanceof GeometryColumn) || literal == null || literal.isEmpty()) {
+            return null;
+        }
+        // the geometries whose envelope does not touch the box cannot intersect it, the ones
+        // whose envelope is inside the box do intersect it, if the box is a rectangle
+        final Envelope box = literal.getEnvelopeInternal();
+        final boolean rectangle = literal.isRectangle();
+        final double[] envelopes = ((GeometryColumn) column).envelopes;
+        BitSet matches = new BitSet();
+        BitSet unknown = new BitSet();
+        for (int row = 0; row < table.size; row++) {
+            int base = row * 4;
+            double minX = envelopes[base];
+            if (Double.isNaN(minX)) {
+                // null or empty geometry
+                unknown.set(row);
+                continue;
+            }
+            double minY = envelopes[base + 1];
+            double maxX = envelopes[base + 2];
+            double maxY = envelopes[base + 3];
+            if (maxX < box.getMinX() || minX > box.getMaxX() || maxY < box.getMinY()
+                    || minY > box.getMaxY()) {
+                continue;
+            }
+            if (rectangle && minX >= box.getMinX() && maxX <= box.getMaxX()
+                    && minY >= box.getMinY() && maxY <= box.getMaxY()) {
+                matches.set(row);
+            } else {
+                unknown.set(row);
+            }
+        }
+        return new Selection(matches, unknown);
+    }
+
+    Selection evaluate(BinaryComparisonOperator filter) {
+        Expression e1 = filter.getExpression1();
+        Expression e2 = filter.getExpression2();
+        PropertyName property;
+        Literal literal;
+        boolean swapped;
+        if (e1 instanceof PropertyName && e2 instanceof Literal) {
+            property = (PropertyName) e1;
+            literal = (Literal) e2;
+            swapped = false;
+        } else if (e2 instanceof PropertyName && e1 instanceof Literal) {
+            property = (PropertyName) e2;
+            literal = (Literal) e1;
+            swapped = true;
+        } else {
+            return null;
+        }
+        Column column = getColumn(property);
+        if (column instanceof StringColumn) {
+            return evaluateDictionary(filter, property, (StringColumn) column);
+        }
+        if (!isNumeric(column)) {
+            return null;
+        }
+        Object value = convert(literal.getValue(), column.binding);
+        if (value == null) {
+            return null;
+        }
+        int operator;
+        if (filter instanceof PropertyIsEqualTo) {
+            operator = EQ;
+        } else if (filter instanceof PropertyIsNotEqualTo) {
+            operator = NE;
+        } else if (filter instanceof PropertyIsLessThan) {
+            operator = LT;
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            operator = LE;
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            operator = GT;
+        } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            operator = GE;
+        } else {
+            return null;
+        }
+
+        BitSet matches = new BitSet();
+        BitSet unknown = new BitSet();
+        Number n = (Number) value;
+        if (column instanceof LongColumn) {
+            LongColumn lc = (LongColumn) column;
+            compare(lc.values, lc.nulls, n.longValue(), operator, swapped, matches, unknown);
+        } else {
+            DoubleColumn dc = (DoubleColumn) column;
+            compare(dc.values, dc.nulls, n.doubleValue(), operator, swapped, matches, unknown);
+        }
+        return new Selection(matches, unknown);
+    }
+
+    void compare(long[] values, BitSet nulls, long literal, int operator, boolean swapped,
+            BitSet matches, BitSet unknown) {
+        final double fp = literal;
+        for (int row = 0; row < table.size; row++) {
+            if (nulls.get(row)) {
+                unknown.set(row);
+                continue;
+            }
+            final long v = values[row];
+            final boolean match;
+            if (operator == EQ) {
+                match = v == literal;
+            } else if (operator == NE) {
+                match = v != literal;
+            } else {
+                match = matches(operator, swapped ? compare(fp, v) : compare(v, fp));
+            }
+            if (match) {
+                matches.set(row);
+            }
+        }
+    }
+
+    void compare(double[] values, BitSet nulls, double literal, int operator, boolean swapped,
+            BitSet matches, BitSet unknown) {
+        final long lg = (long) literal;
+        final boolean integral = literal == (double) lg;
+        for (int row = 0; row < table.size; row++) {
+            if (nulls.get(row)) {
+                unknown.set(row);
+                continue;
+            }
+            final double v = values[row];
+            final boolean match;
+            if (operator == EQ || operator == NE) {
+                match = (operator == EQ) == equal(v, literal, integral, lg);
+            } else {
+                match = matches(operator, swapped ? compare(literal, v) : compare(v, literal));
+            }
+            if (match) {
+                matches.set(row);
+            }
+        }
+    }
+
+    /**
+     * Equality between floating point values, same logic as IsEqualsToImpl
+     */
+    static boolean equal(double v, double literal, boolean integral, long lg) {
+        if (Double.doubleToLongBits(v) == Double.doubleToLongBits(literal)) {
+            return true;
+        }
+        long lg1 = (long) v;
+        if (integral && v == (double) lg1) {
+            return lg1 == lg;
+        }
+        return v == literal || (Double.isNaN(v) && Double.isNaN(literal));
+    }
+
+    /**
+     * Comparison between numbers, same logic as the CompareFilterImpl
+     */
+    static int compare(double left, double right) {
+        return left > right ? 1 : (left == right ? 0 : -1);
+    }
+
+    static boolean matches(int operator, int comparison) {
+        switch (operator) {
+        case LT:
+            return comparison < 0;
+        case LE:
+            return comparison <= 0;
+        case GT:
+            return comparison > 0;
+        default:
+            return comparison >= 0;
+        }
+    }
+
+    Selection evaluate(PropertyIsBetween filter) {
+        if (!(filter.getExpression() instanceof PropertyName)
+                || !(filter.getLowerBoundary() instanceof Literal)
+                || !(filter.getUpperBoundary() instanceof Literal)) {
+            return null;
+        }
+        PropertyName property = (PropertyName) filter.getExpression();
+        Column column = getColumn(property);
+        if (column instanceof StringColumn) {
+            return evaluateDictionary(filter, property, (StringColumn) column);
+        }
+        if (!isNumeric(column)) {
+            return null;
+        }
+        Number lower = (Number) convert(((Literal) filter.getLowerBoundary()).getValue(),
+                column.binding);
+        Number upper = (Number) convert(((Literal) filter.getUpperBoundary()).getValue(),
+                column.binding);
+        if (lower == null || upper == null) {
+            return null;
+        }
+
+        BitSet matches = new BitSet();
+        BitSet unknown = new BitSet();
+        if (column instanceof LongColumn) {
+            LongColumn lc = (LongColumn) column;
+            final long lo = lower.longValue();
+            final long hi = upper.longValue();
+            for (int row = 0; row < table.size; row++) {
+                if (lc.nulls.get(row)) {
+                    unknown.set(row);
+                } else if (lo <= lc.values[row] && hi >= lc.values[row]) {
+                    matches.set(row);
+                }
+            }
+        } else {
+            DoubleColumn dc = (DoubleColumn) column;
+            final double lo = lower.doubleValue();
+            final double hi = upper.doubleValue();
+            for (int row = 0; row < table.size; row++) {
+                if (dc.nulls.get(row)) {
+                    unknown.set(row);
+                } else if (Double.compare(lo, dc.values[row]) <= 0
+                        && Double.compare(hi, dc.values[row]) >= 0) {
+                    matches.set(row);
+                }
+            }
+        }
+        return new Selection(matches, unknown);
+    }
+
+    Selection evaluate(PropertyIsLike filter) {
+        if (!(filter.getExpression() instanceof PropertyName)) {
+            return null;
+        }
+        PropertyName property = (PropertyName) filter.getExpression();
+        Column column = getColumn(property);
+        if (column instanceof StringColumn) {
+            return evaluateDictionary(filter, property, (StringColumn) column);
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates a filter whose only non literal expression is the property, on a string column.
+     * The filter is evaluated once for each dictionary entry in use, replacing the property with
+     * the entry value.
+     */
+    Selection evaluateDictionary(Filter filter, PropertyName property, StringColumn column) {
+        final int[] codes = column.codes;
+        // 0 not evaluated yet, 1 matching, 2 not matching
+        final byte[] results = new byte[column.dictionary.size()];
+        BitSet matches = new BitSet();
+        BitSet unknown = new BitSet();
+        for (int row = 0; row < table.size; row++) {
+            final int code = codes[row];
+            if (code < 0) {
+                unknown.set(row);
+                continue;
+            }
+            byte result = results[code];
+            if (result == 0) {
+                Filter replaced = (Filter) filter.accept(new PropertyReplacer(property,
+                        column.dictionary.get(code)), null);
+                result = replaced.evaluate(null) ? (byte) 1 : (byte) 2;
+                results[code] = result;
+            }
+            if (result == 1) {
+                matches.set(row);
+            }
+        }
+        return new Selection(matches, unknown);
+    }
+
+    /**
+     * Replaces a property name with a literal value
+     */
+    static final class PropertyReplacer extends DuplicatingFilterVisitor {
+        final PropertyName property;
+
+        final Object value;
+
+        PropertyReplacer(PropertyName property, Object value) {
+            this.property = property;
+            this.value = value;
+        }
+
+        @Override
+        public Object visit(PropertyName expression, Object extraData) {
+            if (expression == property) {
+                return ff.literal(value);
+            }
+            return super.visit(expression, extraData);
+        }
+    }
+
+    static boolean isNumeric(Column column) {
+        return column instanceof DoubleColumn
+                || (column instanceof LongColumn && ((LongColumn) column).isNumeric());
+    }
+
+    /**
+     * Converts the literal to the attribute binding, if the conversion is lossless
+     */
+    static Object convert(Object value, Class<?> binding) {
+        if (value == null || value.getClass() == binding) {
+            return value;
+        }
+        return Converters.convert(value, binding, SAFE_CONVERSION);
+    }
+
+    Column getColumn(Expression expression) {
+        if (!(expression instanceof PropertyName)) {
+            return null;
+        }
+        String name = ((PropertyName) expression).getPropertyName();
+        return isPlainName(name) ? table.getColumn(name) : null;
+    }
+
+    Column getGeometryColumn(PropertyName property) {
+        String name = property.getPropertyName();
+        if (name == null || name.isEmpty()) {
+            // the default geometry
+            GeometryDescriptor descriptor = table.schema.getGeometryDescriptor();
+            return descriptor != null ? table.getColumn(descriptor.getLocalName()) : null;
+        }
+        return getColumn(property);
+    }
+
+    /**
+     * Only plain attribute names are resolved against the columns, prefixes, indexes and paths
+     * are left to the property accessors
+     */
+    static boolean isPlainName(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ':' || c == '/' || c == '@' || c == '[') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.feature.simple.CompactFeatureLayout;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Immutable column oriented storage of the features of a single type, used by
+ * {@link ColumnarDataStore}. Each attribute is stored in its own column:
+ * <ul>
+ * <li>integral numbers and booleans in a <code>long[]</code></li>
+ * <li>floating point numbers in a <code>double[]</code></li>
+ * <li>strings as codes in a dictionary</li>
+ * <li>geometries with packed coordinate sequences, along with their envelopes, in a
+ * <code>double[]</code></li>
+ * <li>anything else as is, in an <code>Object[]</code></li>
+ * </ul>
+ * New features are added by creating a new table with a {@link Builder}, so that readers can
+ * keep on working against the table they started with.
+ */
+public final class ColumnarTable {
+
+    final SimpleFeatureType schema;
+
+    final int size;
+
+    final String[] fids;
+
+    final Column[] columns;
+
+    ColumnarTable(SimpleFeatureType schema, int size, String[] fids, Column[] columns) {
+        this.schema = schema;
+        this.size = size;
+        this.fids = fids;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates an empty table for the given feature type
+     */
+    public static ColumnarTable empty(SimpleFeatureType schema) {
+        return new Builder(schema).build();
+    }
+
+    /**
+     * Returns a builder containing all the rows of this table
+     */
+    public Builder builder() {
+        return new Builder(this);
+    }
+
+    public SimpleFeatureType getSchema() {
+        return schema;
+    }
+
+    /**
+     * The number of rows in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the column of the specified attribute, or null if the name is not a plain attribute
+     * name of the feature type
+     */
+    Column getColumn(String name) {
+        if (name == null) {
+            return null;
+        }
+        int index = schema.indexOf(name);
+        return index >= 0 ? columns[index] : null;
+    }
+
+    /**
+     * Materializes the feature at the specified row
+     */
+    SimpleFeature getFeature(int row, SimpleFeatureBuilder builder) {
+        for (int i = 0; i < columns.length; i++) {
+            builder.set(i, columns[i].get(row));
+        }
+        return builder.buildFeature(fids[row]);
+    }
+
+    /**
+     * Appends rows to a table
+     */
+    public static final class Builder {
+
+        final SimpleFeatureType schema;
+
+        int size;
+
+        String[] fids;
+
+        final Column[] columns;
+
+        boolean built;
+
+        public Builder(SimpleFeatureType schema) {
+            this.schema = schema;
+            this.fids = new String[16];
+            this.columns = new Column[schema.getAttributeCount()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = createColumn(schema.getDescriptor(i), fids.length);
+            }
+        }
+
+        Builder(ColumnarTable table) {
+            this.schema = table.schema;
+            this.size = table.size;
+            int capacity = table.size + 16;
+            this.fids = Arrays.copyOf(table.fids, capacity);
+            this.columns = new Column[table.columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = table.columns[i].copy(capacity);
+            }
+        }
+
+        static Column createColumn(AttributeDescriptor descriptor, int capacity) {
+            Class<?> binding = descriptor.getType().getBinding();
+            if (Geometry.class.isAssignableFrom(binding)) {
+                return new GeometryColumn(binding, capacity);
+            } else if (binding == String.class) {
+                return new StringColumn(capacity);
+            } else if (binding == Long.class || binding == Integer.class
+                    || binding == Short.class || binding == Byte.class
+                    || binding == Boolean.class) {
+                return new LongColumn(binding, capacity);
+            } else if (binding == Double.class || binding == Float.class) {
+                return new DoubleColumn(binding, capacity);
+            } else {
+                return new ObjectColumn(binding, capacity);
+            }
+        }
+
+        /**
+         * Appends a feature, its values are converted to the attribute bindings if necessary
+         * 
+         * @throws IllegalArgumentException if a value cannot be converted
+         */
+        public void add(SimpleFeature feature) {
+            if (built) {
+                throw new IllegalStateException("The table has already been built");
+            }
+            if (size == fids.length) {
+                int capacity = Math.max(16, size + (size >> 1));
+                fids = Arrays.copyOf(fids, capacity);
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = columns[i].copy(capacity);
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].set(size, feature.getAttribute(i));
+            }
+            fids[size] = feature.getID();
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Builds the table, the builder cannot be used anymore afterwards
+         */
+        public ColumnarTable build() {
+            built = true;
+            return new ColumnarTable(schema, size, fids, columns);
+        }
+    }
+
+    /**
+     * A column of values, rows are added by the builders, once the table is built they are only
+     * read
+     */
+    static abstract class Column {
+
+        final Class<?> binding;
+
+        Column(Class<?> binding) {
+            this.binding = binding;
+        }
+
+        /**
+         * Returns the value at the row, boxed in the binding class
+         */
+        abstract Object get(int row);
+
+        abstract boolean isNull(int row);
+
+        abstract void set(int row, Object value);
+
+        /**
+         * Returns a copy of the column, with the given capacity
+         */
+        abstract Column copy(int capacity);
+
+        Object convert(Object value) {
+            if (value == null || binding.isInstance(value)) {
+                return value;
+            }
+            Object converted = Converters.convert(value, binding);
+            if (converted == null) {
+                throw new IllegalArgumentException("Cannot convert " + value + " to "
+                        + binding.getSimpleName());
+            }
+            return converted;
+        }
+    }
+
+    /**
+     * Base class for columns of primitive values, tracking the null ones in a bit set
+     */
+    static abstract class PrimitiveColumn extends Column {
+
+        BitSet nulls;
+
+        PrimitiveColumn(Class<?> binding, BitSet nulls) {
+            super(binding);
+            this.nulls = nulls;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+    }
+
+    /**
+     * Integral numbers and booleans, the latter stored as 1 and 0
+     */
+    static final class LongColumn extends PrimitiveColumn {
+
+        final long[] values;
+
+        LongColumn(Class<?> binding, int capacity) {
+            this(binding, new long[capacity], new BitSet());
+        }
+
+        LongColumn(Class<?> binding, long[] values, BitSet nulls) {
+            super(binding, nulls);
+            this.values = values;
+        }
+
+        boolean isNumeric() {
+            return binding != Boolean.class;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            long value = values[row];
+            if (binding == Long.class) {
+                return Long.valueOf(value);
+            } else if (binding == Integer.class) {
+                return Integer.valueOf((int) value);
+            } else if (binding == Short.class) {
+                return Short.valueOf((short) value);
+            } else if (binding == Byte.class) {
+                return Byte.valueOf((byte) value);
+            } else {
+                return Boolean.valueOf(value != 0);
+            }
+        }
+
+        @Override
+        void set(int row, Object value) {
+            Object converted = convert(value);
+            if (converted == null) {
+                values[row] = 0;
+                nulls.set(row);
+            } else {
+                if (converted instanceof Boolean) {
+                    values[row] = ((Boolean) converted).booleanValue() ? 1 : 0;
+                } else {
+                    values[row] = ((Number) converted).longValue();
+                }
+                nulls.clear(row);
+            }
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new LongColumn(binding, Arrays.copyOf(values, capacity), (BitSet) nulls.clone());
+        }
+    }
+
+    /**
+     * Floating point numbers, floats are stored as doubles (the conversion is exact)
+     */
+    static final class DoubleColumn extends PrimitiveColumn {
+
+        final double[] values;
+
+        DoubleColumn(Class<?> binding, int capacity) {
+            this(binding, new double[capacity], new BitSet());
+        }
+
+        DoubleColumn(Class<?> binding, double[] values, BitSet nulls) {
+            super(binding, nulls);
+            this.values = values;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            if (binding == Double.class) {
+                return Double.valueOf(values[row]);
+            } else {
+                return Float.valueOf((float) values[row]);
+            }
+        }
+
+        @Override
+        void set(int row, Object value) {
+            Object converted = convert(value);
+            if (converted == null) {
+                values[row] = 0;
+                nulls.set(row);
+            } else {
+                values[row] = ((Number) converted).doubleValue();
+                nulls.clear(row);
+            }
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new DoubleColumn(binding, Arrays.copyOf(values, capacity),
+                    (BitSet) nulls.clone());
+        }
+    }
+
+    /**
+     * Dictionary encoded strings, null values have a negative code
+     */
+    static final class StringColumn extends Column {
+
+        final int[] codes;
+
+        final List<String> dictionary;
+
+        final Map<String, Integer> index;
+
+        StringColumn(int capacity) {
+            this(new int[capacity], new ArrayList<String>(), new HashMap<String, Integer>());
+        }
+
+        StringColumn(int[] codes, List<String> dictionary, Map<String, Integer> index) {
+            super(String.class);
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.index = index;
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return codes[row] < 0;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            String converted = (String) convert(value);
+            if (converted == null) {
+                codes[row] = -1;
+            } else {
+                Integer code = index.get(converted);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add(converted);
+                    index.put(converted, code);
+                }
+                codes[row] = code;
+            }
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new StringColumn(Arrays.copyOf(codes, capacity), new ArrayList<String>(
+                    dictionary), new HashMap<String, Integer>(index));
+        }
+    }
+
+    /**
+     * Geometries with packed coordinates, and their envelopes as minx, miny, maxx, maxy
+     * quadruplets (NaN for null and empty geometries)
+     */
+    static final class GeometryColumn extends Column {
+
+        final Geometry[] values;
+
+        final double[] envelopes;
+
+        GeometryColumn(Class<?> binding, int capacity) {
+            this(binding, new Geometry[capacity], new double[capacity * 4]);
+        }
+
+        GeometryColumn(Class<?> binding, Geometry[] values, double[] envelopes) {
+            super(binding);
+            this.values = values;
+            this.envelopes = envelopes;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            Geometry geometry = (Geometry) convert(value);
+            int base = row * 4;
+            if (geometry == null || geometry.isEmpty()) {
+                values[row] = geometry;
+                Arrays.fill(envelopes, base, base + 4, Double.NaN);
+            } else {
+                values[row] = CompactFeatureLayout.pack(geometry);
+                Envelope envelope = geometry.getEnvelopeInternal();
+                envelopes[base] = envelope.getMinX();
+                envelopes[base + 1] = envelope.getMinY();
+                envelopes[base + 2] = envelope.getMaxX();
+                envelopes[base + 3] = envelope.getMaxY();
+            }
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new GeometryColumn(binding, Arrays.copyOf(values, capacity), Arrays.copyOf(
+                    envelopes, capacity * 4));
+        }
+    }
+
+    /**
+     * Values of any other type
+     */
+    static final class ObjectColumn extends Column {
+
+        final Object[] values;
+
+        ObjectColumn(Class<?> binding, int capacity) {
+            this(binding, new Object[capacity]);
+        }
+
+        ObjectColumn(Class<?> binding, Object[] values) {
+            super(binding);
+            this.values = values;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = convert(value);
+        }
+
+        @Override
+        Column copy(int capacity) {
+            return new ObjectColumn(binding, Arrays.copyOf(values, capacity));
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.Aggregate;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.GroupByVisitor;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class ColumnarDataStoreTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    static final String[] NAMES = { "alpha", "beta", "gamma", "Delta", null };
+
+    SimpleFeatureType type;
+
+    List<SimpleFeature> features;
+
+    SimpleFeatureSource columnar;
+
+    SimpleFeatureSource memory;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("reference");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", Point.class);
+        tb.add("name", String.class);
+        tb.add("i", Integer.class);
+        tb.add("l", Long.class);
+        tb.add("s", Short.class);
+        tb.add("d", Double.class);
+        tb.add("f", Float.class);
+        tb.add("flag", Boolean.class);
+        type = tb.buildFeatureType();
+
+        Random random = new Random(0);
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 500; i++) {
+            boolean nulls = random.nextInt(10) == 0;
+            fb.add(nulls ? null : gf.createPoint(new Coordinate(random.nextInt(360) - 180,
+                    random.nextInt(180) - 90)));
+            fb.add(NAMES[random.nextInt(NAMES.length)]);
+            fb.add(nulls ? null : random.nextInt(100) - 50);
+            fb.add(nulls ? null : random.nextLong());
+            fb.add(nulls ? null : (short) random.nextInt(10));
+            fb.add(nulls ? null : (i % 50 == 0 ? Double.NaN : random.nextDouble() * 100));
+            fb.add(nulls ? null : random.nextFloat());
+            fb.add(nulls ? null : random.nextBoolean());
+            features.add(fb.buildFeature("reference." + i));
+        }
+
+        ColumnarDataStore columnarStore = new ColumnarDataStore();
+        // add in two batches, to exercise the table copy
+        columnarStore.addFeatures(features.subList(0, 200));
+        columnarStore.addFeatures(features.subList(200, features.size()));
+        columnar = columnarStore.getFeatureSource("reference");
+        memory = new MemoryDataStore(features.toArray(new SimpleFeature[features.size()]))
+                .getFeatureSource("reference");
+    }
+
+    @Test
+    public void testContents() throws Exception {
+        assertEquals(features.size(), columnar.getCount(Query.ALL));
+        try (SimpleFeatureIterator it = columnar.getFeatures().features()) {
+            int i = 0;
+            while (it.hasNext()) {
+                SimpleFeature actual = it.next();
+                SimpleFeature expected = features.get(i++);
+                assertEquals(expected.getID(), actual.getID());
+                for (int j = 0; j < type.getAttributeCount(); j++) {
+                    Object ev = expected.getAttribute(j);
+                    Object av = actual.getAttribute(j);
+                    if (ev instanceof Geometry) {
+                        assertTrue(((Geometry) ev).equalsExact((Geometry) av));
+                    } else {
+                        assertEquals(ev, av);
+                    }
+                }
+            }
+            assertEquals(features.size(), i);
+        }
+        assertEquals(memory.getBounds(), columnar.getBounds());
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        List<Filter> filters = new ArrayList<Filter>();
+        for (String p : new String[] { "i", "l", "s", "d", "f" }) {
+            for (Object value : new Object[] { 0, 5, -10.5, "7", Double.NaN }) {
+                Expression property = FF.property(p);
+                Expression literal = FF.literal(value);
+                filters.add(FF.equals(property, literal));
+                filters.add(FF.notEqual(property, literal));
+                filters.add(FF.less(property, literal));
+                filters.add(FF.lessOrEqual(property, literal));
+                filters.add(FF.greater(property, literal));
+                filters.add(FF.greaterOrEqual(literal, property));
+            }
+            filters.add(FF.between(FF.property(p), FF.literal(-5), FF.literal(5)));
+            filters.add(FF.isNull(FF.property(p)));
+        }
+        filters.add(FF.equals(FF.property("name"), FF.literal("beta")));
+        filters.add(FF.equal(FF.property("name"), FF.literal("delta"), false));
+        filters.add(FF.notEqual(FF.property("name"), FF.literal("alpha")));
+        filters.add(FF.less(FF.property("name"), FF.literal("c")));
+        filters.add(FF.like(FF.property("name"), "*a"));
+        filters.add(FF.isNull(FF.property("name")));
+        filters.add(FF.equals(FF.property("flag"), FF.literal(true)));
+        filters.add(FF.bbox("geom", -90, -45, 90, 45, null));
+        filters.add(FF.bbox("", 0, 0, 180, 90, null));
+        filters.add(FF.id(Collections.singleton(FF.featureId("reference.10"))));
+        filters.add(FF.and(FF.bbox("geom", -90, -45, 90, 45, null),
+                FF.greater(FF.property("i"), FF.literal(10))));
+        filters.add(FF.or(FF.equals(FF.property("name"), FF.literal("gamma")),
+                FF.less(FF.property("d"), FF.literal(10))));
+        filters.add(FF.not(FF.or(FF.isNull(FF.property("i")),
+                FF.equals(FF.property("name"), FF.literal("gamma")))));
+        filters.add(FF.greater(FF.function("abs", FF.property("i")), FF.literal(20)));
+
+        for (Filter filter : filters) {
+            Query query = new Query("reference", filter);
+            assertEquals(filter.toString(), getIds(memory, query), getIds(columnar, query));
+            assertEquals(filter.toString(), memory.getFeatures(query).size(), columnar
+                    .getCount(query));
+        }
+    }
+
+    Set<String> getIds(SimpleFeatureSource source, Query query) throws Exception {
+        Set<String> ids = new TreeSet<String>();
+        try (SimpleFeatureIterator it = source.getFeatures(query).features()) {
+            while (it.hasNext()) {
+                ids.add(it.next().getID());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        Query query = new Query("reference", FF.greater(FF.property("i"), FF.literal(0)));
+        ReferencedEnvelope expected = new ReferencedEnvelope(DefaultGeographicCRS.WGS84);
+        try (SimpleFeatureIterator it = memory.getFeatures(query).features()) {
+            while (it.hasNext()) {
+                expected.include(it.next().getBounds());
+            }
+        }
+        assertEquals(expected, columnar.getBounds(query));
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        Filter filter = FF.greater(FF.property("d"), FF.literal(20));
+        for (String p : new String[] { "i", "l", "s", "d", "f" }) {
+            assertSameResult(new SumVisitor(FF.property(p)), new SumVisitor(FF.property(p)),
+                    filter);
+            assertSameResult(new MinVisitor(FF.property(p)), new MinVisitor(FF.property(p)),
+                    filter);
+        }
+        assertSameResult(new CountVisitor(), new CountVisitor(), filter);
+        // not handled natively, but still working
+        assertSameResult(new MaxVisitor(FF.property("d")), new MaxVisitor(FF.property("d")),
+                filter);
+    }
+
+    @Test
+    public void testGroupBy() throws Exception {
+        List<List<Expression>> groupBys = Arrays.asList(
+                Arrays.asList((Expression) FF.property("name")),
+                Arrays.asList((Expression) FF.property("name"), FF.property("flag")),
+                Arrays.asList((Expression) FF.property("s")));
+        for (List<Expression> groupBy : groupBys) {
+            for (Aggregate aggregate : new Aggregate[] { Aggregate.COUNT, Aggregate.SUM,
+                    Aggregate.MIN, Aggregate.MAX, Aggregate.AVERAGE }) {
+                for (String p : new String[] { "i", "d" }) {
+                    GroupByVisitor expected = new GroupByVisitor(aggregate, FF.property(p),
+                            groupBy, null);
+                    GroupByVisitor actual = new GroupByVisitor(aggregate, FF.property(p),
+                            groupBy, null);
+                    memory.getFeatures().accepts(expected, null);
+                    columnar.getFeatures().accepts(actual, null);
+                    assertEquals(aggregate + " of " + p + " by " + groupBy,
+                            toMap(expected.getResult()), toMap(actual.getResult()));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<Object, Object> toMap(CalcResult result) {
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        Map<List<Object>, CalcResult> results = ((GroupByVisitor.GroupByResult) result)
+                .getResults();
+        for (Map.Entry<List<Object>, CalcResult> entry : results.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return map;
+    }
+
+    void assertSameResult(FeatureCalc expected, FeatureCalc actual, Filter filter)
+            throws Exception {
+        SimpleFeatureCollection mc = memory.getFeatures(filter);
+        SimpleFeatureCollection cc = columnar.getFeatures(filter);
+        mc.accepts(expected, null);
+        cc.accepts(actual, null);
+        Object ev = expected.getResult().getValue();
+        Object av = actual.getResult().getValue();
+        assertEquals(ev, av);
+        if (ev != null) {
+            assertEquals(ev.getClass(), av.getClass());
+        }
+    }
+
+    @Test
+    public void testIncompatibleSchema() throws Exception {
+        ColumnarDataStore store = new ColumnarDataStore(type);
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("reference");
+        tb.add("other", String.class);
+        SimpleFeature feature = SimpleFeatureBuilder.build(tb.buildFeatureType(),
+                new Object[] { "abc" }, null);
+        try {
+            store.addFeatures(Collections.singletonList(feature));
+            fail("Should have failed, the schemas are not compatible");
+        } catch (java.io.IOException e) {
+            // fine
+        }
+    }
+}
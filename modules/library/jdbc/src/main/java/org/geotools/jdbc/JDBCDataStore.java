@@ -284,6 +284,25 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected int batchInsertSize = 1;
 
+    /**
+     * The number of updates and deletes by primary key to bufferize in the update feature
+     * writers in order to execute them in batches.
+     *
+     * By default 1, that is, each modification is executed right away.
+     */
+    protected int batchUpdateSize = 1;
+
+    /**
+     * The minimum number of features a single addFeatures call must contain in order to use the
+     * native bulk load of the dialect, if supported. A value of 0 or less disables bulk loading.
+     */
+    protected int bulkLoadThreshold = 0;
+
+    /**
+     * The cache of the count and bounds query results, null if caching is disabled (the default)
+     */
+    protected QueryResultCache queryResultCache;
+
     /**
      * flag controlling whether primary key columns of a table are exposed via the 
      * feature type.
@@ -447,6 +466,74 @@ public final class JDBCDataStore extends ContentDataStore
         this.batchInsertSize = batchInsertSize;
     }
 
+    /**
+     * @return the number of updates and deletes to bufferize in the update feature writers in
+     *         order to execute them in batches.
+     */
+    public int getBatchUpdateSize() {
+        return batchUpdateSize;
+    }
+
+    /**
+     * Set the number of updates and deletes to bufferize in the update feature writers in order
+     * to execute them in batches.
+     *
+     * Warning: when changing this value from its default of 1, the modifications are sent to the
+     * database only when a batch is full, or when the writer is closed. The feature events are
+     * issued right away, the transaction boundaries are not affected.
+     *
+     * @param batchUpdateSize
+     */
+    public void setBatchUpdateSize(int batchUpdateSize) {
+        this.batchUpdateSize = batchUpdateSize;
+    }
+
+    /**
+     * @return the minimum number of features that triggers the use of the dialect bulk load, 0 or
+     *         less if bulk loading is disabled
+     */
+    public int getBulkLoadThreshold() {
+        return bulkLoadThreshold;
+    }
+
+    /**
+     * Sets the minimum number of features a single addFeatures call must contain in order to use
+     * the dialect native bulk load (see {@link SQLDialect#isBulkLoadSupported()}). Use 0 to
+     * disable bulk loading.
+     *
+     * @param bulkLoadThreshold
+     */
+    public void setBulkLoadThreshold(int bulkLoadThreshold) {
+        this.bulkLoadThreshold = bulkLoadThreshold;
+    }
+
+    /**
+     * @return the cache of the count and bounds query results, or null if caching is disabled
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Sets the cache used to store the results of the count and bounds queries run in auto
+     * commit mode. Use null to disable caching.
+     *
+     * @param queryResultCache
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * Drops the cached query results of the specified feature type, to be called after its table
+     * has been modified
+     */
+    void invalidateQueryResults(SimpleFeatureType featureType) {
+        if (queryResultCache != null) {
+            queryResultCache.invalidate(featureType.getTypeName());
+        }
+    }
+
     /**
      * Determines if the datastore creates feature types which include those columns / attributes
      * which compose the primary key.
@@ -1695,6 +1782,8 @@ public final class JDBCDataStore extends ContentDataStore
             } catch (SQLException e) {
                 String msg = "Error inserting features";
                 throw (IOException) new IOException(msg).initCause(e);
+            } finally {
+                invalidateQueryResults(featureType);
             }
         }
     }
@@ -1865,6 +1954,140 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Loads the features into the database using the native bulk loading mechanism of the
+     * dialect, see {@link SQLDialect#bulkLoad(SimpleFeatureType, List, Iterator, Connection)}.
+     * <p>
+     * Returns <code>null</code>, without consuming any feature, if the bulk load cannot be used,
+     * either because the primary key values are only known after insert, or because the dialect
+     * could not start the load. In that case the caller should fall back on regular inserts.
+     * </p>
+     * @return The ids of the loaded features, or <code>null</code>
+     */
+    protected List<FeatureId> bulkLoad(final SimpleFeatureType featureType,
+            final Iterator<? extends SimpleFeature> features, final Connection cx)
+            throws IOException {
+        final PrimaryKey key = getPrimaryKey(featureType);
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col instanceof AutoGeneratedPrimaryKeyColumn
+                    && dialect.lookupGeneratedValuesPostInsert()) {
+                // the key values cannot be known in advance
+                return null;
+            }
+        }
+
+        // the non key attributes first, then the key columns
+        final Set<String> pkColumnNames = getColumnNames(key);
+        final List<AttributeDescriptor> attributes = new ArrayList<AttributeDescriptor>();
+        final List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (pkColumnNames.contains(att.getLocalName())) {
+                continue;
+            }
+            ColumnMetadata column = new ColumnMetadata();
+            column.setName(att.getLocalName());
+            column.setBinding(att.getType().getBinding());
+            column.setNullable(att.isNillable());
+            if (att instanceof GeometryDescriptor) {
+                column.setSrid(getDescriptorSRID(att));
+            }
+            attributes.add(att);
+            columns.add(column);
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            ColumnMetadata column = new ColumnMetadata();
+            column.setName(col.getName());
+            column.setBinding(col.getType());
+            columns.add(column);
+        }
+
+        final List<FeatureId> ids = new ArrayList<FeatureId>();
+        Iterator<Object[]> rows = new Iterator<Object[]>() {
+            KeysFetcher existing;
+
+            KeysFetcher generated;
+
+            @Override
+            public boolean hasNext() {
+                return features.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                SimpleFeature feature = features.next();
+                try {
+                    Object[] row = new Object[columns.size()];
+                    int i = 0;
+                    for (AttributeDescriptor att : attributes) {
+                        Object value = feature.getAttribute(att.getLocalName());
+                        if (value == null && !att.isNillable()) {
+                            throw new IOException("Cannot set a NULL value on the not null column "
+                                    + att.getLocalName());
+                        }
+                        row[i++] = value;
+                    }
+
+                    List<Object> keyValues = getKeysFetcher(feature).getNextValues(cx, feature);
+                    for (Object value : keyValues) {
+                        row[i++] = value;
+                    }
+                    String fid = featureType.getTypeName() + "." + encodeFID(keyValues);
+                    feature.getUserData().put("fid", fid);
+                    ids.add(filterFactory.featureId(fid));
+
+                    return row;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            KeysFetcher getKeysFetcher(SimpleFeature feature) throws IOException, SQLException {
+                if (InsertionClassifier.useExisting(feature)) {
+                    if (existing == null) {
+                        existing = KeysFetcher.createForBulkLoad(JDBCDataStore.this, cx, true, key);
+                    }
+                    return existing;
+                } else {
+                    if (generated == null) {
+                        generated = KeysFetcher.createForBulkLoad(JDBCDataStore.this, cx, false,
+                                key);
+                    }
+                    return generated;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        // same as insert, the key values and the load must not interleave with other inserts
+        synchronized (this) {
+            try {
+                LOGGER.log(Level.FINE, "Bulk loading features in {0}", featureType.getTypeName());
+                if (!dialect.bulkLoad(featureType, columns, rows, cx)) {
+                    return null;
+                }
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof SQLException) {
+                    throw new IOException("Error bulk loading features", e.getCause());
+                }
+                throw e;
+            } catch (SQLException e) {
+                throw new IOException("Error bulk loading features", e);
+            } finally {
+                invalidateQueryResults(featureType);
+            }
+        }
+
+        return ids;
+    }
+
     /**
      * Updates an existing feature(s) in the database for a particular feature type / table.
      */
@@ -1915,6 +2138,7 @@ public final class JDBCDataStore extends ContentDataStore
                 }
                 finally {
                     closeSafe( ps );
+                    invalidateQueryResults(featureType);
                 }
             } 
             catch (SQLException e) {
@@ -1935,6 +2159,7 @@ public final class JDBCDataStore extends ContentDataStore
                 }
                 finally {
                     closeSafe(st);
+                    invalidateQueryResults(featureType);
                 }
             } catch (SQLException e) {
                 String msg = "Error occured updating features";
@@ -1984,6 +2209,8 @@ public final class JDBCDataStore extends ContentDataStore
         } catch (SQLException e) {
             String msg = "Error occured during delete";
             throw (IOException) new IOException(msg).initCause(e);
+        } finally {
+            invalidateQueryResults(featureType);
         }
     }
     
@@ -4222,10 +4449,40 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected PreparedStatement updateSQLPS(SimpleFeatureType featureType, AttributeDescriptor[] attributes,
             Object[] values, Filter filter, Set<String> pkColumnNames, Connection cx ) throws IOException, SQLException {
-        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        StringBuffer sql = new StringBuffer();
+        encodeUpdateSetPS(featureType, attributes, values, pkColumnNames, sql);
+
+        PreparedFilterToSQL toSQL = null;
+        if (filter != null  && !Filter.INCLUDE.equals(filter)) {
+            //encode filter
+            try {
+                toSQL = createPreparedFilterToSQL(featureType);
+                sql.append(" ").append(toSQL.encodeToString(filter));
+            } catch (FilterToSQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        
+        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        LOGGER.log(Level.FINE, "Updating features with prepared statement: {0}", sql);
         
+        int j = setUpdateValuesPS(ps, attributes, values, pkColumnNames, cx);
+        
+        if ( toSQL != null ) {
+            setPreparedFilterValues(ps, toSQL, j, cx);
+        }
+        
+        return ps;
+    }
+
+    /**
+     * Encodes the 'UPDATE table SET ...' part of an update prepared statement, the filter
+     * is not included.
+     */
+    void encodeUpdateSetPS(SimpleFeatureType featureType, AttributeDescriptor[] attributes,
+            Object[] values, Set<String> pkColumnNames, StringBuffer sql) throws SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
 
-        StringBuffer sql = new StringBuffer();
         sql.append("UPDATE ");
         encodeTableName(featureType.getTypeName(), sql, null);
 
@@ -4254,21 +4511,17 @@ public final class JDBCDataStore extends ContentDataStore
         }
         sql.setLength(sql.length() - 1);
         sql.append(" ");
+    }
+
+    /**
+     * Sets the values of the update assignments in a prepared statement generated by
+     * {@link #encodeUpdateSetPS}, returns the number of parameters that have been set
+     */
+    int setUpdateValuesPS(PreparedStatement ps, AttributeDescriptor[] attributes,
+            Object[] values, Set<String> pkColumnNames, Connection cx) throws IOException,
+            SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
 
-        PreparedFilterToSQL toSQL = null;
-        if (filter != null  && !Filter.INCLUDE.equals(filter)) {
-            //encode filter
-            try {
-                toSQL = createPreparedFilterToSQL(featureType);
-                sql.append(" ").append(toSQL.encodeToString(filter));
-            } catch (FilterToSQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
-        LOGGER.log(Level.FINE, "Updating features with prepared statement: {0}", sql);
-        
         int i = 0;
         int j = 0;
         for (; i < attributes.length; i++) {
@@ -4292,12 +4545,7 @@ public final class JDBCDataStore extends ContentDataStore
             // we do this only if we did not skip the exposed pk
             j++;
         }
-        
-        if ( toSQL != null ) {
-            setPreparedFilterValues(ps, toSQL, j, cx);
-        }
-        
-        return ps;
+        return j;
     }
 
     /**
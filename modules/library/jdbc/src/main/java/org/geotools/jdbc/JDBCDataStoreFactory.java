@@ -103,6 +103,22 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
     public static final Param BATCH_INSERT_SIZE = new Param("Batch insert size", Integer.class,
             "Number of records inserted in the same batch (default, 1). For optimal performance, set to 100.", false, 1);
 
+    /** If different from one, the update feature writers will execute updates and deletes in batches */
+    public static final Param BATCH_UPDATE_SIZE = new Param("Batch update size", Integer.class,
+            "Number of updates and deletes executed in the same batch by the feature writers (default, 1). For optimal performance, set to 100.", false, 1);
+
+    /** Minimum number of features that triggers the native bulk load when adding features */
+    public static final Param BULK_LOAD_THRESHOLD = new Param("Bulk load threshold", Integer.class,
+            "Minimum number of features added in a single call that triggers the native bulk load of the database, if supported (default, 0, disabled)", false, 0);
+
+    /** Number of count and bounds query results kept in cache, 0 disables caching */
+    public static final Param QUERY_CACHE_SIZE = new Param("Query cache size", Integer.class,
+            "Maximum number of count and bounds query results kept in cache (default, 0, disabled)", false, 0);
+
+    /** Time to live of the cached count and bounds query results */
+    public static final Param QUERY_CACHE_TTL = new Param("Query cache TTL", Integer.class,
+            "Number of seconds a cached count or bounds query result is considered valid (default, 60 seconds)", false, 60);
+
     /** Maximum amount of time the pool will wait when trying to grab a new connection **/
     public static final Param MAXWAIT = new Param("Connection timeout", Integer.class,
             "number of seconds the connection pool will wait before timing out attempting to get a new connection (default, 20 seconds)", false, 20);
@@ -221,6 +237,26 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
             dataStore.setBatchInsertSize(batchInsertSize);
         }
 
+        Integer batchUpdateSize = (Integer) BATCH_UPDATE_SIZE.lookUp(params);
+        if (batchUpdateSize != null && batchUpdateSize > 0) {
+            dataStore.setBatchUpdateSize(batchUpdateSize);
+        }
+
+        Integer bulkLoadThreshold = (Integer) BULK_LOAD_THRESHOLD.lookUp(params);
+        if (bulkLoadThreshold != null) {
+            dataStore.setBulkLoadThreshold(bulkLoadThreshold);
+        }
+
+        Integer queryCacheSize = (Integer) QUERY_CACHE_SIZE.lookUp(params);
+        if (queryCacheSize != null && queryCacheSize > 0) {
+            Integer queryCacheTTL = (Integer) QUERY_CACHE_TTL.lookUp(params);
+            if (queryCacheTTL == null) {
+                queryCacheTTL = (Integer) QUERY_CACHE_TTL.sample;
+            }
+            dataStore.setQueryResultCache(new QueryResultCache(queryCacheSize,
+                    queryCacheTTL * 1000l));
+        }
+
         // namespace
         String namespace = (String) NAMESPACE.lookUp(params);
 
@@ -353,6 +389,10 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(BATCH_UPDATE_SIZE.key, BATCH_UPDATE_SIZE);
+        parameters.put(BULK_LOAD_THRESHOLD.key, BULK_LOAD_THRESHOLD);
+        parameters.put(QUERY_CACHE_SIZE.key, QUERY_CACHE_SIZE);
+        parameters.put(QUERY_CACHE_TTL.key, QUERY_CACHE_TTL);
         parameters.put(MAXWAIT.key, MAXWAIT);
         if(getValidationQuery() != null)
             parameters.put(VALIDATECONN.key, VALIDATECONN);
@@ -458,6 +458,18 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             } else {
                 //no post filter, we have a preFilter, or preFilter is null.. 
                 // either way we can use the datastore optimization
+                QueryResultCache cache = getQueryResultCache(query);
+                QueryResultCache.Key key = null;
+                long generation = 0;
+                if (cache != null) {
+                    key = new QueryResultCache.Key(getSchema().getTypeName(),
+                            QueryResultCache.Kind.COUNT, query, preFilter);
+                    Integer cached = cache.getCount(key);
+                    if (cached != null) {
+                        return cached;
+                    }
+                    generation = cache.getGeneration();
+                }
                 Connection cx = dataStore.getConnection(getState());
                 try {
                     DefaultQuery q = new DefaultQuery(query);
@@ -474,6 +486,9 @@ public class JDBCFeatureSource extends ContentFeatureSource {
                         if(query.getMaxFeatures() > 0 && count > query.getMaxFeatures())
                             count = query.getMaxFeatures();
                     }
+                    if (cache != null) {
+                        cache.put(key, count, generation);
+                    }
                     return count;
                 }
                 finally {
@@ -527,11 +542,27 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             else {
                 //post filter was null... pre can be set or null... either way
                 // use datastore optimization
+                QueryResultCache cache = getQueryResultCache(query);
+                QueryResultCache.Key key = null;
+                long generation = 0;
+                if (cache != null) {
+                    key = new QueryResultCache.Key(getSchema().getTypeName(),
+                            QueryResultCache.Kind.BOUNDS, query, preFilter);
+                    ReferencedEnvelope cached = cache.getBounds(key);
+                    if (cached != null) {
+                        return cached;
+                    }
+                    generation = cache.getGeneration();
+                }
                 Connection cx = dataStore.getConnection(getState());
                 try {
                     DefaultQuery q = new DefaultQuery(query);
                     q.setFilter(preFilter);
-                    return dataStore.getBounds(getSchema(), q, cx);
+                    ReferencedEnvelope bounds = dataStore.getBounds(getSchema(), q, cx);
+                    if (cache != null) {
+                        cache.put(key, bounds, generation);
+                    }
+                    return bounds;
                 }
                 finally {
                     getDataStore().releaseConnection( cx, getState() );
@@ -542,6 +573,20 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         }
     }
     
+    /**
+     * Returns the query result cache if the results of the query can be cached, null otherwise.
+     * Only auto commit reads are cached, a transaction has to see its own changes, and joins are
+     * excluded as writes to the joined tables would not invalidate the results.
+     */
+    QueryResultCache getQueryResultCache(Query query) {
+        QueryResultCache cache = getDataStore().getQueryResultCache();
+        if (cache == null || getState().getTransaction() != Transaction.AUTO_COMMIT
+                || !query.getJoins().isEmpty()) {
+            return null;
+        }
+        return cache;
+    }
+
     protected boolean canFilter() {
         return true;
     }
@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.FeatureEvent;
@@ -37,6 +40,8 @@ import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureStore;
 import org.geotools.data.store.ContentState;
 import org.geotools.factory.Hints;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
@@ -44,6 +49,8 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
 
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -327,6 +334,125 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
         return writer;
     }
     
+    @Override
+    public List<FeatureId> addFeatures(Collection collection) throws IOException {
+        if (isBulkLoadEnabled() && isBulkLoadable(collection.size())) {
+            List<FeatureId> ids = bulkLoad(collection.iterator());
+            if (ids != null) {
+                return ids;
+            }
+        }
+        return super.addFeatures(collection);
+    }
+
+    @Override
+    public List<FeatureId> addFeatures(
+            FeatureCollection<SimpleFeatureType, SimpleFeature> featureCollection)
+            throws IOException {
+        if (isBulkLoadEnabled() && isBulkLoadable(featureCollection.size())) {
+            final FeatureIterator<SimpleFeature> fi = featureCollection.features();
+            try {
+                List<FeatureId> ids = bulkLoad(new Iterator<SimpleFeature>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return fi.hasNext();
+                    }
+
+                    @Override
+                    public SimpleFeature next() {
+                        return fi.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+                if (ids != null) {
+                    return ids;
+                }
+            } finally {
+                fi.close();
+            }
+        }
+        return super.addFeatures(featureCollection);
+    }
+
+    /**
+     * Checks if the store has been configured to bulk load, and the dialect supports it. This is
+     * checked before asking the collection for its size, which might require a full scan or a
+     * count query
+     */
+    boolean isBulkLoadEnabled() {
+        JDBCDataStore store = getDataStore();
+        return store.getBulkLoadThreshold() > 0 && store.getSQLDialect().isBulkLoadSupported();
+    }
+
+    /**
+     * Checks if this many features reach the bulk load threshold
+     */
+    boolean isBulkLoadable(int size) {
+        return size >= getDataStore().getBulkLoadThreshold();
+    }
+
+    /**
+     * Bulk loads the features on the connection of the current transaction, returns null if the
+     * bulk load could not be used and no feature was consumed
+     */
+    List<FeatureId> bulkLoad(final Iterator<? extends SimpleFeature> features)
+            throws IOException {
+        Transaction tx = getState().getTransaction();
+        Connection cx = null;
+        try {
+            cx = getDataStore().getConnection(tx);
+
+            ContentState state = getEntry().getState(transaction);
+            final ReferencedEnvelope bounds = new ReferencedEnvelope(getSchema()
+                    .getCoordinateReferenceSystem());
+            Iterator<? extends SimpleFeature> loaded = features;
+            if (state.hasListener()) {
+                // gather the bounds of the added features while they are loaded
+                loaded = new Iterator<SimpleFeature>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return features.hasNext();
+                    }
+
+                    @Override
+                    public SimpleFeature next() {
+                        SimpleFeature feature = features.next();
+                        bounds.include(feature.getBounds());
+                        return feature;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            List<FeatureId> ids = getDataStore().bulkLoad(getSchema(), loaded, cx);
+            if (ids == null) {
+                return null;
+            }
+
+            if (state.hasListener() && !ids.isEmpty()) {
+                // issue a single notification for the whole load
+                Id filter = getDataStore().getFilterFactory().id(new HashSet<FeatureId>(ids));
+                FeatureEvent event = new FeatureEvent(this, Type.ADDED, bounds, filter);
+                state.fireFeatureEvent(event);
+            }
+            return ids;
+        } finally {
+            if (tx == null || tx == Transaction.AUTO_COMMIT) {
+                getDataStore().closeSafe(cx);
+            }
+        }
+    }
+
     @Override
     public void modifyFeatures(Name[] names, Object[] values, Filter filter)
             throws IOException {
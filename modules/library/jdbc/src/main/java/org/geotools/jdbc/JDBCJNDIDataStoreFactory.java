@@ -158,6 +158,10 @@ public abstract class JDBCJNDIDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(BATCH_UPDATE_SIZE.key, BATCH_UPDATE_SIZE);
+        parameters.put(BULK_LOAD_THRESHOLD.key, BULK_LOAD_THRESHOLD);
+        parameters.put(QUERY_CACHE_SIZE.key, QUERY_CACHE_SIZE);
+        parameters.put(QUERY_CACHE_TTL.key, QUERY_CACHE_TTL);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
         parameters.put(PK_METADATA_TABLE.key, PK_METADATA_TABLE);
         parameters.put(SQL_ON_BORROW.key, SQL_ON_BORROW);
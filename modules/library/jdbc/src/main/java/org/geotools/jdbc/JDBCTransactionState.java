@@ -91,6 +91,11 @@ final class JDBCTransactionState implements State {
                 throw (IOException) new IOException(msg).initCause(e);
             }        
         }
+        // the committed changes are now visible to the auto commit reads
+        QueryResultCache cache = dataStore.getQueryResultCache();
+        if (cache != null) {
+            cache.clear();
+        }
     }
 
     public void rollback() throws IOException {
@@ -45,6 +45,10 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
 
     ResultSetFeature last;
     ReferencedEnvelope lastBounds;
+    /**
+     * The pending modifications, used only when batching updates and deletes
+     */
+    ModificationBatch batch;
     
     public JDBCUpdateFeatureWriter(String sql, Connection cx,
             JDBCFeatureSource featureSource, Hints hints) throws SQLException, IOException {
@@ -83,7 +87,11 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
     
     public void remove() throws IOException {
         try {
-            dataStore.delete(featureType, last.getID(), st.getConnection());
+            if (dataStore.getBatchUpdateSize() > 1) {
+                getBatch().delete(last.getID());
+            } else {
+                dataStore.delete(featureType, last.getID(), st.getConnection());
+            }
             
             // issue notification
             ContentEntry entry = featureSource.getEntry();
@@ -118,7 +126,12 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
             }
 
             // do the write
-            dataStore.update(featureType, changed, values, filter, st.getConnection());
+            if (dataStore.getBatchUpdateSize() > 1) {
+                getBatch().update(fid, changed.toArray(new AttributeDescriptor[changed.size()]),
+                        values.toArray());
+            } else {
+                dataStore.update(featureType, changed, values, filter, st.getConnection());
+            }
             
             // issue notification
             ContentEntry entry = featureSource.getEntry();
@@ -131,8 +144,33 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
         }
     }
 
+    /**
+     * Executes the pending batched modifications, if any
+     */
+    void flushBatch() throws IOException {
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    ModificationBatch getBatch() throws SQLException, IOException {
+        if (batch == null) {
+            batch = new ModificationBatch(dataStore, featureType, st.getConnection());
+        }
+        return batch;
+    }
+
     public void close() throws IOException {
-        super.close();
+        if (batch != null) {
+            try {
+                batch.close();
+            } finally {
+                batch = null;
+                super.close();
+            }
+        } else {
+            super.close();
+        }
         if ( last != null ) {
             last.close();
             last = null;    
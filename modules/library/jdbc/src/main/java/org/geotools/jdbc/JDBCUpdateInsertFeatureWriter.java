@@ -55,6 +55,7 @@ public class JDBCUpdateInsertFeatureWriter extends JDBCUpdateFeatureWriter {
         boolean hasNext = super.hasNext();
         if ( !hasNext ) {
             //update phase is up, switch to insert mode
+            flushBatch();
             inserter = new JDBCInsertFeatureWriter( this );
             return inserter.hasNext();
         }
@@ -34,6 +34,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -63,7 +64,21 @@ abstract class KeysFetcher {
         if (useExisting) {
             return new Existing(ds.getSQLDialect(), key);
         } else {
-            return new FromDB(ds, cx, key);
+            return new FromDB(ds, cx, key, false);
+        }
+    }
+
+    /**
+     * Creates a fetcher for bulk loads, where all key values must be known before the rows are
+     * sent to the database: sequence values are fetched in blocks instead of being computed
+     * during the insert.
+     */
+    public static KeysFetcher createForBulkLoad(JDBCDataStore ds, Connection cx,
+            boolean useExisting, PrimaryKey key) throws SQLException, IOException {
+        if (useExisting) {
+            return new Existing(ds.getSQLDialect(), key);
+        } else {
+            return new FromDB(ds, cx, key, true);
         }
     }
 
@@ -220,23 +235,23 @@ abstract class KeysFetcher {
     private static class FromDB extends KeysFetcher {
         private final List<KeyFetcher> fetchers;
 
-        public FromDB(JDBCDataStore ds, Connection cx, PrimaryKey key)
+        public FromDB(JDBCDataStore ds, Connection cx, PrimaryKey key, boolean bulk)
                 throws SQLException, IOException {
             super(key);
             fetchers = new ArrayList<>(key.getColumns().size());
             for (PrimaryKeyColumn col : key.getColumns()) {
-                fetchers.add(createKeyFetcher(ds, cx, key, col));
+                fetchers.add(createKeyFetcher(ds, cx, key, col, bulk));
             }
         }
 
         private KeyFetcher createKeyFetcher(JDBCDataStore ds, Connection cx, PrimaryKey key,
-                                            PrimaryKeyColumn col)
+                                            PrimaryKeyColumn col, boolean bulk)
                 throws SQLException, IOException {
             final Class t = col.getType();
             if (col instanceof AutoGeneratedPrimaryKeyColumn) {
                 return new AutoGenerated(ds, key, col);
             } else if (col instanceof SequencedPrimaryKeyColumn) {
-                return new FromSequence(ds, col);
+                return bulk ? new FromSequenceBlocks(ds, col) : new FromSequence(ds, col);
             } else {
                 //try to calculate
 
@@ -550,4 +565,44 @@ abstract class KeysFetcher {
             }
         }
     }
+
+    /**
+     * Fetches the sequence values before insert, in blocks, for bulk loads
+     */
+    private static class FromSequenceBlocks extends KeyFetcher {
+        static final int BLOCK_SIZE = 1000;
+
+        private final JDBCDataStore ds;
+
+        private final LinkedList<Object> values = new LinkedList<>();
+
+        public FromSequenceBlocks(JDBCDataStore ds, PrimaryKeyColumn col) {
+            super(ds, col);
+            this.ds = ds;
+        }
+
+        @Override
+        public Object getLastValue(Connection cx) throws SQLException {
+            throw new IllegalArgumentException("Column " + col.getName() + " is not generated.");
+        }
+
+        @Override
+        public boolean isPostInsert() {
+            return false;
+        }
+
+        @Override
+        public Object getNext(Connection cx) throws IOException, SQLException {
+            if (values.isEmpty()) {
+                String sequenceName = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                List<Object> block = ds.getSQLDialect().getNextSequenceValues(
+                        ds.getDatabaseSchema(), sequenceName, BLOCK_SIZE, cx);
+                if (block == null || block.isEmpty()) {
+                    throw new IOException("Could not fetch values from sequence " + sequenceName);
+                }
+                values.addAll(block);
+            }
+            return values.removeFirst();
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.Id;
+
+/**
+ * Accumulates updates and deletes of single features, identified by their primary key, and
+ * executes them as JDBC batches on the connection of the current transaction.
+ * <p>
+ * With prepared statement dialects the modifications are grouped by SQL statement, an update
+ * touching the same columns of another one reuses its prepared statement. With the other
+ * dialects the SQL statements are added to a single {@link Statement} batch. Grouping changes the
+ * execution order, which is not an issue for the update writers as they modify each feature at
+ * most once.
+ */
+class ModificationBatch {
+
+    static final Logger LOGGER = Logging.getLogger(ModificationBatch.class);
+
+    /**
+     * Max number of distinct prepared statements kept open, when exceeded the batch is flushed
+     * and the statements closed
+     */
+    static final int MAX_STATEMENTS = 32;
+
+    JDBCDataStore dataStore;
+
+    SimpleFeatureType featureType;
+
+    Connection cx;
+
+    int batchSize;
+
+    Set<String> pkColumnNames;
+
+    Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>();
+
+    Statement statement;
+
+    int pending;
+
+    ModificationBatch(JDBCDataStore dataStore, SimpleFeatureType featureType, Connection cx)
+            throws IOException {
+        this.dataStore = dataStore;
+        this.featureType = featureType;
+        this.cx = cx;
+        this.batchSize = dataStore.getBatchUpdateSize();
+        this.pkColumnNames = JDBCDataStore.getColumnNames(dataStore.getPrimaryKey(featureType));
+    }
+
+    /**
+     * Queues the update of the specified attributes in the feature with the given id
+     */
+    void update(String fid, AttributeDescriptor[] attributes, Object[] values) throws IOException {
+        if ((attributes == null) || (attributes.length == 0)) {
+            LOGGER.warning("Update called with no attributes, doing nothing.");
+            return;
+        }
+        boolean nonPkeyColumn = false;
+        for (AttributeDescriptor att : attributes) {
+            if (!pkColumnNames.contains(att.getLocalName())) {
+                nonPkeyColumn = true;
+            }
+        }
+        if (!nonPkeyColumn) {
+            throw new IllegalArgumentException("Illegal update, must include at least one non "
+                    + "primary key column, all primary key columns are ignored.");
+        }
+
+        Id filter = idFilter(fid);
+        try {
+            if (dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect) {
+                StringBuffer sql = new StringBuffer();
+                dataStore.encodeUpdateSetPS(featureType, attributes, values, pkColumnNames, sql);
+                PreparedFilterToSQL toSQL = dataStore.createPreparedFilterToSQL(featureType);
+                sql.append(" ").append(toSQL.encodeToString(filter));
+
+                PreparedStatement ps = getPreparedStatement(sql.toString(), true);
+                int offset = dataStore.setUpdateValuesPS(ps, attributes, values, pkColumnNames,
+                        cx);
+                dataStore.setPreparedFilterValues(ps, toSQL, offset, cx);
+                ps.addBatch();
+            } else {
+                String sql = dataStore.updateSQL(featureType, attributes, values, filter,
+                        pkColumnNames);
+                LOGGER.log(Level.FINE, "Batching feature update: {0}", sql);
+                getStatement().addBatch(sql);
+            }
+        } catch (FilterToSQLException e) {
+            throw new IOException("Error encoding the update filter", e);
+        } catch (SQLException e) {
+            throw new IOException("Error occured updating features", e);
+        }
+        queued();
+    }
+
+    /**
+     * Queues the removal of the feature with the given id
+     */
+    void delete(String fid) throws IOException {
+        Id filter = idFilter(fid);
+        try {
+            if (dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect) {
+                StringBuffer sql = new StringBuffer();
+                sql.append("DELETE FROM ");
+                dataStore.encodeTableName(featureType.getTypeName(), sql, null);
+                PreparedFilterToSQL toSQL = dataStore.createPreparedFilterToSQL(featureType);
+                sql.append(" ").append(toSQL.encodeToString(filter));
+
+                PreparedStatement ps = getPreparedStatement(sql.toString(), false);
+                dataStore.setPreparedFilterValues(ps, toSQL, 0, cx);
+                ps.addBatch();
+            } else {
+                String sql = dataStore.deleteSQL(featureType, filter);
+                LOGGER.log(Level.FINE, "Batching feature removal: {0}", sql);
+                getStatement().addBatch(sql);
+            }
+        } catch (FilterToSQLException e) {
+            throw new IOException("Error encoding the delete filter", e);
+        } catch (SQLException e) {
+            throw new IOException("Error occured during delete", e);
+        }
+        queued();
+    }
+
+    /**
+     * Executes all the queued modifications, the statements are kept open for the next batch
+     */
+    void flush() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        try {
+            // execute in order of first use
+            for (PreparedStatement ps : statements.values()) {
+                ps.executeBatch();
+            }
+            if (statement != null) {
+                statement.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error executing the batched modifications", e);
+        } finally {
+            pending = 0;
+            dataStore.invalidateQueryResults(featureType);
+        }
+    }
+
+    /**
+     * Executes the queued modifications and releases the statements
+     */
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closeStatements();
+        }
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement ps : statements.values()) {
+            dataStore.closeSafe(ps);
+        }
+        statements.clear();
+        if (statement != null) {
+            dataStore.closeSafe(statement);
+            statement = null;
+        }
+    }
+
+    private void queued() throws IOException {
+        pending++;
+        if (pending >= batchSize) {
+            flush();
+        }
+    }
+
+    private Id idFilter(String fid) {
+        FilterFactory ff = dataStore.getFilterFactory();
+        return ff.id(Collections.singleton(ff.featureId(fid)));
+    }
+
+    private PreparedStatement getPreparedStatement(String sql, boolean update)
+            throws SQLException, IOException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            if (statements.size() >= MAX_STATEMENTS) {
+                close();
+            }
+            LOGGER.log(Level.FINE, "Batching feature modifications with prepared statement: {0}",
+                    sql);
+            ps = cx.prepareStatement(sql);
+            statements.put(sql, ps);
+            PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) dataStore
+                    .getSQLDialect();
+            if (update) {
+                dialect.onUpdate(ps, cx, featureType);
+            } else {
+                dialect.onDelete(ps, cx, featureType);
+            }
+        }
+        return ps;
+    }
+
+    private Statement getStatement() throws SQLException {
+        if (statement == null) {
+            statement = cx.createStatement();
+            BasicSQLDialect dialect = (BasicSQLDialect) dataStore.getSQLDialect();
+            // the statement is shared, both callbacks are issued up front
+            dialect.onUpdate(statement, cx, featureType);
+            dialect.onDelete(statement, cx, featureType);
+        }
+        return statement;
+    }
+}
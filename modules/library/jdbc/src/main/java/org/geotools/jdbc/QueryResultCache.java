@@ -0,0 +1,274 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geotools.data.Query;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Utilities;
+import org.opengis.filter.Filter;
+
+/**
+ * Caches the results of the count and bounds queries run by {@link JDBCFeatureSource}, keyed by
+ * type name and query.
+ * <p>
+ * Entries expire after a configurable time to live, and the least recently used ones are evicted
+ * when the cache grows beyond its maximum size. The {@link JDBCDataStore} invalidates the entries
+ * of a feature type whenever it writes to the associated table, and clears the whole cache when a
+ * transaction is committed. Results computed while an invalidation was happening are not cached,
+ * so that a query running concurrently with a write cannot store a stale value.
+ * <p>
+ * The cache is meant to serve auto commit reads only, a transaction needs to see its own
+ * uncommitted changes.
+ */
+public class QueryResultCache {
+
+    /**
+     * The cached value kinds
+     */
+    enum Kind {
+        COUNT, BOUNDS
+    }
+
+    /**
+     * The cache key, the parts of a query that affect the count and bounds results
+     */
+    static final class Key {
+        final String typeName;
+
+        final Kind kind;
+
+        final Filter filter;
+
+        final Integer startIndex;
+
+        final int maxFeatures;
+
+        final List<String> propertyNames;
+
+        final Object viewParams;
+
+        Key(String typeName, Kind kind, Query query, Filter filter) {
+            this.typeName = typeName;
+            this.kind = kind;
+            this.filter = filter;
+            this.startIndex = query.getStartIndex();
+            this.maxFeatures = query.getMaxFeatures();
+            this.propertyNames = query.getPropertyNames() == null ? null : Arrays.asList(query
+                    .getPropertyNames());
+            this.viewParams = query.getHints() == null ? null : query.getHints().get(
+                    Hints.VIRTUAL_TABLE_PARAMETERS);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Utilities.hash(typeName, 0);
+            hash = Utilities.hash(kind, hash);
+            hash = Utilities.hash(filter, hash);
+            hash = Utilities.hash(startIndex, hash);
+            hash = Utilities.hash(maxFeatures, hash);
+            hash = Utilities.hash(propertyNames, hash);
+            return Utilities.hash(viewParams, hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return maxFeatures == other.maxFeatures && kind == other.kind
+                    && Utilities.equals(typeName, other.typeName)
+                    && Utilities.equals(filter, other.filter)
+                    && Utilities.equals(startIndex, other.startIndex)
+                    && Utilities.equals(propertyNames, other.propertyNames)
+                    && Utilities.equals(viewParams, other.viewParams);
+        }
+
+        @Override
+        public String toString() {
+            return "Key [typeName=" + typeName + ", kind=" + kind + ", filter=" + filter + "]";
+        }
+    }
+
+    static final class Entry {
+        final Object value;
+
+        final long expires;
+
+        Entry(Object value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    final int maxSize;
+
+    final long timeToLive;
+
+    final LinkedHashMap<Key, Entry> entries;
+
+    /**
+     * Incremented at each invalidation, used to discard results computed across one
+     */
+    long generation;
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new cache
+     *
+     * @param maxSize The maximum number of cached results
+     * @param timeToLive The time to live of a cached result, in milliseconds
+     */
+    public QueryResultCache(final int maxSize, long timeToLive) {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = -7379373556532767458L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached count, or null if not found
+     */
+    Integer getCount(Key key) {
+        return (Integer) get(key);
+    }
+
+    /**
+     * Returns a copy of the cached bounds, or null if not found
+     */
+    ReferencedEnvelope getBounds(Key key) {
+        ReferencedEnvelope bounds = (ReferencedEnvelope) get(key);
+        return bounds == null ? null : new ReferencedEnvelope(bounds);
+    }
+
+    synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expires < now()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Returns the current generation, to be grabbed before computing a value that will be put in
+     * the cache
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches the value, unless an invalidation happened since the specified generation was
+     * grabbed
+     */
+    synchronized void put(Key key, Object value, long generation) {
+        if (generation != this.generation || value == null) {
+            return;
+        }
+        if (value instanceof ReferencedEnvelope) {
+            value = new ReferencedEnvelope((ReferencedEnvelope) value);
+        }
+        entries.put(key, new Entry(value, now() + timeToLive));
+    }
+
+    /**
+     * Removes all the results of the specified feature type
+     */
+    public synchronized void invalidate(String typeName) {
+        generation++;
+        for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext();) {
+            if (typeName.equals(it.next().typeName)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached results
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * The number of results currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of lookups that found a valid cached result
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that did not find a valid cached result
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Resets the hit and miss counters
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -28,6 +28,7 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -1176,6 +1177,67 @@ public abstract class SQLDialect {
         return null;
     }
 
+    /**
+     * Obtains the next <tt>count</tt> values of a sequence, in a single round trip when the
+     * database allows it.
+     * <p>
+     * The default implementation calls {@link #getNextSequenceValue(String, String, Connection)}
+     * once per value, subclasses should override when a single query can return them all.
+     * </p>
+     * @param schemaName The schema name, this might be <code>null</code>.
+     * @param sequenceName The name of the sequence.
+     * @param count The number of values to fetch
+     * @param cx The database connection.
+     *
+     * @return The next values of the sequence, or <code>null</code>.
+     */
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        List<Object> values = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++) {
+            Object value = getNextSequenceValue(schemaName, sequenceName, cx);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Returns true if this dialect can load large amounts of rows in a table with a native bulk
+     * loading mechanism, see {@link #bulkLoad(SimpleFeatureType, List, Iterator, Connection)}
+     */
+    public boolean isBulkLoadSupported() {
+        return false;
+    }
+
+    /**
+     * Loads the rows into the table backing the feature type using a native bulk loading
+     * mechanism (e.g., COPY in PostgreSQL).
+     * <p>
+     * Each row contains one value per column, in the same order as the <tt>columns</tt> list.
+     * Geometries are provided as JTS objects, the srid of the target column is available in the
+     * column metadata.
+     * </p>
+     * <p>
+     * The connection is the one of the current transaction and should not be closed. If the
+     * dialect cannot start the load (e.g., the native connection cannot be reached) it should
+     * return <code>false</code> without consuming any row, the caller will then fall back on
+     * regular inserts.
+     * </p>
+     *
+     * @param featureType The feature type backing the target table
+     * @param columns The columns being loaded
+     * @param rows The row values
+     * @param cx The database connection
+     * @return True if the rows have been loaded, false if the bulk load could not be started
+     */
+    public boolean bulkLoad(SimpleFeatureType featureType, List<ColumnMetadata> columns,
+            Iterator<Object[]> rows, Connection cx) throws SQLException, IOException {
+        return false;
+    }
+
     /**
      * Returns true if this dialect can encode both {@linkplain Query#getStartIndex()}
      * and {@linkplain Query#getMaxFeatures()} into native SQL. 
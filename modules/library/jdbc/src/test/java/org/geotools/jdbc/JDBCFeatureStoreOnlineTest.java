@@ -29,6 +29,7 @@ import java.util.List;
 import org.geotools.data.CollectionFeatureReader;
 import org.geotools.data.DefaultTransaction;
 import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
 import org.geotools.data.Transaction;
 import org.geotools.data.FeatureEvent.Type;
 import org.geotools.data.simple.SimpleFeatureCollection;
@@ -417,4 +418,79 @@ public abstract class JDBCFeatureStoreOnlineTest extends JDBCTestSupport {
             //  fine
         }
     }
+
+    public void testBulkLoad() throws IOException {
+        dataStore.setBulkLoadThreshold(2);
+        try {
+            // same checks as testAddFeatures, dialects without bulk load fall back on inserts
+            testAddFeatures();
+        } finally {
+            dataStore.setBulkLoadThreshold(0);
+        }
+    }
+
+    public void testBulkLoadUseProvidedFid() throws IOException {
+        dataStore.setBulkLoadThreshold(2);
+        try {
+            testAddFeaturesUseProvidedFid();
+        } finally {
+            dataStore.setBulkLoadThreshold(0);
+        }
+    }
+
+    public void testAddFeaturesDoesNotSizeWithoutBulkLoad() throws IOException {
+        // bulk loading is off by default, sizing the collection might require a full scan
+        assertEquals(0, dataStore.getBulkLoadThreshold());
+        final int[] sizeCalls = new int[1];
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema()) {
+            @Override
+            public int size() {
+                sizeCalls[0]++;
+                return super.size();
+            }
+        };
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        sizeCalls[0] = 0;
+
+        List<FeatureId> fids = featureStore.addFeatures((SimpleFeatureCollection) collection);
+        assertEquals(3, fids.size());
+        assertEquals(0, sizeCalls[0]);
+        assertEquals(6, featureStore.getFeatures().size());
+    }
+
+    public void testBatchedUpdatesAndRemovals() throws IOException {
+        dataStore.setBatchUpdateSize(2);
+        FeatureWriter<SimpleFeatureType, SimpleFeature> writer = dataStore.getFeatureWriter(
+                tname("ft1"), Transaction.AUTO_COMMIT);
+        try {
+            while (writer.hasNext()) {
+                SimpleFeature feature = writer.next();
+                Integer value = (Integer) feature.getAttribute(aname("intProperty"));
+                if (value.intValue() == 1) {
+                    writer.remove();
+                } else {
+                    feature.setAttribute(aname("stringProperty"), "batched" + value);
+                    writer.write();
+                }
+            }
+        } finally {
+            writer.close();
+            dataStore.setBatchUpdateSize(1);
+        }
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        SimpleFeatureCollection features = featureStore.getFeatures();
+        assertEquals(2, features.size());
+        PropertyIsEqualTo batched = ff.equals(ff.property(aname("stringProperty")),
+                ff.literal("batched0"));
+        assertEquals(1, featureStore.getFeatures(batched).size());
+        batched = ff.equals(ff.property(aname("stringProperty")), ff.literal("batched2"));
+        assertEquals(1, featureStore.getFeatures(batched).size());
+    }
 }
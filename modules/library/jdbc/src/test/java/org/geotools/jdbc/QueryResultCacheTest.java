@@ -0,0 +1,155 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.Query;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.QueryResultCache.Key;
+import org.geotools.jdbc.QueryResultCache.Kind;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+
+public class QueryResultCacheTest {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    long time;
+
+    QueryResultCache cache;
+
+    @Before
+    public void setup() {
+        time = 0;
+        cache = new QueryResultCache(3, 1000) {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        Key key = countKey("roads", Filter.INCLUDE);
+        assertNull(cache.getCount(key));
+        cache.put(key, 10, cache.getGeneration());
+        assertEquals(Integer.valueOf(10), cache.getCount(countKey("roads", Filter.INCLUDE)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // a different filter or kind is a different entry
+        assertNull(cache.getCount(countKey("roads", FF.equals(FF.property("id"), FF.literal(1)))));
+        assertNull(cache.getBounds(new Key("roads", Kind.BOUNDS, new Query("roads"),
+                Filter.INCLUDE)));
+        assertEquals(3, cache.getMissCount());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testQueryParameters() {
+        Query query = new Query("roads");
+        query.setMaxFeatures(5);
+        cache.put(new Key("roads", Kind.COUNT, query, Filter.INCLUDE), 5, cache.getGeneration());
+        assertNull(cache.getCount(countKey("roads", Filter.INCLUDE)));
+
+        Query sameQuery = new Query("roads");
+        sameQuery.setMaxFeatures(5);
+        assertEquals(Integer.valueOf(5),
+                cache.getCount(new Key("roads", Kind.COUNT, sameQuery, Filter.INCLUDE)));
+
+        // sql view parameters change the results
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("param", "value");
+        sameQuery.setHints(new Hints(Hints.VIRTUAL_TABLE_PARAMETERS, params));
+        assertNull(cache.getCount(new Key("roads", Kind.COUNT, sameQuery, Filter.INCLUDE)));
+    }
+
+    @Test
+    public void testExpiration() {
+        Key key = countKey("roads", Filter.INCLUDE);
+        cache.put(key, 10, cache.getGeneration());
+        time = 1000;
+        assertEquals(Integer.valueOf(10), cache.getCount(key));
+        time = 1001;
+        assertNull(cache.getCount(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeEviction() {
+        for (String typeName : new String[] { "a", "b", "c" }) {
+            cache.put(countKey(typeName, Filter.INCLUDE), 1, cache.getGeneration());
+        }
+        // use "a" so that "b" becomes the least recently used
+        assertNotNull(cache.getCount(countKey("a", Filter.INCLUDE)));
+        cache.put(countKey("d", Filter.INCLUDE), 1, cache.getGeneration());
+        assertEquals(3, cache.size());
+        assertNull(cache.getCount(countKey("b", Filter.INCLUDE)));
+        assertNotNull(cache.getCount(countKey("a", Filter.INCLUDE)));
+        assertNotNull(cache.getCount(countKey("d", Filter.INCLUDE)));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put(countKey("roads", Filter.INCLUDE), 1, cache.getGeneration());
+        cache.put(countKey("rivers", Filter.INCLUDE), 1, cache.getGeneration());
+        cache.invalidate("roads");
+        assertNull(cache.getCount(countKey("roads", Filter.INCLUDE)));
+        assertNotNull(cache.getCount(countKey("rivers", Filter.INCLUDE)));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testStaleGeneration() {
+        // a value computed while the table was being modified is not cached
+        long generation = cache.getGeneration();
+        cache.invalidate("roads");
+        cache.put(countKey("roads", Filter.INCLUDE), 1, generation);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBoundsCopied() {
+        Key key = new Key("roads", Kind.BOUNDS, new Query("roads"), Filter.INCLUDE);
+        ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, null);
+        cache.put(key, bounds, cache.getGeneration());
+        bounds.expandToInclude(20, 20);
+
+        ReferencedEnvelope cached = cache.getBounds(key);
+        assertEquals(new ReferencedEnvelope(0, 10, 0, 10, null), cached);
+        cached.expandToInclude(30, 30);
+        assertEquals(new ReferencedEnvelope(0, 10, 0, 10, null), cache.getBounds(key));
+    }
+
+    private Key countKey(String typeName, Filter filter) {
+        return new Key(typeName, Kind.COUNT, new Query(typeName), filter);
+    }
+}
@@ -21,6 +21,7 @@ import java.util.NoSuchElementException;
 
 import org.geotools.feature.IllegalAttributeException;
 import org.geotools.filter.visitor.BindingFilterVisitor;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.opengis.feature.Feature;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
@@ -64,9 +65,9 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
      */
     public FilteringFeatureReader(FeatureReader<T, F> featureReader, Filter filter) {
         this.featureReader = featureReader;
-        this.filter = (Filter) filter
-                .accept(new BindingFilterVisitor(featureReader.getFeatureType()),
-                null);
+        T schema = featureReader.getFeatureType();
+        Filter bound = (Filter) filter.accept(new BindingFilterVisitor(schema), null);
+        this.filter = FilterCompiler.compile(bound, schema);
         next = null;
     }
 
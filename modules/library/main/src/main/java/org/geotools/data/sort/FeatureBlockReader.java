@@ -16,13 +16,15 @@
  */
 package org.geotools.data.sort;
 
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.List;
 
 import org.opengis.feature.simple.SimpleFeature;
 
 /**
- * Reads the features stored in the specified block of a {@link RandomAccessFile}
+ * Reads the features of a sorted run, either stored in a {@link SpillFile} or kept in memory
  * 
  * @author Andrea Aime - GeoSolutions
  */
@@ -30,16 +32,31 @@ class FeatureBlockReader {
 
     SimpleFeature curr;
 
-    long offset;
-
     int count;
 
-    SimpleFeatureIO io;
+    DataInputStream input;
+
+    FeatureRowFormat format;
+
+    Iterator<SimpleFeature> features;
+
+    /**
+     * Position of the run in the original input, used to keep the merge stable
+     */
+    int order;
+
+    public FeatureBlockReader(SpillFile.Run run, FeatureRowFormat format, int bufferSize,
+            int order) {
+        this.count = run.count;
+        this.input = new DataInputStream(run.open(bufferSize));
+        this.format = format;
+        this.order = order;
+    }
 
-    public FeatureBlockReader(SimpleFeatureIO io, long start, int count) {
-        this.offset = start;
-        this.count = count;
-        this.io = io;
+    public FeatureBlockReader(List<SimpleFeature> features, int order) {
+        this.count = features.size();
+        this.features = features.iterator();
+        this.order = order;
     }
 
     public SimpleFeature feature() throws IOException {
@@ -58,21 +75,13 @@ class FeatureBlockReader {
         if (count <= 0) {
             return null;
         }
-
-        // move to the next feature offset
-        io.seek(offset);
-
-        // read the feature
-        SimpleFeature sf = io.read();
-
-        // update the offset for the next feature
-        offset = io.getOffset();
         count--;
 
-        // return the feature
-        return sf;
+        if (features != null) {
+            return features.next();
+        } else {
+            return format.read(input);
+        }
     }
 
-
-
 }
@@ -0,0 +1,313 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Compact binary row format used to spill the sorted runs to disk. The feature id is written
+ * first, then each attribute as a one byte marker followed by the value: primitive wrappers,
+ * strings and dates are written in their natural binary form, geometries as WKB, anything else
+ * with Java serialization. The encoding of each attribute is chosen once, based on the schema,
+ * values whose class does not match the binding exactly fall back on serialization. Feature and
+ * attribute user data are not preserved.
+ * <p>
+ * Instances are not thread safe, each thread should use its own.
+ */
+final class FeatureRowFormat {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Markers preceding each attribute value */
+    static final byte NULL = 0;
+
+    static final byte NATIVE = 1;
+
+    static final byte SERIALIZED = 2;
+
+    /** The natively encoded types, as indexes in {@link #CLASSES} */
+    static final int BOOLEAN = 0;
+
+    static final int BYTE = 1;
+
+    static final int SHORT = 2;
+
+    static final int INTEGER = 3;
+
+    static final int LONG = 4;
+
+    static final int FLOAT = 5;
+
+    static final int DOUBLE = 6;
+
+    static final int STRING = 7;
+
+    static final int DATE = 8;
+
+    static final int SQL_DATE = 9;
+
+    static final int SQL_TIME = 10;
+
+    static final int SQL_TIMESTAMP = 11;
+
+    static final int GEOMETRY = 12;
+
+    static final int OBJECT = 13;
+
+    static final Class<?>[] CLASSES = { Boolean.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, String.class, java.util.Date.class,
+            java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class, Geometry.class };
+
+    static final Class<?>[] PRIMITIVES = { boolean.class, byte.class, short.class, int.class,
+            long.class, float.class, double.class };
+
+    final int[] kinds;
+
+    final SimpleFeatureBuilder builder;
+
+    final WKBWriter writer2D = new WKBWriter(2);
+
+    final WKBWriter writer3D = new WKBWriter(3);
+
+    final WKBReader reader = new WKBReader();
+
+    byte[] buffer = new byte[256];
+
+    FeatureRowFormat(SimpleFeatureType schema) {
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        this.kinds = new int[descriptors.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = getKind(descriptors.get(i).getType().getBinding());
+        }
+        this.builder = new SimpleFeatureBuilder(schema);
+    }
+
+    /**
+     * Returns true if values of the given binding can be written by this format
+     */
+    static boolean canEncode(Class<?> binding) {
+        return getKind(binding) != OBJECT || Serializable.class.isAssignableFrom(binding);
+    }
+
+    static int getKind(Class<?> binding) {
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            if (binding == PRIMITIVES[i]) {
+                return i;
+            }
+        }
+        for (int i = 0; i < GEOMETRY; i++) {
+            if (binding == CLASSES[i]) {
+                return i;
+            }
+        }
+        if (Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        }
+        return OBJECT;
+    }
+
+    /**
+     * Writes the feature id and attributes
+     */
+    void write(DataOutputStream out, SimpleFeature feature) throws IOException {
+        writeString(out, feature.getID());
+        for (int i = 0; i < kinds.length; i++) {
+            writeAttribute(out, kinds[i], feature.getAttribute(i));
+        }
+    }
+
+    private void writeAttribute(DataOutputStream out, int kind, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        // the value must be exactly of the expected class, or it would not be read back as is
+        boolean matches = kind == GEOMETRY ? value instanceof Geometry : kind != OBJECT
+                && value.getClass() == CLASSES[kind];
+        if (!matches) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(value);
+            oos.close();
+            out.writeByte(SERIALIZED);
+            out.writeInt(bos.size());
+            bos.writeTo(out);
+            return;
+        }
+
+        out.writeByte(NATIVE);
+        switch (kind) {
+        case BOOLEAN:
+            out.writeBoolean((Boolean) value);
+            break;
+        case BYTE:
+            out.writeByte((Byte) value);
+            break;
+        case SHORT:
+            out.writeShort((Short) value);
+            break;
+        case INTEGER:
+            out.writeInt((Integer) value);
+            break;
+        case LONG:
+            out.writeLong((Long) value);
+            break;
+        case FLOAT:
+            out.writeFloat((Float) value);
+            break;
+        case DOUBLE:
+            out.writeDouble((Double) value);
+            break;
+        case STRING:
+            writeString(out, (String) value);
+            break;
+        case DATE:
+        case SQL_DATE:
+        case SQL_TIME:
+            out.writeLong(((java.util.Date) value).getTime());
+            break;
+        case SQL_TIMESTAMP:
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+            break;
+        case GEOMETRY:
+            Geometry geometry = (Geometry) value;
+            Coordinate c = geometry.getCoordinate();
+            WKBWriter writer = c != null && !Double.isNaN(c.z) ? writer3D : writer2D;
+            byte[] wkb = writer.write(geometry);
+            out.writeInt(wkb.length);
+            out.write(wkb);
+            break;
+        default:
+            throw new IllegalStateException("Unexpected attribute kind " + kind);
+        }
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        // not using writeUTF, it is limited to 64KB
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads back a feature written by {@link #write(DataOutputStream, SimpleFeature)}
+     */
+    SimpleFeature read(DataInputStream in) throws IOException {
+        String fid = readString(in);
+        for (int i = 0; i < kinds.length; i++) {
+            builder.add(readAttribute(in, kinds[i]));
+        }
+        return builder.buildFeature(fid);
+    }
+
+    private Object readAttribute(DataInputStream in, int kind) throws IOException {
+        byte marker = in.readByte();
+        if (marker == NULL) {
+            return null;
+        } else if (marker == SERIALIZED) {
+            int length = in.readInt();
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Could not read back object", e);
+            } finally {
+                ois.close();
+            }
+        }
+
+        switch (kind) {
+        case BOOLEAN:
+            return in.readBoolean();
+        case BYTE:
+            return in.readByte();
+        case SHORT:
+            return in.readShort();
+        case INTEGER:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case FLOAT:
+            return in.readFloat();
+        case DOUBLE:
+            return in.readDouble();
+        case STRING:
+            return readString(in);
+        case DATE:
+            return new java.util.Date(in.readLong());
+        case SQL_DATE:
+            return new java.sql.Date(in.readLong());
+        case SQL_TIME:
+            return new java.sql.Time(in.readLong());
+        case SQL_TIMESTAMP:
+            java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        case GEOMETRY:
+            readBytes(in);
+            try {
+                // the reader stops at the end of the geometry, the rest of the buffer is ignored
+                return reader.read(buffer);
+            } catch (ParseException e) {
+                throw new IOException("Failed to parse the geometry WKB", e);
+            }
+        default:
+            throw new IOException("Unexpected native value for attribute kind " + kind);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = readBytes(in);
+        return new String(buffer, 0, length, UTF8);
+    }
+
+    /**
+     * Reads a length prefixed byte sequence in the shared buffer, returning its length
+     */
+    private int readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        return length;
+    }
+}
@@ -16,13 +16,34 @@
  */
 package org.geotools.data.sort;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.geotools.data.Query;
 import org.geotools.data.collection.ListFeatureCollection;
@@ -30,6 +51,7 @@ import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.geotools.factory.Hints;
+import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -38,17 +60,58 @@ import org.opengis.filter.sort.SortOrder;
 
 import com.vividsolutions.jts.geom.Geometry;
 
+/**
+ * Sorts the contents of a reader, in memory if they fit the {@link Hints#MAX_MEMORY_SORT} limit,
+ * using an external merge sort otherwise. In the latter case the input is split in runs of
+ * {@link Hints#MAX_MEMORY_SORT} features, which are sorted and spilled to disk in parallel using
+ * {@link FeatureRowFormat}, while the input is still being read. The runs are then merged with a
+ * k-way merge, in multiple passes if there are more than {@link #MAX_MERGE_KEY} of them. When only
+ * the first N features are needed, and they fit in memory, they are selected with a bounded heap
+ * instead.
+ * <p>
+ * The sort is stable, features comparing as equal are returned in input order.
+ * <p>
+ * Memory usage is bounded by the runs being sorted at the same time (at most one per thread, plus
+ * the one being filled) and by the read buffers used during the merge (one per merged run).
+ */
 class MergeSortDumper {
 
+    static final Logger LOGGER = Logging.getLogger(MergeSortDumper.class);
+
+    /**
+     * System variable with the number of threads used to sort and spill runs, and to merge them
+     * (defaults to the number of available processors, 1 disables parallel processing)
+     */
+    static final String THREADS_KEY = "org.geotools.data.sort.threads";
+
+    /**
+     * System variable with the size in bytes of the read buffer used for each run during merges
+     */
+    static final String BUFFER_SIZE_KEY = "org.geotools.data.sort.bufferSize";
+
+    /**
+     * System variable with the maximum number of runs merged at once
+     */
+    static final String MAX_MERGE_KEY = "org.geotools.data.sort.maxMerge";
+
+    static final int THREADS = Math.max(1,
+            Integer.getInteger(THREADS_KEY, Runtime.getRuntime().availableProcessors()));
+
+    static final int BUFFER_SIZE = Math.max(1024, Integer.getInteger(BUFFER_SIZE_KEY, 64 * 1024));
+
+    static final int MAX_MERGE = Math.max(2, Integer.getInteger(MAX_MERGE_KEY, 64));
+
+    static ThreadPoolExecutor executor;
+
     static final boolean canSort(SimpleFeatureType schema, SortBy[] sortBy) {
         if (sortBy == SortBy.UNSORTED) {
             return true;
         }
 
-        // check all attributes are serializable
+        // check all attributes can be written to disk
         for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
             Class<?> binding = ad.getType().getBinding();
-            if (!Serializable.class.isAssignableFrom(binding)) {
+            if (!FeatureRowFormat.canEncode(binding)) {
                 return false;
             }
         }
@@ -76,7 +139,8 @@ class MergeSortDumper {
             throws IOException {
         int maxFeatures = getMaxFeatures(query);
 
-        return getDelegateReader(reader, query.getSortBy(), maxFeatures);
+        return getDelegateReader(reader, query.getSortBy(), maxFeatures, getLimit(query),
+                MAX_MERGE);
     }
 
     /**
@@ -99,8 +163,37 @@ class MergeSortDumper {
         return maxFeatures;
     }
 
+    /**
+     * Returns the number of sorted features the query actually needs, start index included, or -1
+     * if all of them are needed
+     */
+    static int getLimit(Query query) {
+        if (query == null || query.isMaxFeaturesUnlimited()) {
+            return -1;
+        }
+        long limit = (long) query.getMaxFeatures()
+                + (query.getStartIndex() != null ? query.getStartIndex() : 0);
+        return limit > Integer.MAX_VALUE ? -1 : (int) limit;
+    }
+
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
             int maxFeatures) throws IOException {
+        return getDelegateReader(reader, sortBy, maxFeatures, -1, MAX_MERGE);
+    }
+
+    /**
+     * Sorts the reader contents
+     * 
+     * @param reader The reader to be sorted, will be closed
+     * @param sortBy The sorting directives
+     * @param maxFeatures The maximum number of features to keep in memory, or a negative number
+     *        to use the default
+     * @param limit The number of sorted features that will be read, or a negative number if they
+     *        are all needed
+     * @param maxMerge The maximum number of runs merged at once
+     */
+    static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
+            int maxFeatures, int limit, int maxMerge) throws IOException {
         if (maxFeatures < 0) {
             maxFeatures = getMaxFeatures(Query.ALL);
         }
@@ -119,77 +212,365 @@ class MergeSortDumper {
                             + "sorting properties are not comparable or the attributes are not serializable");
         }
 
-        int count = 0;
-        File file = null;
-        SimpleFeatureIO io = null;
+        try {
+            if (limit >= 0 && limit <= maxFeatures) {
+                return selectFirst(reader, schema, comparator, limit);
+            } else {
+                return sort(reader, schema, comparator, maxFeatures, Math.max(2, maxMerge));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Keeps the first features in a bounded heap, returns them sorted
+     */
+    static SimpleFeatureReader selectFirst(SimpleFeatureReader reader, SimpleFeatureType schema,
+            final Comparator<SimpleFeature> comparator, int limit) throws IOException {
+        Comparator<SequencedFeature> sequenced = new Comparator<SequencedFeature>() {
+
+            @Override
+            public int compare(SequencedFeature f1, SequencedFeature f2) {
+                int result = comparator.compare(f1.feature, f2.feature);
+                if (result == 0) {
+                    result = Long.compare(f1.sequence, f2.sequence);
+                }
+                return result;
+            }
+        };
+        // the head of the heap is the largest feature kept so far
+        PriorityQueue<SequencedFeature> heap = new PriorityQueue<SequencedFeature>(
+                Math.max(1, limit), Collections.reverseOrder(sequenced));
+        long sequence = 0;
+        while (reader.hasNext()) {
+            SimpleFeature f = reader.next();
+            if (heap.size() < limit) {
+                heap.add(new SequencedFeature(f, sequence));
+            } else if (limit > 0 && comparator.compare(f, heap.peek().feature) < 0) {
+                // on ties the feature read later loses, no need to replace
+                heap.poll();
+                heap.add(new SequencedFeature(f, sequence));
+            }
+            sequence++;
+        }
+
+        List<SequencedFeature> selected = new ArrayList<SequencedFeature>(heap);
+        Collections.sort(selected, sequenced);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(selected.size());
+        for (SequencedFeature sf : selected) {
+            features.add(sf.feature);
+        }
+        SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
+        return new DelegateSimpleFeatureReader(schema, fi);
+    }
+
+    /**
+     * Sorts the whole reader contents, in memory or by external merge sort
+     */
+    static SimpleFeatureReader sort(SimpleFeatureReader reader, SimpleFeatureType schema,
+            Comparator<SimpleFeature> comparator, int maxFeatures, int maxMerge)
+            throws IOException {
         List<SimpleFeature> features = new ArrayList<SimpleFeature>();
-        List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
-        boolean cleanFile = true;
+        RunSpiller spiller = null;
+        boolean cleanFiles = true;
         try {
-            // read and store into files as necessary
+            // read and spill sorted runs as necessary
             while (reader.hasNext()) {
                 SimpleFeature f = reader.next();
                 features.add(f);
-                count++;
-
-                if (count > maxFeatures) {
-                    Collections.sort(features, comparator);
-                    if (io == null) {
-                        file = File.createTempFile("sorted", ".features");
-                        file.delete();
-                        io = new SimpleFeatureIO(file, schema);
+
+                if (features.size() > maxFeatures) {
+                    if (spiller == null) {
+                        spiller = new RunSpiller(schema, comparator);
                     }
-                    FeatureBlockReader fbr = storeToFile(io, features);
-                    readers.add(fbr);
-                    count = 0;
-                    features.clear();
+                    spiller.spill(features);
+                    features = new ArrayList<SimpleFeature>();
                 }
             }
 
-            // return the appropriate reader
-            if (io == null) {
-                // simple case, we managed to keep everything in memory, sort and return a
-                // reader based on the collection contents
-                Collections.sort(features, comparator);
-
+            // simple case, we managed to keep everything in memory, sort and return a
+            // reader based on the collection contents
+            if (spiller == null) {
+                features = sortInMemory(features, comparator);
                 SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
                 return new DelegateSimpleFeatureReader(schema, fi);
-            } else {
-                // go merge-sort
-                cleanFile = false;
-                return new MergeSortReader(schema, io, readers, comparator);
             }
 
+            // go merge-sort, the last block stays in memory
+            List<SpillFile.Run> runs = spiller.getRuns();
+            while (runs.size() > maxMerge) {
+                runs = mergePass(runs, schema, comparator, maxMerge, spiller.files);
+            }
+            FeatureRowFormat format = new FeatureRowFormat(schema);
+            List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
+            for (SpillFile.Run run : runs) {
+                readers.add(new FeatureBlockReader(run, format, BUFFER_SIZE, readers.size()));
+            }
+            if (!features.isEmpty()) {
+                features = sortInMemory(features, comparator);
+                readers.add(new FeatureBlockReader(features, readers.size()));
+            }
+            MergeSortReader result = new MergeSortReader(schema, spiller.files, readers,
+                    comparator);
+            cleanFiles = false;
+            return result;
         } finally {
-            if (cleanFile && io != null) {
-                io.close(true);
-                file.delete();
+            if (cleanFiles && spiller != null) {
+                spiller.cancel();
+                delete(spiller.files);
             }
+        }
+    }
 
-            reader.close();
+    /**
+     * Stable sort of the features, in parallel for large lists
+     */
+    static List<SimpleFeature> sortInMemory(List<SimpleFeature> features,
+            Comparator<SimpleFeature> comparator) {
+        SimpleFeature[] array = features.toArray(new SimpleFeature[features.size()]);
+        if (THREADS > 1) {
+            Arrays.parallelSort(array, comparator);
+        } else {
+            Arrays.sort(array, comparator);
         }
+        return Arrays.asList(array);
     }
 
     /**
-     * Writes the feature attributes to a binary file
-     * 
-     * @param features
-     * @return
-     * @throws IOException
+     * Merges groups of consecutive runs into larger ones, in parallel. The new spill files are
+     * added to the files list, the ones no longer in use are deleted and removed from it.
      */
-    static FeatureBlockReader storeToFile(SimpleFeatureIO io, List<SimpleFeature> features)
-            throws IOException {
-        long start = io.getOffset();
+    static List<SpillFile.Run> mergePass(List<SpillFile.Run> runs,
+            final SimpleFeatureType schema, final Comparator<SimpleFeature> comparator,
+            int maxMerge, Collection<SpillFile> files) throws IOException {
+        List<Future<SpillFile.Run>> futures = new ArrayList<Future<SpillFile.Run>>();
+        for (int i = 0; i < runs.size(); i += maxMerge) {
+            final List<SpillFile.Run> group = runs.subList(i, Math.min(runs.size(), i + maxMerge));
+            if (group.size() == 1) {
+                futures.add(execute(new Callable<SpillFile.Run>() {
+
+                    @Override
+                    public SpillFile.Run call() throws Exception {
+                        return group.get(0);
+                    }
+                }, false));
+            } else {
+                final SpillFile target = new SpillFile();
+                files.add(target);
+                futures.add(execute(new Callable<SpillFile.Run>() {
 
-        // write each attribute in the random access file
-        for (SimpleFeature sf : features) {
-            io.write(sf);
+                    @Override
+                    public SpillFile.Run call() throws Exception {
+                        return merge(group, target, schema, comparator);
+                    }
+                }, THREADS > 1));
+            }
         }
+        List<SpillFile.Run> merged = getAll(futures);
 
-        return new FeatureBlockReader(io, start, features.size());
+        // delete the files not referenced anymore
+        Set<SpillFile> used = new HashSet<SpillFile>();
+        for (SpillFile.Run run : merged) {
+            used.add(run.file);
+        }
+        List<SpillFile> unused = new ArrayList<SpillFile>(files);
+        unused.removeAll(used);
+        files.removeAll(unused);
+        delete(unused);
+
+        return merged;
     }
 
+    /**
+     * Merges the runs into a single one, stored in the target file
+     */
+    static SpillFile.Run merge(List<SpillFile.Run> runs, SpillFile target,
+            SimpleFeatureType schema, Comparator<SimpleFeature> comparator) throws IOException {
+        // one format for reading and writing, it's used by a single thread
+        FeatureRowFormat format = new FeatureRowFormat(schema);
+        List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
+        for (SpillFile.Run run : runs) {
+            readers.add(new FeatureBlockReader(run, format, BUFFER_SIZE, readers.size()));
+        }
+        MergeSortReader merger = new MergeSortReader(schema,
+                Collections.<SpillFile> emptyList(), readers, comparator);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target.output(),
+                BUFFER_SIZE));
+        int count = 0;
+        while (merger.hasNext()) {
+            format.write(out, merger.next());
+            count++;
+        }
+        // do not close, it would close the channel as well
+        out.flush();
+        return target.append(target.channel.position() - target.size, count);
+    }
+
+    /**
+     * Sorts and spills runs of features, in parallel, while the input is being read
+     */
+    static class RunSpiller {
+
+        final SimpleFeatureType schema;
 
+        final Comparator<SimpleFeature> comparator;
+
+        final SpillFile file;
+
+        final Set<SpillFile> files = new LinkedHashSet<SpillFile>();
+
+        final List<Future<SpillFile.Run>> runs = new ArrayList<Future<SpillFile.Run>>();
+
+        /**
+         * Bounds the runs being sorted at the same time, hence the memory used
+         */
+        final Semaphore permits = new Semaphore(THREADS);
+
+        RunSpiller(SimpleFeatureType schema, Comparator<SimpleFeature> comparator)
+                throws IOException {
+            this.schema = schema;
+            this.comparator = comparator;
+            this.file = new SpillFile();
+            this.files.add(file);
+        }
+
+        void spill(final List<SimpleFeature> features) throws IOException {
+            final boolean parallel = THREADS > 1;
+            if (parallel) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to sort a run");
+                }
+            }
+            try {
+                runs.add(execute(new Callable<SpillFile.Run>() {
+
+                    @Override
+                    public SpillFile.Run call() throws Exception {
+                        try {
+                            return write(features);
+                        } finally {
+                            if (parallel) {
+                                permits.release();
+                            }
+                        }
+                    }
+                }, parallel));
+            } catch (RuntimeException e) {
+                if (parallel) {
+                    permits.release();
+                }
+                throw e;
+            }
+        }
+
+        SpillFile.Run write(List<SimpleFeature> features) throws IOException {
+            Collections.sort(features, comparator);
+            FeatureRowFormat format = new FeatureRowFormat(schema);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(features.size() * 64);
+            DataOutputStream out = new DataOutputStream(bos);
+            for (SimpleFeature sf : features) {
+                format.write(out, sf);
+            }
+            out.flush();
+            return file.append(ByteBuffer.wrap(bos.toByteArray()), features.size());
+        }
+
+        /**
+         * Waits for all runs to be written, and returns them in input order
+         */
+        List<SpillFile.Run> getRuns() throws IOException {
+            return getAll(runs);
+        }
+
+        void cancel() {
+            for (Future<SpillFile.Run> run : runs) {
+                run.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A feature along with its position in the input, to sort stably with a heap
+     */
+    static class SequencedFeature {
+        final SimpleFeature feature;
+
+        final long sequence;
+
+        SequencedFeature(SimpleFeature feature, long sequence) {
+            this.feature = feature;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Runs the task in the shared executor, or in the calling thread
+     */
+    static <T> Future<T> execute(Callable<T> callable, boolean parallel) {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        if (parallel) {
+            getExecutor().execute(task);
+        } else {
+            task.run();
+        }
+        return task;
+    }
+
+    static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "GeoTools merge sort "
+                                    + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    static <T> List<T> getAll(List<Future<T>> futures) throws IOException {
+        List<T> results = new ArrayList<T>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while sorting");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Failed to sort features", cause);
+            }
+        }
+        return results;
+    }
+
+    static void delete(Collection<SpillFile> files) {
+        for (SpillFile file : files) {
+            try {
+                file.delete();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to delete " + file, e);
+            }
+        }
+    }
 
     /**
      * Builds a comparator out of the sortBy list
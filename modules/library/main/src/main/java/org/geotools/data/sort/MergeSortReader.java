@@ -17,38 +17,62 @@
 package org.geotools.data.sort;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * Reads from a list of {@link FeatureBlockReader} backed by a {@link RandomAccessFile} and performs
- * the classic merge-sort algorithm
+ * Reads from a list of {@link FeatureBlockReader}, each one returning a sorted run of features,
+ * and performs a k-way merge keeping the readers in a heap ordered by their current feature. Ties
+ * are resolved in favour of the run coming first in the input, so that the sort is stable.
  * 
  * @author Andrea Aime - GeoSolutions
  * 
  */
 class MergeSortReader implements SimpleFeatureReader {
 
-    List<FeatureBlockReader> readers;
+    PriorityQueue<FeatureBlockReader> queue;
 
-    SimpleFeatureIO io;
+    Collection<SpillFile> files;
 
     SimpleFeatureType schema;
 
-    Comparator<SimpleFeature> comparator;
-
-    public MergeSortReader(SimpleFeatureType schema, SimpleFeatureIO io,
-            List<FeatureBlockReader> readers, Comparator<SimpleFeature> comparator) {
+    /**
+     * Builds the merging reader
+     * 
+     * @param schema The features schema
+     * @param files The spill files backing the readers, deleted on close
+     * @param readers The sorted runs to be merged
+     * @param comparator The comparator used to sort the runs
+     */
+    public MergeSortReader(SimpleFeatureType schema, Collection<SpillFile> files,
+            List<FeatureBlockReader> readers, final Comparator<SimpleFeature> comparator)
+            throws IOException {
         this.schema = schema;
-        this.comparator = comparator;
-        this.readers = readers;
-        this.io = io;
+        this.files = files;
+        this.queue = new PriorityQueue<FeatureBlockReader>(Math.max(1, readers.size()),
+                new Comparator<FeatureBlockReader>() {
+
+                    @Override
+                    public int compare(FeatureBlockReader r1, FeatureBlockReader r2) {
+                        int result = comparator.compare(r1.curr, r2.curr);
+                        if (result == 0) {
+                            result = Integer.compare(r1.order, r2.order);
+                        }
+                        return result;
+                    }
+                });
+        for (FeatureBlockReader reader : readers) {
+            if (reader.feature() != null) {
+                queue.add(reader);
+            }
+        }
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -57,37 +81,28 @@ class MergeSortReader implements SimpleFeatureReader {
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
             NoSuchElementException {
-        if (readers.size() == 0) {
+        // the head of the queue holds the smallest feature
+        FeatureBlockReader reader = queue.poll();
+        if (reader == null) {
             throw new NoSuchElementException();
         }
-
-        // find the smallest feature
-        int selected = 0;
-        for (int i = 1; i < readers.size(); i++) {
-            SimpleFeature sf = readers.get(selected).feature();
-            SimpleFeature cf = readers.get(i).feature();
-            if (comparator.compare(sf, cf) > 0) {
-                selected = i;
-            }
-        }
-
-        // move on the reader of the selected feature
-        FeatureBlockReader reader = readers.get(selected);
         SimpleFeature sf = reader.feature();
-        if (reader.next() == null) {
-            readers.remove(selected);
+
+        // move on the reader, and put it back in the queue if not exhausted
+        if (reader.next() != null) {
+            queue.add(reader);
         }
 
-        // return the selected feature
         return sf;
     }
 
     public boolean hasNext() throws IOException {
-        return readers.size() > 0;
+        return !queue.isEmpty();
     }
 
     public void close() throws IOException {
-        io.close(true);
+        queue.clear();
+        MergeSortDumper.delete(files);
     }
 
 }
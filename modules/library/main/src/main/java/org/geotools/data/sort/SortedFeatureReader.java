@@ -30,7 +30,12 @@ import org.opengis.filter.sort.SortBy;
 /**
  * FeatureReader used to sort contents.
  * <p>
- * The implementation makes use of {@link MergeSortDumper).
+ * The contents are sorted in memory if they fit the {@link Hints#MAX_MEMORY_SORT} limit, otherwise
+ * an external merge sort is used: runs are sorted and spilled to disk in parallel, in a compact
+ * binary format, and then merged. The number of threads, the merge read buffer size and the
+ * maximum number of runs merged at once can be configured with the
+ * <code>org.geotools.data.sort.threads</code>, <code>org.geotools.data.sort.bufferSize</code> and
+ * <code>org.geotools.data.sort.maxMerge</code> system variables. The sort is stable.
  * 
  * @source $URL$
  */
@@ -40,7 +45,8 @@ public class SortedFeatureReader implements SimpleFeatureReader {
 
     /**
      * Checks if the schema and the sortBy are suitable for merge/sort. All attributes need to be
-     * {@link Serializable}, all sorting attributes need to be {@link Comparable}
+     * {@link Serializable} (or be primitives, strings, dates or geometries), all sorting
+     * attributes need to be {@link Comparable}
      * 
      * @param schema
      * @param sortBy
@@ -65,7 +71,9 @@ public class SortedFeatureReader implements SimpleFeatureReader {
      * 
      * @param reader The reader to be sorted
      * @param query The query holding the SortBy directives, and the eventual max features in memory
-     *        hint {@link Hints#MAX_MEMORY_SORT}
+     *        hint {@link Hints#MAX_MEMORY_SORT}. If the query has a max features limit, and the
+     *        features up to it (start index included) fit in memory, only those are kept, in a
+     *        bounded heap, and the reader returns just them
      */
     public SortedFeatureReader(SimpleFeatureReader reader, Query query) throws IOException {
         this.delegate = MergeSortDumper.getDelegateReader(reader, query);
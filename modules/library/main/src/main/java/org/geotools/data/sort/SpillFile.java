@@ -0,0 +1,192 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A temporary file holding sorted runs of features. Runs can be appended concurrently, and read
+ * concurrently too, each reader performs positional reads on the shared channel through its own
+ * buffer.
+ */
+class SpillFile {
+
+    /**
+     * A sorted sequence of features stored in a {@link SpillFile}
+     */
+    static class Run {
+
+        final SpillFile file;
+
+        final long offset;
+
+        final long length;
+
+        final int count;
+
+        Run(SpillFile file, long offset, long length, int count) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+
+        /**
+         * Opens a stream reading the run contents
+         */
+        InputStream open(int bufferSize) {
+            return new ChannelInputStream(file.channel, offset, offset + length, bufferSize);
+        }
+    }
+
+    final File file;
+
+    final FileChannel channel;
+
+    long size;
+
+    SpillFile() throws IOException {
+        this.file = File.createTempFile("sorted", ".features");
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends a run, already encoded, at the end of the file
+     */
+    synchronized Run append(ByteBuffer data, int count) throws IOException {
+        long offset = size;
+        long length = data.remaining();
+        long position = offset;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+        size += length;
+        return new Run(this, offset, length, count);
+    }
+
+    /**
+     * Returns a stream writing at the end of the file. The caller is supposed to be the only
+     * writer, to flush the stream without closing it (that would close the channel too), and to
+     * call {@link #append(long, int)} once done.
+     */
+    OutputStream output() throws IOException {
+        channel.position(size);
+        return Channels.newOutputStream(channel);
+    }
+
+    /**
+     * Registers a run written through {@link #output()}
+     */
+    synchronized Run append(long length, int count) {
+        long offset = size;
+        size += length;
+        return new Run(this, offset, length, count);
+    }
+
+    /**
+     * Closes and deletes the file
+     */
+    void delete() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillFile [file=" + file + ", size=" + size + "]";
+    }
+
+    /**
+     * Reads a section of a file channel using positional reads, so that multiple streams can
+     * share the same channel
+     */
+    static class ChannelInputStream extends InputStream {
+
+        final FileChannel channel;
+
+        final ByteBuffer buffer;
+
+        long position;
+
+        final long end;
+
+        ChannelInputStream(FileChannel channel, long start, long end, int bufferSize) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, end - start)));
+            this.buffer.flip();
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file at " + position);
+                }
+                position += read;
+            }
+            buffer.flip();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
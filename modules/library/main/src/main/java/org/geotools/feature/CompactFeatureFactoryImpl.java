@@ -0,0 +1,98 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.geotools.feature.simple.CompactFeatureLayout;
+import org.geotools.feature.simple.CompactFeatureLayout.StringDictionary;
+import org.geotools.feature.simple.CompactSimpleFeature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Factory building {@link CompactSimpleFeature} instances, meant to be used when large amounts of
+ * simple features need to be kept in memory, e.g.,
+ * <code>new SimpleFeatureBuilder(type, new CompactFeatureFactoryImpl())</code>.
+ * <p>
+ * The strings of all the features built by the same factory are shared via a dictionary, so the
+ * same factory should be reused while loading a data set.
+ */
+public class CompactFeatureFactoryImpl extends AbstractFeatureFactoryImpl {
+
+    /**
+     * Default maximum number of distinct strings kept in the dictionary
+     */
+    public static final int DEFAULT_DICTIONARY_SIZE = 64 * 1024;
+
+    final StringDictionary dictionary;
+
+    /**
+     * The layouts reference their feature type, so they are weakly referenced too in order to
+     * allow the type to be garbage collected
+     */
+    final Map<SimpleFeatureType, WeakReference<CompactFeatureLayout>> layouts = new WeakHashMap<SimpleFeatureType, WeakReference<CompactFeatureLayout>>();
+
+    /**
+     * The last layout used, features are usually built in sequences of the same type
+     */
+    volatile CompactFeatureLayout lastLayout;
+
+    public CompactFeatureFactoryImpl() {
+        this(DEFAULT_DICTIONARY_SIZE);
+    }
+
+    /**
+     * Builds a new factory
+     * 
+     * @param dictionarySize The maximum number of distinct strings to be shared among features
+     */
+    public CompactFeatureFactoryImpl(int dictionarySize) {
+        this.dictionary = new StringDictionary(dictionarySize);
+    }
+
+    @Override
+    public SimpleFeature createSimpleFeature(Object[] array, SimpleFeatureType type, String id) {
+        if (type.isAbstract()) {
+            throw new IllegalArgumentException(
+                    "Cannot create an feature of an abstract FeatureType " + type.getTypeName());
+        }
+        return new CompactSimpleFeature(array, getLayout(type), ff.featureId(id), validating);
+    }
+
+    /**
+     * Returns the layout for the given feature type, building it on first usage
+     */
+    public CompactFeatureLayout getLayout(SimpleFeatureType type) {
+        CompactFeatureLayout layout = lastLayout;
+        if (layout != null && layout.getFeatureType() == type) {
+            return layout;
+        }
+        synchronized (layouts) {
+            WeakReference<CompactFeatureLayout> reference = layouts.get(type);
+            layout = reference != null ? reference.get() : null;
+            if (layout == null) {
+                layout = new CompactFeatureLayout(type, dictionary);
+                layouts.put(type, new WeakReference<CompactFeatureLayout>(layout));
+            }
+        }
+        lastLayout = layout;
+        return layout;
+    }
+}
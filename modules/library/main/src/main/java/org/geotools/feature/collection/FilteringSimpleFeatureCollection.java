@@ -67,7 +67,7 @@ public class FilteringSimpleFeatureCollection extends DecoratingSimpleFeatureCol
 	}
 	
 	public SimpleFeatureIterator features() {
-	    return new FilteringSimpleFeatureIterator( delegate.features(), filter );
+	    return new FilteringSimpleFeatureIterator( delegate.features(), filter, delegate.getSchema() );
 	}
 
 	public void close(SimpleFeatureIterator close) {
@@ -18,7 +18,9 @@ package org.geotools.feature.collection;
 
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.store.FilteringFeatureIterator;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 
 /**
@@ -34,4 +36,12 @@ public class FilteringSimpleFeatureIterator extends FilteringFeatureIterator<Sim
         super(delegate, filter);
     }
 
+    /**
+     * Builds the iterator compiling the filter against the feature type, see {@link FilterCompiler}
+     */
+    public FilteringSimpleFeatureIterator(SimpleFeatureIterator delegate, Filter filter,
+            SimpleFeatureType schema) {
+        super(delegate, FilterCompiler.compile(filter, schema));
+    }
+
 }
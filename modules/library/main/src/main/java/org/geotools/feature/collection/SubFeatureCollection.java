@@ -80,7 +80,7 @@ public class SubFeatureCollection extends BaseSimpleFeatureCollection {
     }
 
     public SimpleFeatureIterator features() {
-        return new FilteringSimpleFeatureIterator( collection.features(), filter());
+        return new FilteringSimpleFeatureIterator( collection.features(), filter(), collection.getSchema());
     }
     		
     public int size() {
@@ -0,0 +1,221 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFilter;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Describes how the attributes of a {@link SimpleFeatureType} are stored in a
+ * {@link CompactSimpleFeature}: numeric and boolean attributes go in a single <code>long[]</code>
+ * (floating point values as their raw bits), followed by the bits marking the null ones, while
+ * all other attributes go in an <code>Object[]</code>. Strings are interned in a
+ * {@link StringDictionary} shared among the features, geometries are copied so that their
+ * coordinates are packed in <code>double[]</code> arrays.
+ * <p>
+ * The layout is immutable and meant to be shared among all the features of the same type.
+ */
+public final class CompactFeatureLayout {
+
+    static final int OBJECT = 0;
+
+    static final int STRING = 1;
+
+    static final int GEOMETRY = 2;
+
+    static final int LONG = 3;
+
+    static final int INTEGER = 4;
+
+    static final int SHORT = 5;
+
+    static final int BYTE = 6;
+
+    static final int BOOLEAN = 7;
+
+    static final int DOUBLE = 8;
+
+    static final int FLOAT = 9;
+
+    final SimpleFeatureType type;
+
+    final StringDictionary dictionary;
+
+    /** The storage kind of each attribute */
+    final int[] kinds;
+
+    /** The position of each attribute in the primitive or object array */
+    final int[] slots;
+
+    /** Number of primitive values */
+    final int primitiveCount;
+
+    /** Size of the primitive array, values plus null bits */
+    final int primitiveSize;
+
+    /** Number of object values */
+    final int objectCount;
+
+    /** Index of the default geometry, or -1 if there is none */
+    final int defaultGeometry;
+
+    public CompactFeatureLayout(SimpleFeatureType type, StringDictionary dictionary) {
+        this.type = type;
+        this.dictionary = dictionary;
+        int count = type.getAttributeCount();
+        this.kinds = new int[count];
+        this.slots = new int[count];
+        int primitives = 0;
+        int objects = 0;
+        for (int i = 0; i < count; i++) {
+            AttributeDescriptor descriptor = type.getDescriptor(i);
+            int kind = getKind(descriptor);
+            kinds[i] = kind;
+            if (kind >= LONG) {
+                slots[i] = primitives++;
+            } else {
+                slots[i] = objects++;
+            }
+        }
+        this.primitiveCount = primitives;
+        this.primitiveSize = primitives + (primitives + 63) / 64;
+        this.objectCount = objects;
+        GeometryDescriptor gd = type.getGeometryDescriptor();
+        this.defaultGeometry = gd == null ? -1 : type.indexOf(gd.getLocalName());
+    }
+
+    private static int getKind(AttributeDescriptor descriptor) {
+        Class<?> binding = descriptor.getType().getBinding();
+        if (descriptor instanceof GeometryDescriptor || Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        } else if (binding == String.class) {
+            return STRING;
+        } else if (binding == Long.class) {
+            return LONG;
+        } else if (binding == Integer.class) {
+            return INTEGER;
+        } else if (binding == Short.class) {
+            return SHORT;
+        } else if (binding == Byte.class) {
+            return BYTE;
+        } else if (binding == Boolean.class) {
+            return BOOLEAN;
+        } else if (binding == Double.class) {
+            return DOUBLE;
+        } else if (binding == Float.class) {
+            return FLOAT;
+        } else {
+            return OBJECT;
+        }
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return type;
+    }
+
+    /**
+     * Returns a copy of the geometry with packed coordinate sequences, or the geometry itself if
+     * it's already packed. The user data is preserved, the z ordinate only if present.
+     * <p>
+     * Public so that the other compact feature storages, such as the columnar data store, pack
+     * geometries the same way.
+     */
+    public static Geometry pack(Geometry geometry) {
+        PackingCheck check = new PackingCheck();
+        geometry.apply(check);
+        if (check.packed) {
+            return geometry;
+        }
+        PackedCoordinateSequenceFactory csf = new PackedCoordinateSequenceFactory(
+                PackedCoordinateSequenceFactory.DOUBLE, check.threeD ? 3 : 2);
+        GeometryFactory gf = new GeometryFactory(geometry.getPrecisionModel(),
+                geometry.getSRID(), csf);
+        Geometry packed = gf.createGeometry(geometry);
+        packed.setUserData(geometry.getUserData());
+        return packed;
+    }
+
+    static final class PackingCheck implements CoordinateSequenceFilter {
+        boolean packed = true;
+
+        boolean threeD = false;
+
+        public void filter(CoordinateSequence seq, int i) {
+            if (!(seq instanceof PackedCoordinateSequence)) {
+                packed = false;
+            }
+            if (!threeD && seq.getDimension() > 2
+                    && !Double.isNaN(seq.getOrdinate(i, CoordinateSequence.Z))) {
+                threeD = true;
+            }
+        }
+
+        public boolean isDone() {
+            return false;
+        }
+
+        public boolean isGeometryChanged() {
+            return false;
+        }
+    }
+
+    /**
+     * A thread safe dictionary of strings, used to share the instances of the recurring values.
+     * Once the maximum size is reached new strings are not added anymore, to keep the memory
+     * usage bounded.
+     */
+    public static final class StringDictionary {
+
+        final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+        final int maxSize;
+
+        public StringDictionary(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String result = strings.get(value);
+            if (result != null) {
+                return result;
+            }
+            if (strings.size() >= maxSize) {
+                return value;
+            }
+            result = strings.putIfAbsent(value, value);
+            return result != null ? result : value;
+        }
+
+        public int size() {
+            return strings.size();
+        }
+    }
+}
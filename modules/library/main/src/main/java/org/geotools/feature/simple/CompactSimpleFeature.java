@@ -0,0 +1,678 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import static org.geotools.feature.simple.CompactFeatureLayout.*;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.feature.IllegalAttributeException;
+import org.geotools.feature.type.AttributeDescriptorImpl;
+import org.geotools.feature.type.Types;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.geotools.util.Utilities;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.AttributeType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.GeometryType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A {@link SimpleFeature} storing its attributes according to a {@link CompactFeatureLayout}:
+ * numbers and booleans are kept unboxed in a single <code>long[]</code>, strings are shared
+ * through a dictionary and geometries use packed coordinate sequences. This reduces the memory
+ * footprint and the number of objects of large in memory feature sets.
+ * <p>
+ * The attribute values are converted to the type bindings on construction, and boxed again on
+ * access, the {@link #getLong(int)}, {@link #getInt(int)}, {@link #getDouble(int)} and
+ * {@link #isNull(int)} methods allow to read the numeric attributes without allocating objects.
+ */
+public class CompactSimpleFeature implements SimpleFeature {
+
+    final CompactFeatureLayout layout;
+
+    final FeatureId id;
+
+    /**
+     * The numeric values, followed by the null bits
+     */
+    final long[] primitives;
+
+    /**
+     * The non numeric values
+     */
+    final Object[] objects;
+
+    /**
+     * Whether this feature is self validating or not
+     */
+    final boolean validating;
+
+    /**
+     * The set of user data attached to the feature (lazily created)
+     */
+    Map<Object, Object> userData;
+
+    /**
+     * The set of user data attached to each attribute (lazily created)
+     */
+    Map<Object, Object>[] attributeUserData;
+
+    /**
+     * Builds a new feature, the values are copied into the compact representation
+     * 
+     * @param values The attribute values
+     * @param layout The layout of the feature type
+     * @param id The feature identifier
+     * @param validating Whether the values should be validated against the feature type
+     */
+    public CompactSimpleFeature(Object[] values, CompactFeatureLayout layout, FeatureId id,
+            boolean validating) {
+        this.layout = layout;
+        this.id = id;
+        this.validating = validating;
+        this.primitives = new long[layout.primitiveSize];
+        this.objects = new Object[layout.objectCount];
+        if (values.length != layout.kinds.length) {
+            throw new IllegalArgumentException("Expected " + layout.kinds.length
+                    + " attribute values, but got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            store(i, values[i], false);
+        }
+
+        // if we're self validating, do validation right now
+        if (validating)
+            validate();
+    }
+
+    /**
+     * Stores the value in the compact representation, converting it to the attribute binding if
+     * necessary
+     */
+    void store(int index, Object value, boolean convertObjects) {
+        final int kind = layout.kinds[index];
+        final int slot = layout.slots[index];
+        switch (kind) {
+        case OBJECT:
+            if (convertObjects) {
+                value = Converters.convert(value, layout.type.getDescriptor(index).getType()
+                        .getBinding());
+            }
+            objects[slot] = value;
+            return;
+        case STRING:
+            if (value instanceof String) {
+                value = layout.dictionary.intern((String) value);
+            } else if (convertObjects) {
+                value = Converters.convert(value, String.class);
+            }
+            objects[slot] = value;
+            return;
+        case GEOMETRY:
+            if (value instanceof Geometry) {
+                value = pack((Geometry) value);
+            } else if (convertObjects) {
+                value = Converters.convert(value, layout.type.getDescriptor(index).getType()
+                        .getBinding());
+            }
+            objects[slot] = value;
+            return;
+        }
+
+        // numeric and boolean values
+        final int word = layout.primitiveCount + (slot >> 6);
+        final long bit = 1L << (slot & 63);
+        if (value == null) {
+            primitives[slot] = 0;
+            primitives[word] |= bit;
+            return;
+        }
+        final AttributeDescriptor descriptor = layout.type.getDescriptor(index);
+        final Class<?> binding = descriptor.getType().getBinding();
+        Object converted = value.getClass() == binding ? value : Converters.convert(value,
+                binding);
+        if (converted == null) {
+            throw new IllegalAttributeException(descriptor, value);
+        }
+        if (kind == BOOLEAN) {
+            primitives[slot] = ((Boolean) converted).booleanValue() ? 1 : 0;
+        } else if (kind == DOUBLE || kind == FLOAT) {
+            primitives[slot] = Double.doubleToRawLongBits(((Number) converted).doubleValue());
+        } else {
+            primitives[slot] = ((Number) converted).longValue();
+        }
+        primitives[word] &= ~bit;
+    }
+
+    /**
+     * Returns true if the attribute value is null
+     */
+    public boolean isNull(int index) {
+        final int kind = layout.kinds[index];
+        final int slot = layout.slots[index];
+        if (kind < LONG) {
+            return objects[slot] == null;
+        }
+        return (primitives[layout.primitiveCount + (slot >> 6)] & (1L << (slot & 63))) != 0;
+    }
+
+    /**
+     * Returns the attribute value as a long, without allocating objects for numeric and boolean
+     * attributes (booleans are returned as 1 and 0). Null values are returned as 0, use
+     * {@link #isNull(int)} to tell them apart.
+     * 
+     * @throws IllegalArgumentException if the attribute is not numeric
+     */
+    public long getLong(int index) {
+        final int kind = layout.kinds[index];
+        if (kind < LONG) {
+            return getNumber(index).longValue();
+        }
+        final long value = primitives[layout.slots[index]];
+        if (kind == DOUBLE || kind == FLOAT) {
+            return (long) Double.longBitsToDouble(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the attribute value as an int
+     * 
+     * @see #getLong(int)
+     */
+    public int getInt(int index) {
+        return (int) getLong(index);
+    }
+
+    /**
+     * Returns the attribute value as a double, without allocating objects for numeric and
+     * boolean attributes (booleans are returned as 1 and 0). Null values are returned as 0, use
+     * {@link #isNull(int)} to tell them apart.
+     * 
+     * @throws IllegalArgumentException if the attribute is not numeric
+     */
+    public double getDouble(int index) {
+        final int kind = layout.kinds[index];
+        if (kind < LONG) {
+            return getNumber(index).doubleValue();
+        }
+        final long value = primitives[layout.slots[index]];
+        if (kind == DOUBLE || kind == FLOAT) {
+            return Double.longBitsToDouble(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of an attribute not stored as a primitive, e.g., a BigDecimal
+     */
+    private Number getNumber(int index) {
+        Object value = objects[layout.slots[index]];
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw new IllegalArgumentException("Attribute "
+                + layout.type.getDescriptor(index).getLocalName() + " is not numeric");
+    }
+
+    public FeatureId getIdentifier() {
+        return id;
+    }
+
+    public String getID() {
+        return id.getID();
+    }
+
+    public Object getAttribute(int index) throws IndexOutOfBoundsException {
+        final int kind = layout.kinds[index];
+        final int slot = layout.slots[index];
+        if (kind < LONG) {
+            return objects[slot];
+        }
+        if ((primitives[layout.primitiveCount + (slot >> 6)] & (1L << (slot & 63))) != 0) {
+            return null;
+        }
+        final long value = primitives[slot];
+        switch (kind) {
+        case LONG:
+            return Long.valueOf(value);
+        case INTEGER:
+            return Integer.valueOf((int) value);
+        case SHORT:
+            return Short.valueOf((short) value);
+        case BYTE:
+            return Byte.valueOf((byte) value);
+        case BOOLEAN:
+            return Boolean.valueOf(value != 0);
+        case DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(value));
+        default:
+            return Float.valueOf((float) Double.longBitsToDouble(value));
+        }
+    }
+
+    public Object getAttribute(String name) {
+        int idx = layout.type.indexOf(name);
+        if (idx >= 0)
+            return getAttribute(idx);
+        else
+            return null;
+    }
+
+    public Object getAttribute(Name name) {
+        return getAttribute(name.getLocalPart());
+    }
+
+    public int getAttributeCount() {
+        return layout.kinds.length;
+    }
+
+    public List<Object> getAttributes() {
+        List<Object> result = new ArrayList<Object>(layout.kinds.length);
+        for (int i = 0; i < layout.kinds.length; i++) {
+            result.add(getAttribute(i));
+        }
+        return result;
+    }
+
+    public Object getDefaultGeometry() {
+        return layout.defaultGeometry >= 0 ? getAttribute(layout.defaultGeometry) : null;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return layout.type;
+    }
+
+    public SimpleFeatureType getType() {
+        return layout.type;
+    }
+
+    public void setAttribute(int index, Object value) throws IndexOutOfBoundsException {
+        // if necessary, validate the converted value
+        if (validating) {
+            Object converted = Converters.convert(value, layout.type.getDescriptor(index)
+                    .getType().getBinding());
+            Types.validate(layout.type.getDescriptor(index), converted);
+        }
+        store(index, value, true);
+    }
+
+    public void setAttribute(String name, Object value) {
+        final int idx = layout.type.indexOf(name);
+        if (idx < 0)
+            throw new IllegalAttributeException("Unknown attribute " + name);
+        setAttribute(idx, value);
+    }
+
+    public void setAttribute(Name name, Object value) {
+        setAttribute(name.getLocalPart(), value);
+    }
+
+    public void setAttributes(List<Object> values) {
+        for (int i = 0; i < layout.kinds.length; i++) {
+            store(i, values.get(i), false);
+        }
+    }
+
+    public void setAttributes(Object[] values) {
+        setAttributes(Arrays.asList(values));
+    }
+
+    public void setDefaultGeometry(Object geometry) {
+        if (layout.defaultGeometry >= 0) {
+            setAttribute(layout.defaultGeometry, geometry);
+        }
+    }
+
+    public BoundingBox getBounds() {
+        CoordinateReferenceSystem crs = layout.type.getCoordinateReferenceSystem();
+        Envelope bounds = ReferencedEnvelope.create(crs);
+
+        for (int i = 0; i < layout.kinds.length; i++) {
+            if (layout.kinds[i] != GEOMETRY) {
+                continue;
+            }
+            Object o = objects[layout.slots[i]];
+            if (o instanceof Geometry) {
+                Geometry g = (Geometry) o;
+                if (bounds.isNull()) {
+                    bounds.init(JTS.bounds(g, crs));
+                } else {
+                    bounds.expandToInclude(JTS.bounds(g, crs));
+                }
+            }
+        }
+
+        return (BoundingBox) bounds;
+    }
+
+    public GeometryAttribute getDefaultGeometryProperty() {
+        if (layout.defaultGeometry >= 0) {
+            return new CompactGeometryAttribute(layout.defaultGeometry);
+        }
+        return null;
+    }
+
+    public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+        if (geometryAttribute != null)
+            setDefaultGeometry(geometryAttribute.getValue());
+        else
+            setDefaultGeometry(null);
+    }
+
+    public Collection<Property> getProperties() {
+        return new AttributeList();
+    }
+
+    public Collection<Property> getProperties(Name name) {
+        return getProperties(name.getLocalPart());
+    }
+
+    public Collection<Property> getProperties(String name) {
+        final int idx = layout.type.indexOf(name);
+        if (idx >= 0) {
+            return Collections.singleton(getProperty(idx));
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    public Property getProperty(Name name) {
+        return getProperty(name.getLocalPart());
+    }
+
+    public Property getProperty(String name) {
+        final int idx = layout.type.indexOf(name);
+        if (idx < 0) {
+            return null;
+        } else {
+            return getProperty(idx);
+        }
+    }
+
+    Property getProperty(int index) {
+        if (layout.kinds[index] == GEOMETRY
+                && layout.type.getDescriptor(index) instanceof GeometryDescriptor) {
+            return new CompactGeometryAttribute(index);
+        }
+        return new CompactAttribute(index);
+    }
+
+    public Collection<? extends Property> getValue() {
+        return getProperties();
+    }
+
+    public void setValue(Collection<Property> values) {
+        int i = 0;
+        for (Property p : values) {
+            store(i++, p.getValue(), false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setValue(Object newValue) {
+        setValue((Collection<Property>) newValue);
+    }
+
+    /**
+     * @see org.opengis.feature.Attribute#getDescriptor()
+     */
+    public AttributeDescriptor getDescriptor() {
+        return new AttributeDescriptorImpl(layout.type, layout.type.getName(), 0,
+                Integer.MAX_VALUE, true, null);
+    }
+
+    /**
+     * @return same name than this feature's {@link SimpleFeatureType}
+     * @see org.opengis.feature.Property#getName()
+     */
+    public Name getName() {
+        return layout.type.getName();
+    }
+
+    public boolean isNillable() {
+        return true;
+    }
+
+    public Map<Object, Object> getUserData() {
+        if (userData == null)
+            userData = new HashMap<Object, Object>();
+        return userData;
+    }
+
+    public int hashCode() {
+        return id.hashCode() * layout.type.hashCode();
+    }
+
+    /**
+     * Two compact features are equal if they have the same identifier, feature type and values
+     */
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof CompactSimpleFeature)) {
+            return false;
+        }
+
+        CompactSimpleFeature other = (CompactSimpleFeature) obj;
+        if (!Utilities.equals(id, other.id)) {
+            return false;
+        }
+        if (!layout.type.equals(other.layout.type)) {
+            return false;
+        }
+        if (layout.kinds.length != other.layout.kinds.length) {
+            return false;
+        }
+
+        for (int i = 0; i < layout.kinds.length; i++) {
+            if (!Utilities.equals(getAttribute(i), other.getAttribute(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void validate() {
+        for (int i = 0; i < layout.kinds.length; i++) {
+            AttributeDescriptor descriptor = getType().getDescriptor(i);
+            Types.validate(descriptor, getAttribute(i));
+        }
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer("CompactSimpleFeature:");
+        sb.append(getType().getName().getLocalPart());
+        sb.append("=");
+        sb.append(getValue());
+        return sb.toString();
+    }
+
+    /**
+     * Live collection backed directly on the feature
+     */
+    class AttributeList extends AbstractList<Property> {
+
+        public Property get(int index) {
+            return getProperty(index);
+        }
+
+        public Property set(int index, Property element) {
+            store(index, element.getValue(), false);
+            return null;
+        }
+
+        public int size() {
+            return layout.kinds.length;
+        }
+    }
+
+    /**
+     * Attribute that delegates directly to the feature
+     */
+    class CompactAttribute implements org.opengis.feature.Attribute {
+        final int index;
+
+        CompactAttribute(int index) {
+            this.index = index;
+        }
+
+        public Identifier getIdentifier() {
+            return null;
+        }
+
+        public AttributeDescriptor getDescriptor() {
+            return layout.type.getDescriptor(index);
+        }
+
+        public AttributeType getType() {
+            return layout.type.getType(index);
+        }
+
+        public Name getName() {
+            return getDescriptor().getName();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map<Object, Object> getUserData() {
+            // lazily create the user data holder
+            if (attributeUserData == null)
+                attributeUserData = new HashMap[layout.kinds.length];
+            // lazily create the attribute user data
+            if (attributeUserData[index] == null)
+                attributeUserData[index] = new HashMap<Object, Object>();
+            return attributeUserData[index];
+        }
+
+        public Object getValue() {
+            return getAttribute(index);
+        }
+
+        public boolean isNillable() {
+            return getDescriptor().isNillable();
+        }
+
+        public void setValue(Object newValue) {
+            setAttribute(index, newValue);
+        }
+
+        public int hashCode() {
+            Object value = getValue();
+            return 37 * getDescriptor().hashCode() + (37 * (value == null ? 0 : value.hashCode()));
+        }
+
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof CompactAttribute)) {
+                return false;
+            }
+            CompactAttribute other = (CompactAttribute) obj;
+            if (!Utilities.equals(getDescriptor(), other.getDescriptor())) {
+                return false;
+            }
+            return Utilities.deepEquals(getValue(), other.getValue());
+        }
+
+        public void validate() {
+            Types.validate(getDescriptor(), getValue());
+        }
+
+        public String toString() {
+            return "CompactSimpleFeature.Attribute: " + getDescriptor().getLocalName() + "="
+                    + getValue();
+        }
+    }
+
+    class CompactGeometryAttribute extends CompactAttribute implements GeometryAttribute {
+
+        CompactGeometryAttribute(int index) {
+            super(index);
+        }
+
+        @Override
+        public GeometryType getType() {
+            return (GeometryType) super.getType();
+        }
+
+        @Override
+        public GeometryDescriptor getDescriptor() {
+            return (GeometryDescriptor) super.getDescriptor();
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            ReferencedEnvelope bounds = new ReferencedEnvelope(
+                    layout.type.getCoordinateReferenceSystem());
+            Object value = getAttribute(index);
+            if (value instanceof Geometry) {
+                bounds.init(((Geometry) value).getEnvelopeInternal());
+            }
+            return bounds;
+        }
+
+        @Override
+        public void setBounds(BoundingBox bounds) {
+            // do nothing, this property is strictly derived
+        }
+
+        @Override
+        public int hashCode() {
+            return 17 * super.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof CompactGeometryAttribute)) {
+                return false;
+            }
+            return super.equals(obj);
+        }
+    }
+}
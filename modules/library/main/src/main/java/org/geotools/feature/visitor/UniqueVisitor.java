@@ -96,6 +96,10 @@ public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, Limi
         set = createNewSet(Collections.EMPTY_LIST);
     }
 
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+
 
 
     @Override
@@ -27,7 +27,9 @@ import org.geotools.filter.expression.PropertyAccessor;
 import org.geotools.filter.expression.PropertyAccessorFactory;
 import org.geotools.filter.expression.PropertyAccessors;
 import org.geotools.util.Converters;
+import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.expression.ExpressionVisitor;
 import org.opengis.filter.expression.PropertyName;
@@ -200,18 +202,24 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
     public <T> T evaluate(Object obj, Class<T> target) {
         // NC- new method
 
-        PropertyAccessor accessor = getLastPropertyAccessor();
+        // accessors are cached by feature type (or class, for other objects), the cache is
+        // immutable and replaced as a whole, so that evaluation does not need any lock
+        final Object key = getAccessorKey(obj);
+        final AccessorCache cache = accessorCache;
+        PropertyAccessor accessor = cache.get(key);
         AtomicReference<Object> value = new AtomicReference<Object>();
         AtomicReference<Exception> e = new AtomicReference<Exception>();
 
         if (accessor == null || !accessor.canHandle(obj, attPath, target)
                 || !tryAccessor(accessor, obj, target, value, e)) {
             boolean success = false;
-            if( namespaceSupport != null && hints == null ){
-                hints = new Hints(PropertyAccessorFactory.NAMESPACE_CONTEXT, namespaceSupport);
+            Hints accessorHints = hints;
+            if( namespaceSupport != null && accessorHints == null ){
+                accessorHints = new Hints(PropertyAccessorFactory.NAMESPACE_CONTEXT, namespaceSupport);
+                hints = accessorHints;
             }
             List<PropertyAccessor> accessors = PropertyAccessors.findPropertyAccessors(obj,
-                    attPath, target, hints );
+                    attPath, target, accessorHints );
 
             if (accessors != null) {
                 Iterator<PropertyAccessor> it = accessors.iterator();
@@ -227,8 +235,9 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
                 else throw new IllegalArgumentException(
                         "Could not find working property accessor for attribute (" + attPath
                                 + ") in object (" + obj + ")", e.get());
-            } else {
-                setLastPropertyAccessor(accessor);
+            } else if (key != null) {
+                // concurrent updates might lose an entry, it will just be looked up again
+                accessorCache = cache.put(key, accessor);
             }
 
         }
@@ -255,14 +264,74 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
     }
 
     // accessor caching, scanning the registry every time is really very expensive
-    private PropertyAccessor lastAccessor;
+    private volatile AccessorCache accessorCache = AccessorCache.EMPTY;
 
-    private synchronized PropertyAccessor getLastPropertyAccessor() {
-        return lastAccessor;
+    /**
+     * The key used to cache the accessors: the accessors ability to handle an object depends on
+     * its type
+     */
+    private static Object getAccessorKey(Object obj) {
+        if (obj == null) {
+            return null;
+        } else if (obj instanceof Feature) {
+            return ((Feature) obj).getType();
+        } else if (obj instanceof FeatureType) {
+            return obj;
+        } else {
+            return obj.getClass();
+        }
     }
 
-    private synchronized void setLastPropertyAccessor(PropertyAccessor accessor) {
-        lastAccessor = accessor;
+    /**
+     * An immutable, small, identity based map from accessor keys to the accessors that worked on
+     * them last. Updates return a new cache, evicting the oldest entry when full.
+     */
+    static final class AccessorCache {
+
+        static final int MAX_SIZE = 8;
+
+        static final AccessorCache EMPTY = new AccessorCache(new Object[0],
+                new PropertyAccessor[0]);
+
+        final Object[] keys;
+
+        final PropertyAccessor[] accessors;
+
+        AccessorCache(Object[] keys, PropertyAccessor[] accessors) {
+            this.keys = keys;
+            this.accessors = accessors;
+        }
+
+        PropertyAccessor get(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return accessors[i];
+                }
+            }
+            return null;
+        }
+
+        AccessorCache put(Object key, PropertyAccessor accessor) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    if (accessors[i] == accessor) {
+                        return this;
+                    }
+                    PropertyAccessor[] newAccessors = accessors.clone();
+                    newAccessors[i] = accessor;
+                    return new AccessorCache(keys, newAccessors);
+                }
+            }
+            // most recent first, the oldest entry falls off when full
+            int size = Math.min(keys.length + 1, MAX_SIZE);
+            Object[] newKeys = new Object[size];
+            PropertyAccessor[] newAccessors = new PropertyAccessor[size];
+            newKeys[0] = key;
+            newAccessors[0] = accessor;
+            System.arraycopy(keys, 0, newKeys, 1, size - 1);
+            System.arraycopy(accessors, 0, newAccessors, 1, size - 1);
+            return new AccessorCache(newKeys, newAccessors);
+        }
     }
    
      /**
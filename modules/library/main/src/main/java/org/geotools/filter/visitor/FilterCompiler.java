@@ -0,0 +1,688 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geotools.factory.Hints;
+import org.geotools.util.ConverterFactory;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Compiles a filter against a known {@link SimpleFeatureType}, producing an equivalent filter
+ * that is cheaper to evaluate on a feature by feature basis:
+ * <ul>
+ * <li>Property names are resolved to attribute indexes once, and read directly from the
+ * {@link SimpleFeature}, without looking up a property accessor</li>
+ * <li>Literals are converted to the type of the attribute they are compared to, as done by the
+ * {@link BindingFilterVisitor}, but only when the conversion is lossless</li>
+ * <li>Comparisons between a numeric or string attribute and a literal are replaced by evaluators
+ * working on primitive values, without any conversion at evaluation time</li>
+ * </ul>
+ * Spatial filters against literal geometries already use prepared geometries, they just benefit
+ * from the direct attribute access.
+ * <p>
+ * The compiled filter returns the same results as the original one on any object. Features of a
+ * different type are handled by resolving the attribute index again, values that are not of the
+ * expected type, and objects that are not simple features, are handed to the original filter. The
+ * compiled filters are thread safe, and report the original filter structure to visitors.
+ * <p>
+ * Compilation can be disabled by setting the {@link #ENABLED_KEY} system variable to false.
+ */
+public class FilterCompiler extends BindingFilterVisitor {
+
+    /**
+     * System variable enabling or disabling filter compilation (enabled by default)
+     */
+    public static final String ENABLED_KEY = "org.geotools.filter.compiler";
+
+    static final boolean ENABLED = Boolean.valueOf(System.getProperty(ENABLED_KEY, "true"));
+
+    static final Hints SAFE_CONVERSION = new Hints(ConverterFactory.SAFE_CONVERSION, Boolean.TRUE);
+
+    /**
+     * The types that can be compared as primitive values
+     */
+    static final Set<Class<?>> NUMERIC_TYPES = new HashSet<Class<?>>(Arrays.asList(
+            (Class<?>) Byte.class, Short.class, Integer.class, Long.class, Float.class,
+            Double.class));
+
+    /**
+     * Compiles the filter against the given feature type. Returns the filter unchanged if
+     * compilation is disabled, or the feature type is not a simple one.
+     */
+    public static Filter compile(Filter filter, FeatureType schema) {
+        if (!ENABLED || filter == null || filter instanceof IncludeFilter
+                || filter instanceof ExcludeFilter || !(schema instanceof SimpleFeatureType)) {
+            return filter;
+        }
+        return (Filter) filter.accept(new FilterCompiler((SimpleFeatureType) schema), null);
+    }
+
+    /**
+     * Compiles the expression against the given feature type. Returns the expression unchanged
+     * if compilation is disabled, or the feature type is not a simple one.
+     */
+    public static Expression compile(Expression expression, FeatureType schema) {
+        if (!ENABLED || expression == null || expression instanceof Literal
+                || !(schema instanceof SimpleFeatureType)) {
+            return expression;
+        }
+        return (Expression) expression.accept(new FilterCompiler((SimpleFeatureType) schema),
+                null);
+    }
+
+    public FilterCompiler(SimpleFeatureType schema) {
+        super(schema);
+    }
+
+    /**
+     * Converts literals only if the conversion is safe, the evaluation would try the same
+     * conversion first, so the results do not change
+     */
+    @Override
+    protected Expression optimize(Expression expression, Object extraData, Class targetType) {
+        if (expression instanceof Literal && targetType != null) {
+            Object converted = Converters.convert(((Literal) expression).getValue(), targetType,
+                    SAFE_CONVERSION);
+            if (converted != null) {
+                return ff.literal(converted);
+            }
+        }
+
+        return visit(expression, extraData);
+    }
+
+    @Override
+    public Object visit(PropertyName expression, Object extraData) {
+        String name = expression.getPropertyName();
+        if (isPlainName(name)) {
+            int index = ((SimpleFeatureType) schema).indexOf(name);
+            if (index >= 0) {
+                return new IndexedPropertyName(expression, (SimpleFeatureType) schema, index);
+            }
+        }
+        return super.visit(expression, extraData);
+    }
+
+    /**
+     * Only plain attribute names, prefixes, indexes and paths are left to the property accessors
+     */
+    static boolean isPlainName(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ':' || c == '/' || c == '@' || c == '[') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, true);
+        if (operands == null) {
+            return bound;
+        }
+        return new EqualTo((PropertyIsEqualTo) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, true);
+        if (operands == null) {
+            return bound;
+        }
+        return new NotEqualTo((PropertyIsNotEqualTo) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, false);
+        if (operands == null) {
+            return bound;
+        }
+        return new LessThan((PropertyIsLessThan) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, false);
+        if (operands == null) {
+            return bound;
+        }
+        return new LessThanOrEqualTo((PropertyIsLessThanOrEqualTo) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, false);
+        if (operands == null) {
+            return bound;
+        }
+        return new GreaterThan((PropertyIsGreaterThan) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        BinaryComparisonOperator bound = (BinaryComparisonOperator) super.visit(filter, extraData);
+        Operands operands = Operands.get(bound, false);
+        if (operands == null) {
+            return bound;
+        }
+        return new GreaterThanOrEqualTo((PropertyIsGreaterThanOrEqualTo) bound, operands);
+    }
+
+    @Override
+    public Object visit(PropertyIsBetween filter, Object extraData) {
+        PropertyIsBetween bound = (PropertyIsBetween) super.visit(filter, extraData);
+        if (!(bound.getExpression() instanceof IndexedPropertyName)
+                || !(bound.getLowerBoundary() instanceof Literal)
+                || !(bound.getUpperBoundary() instanceof Literal)) {
+            return bound;
+        }
+        IndexedPropertyName property = (IndexedPropertyName) bound.getExpression();
+        Object lower = ((Literal) bound.getLowerBoundary()).getValue();
+        Object upper = ((Literal) bound.getUpperBoundary()).getValue();
+        if (!NUMERIC_TYPES.contains(property.binding) || lower == null || upper == null
+                || lower.getClass() != property.binding || upper.getClass() != property.binding) {
+            return bound;
+        }
+        return new Between(bound, property, (Number) lower, (Number) upper);
+    }
+
+    /**
+     * A property name reading the attribute value by index, when evaluated against simple
+     * features
+     */
+    static final class IndexedPropertyName implements PropertyName {
+
+        final PropertyName delegate;
+
+        final String name;
+
+        /** The attribute binding in the feature type the expression has been compiled against */
+        final Class<?> binding;
+
+        /**
+         * The attribute index in the last feature type seen. Immutable, so it can be shared among
+         * threads without synchronization, at worst the index is looked up more than once
+         */
+        TypeIndex last;
+
+        IndexedPropertyName(PropertyName delegate, SimpleFeatureType schema, int index) {
+            this.delegate = delegate;
+            this.name = delegate.getPropertyName();
+            this.binding = schema.getDescriptor(index).getType().getBinding();
+            this.last = new TypeIndex(schema, index);
+        }
+
+        public Object evaluate(Object object) {
+            if (object instanceof SimpleFeature) {
+                SimpleFeature feature = (SimpleFeature) object;
+                SimpleFeatureType type = feature.getFeatureType();
+                TypeIndex ti = last;
+                if (ti.type != type) {
+                    ti = new TypeIndex(type, type.indexOf(name));
+                    last = ti;
+                }
+                if (ti.index >= 0) {
+                    return feature.getAttribute(ti.index);
+                }
+            }
+            return delegate.evaluate(object);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T evaluate(Object object, Class<T> context) {
+            if (!(object instanceof SimpleFeature)) {
+                return delegate.evaluate(object, context);
+            }
+            Object value = evaluate(object);
+            if (context == null) {
+                return (T) value;
+            }
+            return Converters.convert(value, context);
+        }
+
+        public String getPropertyName() {
+            return name;
+        }
+
+        public NamespaceSupport getNamespaceContext() {
+            return delegate.getNamespaceContext();
+        }
+
+        public Object accept(ExpressionVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof IndexedPropertyName) {
+                return delegate.equals(((IndexedPropertyName) obj).delegate);
+            }
+            return delegate.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    static final class TypeIndex {
+        final SimpleFeatureType type;
+
+        final int index;
+
+        TypeIndex(SimpleFeatureType type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The property and the literal of a comparison that can be compiled
+     */
+    static final class Operands {
+        final IndexedPropertyName property;
+
+        final Object literal;
+
+        /** True if the literal is the first operand */
+        final boolean swapped;
+
+        Operands(IndexedPropertyName property, Object literal, boolean swapped) {
+            this.property = property;
+            this.literal = literal;
+            this.swapped = swapped;
+        }
+
+        /**
+         * Returns the operands of the comparison if it's between an attribute and a literal of
+         * the same type, a numeric one, or a string one when checking for equality. Returns null
+         * otherwise.
+         */
+        static Operands get(BinaryComparisonOperator filter, boolean equality) {
+            Expression e1 = filter.getExpression1();
+            Expression e2 = filter.getExpression2();
+            Operands result;
+            if (e1 instanceof IndexedPropertyName && e2 instanceof Literal) {
+                result = new Operands((IndexedPropertyName) e1, ((Literal) e2).getValue(), false);
+            } else if (e2 instanceof IndexedPropertyName && e1 instanceof Literal) {
+                result = new Operands((IndexedPropertyName) e2, ((Literal) e1).getValue(), true);
+            } else {
+                return null;
+            }
+            Class<?> binding = result.property.binding;
+            if (result.literal == null || result.literal.getClass() != binding) {
+                return null;
+            }
+            if (NUMERIC_TYPES.contains(binding) || (equality && binding == String.class)) {
+                return result;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Base class for the compiled comparisons, delegates everything but the evaluation to the
+     * original filter
+     */
+    static abstract class CompiledComparison implements BinaryComparisonOperator {
+
+        final BinaryComparisonOperator delegate;
+
+        final IndexedPropertyName property;
+
+        final boolean swapped;
+
+        CompiledComparison(BinaryComparisonOperator delegate, Operands operands) {
+            this.delegate = delegate;
+            this.property = operands.property;
+            this.swapped = operands.swapped;
+        }
+
+        public Expression getExpression1() {
+            return delegate.getExpression1();
+        }
+
+        public Expression getExpression2() {
+            return delegate.getExpression2();
+        }
+
+        public boolean isMatchingCase() {
+            return delegate.isMatchingCase();
+        }
+
+        public MatchAction getMatchAction() {
+            return delegate.getMatchAction();
+        }
+
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return delegate.accept(visitor, extraData);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof CompiledComparison) {
+                return delegate.equals(((CompiledComparison) obj).delegate);
+            }
+            return delegate.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /**
+     * Equality check, same logic as the IsEqualsToImpl, minus the conversions
+     */
+    static abstract class Equality extends CompiledComparison {
+
+        final Object literal;
+
+        final Class<?> literalClass;
+
+        final boolean numeric;
+
+        final double fp;
+
+        final long lg;
+
+        final boolean integral;
+
+        Equality(BinaryComparisonOperator delegate, Operands operands) {
+            super(delegate, operands);
+            this.literal = operands.literal;
+            this.literalClass = literal.getClass();
+            this.numeric = literal instanceof Number;
+            if (numeric) {
+                this.fp = ((Number) literal).doubleValue();
+                this.lg = ((Number) literal).longValue();
+                this.integral = fp == (double) lg;
+            } else {
+                this.fp = Double.NaN;
+                this.lg = 0;
+                this.integral = false;
+            }
+        }
+
+        public boolean evaluate(Object object) {
+            Object value = property.evaluate(object);
+            if (value != null && value.getClass() != literalClass) {
+                return delegate.evaluate(object);
+            }
+            return matches(equal(value));
+        }
+
+        abstract boolean matches(boolean equal);
+
+        private boolean equal(Object value) {
+            if (value == null) {
+                return false;
+            } else if (literal.equals(value)) {
+                return true;
+            } else if (numeric) {
+                Number n = (Number) value;
+                double fp1 = n.doubleValue();
+                long lg1 = n.longValue();
+                if (integral && fp1 == (double) lg1) {
+                    return lg1 == lg;
+                } else {
+                    return fp1 == fp || (Double.isNaN(fp1) && Double.isNaN(fp));
+                }
+            } else if (!delegate.isMatchingCase()) {
+                return ((String) literal).equalsIgnoreCase((String) value);
+            }
+            return false;
+        }
+    }
+
+    static final class EqualTo extends Equality implements PropertyIsEqualTo {
+        EqualTo(PropertyIsEqualTo delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(boolean equal) {
+            return equal;
+        }
+    }
+
+    static final class NotEqualTo extends Equality implements PropertyIsNotEqualTo {
+        NotEqualTo(PropertyIsNotEqualTo delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(boolean equal) {
+            return !equal;
+        }
+    }
+
+    /**
+     * Numeric ordering comparisons, same logic as the CompareFilterImpl, minus the conversions
+     */
+    static abstract class Ordering extends CompiledComparison {
+
+        final Class<?> literalClass;
+
+        final double literal;
+
+        Ordering(BinaryComparisonOperator delegate, Operands operands) {
+            super(delegate, operands);
+            this.literalClass = operands.literal.getClass();
+            this.literal = ((Number) operands.literal).doubleValue();
+        }
+
+        public boolean evaluate(Object object) {
+            Object value = property.evaluate(object);
+            if (value == null) {
+                return false;
+            } else if (value.getClass() != literalClass) {
+                return delegate.evaluate(object);
+            }
+            double v = ((Number) value).doubleValue();
+            return matches(swapped ? compare(literal, v) : compare(v, literal));
+        }
+
+        abstract boolean matches(int comparison);
+
+        static int compare(double left, double right) {
+            return left > right ? 1 : (left == right ? 0 : -1);
+        }
+    }
+
+    static final class LessThan extends Ordering implements PropertyIsLessThan {
+        LessThan(PropertyIsLessThan delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(int comparison) {
+            return comparison < 0;
+        }
+    }
+
+    static final class LessThanOrEqualTo extends Ordering implements PropertyIsLessThanOrEqualTo {
+        LessThanOrEqualTo(PropertyIsLessThanOrEqualTo delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(int comparison) {
+            return comparison <= 0;
+        }
+    }
+
+    static final class GreaterThan extends Ordering implements PropertyIsGreaterThan {
+        GreaterThan(PropertyIsGreaterThan delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(int comparison) {
+            return comparison > 0;
+        }
+    }
+
+    static final class GreaterThanOrEqualTo extends Ordering implements
+            PropertyIsGreaterThanOrEqualTo {
+        GreaterThanOrEqualTo(PropertyIsGreaterThanOrEqualTo delegate, Operands operands) {
+            super(delegate, operands);
+        }
+
+        @Override
+        boolean matches(int comparison) {
+            return comparison >= 0;
+        }
+    }
+
+    /**
+     * Numeric between, same logic as the IsBetweenImpl (which uses the natural ordering of the
+     * values), minus the conversions
+     */
+    static final class Between implements PropertyIsBetween {
+
+        final PropertyIsBetween delegate;
+
+        final IndexedPropertyName property;
+
+        final Class<?> literalClass;
+
+        final boolean floating;
+
+        final double lowerDouble;
+
+        final double upperDouble;
+
+        final long lowerLong;
+
+        final long upperLong;
+
+        Between(PropertyIsBetween delegate, IndexedPropertyName property, Number lower,
+                Number upper) {
+            this.delegate = delegate;
+            this.property = property;
+            this.literalClass = lower.getClass();
+            this.floating = lower instanceof Double || lower instanceof Float;
+            this.lowerDouble = lower.doubleValue();
+            this.upperDouble = upper.doubleValue();
+            this.lowerLong = lower.longValue();
+            this.upperLong = upper.longValue();
+        }
+
+        public boolean evaluate(Object object) {
+            Object value = property.evaluate(object);
+            if (value == null) {
+                return false;
+            } else if (value.getClass() != literalClass) {
+                return delegate.evaluate(object);
+            }
+            if (floating) {
+                double v = ((Number) value).doubleValue();
+                return Double.compare(lowerDouble, v) <= 0 && Double.compare(upperDouble, v) >= 0;
+            } else {
+                long v = ((Number) value).longValue();
+                return lowerLong <= v && upperLong >= v;
+            }
+        }
+
+        public Expression getExpression() {
+            return delegate.getExpression();
+        }
+
+        public Expression getLowerBoundary() {
+            return delegate.getLowerBoundary();
+        }
+
+        public Expression getUpperBoundary() {
+            return delegate.getUpperBoundary();
+        }
+
+        public MatchAction getMatchAction() {
+            return delegate.getMatchAction();
+        }
+
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return delegate.accept(visitor, extraData);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Between) {
+                return delegate.equals(((Between) obj).delegate);
+            }
+            return delegate.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
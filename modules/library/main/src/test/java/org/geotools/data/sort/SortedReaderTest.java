@@ -1,12 +1,21 @@
 package org.geotools.data.sort;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.geotools.data.Query;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
@@ -25,6 +34,7 @@ import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.Point;
@@ -238,6 +248,135 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testFileSortMultiplePasses() throws IOException {
+        // small runs and merges, forces several merge passes
+        SimpleFeatureReader sr = MergeSortDumper.getDelegateReader(fr, peopleDesc, 7, -1, 3);
+        try {
+            int count = 0;
+            int prev = Integer.MAX_VALUE;
+            while (sr.hasNext()) {
+                int curr = (Integer) sr.next().getAttribute("PERSONS");
+                assertTrue(curr <= prev);
+                prev = curr;
+                count++;
+            }
+            assertEquals(fc.size(), count);
+        } finally {
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testFileSortStable() throws IOException {
+        // the byte values repeat, features with the same value must keep the input order
+        List<String> input = new ArrayList<String>();
+        SimpleFeatureIterator fi = fc.features();
+        try {
+            while (fi.hasNext()) {
+                input.add(fi.next().getID());
+            }
+        } finally {
+            fi.close();
+        }
+        SortBy[] byteAsc = new SortBy[] { ff.sort("byte", SortOrder.ASCENDING) };
+        SimpleFeatureReader sr = MergeSortDumper.getDelegateReader(fr, byteAsc, 10, -1, 4);
+        try {
+            SimpleFeature prev = null;
+            int count = 0;
+            while (sr.hasNext()) {
+                SimpleFeature curr = sr.next();
+                // nulls come first
+                Byte pb = prev != null ? (Byte) prev.getAttribute("byte") : null;
+                if (pb != null) {
+                    Byte cb = (Byte) curr.getAttribute("byte");
+                    assertTrue(pb <= cb);
+                    if (pb.equals(cb)) {
+                        assertTrue(input.indexOf(prev.getID()) < input.indexOf(curr.getID()));
+                    }
+                }
+                prev = curr;
+                count++;
+            }
+            assertEquals(fc.size(), count);
+        } finally {
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testTopN() throws IOException {
+        List<String> expected = new ArrayList<String>();
+        SimpleFeatureReader sr = new SortedFeatureReader(new DelegateSimpleFeatureReader(schema,
+                fc.features()), peopleDesc, 5);
+        try {
+            while (sr.hasNext() && expected.size() < 15) {
+                expected.add(sr.next().getID());
+            }
+        } finally {
+            sr.close();
+        }
+
+        Query query = new Query("test");
+        query.setSortBy(peopleDesc);
+        query.setStartIndex(5);
+        query.setMaxFeatures(10);
+        List<String> actual = new ArrayList<String>();
+        sr = new SortedFeatureReader(fr, query);
+        try {
+            // start index is applied by the caller, the reader returns the first 15
+            while (sr.hasNext()) {
+                actual.add(sr.next().getID());
+            }
+        } finally {
+            sr.close();
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testRowFormat() throws IOException {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("format");
+        tb.add("geom", Geometry.class);
+        tb.add("text", String.class);
+        tb.add("timestamp", java.sql.Timestamp.class);
+        tb.add("list", ArrayList.class);
+        tb.add("missing", Integer.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        char[] chars = new char[100000];
+        Arrays.fill(chars, '\u00e8');
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(System.currentTimeMillis());
+        timestamp.setNanos(123456789);
+        GeometryFactory gf = new GeometryFactory();
+        Point point = gf.createPoint(new Coordinate(1, 2, 3));
+        SimpleFeature feature = SimpleFeatureBuilder.build(type, new Object[] { point,
+                new String(chars), timestamp, new ArrayList<String>(Arrays.asList("a", "b")),
+                null }, "format.1");
+
+        FeatureRowFormat format = new FeatureRowFormat(type);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        format.write(out, feature);
+        format.write(out, feature);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+        for (int i = 0; i < 2; i++) {
+            SimpleFeature read = format.read(in);
+            assertEquals("format.1", read.getID());
+            Point readPoint = (Point) read.getAttribute("geom");
+            assertTrue(point.equalsExact(readPoint));
+            assertEquals(3, readPoint.getCoordinate().z, 0d);
+            assertEquals(feature.getAttribute("text"), read.getAttribute("text"));
+            assertEquals(timestamp, read.getAttribute("timestamp"));
+            assertEquals(Arrays.asList("a", "b"), read.getAttribute("list"));
+            assertEquals(null, read.getAttribute("missing"));
+        }
+        assertEquals(-1, in.read());
+    }
+
     private void assertSortedOnPeopleAsc(SimpleFeatureReader fr) throws IllegalArgumentException,
             NoSuchElementException, IOException {
         double prev = -1;
@@ -0,0 +1,254 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.geotools.feature.CompactFeatureFactoryImpl;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.IllegalAttributeException;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFilter;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class CompactSimpleFeatureTest {
+
+    SimpleFeatureType type;
+
+    CompactFeatureFactoryImpl factory;
+
+    WKTReader reader = new WKTReader();
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("compact");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", Geometry.class);
+        tb.add("name", String.class);
+        tb.add("l", Long.class);
+        tb.add("i", Integer.class);
+        tb.add("s", Short.class);
+        tb.add("b", Byte.class);
+        tb.add("flag", Boolean.class);
+        tb.add("d", Double.class);
+        tb.add("f", Float.class);
+        tb.add("date", Date.class);
+        tb.add("big", BigDecimal.class);
+        type = tb.buildFeatureType();
+        factory = new CompactFeatureFactoryImpl();
+    }
+
+    SimpleFeature build(String id, Object... values) {
+        return new SimpleFeatureBuilder(type, factory).buildFeature(id, values);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Date date = new Date();
+        Geometry geom = reader.read("LINESTRING(0 0, 10 10, 20 0)");
+        Object[] values = new Object[] { geom, "abc", Long.MAX_VALUE, -12, (short) 3,
+                (byte) -4, true, Math.PI, 1.5f, date, new BigDecimal("1.25") };
+        SimpleFeature feature = build("compact.1", values);
+        assertTrue(feature instanceof CompactSimpleFeature);
+        assertEquals("compact.1", feature.getID());
+        assertEquals(values.length, feature.getAttributeCount());
+        for (int i = 0; i < values.length; i++) {
+            Object value = feature.getAttribute(i);
+            assertEquals(values[i].getClass(), value.getClass());
+            Object byName = feature.getAttribute(type.getDescriptor(i).getLocalName());
+            if (value instanceof Geometry) {
+                assertTrue(geom.equalsExact((Geometry) value));
+                assertSame(value, byName);
+            } else {
+                assertEquals(values[i], value);
+                assertEquals(value, byName);
+            }
+        }
+        assertSame(feature.getAttribute(0), feature.getDefaultGeometry());
+        BoundingBox bounds = feature.getBounds();
+        assertEquals(0, bounds.getMinX(), 0d);
+        assertEquals(0, bounds.getMinY(), 0d);
+        assertEquals(20, bounds.getMaxX(), 0d);
+        assertEquals(10, bounds.getMaxY(), 0d);
+    }
+
+    @Test
+    public void testNulls() {
+        SimpleFeature feature = build("compact.1", new Object[type.getAttributeCount()]);
+        CompactSimpleFeature compact = (CompactSimpleFeature) feature;
+        for (int i = 0; i < type.getAttributeCount(); i++) {
+            assertNull(feature.getAttribute(i));
+            assertTrue(compact.isNull(i));
+        }
+        assertEquals(0, compact.getLong(2));
+        assertEquals(0, compact.getDouble(7), 0d);
+
+        // set and reset
+        feature.setAttribute("i", 10);
+        assertFalse(compact.isNull(3));
+        assertEquals(10, feature.getAttribute("i"));
+        feature.setAttribute("i", null);
+        assertTrue(compact.isNull(3));
+        assertNull(feature.getAttribute("i"));
+    }
+
+    @Test
+    public void testPrimitiveGetters() {
+        CompactSimpleFeature feature = (CompactSimpleFeature) build("compact.1", null, "abc",
+                5L, 6, (short) 7, (byte) 8, false, 2.5, 3.5f, null, new BigDecimal("4.5"));
+        assertEquals(5, feature.getLong(2));
+        assertEquals(6, feature.getInt(3));
+        assertEquals(7, feature.getInt(4));
+        assertEquals(8, feature.getInt(5));
+        assertEquals(0, feature.getLong(6));
+        assertEquals(2.5, feature.getDouble(7), 0d);
+        assertEquals(2, feature.getLong(7));
+        assertEquals(3.5, feature.getDouble(8), 0d);
+        assertEquals(6d, feature.getDouble(3), 0d);
+        assertEquals(4.5, feature.getDouble(10), 0d);
+        try {
+            feature.getLong(1);
+            fail("Should have failed, not a numeric attribute");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testConversion() {
+        // bypass the builder, it would convert the values on its own
+        SimpleFeature feature = factory.createSimpleFeature(new Object[] { null, null, "5", 6L,
+                7, "8", "true", 2, "3.5", null, null }, type, "compact.1");
+        assertEquals(Long.valueOf(5), feature.getAttribute(2));
+        assertEquals(Integer.valueOf(6), feature.getAttribute(3));
+        assertEquals(Short.valueOf((short) 7), feature.getAttribute(4));
+        assertEquals(Byte.valueOf((byte) 8), feature.getAttribute(5));
+        assertEquals(Boolean.TRUE, feature.getAttribute(6));
+        assertEquals(Double.valueOf(2), feature.getAttribute(7));
+        assertEquals(Float.valueOf(3.5f), feature.getAttribute(8));
+        feature.setAttribute("name", 10);
+        assertEquals("10", feature.getAttribute(1));
+
+        try {
+            feature.setAttribute("l", "abc");
+            fail("Should have failed, not a number");
+        } catch (IllegalAttributeException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testPackedGeometries() throws Exception {
+        Geometry geom = reader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))");
+        geom.setUserData("userData");
+        Geometry packed = (Geometry) build("compact.1", geom, null, null, null, null, null, null,
+                null, null, null, null).getDefaultGeometry();
+        assertNotSame(geom, packed);
+        assertTrue(geom.equalsExact(packed));
+        assertEquals("userData", packed.getUserData());
+        assertPacked(packed, 2);
+
+        // z is preserved if present
+        Geometry geom3d = reader.read("LINESTRING(0 0 1, 10 10 2)");
+        Geometry packed3d = CompactFeatureLayout.pack(geom3d);
+        assertPacked(packed3d, 3);
+        assertEquals(2, packed3d.getCoordinates()[1].z, 0d);
+
+        // already packed geometries are not copied
+        assertSame(packed, CompactFeatureLayout.pack(packed));
+    }
+
+    private void assertPacked(Geometry geometry, final int dimension) {
+        geometry.apply(new CoordinateSequenceFilter() {
+
+            public void filter(CoordinateSequence seq, int i) {
+                assertTrue(seq instanceof PackedCoordinateSequence.Double);
+                assertEquals(dimension, seq.getDimension());
+            }
+
+            public boolean isDone() {
+                return false;
+            }
+
+            public boolean isGeometryChanged() {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    public void testStringsAreShared() {
+        SimpleFeature f1 = build("compact.1", null, new String("shared"), null, null, null,
+                null, null, null, null, null, null);
+        SimpleFeature f2 = build("compact.2", null, new String("shared"), null, null, null,
+                null, null, null, null, null, null);
+        assertSame(f1.getAttribute("name"), f2.getAttribute("name"));
+
+        // the dictionary stops growing once full
+        CompactFeatureLayout.StringDictionary dictionary = new CompactFeatureLayout.StringDictionary(
+                1);
+        assertEquals("a", dictionary.intern("a"));
+        String b = new String("b");
+        assertSame(b, dictionary.intern(b));
+        assertNotSame(b, dictionary.intern(new String("b")));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void testUserData() {
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type, factory);
+        fb.set("name", "abc");
+        fb.featureUserData("feature", "value");
+        fb.setUserData(1, "attribute", "value");
+        SimpleFeature feature = fb.buildFeature("compact.1");
+        assertEquals("value", feature.getUserData().get("feature"));
+        assertEquals("value", feature.getProperty("name").getUserData().get("attribute"));
+        assertTrue(feature.getProperty("geom") instanceof GeometryAttribute);
+        assertNotNull(feature.getDefaultGeometryProperty());
+    }
+
+    @Test
+    public void testEquals() {
+        SimpleFeature f1 = build("compact.1", null, "abc", 1L, 2, null, null, null, 1.5, null,
+                null, null);
+        SimpleFeature f2 = build("compact.1", null, "abc", 1L, 2, null, null, null, 1.5, null,
+                null, null);
+        SimpleFeature f3 = build("compact.1", null, "abc", 1L, 3, null, null, null, 1.5, null,
+                null, null);
+        assertEquals(f1, f2);
+        assertEquals(f1.hashCode(), f2.hashCode());
+        assertFalse(f1.equals(f3));
+
+        // same values as a standard feature
+        SimpleFeature standard = SimpleFeatureBuilder.copy(f1);
+        assertTrue(standard instanceof SimpleFeatureImpl);
+        assertEquals(f1.getAttributes(), standard.getAttributes());
+    }
+}
@@ -16,12 +16,23 @@
  */
 package org.geotools.filter;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import junit.framework.TestCase;
 
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.AttributeExpressionImpl.AccessorCache;
+import org.geotools.filter.expression.PropertyAccessor;
+import org.geotools.filter.expression.PropertyAccessors;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
 
 /**
  * 
@@ -52,6 +63,70 @@ public class AttributeExpressionTest extends TestCase {
 		ex = new AttributeExpressionImpl( "@id" );
 		assertEquals( "fid", ex.evaluate( feature ) );
 	}
-	
-	
+
+	public void testAccessorCache() {
+	    SimpleFeatureType type = buildType("test", "foo", "bar");
+	    PropertyAccessor accessor = PropertyAccessors.findPropertyAccessors(type, "foo", null,
+	            null).get(0);
+	    AccessorCache cache = AccessorCache.EMPTY;
+	    assertNull(cache.get(type));
+	    cache = cache.put(type, accessor);
+	    assertSame(accessor, cache.get(type));
+	    // no changes, same cache
+	    assertSame(cache, cache.put(type, accessor));
+
+	    // the oldest entries fall off when full
+	    List<Object> keys = new ArrayList<Object>();
+	    for (int i = 0; i < AccessorCache.MAX_SIZE; i++) {
+	        Object key = new Object();
+	        keys.add(key);
+	        cache = cache.put(key, accessor);
+	    }
+	    assertEquals(AccessorCache.MAX_SIZE, cache.keys.length);
+	    assertNull(cache.get(type));
+	    for (Object key : keys) {
+	        assertSame(accessor, cache.get(key));
+	    }
+	}
+
+	public void testConcurrentEvaluation() throws Exception {
+	    // same attribute, different positions, plus evaluation against a feature type
+	    final SimpleFeatureType type1 = buildType("type1", "foo", "bar");
+	    final SimpleFeatureType type2 = buildType("type2", "bar", "foo");
+	    final SimpleFeature f1 = SimpleFeatureBuilder.build(type1, new Object[] {1, 2.0}, null);
+	    final SimpleFeature f2 = SimpleFeatureBuilder.build(type2, new Object[] {3, 4.0}, null);
+	    final AttributeDescriptor descriptor = type1.getDescriptor("foo");
+	    final AttributeExpressionImpl ex = new AttributeExpressionImpl("foo");
+
+	    ExecutorService executor = Executors.newFixedThreadPool(8);
+	    try {
+	        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+	        for (int t = 0; t < 8; t++) {
+	            futures.add(executor.submit(new Callable<Void>() {
+	                public Void call() throws Exception {
+	                    for (int i = 0; i < 10000; i++) {
+	                        assertEquals(1, ex.evaluate(f1));
+	                        assertEquals(4.0, ex.evaluate(f2));
+	                        assertSame(descriptor, ex.evaluate(type1));
+	                        assertEquals("4.0", ex.evaluate(f2, String.class));
+	                    }
+	                    return null;
+	                }
+	            }));
+	        }
+	        for (Future<Void> future : futures) {
+	            future.get();
+	        }
+	    } finally {
+	        executor.shutdown();
+	    }
+	}
+
+	private SimpleFeatureType buildType(String name, String intAttribute, String doubleAttribute) {
+	    SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+	    typeBuilder.setName(name);
+	    typeBuilder.add(intAttribute, Integer.class);
+	    typeBuilder.add(doubleAttribute, Double.class);
+	    return typeBuilder.buildFeatureType();
+	}
 }
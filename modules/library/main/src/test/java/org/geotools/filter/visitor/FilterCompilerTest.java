@@ -0,0 +1,185 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.FilterCompiler.IndexedPropertyName;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.expression.Expression;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+public class FilterCompilerTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    GeometryFactory gf = new GeometryFactory();
+
+    SimpleFeatureType ft;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setup() throws Exception {
+        ft = DataUtilities.createType("test",
+                "theGeom:LineString,b:java.lang.Byte,s:java.lang.Short,i:java.lang.Integer,"
+                        + "l:java.lang.Long,d:java.lang.Double,label:String");
+        features = new ArrayList<SimpleFeature>();
+        features.add(feature(ft, line(0, 0, 10, 10), 1, 10, 100, 1000L, 1.5, "Label"));
+        features.add(feature(ft, line(20, 20, 30, 30), -1, -10, -100, -1000L, -0.0, "label"));
+        features.add(feature(ft, line(5, 5, 6, 6), 0, 0, 0, 0L, Double.NaN, "other"));
+        features.add(feature(ft, null, null, null, null, null, null, null));
+        features.add(feature(ft, line(0, 0, 1, 1), 10, 10, 10, Long.MAX_VALUE, 10.0, "10"));
+
+        // same attributes, different order, the indexes have to be resolved again
+        SimpleFeatureType reordered = DataUtilities.createType("reordered",
+                "label:String,d:java.lang.Double,l:java.lang.Long,i:java.lang.Integer,"
+                        + "s:java.lang.Short,b:java.lang.Byte,theGeom:LineString");
+        features.add(SimpleFeatureBuilder.build(reordered, new Object[] { "Label", 1.5, 1000L,
+                100, (short) 10, (byte) 1, line(0, 0, 10, 10) }, null));
+        // a type missing some attributes, the original property names should be used
+        SimpleFeatureType partial = DataUtilities.createType("partial", "i:java.lang.Integer");
+        features.add(SimpleFeatureBuilder.build(partial, new Object[] { 100 }, null));
+    }
+
+    private SimpleFeature feature(SimpleFeatureType type, LineString geom, Integer b, Integer s,
+            Integer i, Long l, Double d, String label) {
+        return SimpleFeatureBuilder.build(type,
+                new Object[] { geom, b == null ? null : b.byteValue(),
+                        s == null ? null : s.shortValue(), i, l, d, label }, null);
+    }
+
+    private LineString line(double x1, double y1, double x2, double y2) {
+        return gf.createLineString(new Coordinate[] { new Coordinate(x1, y1),
+                new Coordinate(x2, y2) });
+    }
+
+    @Test
+    public void testComparisons() {
+        for (String name : new String[] { "b", "s", "i", "l", "d" }) {
+            for (Object value : new Object[] { 10, "10", 10.5, "10.5", 0, -0.0, 100L, "abc",
+                    Double.NaN, Long.MAX_VALUE }) {
+                Expression p = ff.property(name);
+                Expression v = ff.literal(value);
+                assertEquivalent(ff.equals(p, v));
+                assertEquivalent(ff.equals(v, p));
+                assertEquivalent(ff.notEqual(p, v));
+                assertEquivalent(ff.less(p, v));
+                assertEquivalent(ff.less(v, p));
+                assertEquivalent(ff.lessOrEqual(p, v));
+                assertEquivalent(ff.greater(p, v));
+                assertEquivalent(ff.greaterOrEqual(p, v));
+                assertEquivalent(ff.greaterOrEqual(v, p));
+                assertEquivalent(ff.between(p, v, ff.literal(1000)));
+                assertEquivalent(ff.between(p, ff.literal(-10), v));
+                assertEquivalent(ff.isNull(p));
+            }
+        }
+    }
+
+    @Test
+    public void testStrings() {
+        for (Object value : new Object[] { "label", "Label", 10, "10" }) {
+            for (boolean matchCase : new boolean[] { true, false }) {
+                assertEquivalent(ff.equal(ff.property("label"), ff.literal(value), matchCase));
+                assertEquivalent(ff.notEqual(ff.literal(value), ff.property("label"), matchCase));
+            }
+            assertEquivalent(ff.less(ff.property("label"), ff.literal(value)));
+            assertEquivalent(ff.like(ff.property("label"), "lab*"));
+        }
+    }
+
+    @Test
+    public void testLogicAndSpatial() {
+        Filter filter = ff.or(ff.and(ff.greater(ff.property("i"), ff.literal(50)),
+                ff.bbox("theGeom", 0, 0, 5, 5, null)), ff.not(ff.intersects(
+                ff.property("theGeom"), ff.literal(line(0, 10, 10, 0)))));
+        assertEquivalent(filter);
+        assertEquivalent(ff.dwithin(ff.property("theGeom"), ff.literal(gf
+                .createPoint(new Coordinate(0, 0))), 20, "m"));
+        assertEquivalent(ff.equals(ff.function("strToLowerCase", ff.property("label")),
+                ff.literal("label")));
+        assertEquivalent(ff.greater(ff.add(ff.property("i"), ff.property("d")), ff.literal(10)));
+    }
+
+    @Test
+    public void testStructure() {
+        PropertyIsEqualTo source = ff.equal(ff.property("i"), ff.literal("10"), true);
+        Filter compiled = FilterCompiler.compile(source, ft);
+        assertTrue(compiled instanceof FilterCompiler.EqualTo);
+        // the compiled filter looks like the original one, with the literal bound
+        PropertyIsEqualTo equal = (PropertyIsEqualTo) compiled;
+        assertTrue(equal.getExpression1() instanceof IndexedPropertyName);
+        assertEquals(Integer.valueOf(10), equal.getExpression2().evaluate(null));
+        assertEquals(compiled, FilterCompiler.compile(source, ft));
+        // visitors see the structure of the original filter
+        Filter copy = (Filter) compiled.accept(new DuplicatingFilterVisitor(), null);
+        assertFalse(copy instanceof FilterCompiler.EqualTo);
+        assertEquals(ff.property("i"), ((PropertyIsEqualTo) copy).getExpression1());
+
+        // literals are not converted if the conversion loses information
+        PropertyIsLessThan less = (PropertyIsLessThan) FilterCompiler.compile(
+                ff.less(ff.property("i"), ff.literal(10.5)), ft);
+        assertFalse(less instanceof FilterCompiler.LessThan);
+        assertEquals(10.5, less.getExpression2().evaluate(null));
+
+        // complex property names are left alone
+        Filter prefixed = FilterCompiler.compile(ff.equal(ff.property("gml:i"), ff.literal(10),
+                true), ft);
+        assertFalse(((PropertyIsEqualTo) prefixed).getExpression1() instanceof IndexedPropertyName);
+
+        // nothing to do for include and exclude
+        assertSame(Filter.INCLUDE, FilterCompiler.compile(Filter.INCLUDE, ft));
+        assertSame(Filter.EXCLUDE, FilterCompiler.compile(Filter.EXCLUDE, ft));
+    }
+
+    @Test
+    public void testExpression() {
+        Expression source = ff.multiply(ff.property("i"), ff.property("d"));
+        Expression compiled = FilterCompiler.compile(source, ft);
+        for (SimpleFeature feature : features) {
+            assertEquals(source.evaluate(feature), compiled.evaluate(feature));
+            assertEquals(source.evaluate(feature, String.class),
+                    compiled.evaluate(feature, String.class));
+        }
+    }
+
+    private void assertEquivalent(Filter filter) {
+        Filter compiled = FilterCompiler.compile(filter, ft);
+        assertNotSame(filter, compiled);
+        for (SimpleFeature feature : features) {
+            assertEquals(filter + " on " + feature, filter.evaluate(feature),
+                    compiled.evaluate(feature));
+        }
+    }
+}
@@ -243,6 +243,43 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates,
+     * using the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] coords, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double shift = belgium ? BELGE_A : 0;
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            final double y = coords[i+1];
+            final double rho;
+            if (abs(abs(y) - PI/2) < EPSILON) {
+                if (y*n <= 0) {
+                    coords[i]   = Double.NaN;
+                    coords[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI/4 + 0.5*y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            final double x = coords[i] * n - shift;
+            coords[i+1] = rho0 - rho * cos(x);
+            coords[i]   =        rho * sin(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Transforms the specified (<var>x</var>,<var>y</var>) coordinates
      * and stores the result in {@code ptDst}.
@@ -22,6 +22,7 @@ package org.geotools.referencing.operation.projection;
 
 import static java.lang.Math.*;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
 import java.util.Collection;
@@ -94,11 +95,26 @@ public abstract class MapProjection extends AbstractMathTransform
      */
     public static boolean SKIP_SANITY_CHECKS = false;
 
+    /**
+     * The number of points checked against the reciprocal transform by the array transform
+     * methods when assertions are enabled. Checking every point doubles the transformation
+     * cost, so only a sample evenly distributed in the array is checked. Set it to
+     * {@link Integer#MAX_VALUE} to check all points.
+     */
+    public static int ASSERTION_SAMPLES = 16;
+
     /**
      * For cross-version compatibility.
      */
     private static final long serialVersionUID = -406751619777246914L;
 
+    /**
+     * The number of points transformed at once by the array transform methods. Each block
+     * goes through normalization, projection and denormalization while it's still in the
+     * processor cache.
+     */
+    private static final int BLOCK_SIZE = 512;
+
     /**
      * The projection package logger
      */
@@ -918,36 +934,121 @@ public abstract class MapProjection extends AbstractMathTransform
                                 final double[] dstPts, int dstOff, int numPts)
             throws ProjectionException
     {
-        /*
-         * Vérifie s'il faudra parcourir le tableau en sens inverse.
-         * Ce sera le cas si les tableaux source et destination se
-         * chevauchent et que la destination est après la source.
-         */
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
+        transform(null, srcPts, srcOff, dstPts, dstOff, numPts, null);
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, applying the {@code before} affine
+     * transform to the source points and the {@code after} affine transform to the projected
+     * points in the same pass over the arrays. This allows to merge the axis swaps and unit
+     * conversions that usually surround a map projection in a concatenated transform.
+     * <p>
+     * The points are processed in blocks small enough to stay in the processor cache: each
+     * block is normalized, projected by {@link #transformNormalized(double[], int, int)} and
+     * denormalized in place in the destination array, without allocating any object. When
+     * assertions are enabled, only {@link #ASSERTION_SAMPLES} points are checked against the
+     * inverse projection by {@link #checkReciprocal(double[], double[], int, AffineTransform,
+     * boolean)}.
+     *
+     * @param before The transform to apply on the source points, or {@code null}. The transformed
+     *               points must be (<var>longitude</var>,<var>latitude</var>) pairs in decimal
+     *               degrees.
+     * @param after  The transform to apply on the projected points, or {@code null}.
+     * @throws ProjectionException if a point can't be transformed. This method tries to transform
+     *         every points even if some of them can't be transformed. Non-transformable points will
+     *         have value {@link Double#NaN}. If more than one point can't be transformed, then this
+     *         exception may be about an arbitrary point.
+     *
+     * @since 16.0
+     */
+    public final void transform(final AffineTransform before, final double[] srcPts, int srcOff,
+                                final double[] dstPts, int dstOff, final int numPts,
+                                final AffineTransform after)
+            throws ProjectionException
+    {
+        if (numPts <= 0) {
+            return;
         }
-        final Point2D.Double point = new Point2D.Double();
+        if (srcPts == dstPts && srcOff < dstOff && srcOff + 2*numPts > dstOff) {
+            // The destination overlaps the end of the source: move the points first, then
+            // work in place.
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2*numPts);
+            srcOff = dstOff;
+        }
+        double[] samples = null;
+        if (invertible) {
+            assert (samples = samplePoints(before, srcPts, srcOff, numPts)) != null;
+        }
+        final boolean hasBefore = (before != null);
+        final double b00, b01, b02, b10, b11, b12;
+        if (hasBefore) {
+            b00 = before.getScaleX(); b01 = before.getShearX(); b02 = before.getTranslateX();
+            b10 = before.getShearY(); b11 = before.getScaleY(); b12 = before.getTranslateY();
+        } else {
+            b00 = 1; b01 = 0; b02 = 0;
+            b10 = 0; b11 = 1; b12 = 0;
+        }
+        final boolean hasAfter = (after != null);
+        final double a00, a01, a02, a10, a11, a12;
+        if (hasAfter) {
+            a00 = after.getScaleX(); a01 = after.getShearX(); a02 = after.getTranslateX();
+            a10 = after.getShearY(); a11 = after.getScaleY(); a12 = after.getTranslateY();
+        } else {
+            a00 = 1; a01 = 0; a02 = 0;
+            a10 = 0; a11 = 1; a12 = 0;
+        }
+        boolean verify = verifyCoordinateRanges();
         ProjectionException firstException = null;
-        while (--numPts >= 0) {
+        for (int block = 0; block < numPts; block += BLOCK_SIZE) {
+            final int blockPts = min(BLOCK_SIZE, numPts - block);
+            final int start = dstOff + 2*block;
+            final int end = start + 2*blockPts;
+            /*
+             * Converts to normalized (lambda, phi) in radians. The same rules than
+             * transform(Point2D, Point2D) apply for the longitude rolling.
+             */
+            for (int i = start, j = srcOff + 2*block; i < end; i += 2, j += 2) {
+                double x = srcPts[j];
+                double y = srcPts[j+1];
+                if (hasBefore) {
+                    final double tx = b00*x + b01*y + b02;
+                    y = b10*x + b11*y + b12;
+                    x = tx;
+                }
+                if (verify && verifyGeographicRanges(this, x, y)) {
+                    warningLogged();
+                    verify = false;
+                }
+                dstPts[i]   = centralMeridian != 0 ?
+                        rollLongitude(toRadians(x) - centralMeridian) : toRadians(x);
+                dstPts[i+1] = toRadians(y);
+            }
             try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
+                transformNormalized(dstPts, start, blockPts);
             } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
                 if (firstException == null) {
                     firstException = exception;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+            for (int i = start; i < end; i += 2) {
+                double x = globalScale*dstPts[i]   + falseEasting;
+                double y = globalScale*dstPts[i+1] + falseNorthing;
+                if (hasAfter) {
+                    final double tx = a00*x + a01*y + a02;
+                    y = a10*x + a11*y + a12;
+                    x = tx;
+                }
+                dstPts[i]   = x;
+                dstPts[i+1] = y;
+            }
+        }
+        if (samples != null) {
+            try {
+                checkReciprocal(samples, dstPts, dstOff, after, true);
+            } catch (ProjectionException exception) {
+                if (firstException == null) {
+                    firstException = exception;
+                }
             }
         }
         if (firstException != null) {
@@ -1082,39 +1183,54 @@ public abstract class MapProjection extends AbstractMathTransform
          *         an arbitrary point.
          */
         public final void transform(final double[] src,  int srcOffset,
-                                    final double[] dest, int dstOffset, int numPts)
+                                    final double[] dest, int dstOffset, final int numPts)
                 throws TransformException
         {
-            /*
-             * Vérifie s'il faudra parcourir le tableau en sens inverse.
-             * Ce sera le cas si les tableaux source et destination se
-             * chevauchent et que la destination est après la source.
-             */
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
+            if (numPts <= 0) {
+                return;
             }
-            final Point2D.Double point = new Point2D.Double();
+            if (src == dest && srcOffset < dstOffset && srcOffset + 2*numPts > dstOffset) {
+                System.arraycopy(src, srcOffset, dest, dstOffset, 2*numPts);
+                srcOffset = dstOffset;
+            }
+            double[] samples = null;
+            assert (samples = samplePoints(null, src, srcOffset, numPts)) != null;
+            boolean verify = verifyCoordinateRanges();
             ProjectionException firstException = null;
-            while (--numPts>=0) {
+            for (int block = 0; block < numPts; block += BLOCK_SIZE) {
+                final int blockPts = min(BLOCK_SIZE, numPts - block);
+                final int start = dstOffset + 2*block;
+                final int end = start + 2*blockPts;
+                for (int i = start, j = srcOffset + 2*block; i < end; i += 2, j += 2) {
+                    dest[i]   = (src[j]   - falseEasting ) / globalScale;
+                    dest[i+1] = (src[j+1] - falseNorthing) / globalScale;
+                }
                 try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
+                    inverseTransformNormalized(dest, start, blockPts);
                 } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
                     if (firstException == null) {
                         firstException = exception;
                     }
                 }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
+                for (int i = start; i < end; i += 2) {
+                    final double x = toDegrees(centralMeridian != 0 ?
+                                     rollLongitude(dest[i] + centralMeridian) : dest[i]);
+                    final double y = toDegrees(dest[i+1]);
+                    if (verify && verifyGeographicRanges(this, x, y)) {
+                        warningLogged();
+                        verify = false;
+                    }
+                    dest[i]   = x;
+                    dest[i+1] = y;
+                }
+            }
+            if (samples != null) {
+                try {
+                    checkReciprocal(samples, dest, dstOffset, null, false);
+                } catch (ProjectionException exception) {
+                    if (firstException == null) {
+                        firstException = exception;
+                    }
                 }
             }
             if (firstException != null) {
@@ -1196,6 +1312,177 @@ public abstract class MapProjection extends AbstractMathTransform
         return inverse;
     }
 
+    /**
+     * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates in
+     * radians, with the {@link #centralMeridian} already removed, into linear distances on a
+     * unit sphere or ellipse. This is the array version of
+     * {@link #transformNormalized(double, double, Point2D)}, invoked by the array transform
+     * methods on blocks of points.
+     * <p>
+     * The default implementation invokes {@link #transformNormalized(double, double, Point2D)}
+     * for each point. The most used projections override it with a plain loop over the array,
+     * without method calls or allocations, that the JIT compiler can optimize as a whole.
+     * Subclasses overriding {@link #transformNormalized(double, double, Point2D)} must override
+     * this method as well if a superclass already does.
+     *
+     * @param coords The coordinates to transform, as (<var>&lambda;</var>,<var>&phi;</var>) pairs.
+     * @param offset The index of the first ordinate to transform.
+     * @param numPts The number of points to transform.
+     * @throws ProjectionException if a point can't be transformed. All the points are processed
+     *         anyway, the ones that can't be transformed are set to {@link Double#NaN}.
+     *
+     * @since 16.0
+     */
+    protected void transformNormalized(final double[] coords, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            try {
+                final Point2D result = transformNormalized(coords[i], coords[i+1], point);
+                coords[i]   = result.getX();
+                coords[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                coords[i]   = Double.NaN;
+                coords[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place a list of (<var>x</var>,<var>y</var>) linear distances on a unit
+     * sphere or ellipse into (<var>&lambda;</var>,<var>&phi;</var>) coordinates in radians.
+     * This is the array version of {@link #inverseTransformNormalized(double, double, Point2D)},
+     * see {@link #transformNormalized(double[], int, int)} for the details.
+     *
+     * @param coords The coordinates to transform, as (<var>x</var>,<var>y</var>) pairs.
+     * @param offset The index of the first ordinate to transform.
+     * @param numPts The number of points to transform.
+     * @throws ProjectionException if a point can't be transformed. All the points are processed
+     *         anyway, the ones that can't be transformed are set to {@link Double#NaN}.
+     *
+     * @since 16.0
+     */
+    protected void inverseTransformNormalized(final double[] coords, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            try {
+                final Point2D result = inverseTransformNormalized(coords[i], coords[i+1], point);
+                coords[i]   = result.getX();
+                coords[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                coords[i]   = Double.NaN;
+                coords[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Picks {@link #ASSERTION_SAMPLES} points evenly distributed in the source array, for the
+     * assertions of the array transform methods. The points are copied because the source array
+     * may be overwritten by the transform.
+     *
+     * @return (<var>index</var>,<var>x</var>,<var>y</var>) triplets, where the index is relative
+     *         to the first point.
+     */
+    private static double[] samplePoints(final AffineTransform before, final double[] srcPts,
+                                         final int srcOff, final int numPts)
+    {
+        final int count = max(0, min(ASSERTION_SAMPLES, numPts));
+        final double[] samples = new double[count * 3];
+        for (int k = 0; k < count; k++) {
+            final int index = (count == 1) ? 0 : (int) ((long) k * (numPts - 1) / (count - 1));
+            samples[k*3]   = index;
+            samples[k*3+1] = srcPts[srcOff + 2*index];
+            samples[k*3+2] = srcPts[srcOff + 2*index + 1];
+        }
+        if (before != null) {
+            for (int k = 0; k < count; k++) {
+                before.transform(samples, k*3 + 1, samples, k*3 + 1, 1);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Checks the points sampled by an array transform against the reciprocal transform, using
+     * {@link #checkReciprocal(Point2D, Point2D, boolean)}. The transformed points failing the
+     * check are set to {@link Double#NaN}, as in a point by point transform. This method is
+     * invoked during assertions only, subclasses can override it to plug a different accuracy
+     * check.
+     *
+     * @param samples (<var>index</var>,<var>x</var>,<var>y</var>) triplets with the source
+     *        points, before the {@code after} transform was applied.
+     * @param dstPts  The transformed points.
+     * @param dstOff  The index of the first transformed ordinate.
+     * @param after   The transform that was applied to the projected points, or {@code null}.
+     * @param inverse {@code true} if the source points are geographic and the destination ones
+     *        projected, {@code false} in the opposite case.
+     * @return {@code true}, or an exception is thrown.
+     * @throws ProjectionException if a sampled point is farther than the tolerance. All the
+     *         points are checked anyway.
+     *
+     * @since 16.0
+     */
+    protected boolean checkReciprocal(final double[] samples, final double[] dstPts,
+                                      final int dstOff, final AffineTransform after,
+                                      final boolean inverse)
+            throws ProjectionException
+    {
+        AffineTransform undo = null;
+        if (after != null) {
+            try {
+                undo = after.createInverse();
+            } catch (java.awt.geom.NoninvertibleTransformException e) {
+                // Can't go back to the projected points, nothing to check.
+                return true;
+            }
+        }
+        ProjectionException firstException = null;
+        final Point2D.Double point = new Point2D.Double();
+        for (int k = 0; k < samples.length; k += 3) {
+            final int i = dstOff + 2*(int) samples[k];
+            point.x = dstPts[i];
+            point.y = dstPts[i+1];
+            if (Double.isNaN(point.x) || Double.isNaN(point.y)) {
+                continue;
+            }
+            if (undo != null) {
+                undo.transform(point, point);
+            }
+            try {
+                checkReciprocal(point, new Point2D.Double(samples[k+1], samples[k+2]), inverse);
+            } catch (ProjectionException exception) {
+                dstPts[i]   = Double.NaN;
+                dstPts[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+        return true;
+    }
+
     /**
      * Maximal error (in metres) tolerated for assertions, if enabled. When assertions are enabled,
      * every direct projection is followed by an inverse projection, and the result is compared to
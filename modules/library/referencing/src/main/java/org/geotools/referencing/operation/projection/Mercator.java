@@ -172,6 +172,56 @@ public abstract class Mercator extends MapProjection {
     }
 
 
+    /**
+     * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     */
+    @Override
+    protected void transformNormalized(final double[] coords, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+            final double y = coords[i];
+            if (abs(y) > (PI/2 - EPSILON)) {
+                coords[i-1] = Double.NaN;
+                coords[i]   = Double.NaN;
+                if (firstException == null) {
+                    firstException = new ProjectionException(y);
+                }
+                continue;
+            }
+            coords[i] = -log(tsfn(y, sin(y)));
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place a list of (<var>x</var>,<var>y</var>) coordinates.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] coords, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+            try {
+                coords[i] = cphi2(exp(-coords[i]));
+            } catch (ProjectionException exception) {
+                coords[i-1] = Double.NaN;
+                coords[i]   = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
      *
@@ -241,6 +291,46 @@ public abstract class Mercator extends MapProjection {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void transformNormalized(final double[] coords, final int offset,
+                                           final int numPts)
+                throws ProjectionException
+        {
+            ProjectionException firstException = null;
+            for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+                final double y = coords[i];
+                if (abs(y) > (PI/2 - EPSILON)) {
+                    coords[i-1] = Double.NaN;
+                    coords[i]   = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                coords[i] = log(tan(PI/4 + 0.5*y));
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Transforms in place a list of (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] coords, final int offset,
+                                                  final int numPts)
+        {
+            for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+                coords[i] = PI/2 - 2.0*atan(exp(-coords[i]));
+            }
+        }
     }
 
 
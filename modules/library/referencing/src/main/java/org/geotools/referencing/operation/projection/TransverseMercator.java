@@ -207,6 +207,41 @@ public class TransverseMercator extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates,
+     * using the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] coords, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double es = excentricitySquared;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            final double x = coords[i];
+            final double y = coords[i+1];
+            final double sinphi = sin(y);
+            final double cosphi = cos(y);
+
+            double t = (abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
+            t *= t;
+            double al = cosphi*x;
+            final double als = al*al;
+            al /= sqrt(1.0 - es * sinphi*sinphi);
+            final double n = esp * cosphi*cosphi;
+
+            coords[i+1] = mlfn(y, sinphi, cosphi) - ml0 +
+                sinphi * al * x *
+                FC2 * ( 1.0 +
+                FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
+                FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
+                FC8 * als * (1385.0 + t * ( t*(543.0 - t) - 3111.0)))));
+
+            coords[i] = al*(FC1 + FC3 * als*(1.0 - t + n +
+                FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
+                FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0 )))));
+        }
+    }
+
     /**
      * Transforms the specified (<var>x</var>,<var>y</var>) coordinates
      * and stores the result in {@code ptDst}.
@@ -324,6 +359,37 @@ public class TransverseMercator extends MapProjection {
             return new Point2D.Double(x,y);
         }
 
+        /**
+         * Transforms in place a list of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void transformNormalized(final double[] coords, final int offset,
+                                           final int numPts)
+                throws ProjectionException
+        {
+            ProjectionException firstException = null;
+            for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+                final double x = coords[i];
+                final double y = coords[i+1];
+                final double b = cos(y) * sin(x);
+                if (abs(abs(b) - 1.0) <= EPSILON) {
+                    coords[i]   = Double.NaN;
+                    coords[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(
+                                ErrorKeys.VALUE_TEND_TOWARD_INFINITY);
+                    }
+                    continue;
+                }
+                coords[i+1] = atan2(tan(y), cos(x)) - latitudeOfOrigin;   /* Snyder 8-3 */
+                coords[i]   = 0.5 * log((1.0+b) / (1.0-b));               /* Snyder 8-1 */
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
         /**
          * {@inheritDoc}
          */
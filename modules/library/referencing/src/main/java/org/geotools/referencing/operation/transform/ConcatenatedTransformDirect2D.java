@@ -17,14 +17,19 @@
 package org.geotools.referencing.operation.transform;
 
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.Matrix;
 import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.TransformException;
 import org.opengis.referencing.operation.NoninvertibleTransformException;
 
 import org.geotools.referencing.operation.matrix.XMatrix;
+import org.geotools.referencing.operation.projection.MapProjection;
 
 
 /**
@@ -57,6 +62,35 @@ final class ConcatenatedTransformDirect2D extends ConcatenatedTransformDirect
      */
     private final MathTransform2D transform2;
 
+    /**
+     * The map projection and the affine transforms around it this transform is made of,
+     * when the whole chain can run in a single pass over the coordinates. Computed when
+     * first needed.
+     */
+    private transient Fusion fusion;
+
+    /**
+     * A map projection with the optional affine transforms applied before and after it.
+     */
+    private static final class Fusion {
+        final AffineTransform before;
+
+        final MapProjection projection;
+
+        final AffineTransform after;
+
+        Fusion(AffineTransform before, MapProjection projection, AffineTransform after) {
+            this.before = before;
+            this.projection = projection;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Marks the transforms that can't be fused.
+     */
+    private static final Fusion NO_FUSION = new Fusion(null, null, null);
+
     /**
      * Constructs a concatenated transform.
      */
@@ -87,6 +121,66 @@ final class ConcatenatedTransformDirect2D extends ConcatenatedTransformDirect
         return  transform2.transform(ptDst, ptDst);
     }
 
+    /**
+     * Transforms a list of coordinate point ordinal values. If this transform is a map
+     * projection preceded and/or followed by affine transforms, as in the common axis swaps
+     * and unit conversions, the whole chain is applied in a single pass over the coordinates.
+     */
+    @Override
+    public void transform(final double[] srcPts, final int srcOff,
+                          final double[] dstPts, final int dstOff, final int numPts)
+            throws TransformException
+    {
+        assert isValid();
+        // No synchronization, the fusion is immutable and computing it twice is harmless
+        Fusion f = fusion;
+        if (f == null) {
+            fusion = f = createFusion();
+        }
+        if (f.projection != null) {
+            f.projection.transform(f.before, srcPts, srcOff, dstPts, dstOff, numPts, f.after);
+        } else {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Checks if this transform is made of a map projection and affine transforms only.
+     */
+    private Fusion createFusion() {
+        final List<MathTransform> steps = new ArrayList<MathTransform>();
+        collectSteps(this, steps);
+        int first = 0;
+        int last = steps.size() - 1;
+        AffineTransform before = null;
+        AffineTransform after = null;
+        if (first < last && steps.get(first) instanceof AffineTransform2D) {
+            before = (AffineTransform) steps.get(first++);
+        }
+        if (first < last && steps.get(last) instanceof AffineTransform2D) {
+            after = (AffineTransform) steps.get(last--);
+        }
+        if (first == last && steps.get(first) instanceof MapProjection) {
+            return new Fusion(before, (MapProjection) steps.get(first), after);
+        }
+        return NO_FUSION;
+    }
+
+    /**
+     * Adds the non concatenated transforms of the specified chain to the list, in order.
+     */
+    private static void collectSteps(final MathTransform transform,
+                                     final List<MathTransform> steps)
+    {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform ct = (ConcatenatedTransform) transform;
+            collectSteps(ct.transform1, steps);
+            collectSteps(ct.transform2, steps);
+        } else {
+            steps.add(transform);
+        }
+    }
+
     /**
      * Transforms the specified shape.
      */
@@ -0,0 +1,189 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import static org.junit.Assert.*;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.MathTransformFactory;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Checks the array transforms of the map projections return the same results as the point by
+ * point ones.
+ */
+public final class BulkTransformTest {
+
+    static final double WGS84_A = 6378137.0;
+
+    static final double WGS84_B = 6356752.314245179;
+
+    /**
+     * A number of points larger than the block size, to test the block boundaries
+     */
+    static final int POINTS = 1500;
+
+    private static MapProjection create(String name, double semiMinor, double... params)
+            throws Exception {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        final ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter("semi_major").setValue(WGS84_A);
+        parameters.parameter("semi_minor").setValue(semiMinor);
+        parameters.parameter("central_meridian").setValue(params[0]);
+        parameters.parameter("latitude_of_origin").setValue(params[1]);
+        if (params.length > 2) {
+            parameters.parameter("standard_parallel_1").setValue(params[2]);
+            parameters.parameter("standard_parallel_2").setValue(params[3]);
+        }
+        parameters.parameter("false_easting").setValue(500000.0);
+        parameters.parameter("false_northing").setValue(100000.0);
+        return (MapProjection) mtFactory.createParameterizedTransform(parameters);
+    }
+
+    private static double[] randomPoints(double lon, double lat, double range) {
+        Random random = new Random(0);
+        double[] points = new double[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            points[i * 2] = lon + (random.nextDouble() - 0.5) * range;
+            points[i * 2 + 1] = lat + (random.nextDouble() - 0.5) * range;
+        }
+        return points;
+    }
+
+    private static void assertBulkMatchesPoints(MathTransform2D mt, double[] source,
+            double tolerance) throws TransformException {
+        double[] bulk = new double[source.length];
+        mt.transform(source, 0, bulk, 0, source.length / 2);
+        Point2D.Double point = new Point2D.Double();
+        for (int i = 0; i < source.length; i += 2) {
+            point.setLocation(source[i], source[i + 1]);
+            mt.transform(point, point);
+            assertEquals(point.x, bulk[i], tolerance);
+            assertEquals(point.y, bulk[i + 1], tolerance);
+        }
+    }
+
+    private static void assertRoundTrip(MapProjection mt, double[] geographic) throws Exception {
+        assertBulkMatchesPoints(mt, geographic, 1E-6);
+        double[] projected = new double[geographic.length];
+        mt.transform(geographic, 0, projected, 0, POINTS);
+        assertBulkMatchesPoints(mt.inverse(), projected, 1E-9);
+        double[] back = new double[geographic.length];
+        mt.inverse().transform(projected, 0, back, 0, POINTS);
+        for (int i = 0; i < geographic.length; i++) {
+            assertEquals(geographic[i], back[i], 1E-6);
+        }
+    }
+
+    @Test
+    public void testMercator() throws Exception {
+        assertRoundTrip(create("Mercator_1SP", WGS84_B, 10, 0), randomPoints(0, 0, 160));
+    }
+
+    @Test
+    public void testSphericalMercator() throws Exception {
+        assertRoundTrip(create("Mercator_1SP", WGS84_A, 0, 0), randomPoints(0, 0, 160));
+    }
+
+    @Test
+    public void testTransverseMercator() throws Exception {
+        assertRoundTrip(create("Transverse_Mercator", WGS84_B, 9, 0), randomPoints(9, 45, 10));
+    }
+
+    @Test
+    public void testSphericalTransverseMercator() throws Exception {
+        assertRoundTrip(create("Transverse_Mercator", WGS84_A, 9, 0), randomPoints(9, 45, 10));
+    }
+
+    @Test
+    public void testLambertConformal() throws Exception {
+        assertRoundTrip(create("Lambert_Conformal_Conic_2SP", WGS84_B, 3, 46.5, 44, 49),
+                randomPoints(3, 46.5, 20));
+    }
+
+    @Test
+    public void testOverlappingArrays() throws Exception {
+        MapProjection mt = create("Transverse_Mercator", WGS84_B, 9, 0);
+        double[] source = randomPoints(9, 45, 10);
+        double[] expected = new double[source.length];
+        mt.transform(source, 0, expected, 0, POINTS);
+
+        // destination after the source
+        double[] array = new double[source.length + 6];
+        System.arraycopy(source, 0, array, 0, source.length);
+        mt.transform(array, 0, array, 6, POINTS);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], array[i + 6], 0);
+        }
+
+        // destination before the source
+        array = new double[source.length + 6];
+        System.arraycopy(source, 0, array, 6, source.length);
+        mt.transform(array, 6, array, 0, POINTS);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], array[i], 0);
+        }
+    }
+
+    @Test
+    public void testFailingPoints() throws Exception {
+        MapProjection mt = create("Mercator_1SP", WGS84_B, 0, 0);
+        double[] source = { 10, 10, 10, 90, 20, 20 };
+        double[] target = new double[source.length];
+        try {
+            mt.transform(source, 0, target, 0, 3);
+            fail("The pole cannot be projected in Mercator");
+        } catch (ProjectionException e) {
+            // fine
+        }
+        assertTrue(Double.isNaN(target[2]));
+        assertTrue(Double.isNaN(target[3]));
+        Point2D expected = mt.transform(new Point2D.Double(20, 20), null);
+        assertEquals(expected.getX(), target[4], 1E-6);
+        assertEquals(expected.getY(), target[5], 1E-6);
+    }
+
+    @Test
+    public void testFusedChain() throws Exception {
+        MapProjection projection = create("Transverse_Mercator", WGS84_B, 9, 0);
+        // latitude/longitude axis order before, metres to kilometres and a translation after
+        AffineTransform2D swap = new AffineTransform2D(0, 1, 1, 0, 0, 0);
+        AffineTransform2D scale = new AffineTransform2D(
+                AffineTransform.getScaleInstance(0.001, -0.001));
+        MathTransform chain = ConcatenatedTransform.create(
+                ConcatenatedTransform.create(swap, projection), scale);
+        assertTrue(chain instanceof MathTransform2D);
+
+        double[] source = randomPoints(45, 9, 10);
+        assertBulkMatchesPoints((MathTransform2D) chain, source, 1E-9);
+
+        // same with the other associativity
+        chain = ConcatenatedTransform.create(swap,
+                ConcatenatedTransform.create(projection, scale));
+        assertBulkMatchesPoints((MathTransform2D) chain, source, 1E-9);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.opengis.filter.expression.Expression;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Caches the shapes of a layer after decimation, reprojection and transformation to the screen,
+ * so that the feature type styles scanning the same features in separate passes process each
+ * geometry only once.
+ * <p>
+ * The cache is bounded by the total number of cached coordinates, the least recently used shapes
+ * are evicted first. The screen transformation is fixed during a paint, so the shapes are keyed
+ * by feature id, geometry expression and source CRS only: a cache must not outlive the layer
+ * rendering it has been created for.
+ * <p>
+ * Feature ids are not necessarily unique or stable, and different passes can read different
+ * geometries for the same feature (e.g., with different generalization hints), so each entry
+ * also keeps a copy of the source geometry, and a cached shape is returned only if the source
+ * geometry is exactly the same.
+ */
+class GeometryCache {
+
+    /**
+     * The cache key. The CRS is compared by identity, a different instance just results in a
+     * cache miss
+     */
+    static final class Key {
+        final String featureId;
+
+        final Expression geometry;
+
+        final CoordinateReferenceSystem crs;
+
+        Key(String featureId, Expression geometry, CoordinateReferenceSystem crs) {
+            this.featureId = featureId;
+            this.geometry = geometry;
+            this.crs = crs;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = featureId.hashCode();
+            result = 31 * result + (geometry == null ? 0 : geometry.hashCode());
+            result = 31 * result + System.identityHashCode(crs);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return crs == other.crs && featureId.equals(other.featureId)
+                    && (geometry == null ? other.geometry == null : geometry
+                            .equals(other.geometry));
+        }
+    }
+
+    /**
+     * A cached shape, along with the source geometry it has been built from
+     */
+    static final class Entry {
+        final Geometry source;
+
+        final LiteShape2 shape;
+
+        final int size;
+
+        Entry(Geometry source, LiteShape2 shape) {
+            this.source = source;
+            this.shape = shape;
+            this.size = source.getNumPoints() + shape.getGeometry().getNumPoints();
+        }
+    }
+
+    final int maxCoordinates;
+
+    int coordinates;
+
+    final LinkedHashMap<Key, Entry> shapes = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    /**
+     * @param maxCoordinates The maximum number of coordinates held by the cached shapes and
+     *        source geometries
+     */
+    GeometryCache(int maxCoordinates) {
+        this.maxCoordinates = maxCoordinates;
+    }
+
+    /**
+     * Returns the cached shape, or null if not found or if it has been built out of a different
+     * source geometry
+     */
+    synchronized LiteShape2 get(Key key, Geometry source) {
+        Entry entry = shapes.get(key);
+        if (entry == null || !entry.source.equalsExact(source)) {
+            return null;
+        }
+        return entry.shape;
+    }
+
+    /**
+     * Caches the shape, evicting the least recently used ones if the cache grows too large.
+     * Shapes larger than the cache itself are not cached. The source geometry must not be
+     * modified afterwards.
+     */
+    synchronized void put(Key key, Geometry source, LiteShape2 shape) {
+        Entry entry = new Entry(source, shape);
+        if (entry.size > maxCoordinates) {
+            return;
+        }
+        Entry previous = shapes.put(key, entry);
+        if (previous != null) {
+            coordinates -= previous.size;
+        }
+        coordinates += entry.size;
+        Iterator<Map.Entry<Key, Entry>> it = shapes.entrySet().iterator();
+        while (coordinates > maxCoordinates && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            coordinates -= eldest.getValue().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the number of cached coordinates
+     */
+    synchronized int getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * Returns the number of cached shapes
+     */
+    synchronized int size() {
+        return shapes.size();
+    }
+}
@@ -47,6 +47,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,6 +74,7 @@ import org.geotools.filter.IllegalFilterException;
 import org.geotools.filter.function.GeometryTransformationVisitor;
 import org.geotools.filter.spatial.DefaultCRSFilterVisitor;
 import org.geotools.filter.spatial.ReprojectingFilterVisitor;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.geotools.filter.visitor.SimplifyingFilterVisitor;
 import org.geotools.filter.visitor.SpatialFilterVisitor;
 import org.geotools.geometry.jts.Decimator;
@@ -132,6 +134,7 @@ import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.parameter.GeneralParameterValue;
 import org.opengis.referencing.FactoryException;
@@ -364,6 +367,21 @@ public class StreamingRenderer implements GTRenderer {
     public static final String VECTOR_RENDERING_KEY = "vectorRenderingEnabled";
     private static boolean VECTOR_RENDERING_ENABLED_DEFAULT = false;
 
+    /**
+     * Integer value controlling the size of the cache holding the transformed geometries of a
+     * layer, when its feature type styles scan the features in multiple passes, as the number
+     * of coordinates it can hold. The cached geometries are decimated, reprojected and
+     * transformed to the screen once, and then reused by all the passes. A cached geometry is
+     * reused only if the source geometry read for the same feature id is exactly the same.
+     * Defaults to {@link #GEOMETRY_CACHE_SIZE_DEFAULT}, that is, disabled.
+     */
+    public static final String GEOMETRY_CACHE_SIZE_KEY = "geometryCacheSize";
+
+    /**
+     * The default value for {@link #GEOMETRY_CACHE_SIZE_KEY}
+     */
+    public static final int GEOMETRY_CACHE_SIZE_DEFAULT = 0;
+
     public static final String LABEL_CACHE_KEY = "labelCache";
     public static final String FORCE_EPSG_AXIS_ORDER_KEY = "ForceEPSGAxisOrder";
     public static final String DPI_KEY = "dpi";
@@ -405,6 +423,18 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /**
+     * The executor used to read, transform and style layers (and independent feature type
+     * styles inside a layer) in parallel. When null, the classic sequential path is used
+     */
+    private ExecutorService renderingExecutor;
+
+    /**
+     * Maximum number of rendering requests buffered by each layer, or feature type style,
+     * rendered in parallel while waiting for the previous ones to be painted
+     */
+    private static final int DEFERRED_RENDERING_BUFFER_SIZE = 10000;
+
     /**
      * Creates a new instance of LiteRenderer without a context. Use it only to
      * gain access to utility methods of this class or if you want to render
@@ -422,6 +452,30 @@ public class StreamingRenderer implements GTRenderer {
         this.threadPool = threadPool;
     }
 
+    /**
+     * Enables parallel rendering: layers, and independent feature type styles inside a layer,
+     * will be read, transformed and styled concurrently using the provided executor, while the
+     * painting still happens in the same order as the sequential path, so that the output stays
+     * the same.
+     * <p>
+     * The executor should not be the same one used for the painting thread (see
+     * {@link #setThreadPool(ExecutorService)}), and it is not shut down by the renderer.
+     * 
+     * @param renderingExecutor The executor to be used, or null to disable parallel rendering
+     */
+    public void setRenderingExecutor(ExecutorService renderingExecutor) {
+        this.renderingExecutor = renderingExecutor;
+    }
+
+    /**
+     * Returns the executor used for parallel rendering, or null if parallel rendering is disabled
+     * 
+     * @return
+     */
+    public ExecutorService getRenderingExecutor() {
+        return renderingExecutor;
+    }
+
     /**
      * Sets the flag which controls behaviour for applying affine transformation
      * to the graphics object.
@@ -798,9 +852,10 @@ public class StreamingRenderer implements GTRenderer {
                     ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
                 }
                 
-                for (Layer layer : currentMapContent.layers()) {
+                List<DeferredRendering> layerRenderings = new ArrayList<DeferredRendering>();
+                for (final Layer layer : currentMapContent.layers()) {
                     layerCounter++;
-                    String layerId = String.valueOf(layerCounter);
+                    final String layerId = String.valueOf(layerCounter);
                     if (!layer.isVisible()) {
                         // Only render layer when layer is visible
                         continue;
@@ -810,33 +865,29 @@ public class StreamingRenderer implements GTRenderer {
                         return;
                     }
 
-                    labelCache.startLayer(layerId);
-                    if (layer instanceof DirectLayer) {
-                        RenderingRequest request = new RenderDirectLayerRequest(compositingGraphic,
-                                (DirectLayer) layer);
-                        try {
-                            requests.put(request);
-                        } catch (InterruptedException e) {
-                            fireErrorEvent(e);
-                        }
-                    } else if (layer instanceof ZGroupLayer) {
-                        try {
-                            ZGroupLayer zGroup = (ZGroupLayer) layer;
-                            zGroup.drawFeatures(compositingGraphic, this, layerId);
-                        } catch (Throwable t) {
-                            fireErrorEvent(t);
-                        }
+                    if (renderingExecutor == null) {
+                        labelCache.startLayer(layerId);
+                        renderLayer(compositingGraphic, layer, layerId, requests);
+                        labelCache.endLayer(layerId, graphics, screenSize);
                     } else {
-                        try {
-                            // extract the feature type stylers from the style object
-                            // and process them
-                            processStylers(compositingGraphic, layer, layerId);
-                        } catch (Throwable t) {
-                            fireErrorEvent(t);
-                        }
+                        // z group layers paint straight on the main queue, cannot be deferred
+                        final Graphics2D layerGraphic = compositingGraphic;
+                        final Graphics2D mainGraphic = graphics;
+                        boolean parallel = !(layer instanceof ZGroupLayer);
+                        layerRenderings.add(new DeferredRendering(parallel) {
+
+                            @Override
+                            void render(BlockingQueue<RenderingRequest> target)
+                                    throws Exception {
+                                target.put(new StartLayerRequest(layerId));
+                                renderLayer(layerGraphic, layer, layerId, target);
+                                target.put(new EndLayerRequest(layerId, mainGraphic));
+                            }
+                        });
                     }
-        
-                    labelCache.endLayer(layerId, graphics, screenSize);
+                }
+                if (!layerRenderings.isEmpty()) {
+                    renderDeferred(layerRenderings, requests);
                 }
                 
                 // have we been painting on a back buffer? If so, merge on the main graphic
@@ -890,6 +941,76 @@ public class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Renders a single layer, sending the rendering requests to the specified queue
+     * 
+     * @param graphics Target graphics for rendering
+     * @param layer The layer being rendered
+     * @param layerId Handle used to identify the layer in the {@link LabelCache}
+     * @param requests The queue receiving the rendering requests
+     */
+    private void renderLayer(Graphics2D graphics, Layer layer, String layerId,
+            BlockingQueue<RenderingRequest> requests) {
+        if (layer instanceof DirectLayer) {
+            RenderingRequest request = new RenderDirectLayerRequest(graphics,
+                    (DirectLayer) layer);
+            try {
+                requests.put(request);
+            } catch (InterruptedException e) {
+                fireErrorEvent(e);
+            }
+        } else if (layer instanceof ZGroupLayer) {
+            try {
+                ZGroupLayer zGroup = (ZGroupLayer) layer;
+                zGroup.drawFeatures(graphics, this, layerId);
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            }
+        } else {
+            try {
+                // extract the feature type stylers from the style object
+                // and process them
+                processStylers(graphics, layer, layerId, requests);
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            }
+        }
+    }
+
+    /**
+     * Runs the deferred renderings, submitting the parallel ones to the rendering executor, and
+     * forwards their requests to the target queue in the same order as they are provided, so
+     * that the painting order is the same as in the sequential case
+     * 
+     * @param renderings The renderings, in painting order
+     * @param target The queue receiving the rendering requests
+     */
+    private void renderDeferred(List<DeferredRendering> renderings,
+            BlockingQueue<RenderingRequest> target) {
+        for (DeferredRendering rendering : renderings) {
+            if (rendering.parallel) {
+                rendering.future = renderingExecutor.submit(rendering);
+            }
+        }
+        try {
+            for (DeferredRendering rendering : renderings) {
+                if (renderingStopRequested) {
+                    return;
+                }
+                try {
+                    rendering.drainTo(target);
+                } catch (Throwable t) {
+                    fireErrorEvent(t);
+                }
+            }
+        } finally {
+            // makes sure no producer stays blocked on a full buffer
+            for (DeferredRendering rendering : renderings) {
+                rendering.cancel();
+            }
+        }
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1761,6 +1882,9 @@ public class StreamingRenderer implements GTRenderer {
 
             // apply the uom and dpi rescale
             applyUnitRescale(result);
+
+            // compile the rule filters against the feature source schema
+            compileFilters(result, layer.getFeatureSource().getSchema());
         }
 
         return result;
@@ -1876,10 +2000,11 @@ public class StreamingRenderer implements GTRenderer {
      * @param graphics Target graphics for rendering
      * @param layer The layer being styled
      * @param layerId Handle used to identify the layer in the {@link LabelCache}
+     * @param requests The queue receiving the rendering requests
      * @throws Exception
      */
-    private void processStylers(final Graphics2D graphics, final Layer layer, String layerId)
-            throws Exception {
+    private void processStylers(final Graphics2D graphics, final Layer layer,
+            final String layerId, BlockingQueue<RenderingRequest> requests) throws Exception {
         // /////////////////////////////////////////////////////////////////////
         //
         // Preparing feature information and styles
@@ -1907,15 +2032,61 @@ public class StreamingRenderer implements GTRenderer {
         List<List<LiteFeatureTypeStyle>> txClassified = classifyByFeatureProduction(lfts);
         
         // render groups by uniform transformation
-        for (List<LiteFeatureTypeStyle> uniform : txClassified) {
-            FeatureCollection features = getFeatures(layer, schema, uniform);
-
-            // finally, perform rendering
-            if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
-                drawOptimized(graphics, layerId, features, uniform);
-            } else {
-                drawPlain(graphics, layerId, features, uniform);
+        final boolean optimized = isOptimizedFTSRenderingEnabled() && lfts.size() > 1;
+        
+        // the same features are going to be read more than once, if there are multiple groups
+        // or multiple feature type styles rendered without the single scan optimization,
+        // avoid processing their geometries every time
+        final int geometryCacheSize = getGeometryCacheSize();
+        final GeometryCache geometryCache;
+        if (geometryCacheSize > 0 && (txClassified.size() > 1 || (!optimized && lfts.size() > 1))) {
+            geometryCache = new GeometryCache(geometryCacheSize);
+        } else {
+            geometryCache = null;
+        }
+        
+        if (renderingExecutor == null || txClassified.size() == 1) {
+            for (List<LiteFeatureTypeStyle> uniform : txClassified) {
+                drawFeatures(graphics, layer, schema, layerId, uniform, optimized, geometryCache,
+                        requests);
             }
+        } else {
+            // each group reads its own features, they can be processed in parallel
+            List<DeferredRendering> renderings = new ArrayList<DeferredRendering>();
+            for (final List<LiteFeatureTypeStyle> uniform : txClassified) {
+                renderings.add(new DeferredRendering(true) {
+
+                    @Override
+                    void render(BlockingQueue<RenderingRequest> target) throws Exception {
+                        drawFeatures(graphics, layer, schema, layerId, uniform, optimized,
+                                geometryCache, target);
+                    }
+                });
+            }
+            renderDeferred(renderings, requests);
+        }
+    }
+
+    /**
+     * Reads the features for a group of feature type styles sharing the same feature production
+     * and renders them
+     */
+    private void drawFeatures(final Graphics2D graphics, final Layer layer,
+            final FeatureType schema, String layerId, List<LiteFeatureTypeStyle> uniform,
+            boolean optimized, GeometryCache geometryCache,
+            BlockingQueue<RenderingRequest> requests) throws Exception {
+        FeatureCollection features = getFeatures(layer, schema, uniform);
+        
+        // rendering transformations can generate different geometries for the same feature id
+        if (uniform.get(0).transformation != null) {
+            geometryCache = null;
+        }
+
+        // finally, perform rendering
+        if (optimized) {
+            drawOptimized(graphics, layerId, features, uniform, geometryCache, requests);
+        } else {
+            drawPlain(graphics, layerId, features, uniform, geometryCache, requests);
         }
     }
 
@@ -2251,6 +2422,40 @@ public class StreamingRenderer implements GTRenderer {
         return reprojected;
     }
 
+    /**
+     * Compiles the rule filters against the feature source schema so that they can be evaluated
+     * faster, see {@link FilterCompiler}. Styles using a rendering transformation are skipped,
+     * their rules are evaluated against the transformation output instead
+     */
+    void compileFilters(final ArrayList<LiteFeatureTypeStyle> lfts, FeatureType schema) {
+        for (LiteFeatureTypeStyle fts : lfts) {
+            if (fts.transformation != null) {
+                continue;
+            }
+            for (int i = 0; i < fts.ruleList.length; i++) {
+                fts.ruleList[i] = compileFilter(fts.ruleList[i], schema);
+            }
+            if (fts.elseRules != null) {
+                for (int i = 0; i < fts.elseRules.length; i++) {
+                    fts.elseRules[i] = compileFilter(fts.elseRules[i], schema);
+                }
+            }
+        }
+    }
+
+    private Rule compileFilter(Rule rule, FeatureType schema) {
+        Filter filter = rule.getFilter();
+        Filter compiled = FilterCompiler.compile(filter, schema);
+        if (compiled == filter) {
+            return rule;
+        }
+
+        // clone the rule, the style can be reused over and over, we cannot alter it
+        Rule rr = new RuleImpl(rule);
+        rr.setFilter(compiled);
+        return rr;
+    }
+
     /**
      * Utility method to apply the two rescale visitors without duplicating code
      * @param fts
@@ -2273,39 +2478,73 @@ public class StreamingRenderer implements GTRenderer {
      * Performs all rendering on the user provided graphics object by scanning
      * the collection multiple times, one for each feature type style provided
      */
-    private void drawPlain(final Graphics2D graphics, String layerId,
-            FeatureCollection<?, ?> features, final List<LiteFeatureTypeStyle> lfts) {
-        
-        // for each lite feature type style, scan the whole collection and draw
-        for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
-            try (FeatureIterator<?> featureIterator = ((FeatureCollection<?, ?>) features)
-                    .features()) {
-                if( featureIterator == null ){
-                    return; // nothing to do
-                }
-                RenderableFeature rf = createRenderableFeature(layerId, isCloningRequired(lfts));
-                rf.layer = liteFeatureTypeStyle.layer;
-                rf.setScreenMap(liteFeatureTypeStyle.screenMap);
-                // loop exit condition tested inside try catch
-                // make sure we test hasNext() outside of the try/cath that follows, as that
-                // one is there to make sure a single feature error does not ruin the rendering
-                // (best effort) whilst an exception in hasNext() + ignoring catch results in
-                // an infinite loop
-                while (featureIterator.hasNext() && !renderingStopRequested) {
-                    rf.setFeature(featureIterator.next());
-                    processFeature(rf, liteFeatureTypeStyle);
+    private void drawPlain(final Graphics2D graphics, final String layerId,
+            final FeatureCollection<?, ?> features, final List<LiteFeatureTypeStyle> lfts,
+            final GeometryCache geometryCache, BlockingQueue<RenderingRequest> requests) {
+        final boolean cloningRequired = isCloningRequired(lfts);
+        if (renderingExecutor == null || lfts.size() == 1) {
+            // for each lite feature type style, scan the whole collection and draw
+            for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
+                if (!drawPlain(graphics, layerId, features, liteFeatureTypeStyle,
+                        cloningRequired, geometryCache, requests)) {
+                    return;
                 }
             }
+        } else {
+            // the collection is scanned once per feature type style anyways, do it in parallel
+            List<DeferredRendering> renderings = new ArrayList<DeferredRendering>();
+            for (final LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
+                renderings.add(new DeferredRendering(true) {
+
+                    @Override
+                    void render(BlockingQueue<RenderingRequest> target) throws Exception {
+                        drawPlain(graphics, layerId, features, liteFeatureTypeStyle,
+                                cloningRequired, geometryCache, target);
+                    }
+                });
+            }
+            renderDeferred(renderings, requests);
+        }
+    }
 
-            if (liteFeatureTypeStyle.composite != null) {
-                try {
-                    requests.put(new MergeLayersRequest(graphics,
-                            Collections.singletonList(liteFeatureTypeStyle)));
-                } catch (InterruptedException e) {
-                    fireErrorEvent(e);
-                }
+    /**
+     * Scans the whole collection and draws it with a single feature type style
+     * 
+     * @return false if the collection could not be scanned, true otherwise
+     */
+    private boolean drawPlain(final Graphics2D graphics, String layerId,
+            FeatureCollection<?, ?> features, LiteFeatureTypeStyle liteFeatureTypeStyle,
+            boolean cloningRequired, GeometryCache geometryCache,
+            BlockingQueue<RenderingRequest> requests) {
+        try (FeatureIterator<?> featureIterator = ((FeatureCollection<?, ?>) features)
+                .features()) {
+            if( featureIterator == null ){
+                return false; // nothing to do
+            }
+            RenderableFeature rf = createRenderableFeature(layerId, cloningRequired);
+            rf.layer = liteFeatureTypeStyle.layer;
+            rf.setScreenMap(liteFeatureTypeStyle.screenMap);
+            rf.geometryCache = geometryCache;
+            // loop exit condition tested inside try catch
+            // make sure we test hasNext() outside of the try/cath that follows, as that
+            // one is there to make sure a single feature error does not ruin the rendering
+            // (best effort) whilst an exception in hasNext() + ignoring catch results in
+            // an infinite loop
+            while (featureIterator.hasNext() && !renderingStopRequested) {
+                rf.setFeature(featureIterator.next());
+                processFeature(rf, liteFeatureTypeStyle, requests);
+            }
+        }
+
+        if (liteFeatureTypeStyle.composite != null) {
+            try {
+                requests.put(new MergeLayersRequest(graphics,
+                        Collections.singletonList(liteFeatureTypeStyle)));
+            } catch (InterruptedException e) {
+                fireErrorEvent(e);
             }
         }
+        return true;
     }
 
     /**
@@ -2327,13 +2566,15 @@ public class StreamingRenderer implements GTRenderer {
      * style other than the first one (that uses the graphics provided by the user)s 
      */
     private void drawOptimized(final Graphics2D graphics, String layerId,
-            FeatureCollection features, final List<LiteFeatureTypeStyle> lfts) {
+            FeatureCollection features, final List<LiteFeatureTypeStyle> lfts,
+            GeometryCache geometryCache, BlockingQueue<RenderingRequest> requests) {
 
         try (FeatureIterator<?> iterator = features.features()) {
             if (iterator == null)
                 return; // nothing to do
 
             RenderableFeature rf = createRenderableFeature(layerId, isCloningRequired(lfts));
+            rf.geometryCache = geometryCache;
             // loop exit condition tested inside try catch
             // make sure we test hasNext() outside of the try/cath that follows, as that
             // one is there to make sure a single feature error does not ruin the rendering
@@ -2343,7 +2584,7 @@ public class StreamingRenderer implements GTRenderer {
                 rf.setFeature(iterator.next());
                 // draw the feature on the main graphics and on the eventual extra image buffers
                 for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
-                    processFeature(rf, liteFeatureTypeStyle);
+                    processFeature(rf, liteFeatureTypeStyle, requests);
                 }
             }
             // submit the merge request
@@ -2413,6 +2654,18 @@ public class StreamingRenderer implements GTRenderer {
      * @param layerId 
      */
     void processFeature(RenderableFeature rf, LiteFeatureTypeStyle fts) {
+        processFeature(rf, fts, requests);
+    }
+
+    /**
+     * Processes a feature sending the rendering requests to the specified queue
+     * 
+     * @param rf
+     * @param fts
+     * @param requests
+     */
+    private void processFeature(RenderableFeature rf, LiteFeatureTypeStyle fts,
+            BlockingQueue<RenderingRequest> requests) {
         try {
             // init the renderable feature for this fts
             rf.inMemoryGeneralization = fts.inMemoryGeneralization;
@@ -2436,7 +2689,7 @@ public class StreamingRenderer implements GTRenderer {
 
                 if (filter == null || filter.evaluate(rf.feature)) {
                     doElse = false;
-                    processSymbolizers(graphics, rf, r.symbolizers());
+                    processSymbolizers(graphics, rf, r.symbolizers(), requests);
 
                     // bail out if we are in match first mode
                     if (fts.matchFirst) {
@@ -2450,7 +2703,7 @@ public class StreamingRenderer implements GTRenderer {
                 for (int tt = 0; tt < elseLength; tt++) {
                     r = elseRuleList[tt];
 
-                    processSymbolizers(graphics, rf, r.symbolizers());
+                    processSymbolizers(graphics, rf, r.symbolizers(), requests);
 
                 }
             }
@@ -2481,7 +2734,8 @@ public class StreamingRenderer implements GTRenderer {
      */
     private void processSymbolizers(final Graphics2D graphics,
             final RenderableFeature drawMe,
-            final List<Symbolizer> symbolizers)
+            final List<Symbolizer> symbolizers,
+            final BlockingQueue<RenderingRequest> requests)
             throws Exception {
         int paintCommands = 0;
         
@@ -2537,12 +2791,21 @@ public class StreamingRenderer implements GTRenderer {
                 }
                 
                 if (symbolizer instanceof TextSymbolizer && drawMe.feature instanceof Feature) {
-                    labelCache.put(drawMe.layerId, (TextSymbolizer) symbolizer, drawMe.feature,
-                            shape,
-                            null);
+                    if (renderingExecutor == null) {
+                        labelCache.put(drawMe.layerId, (TextSymbolizer) symbolizer,
+                                drawMe.feature, shape, null);
+                    } else {
+                        // labels need to reach the cache in the same order as the sequential
+                        // path, let the painter thread add them
+                        requests.put(new LabelRequest(drawMe.layerId,
+                                (TextSymbolizer) symbolizer, drawMe.feature, shape));
+                    }
                     paintCommands++;
                 } else {
-                    Style2D style = styleFactory.createStyle(drawMe.feature, symbolizer);
+                    Style2D style;
+                    synchronized (styleFactory) {
+                        style = styleFactory.createStyle(drawMe.feature, symbolizer);
+                    }
                     
                     // clip to the visible area + the size of the symbolizer (with some extra 
                     // to make sure we get no artifacts from polygon new borders)
@@ -2769,6 +3032,19 @@ public class StreamingRenderer implements GTRenderer {
         return result.intValue();
     }
 
+    /**
+     * Returns the maximum number of coordinates held by the geometry cache of a layer, see
+     * {@link #GEOMETRY_CACHE_SIZE_KEY}
+     */
+    private int getGeometryCacheSize() {
+        if (rendererHints == null)
+            return GEOMETRY_CACHE_SIZE_DEFAULT;
+        Number result = (Number) rendererHints.get(GEOMETRY_CACHE_SIZE_KEY);
+        if (result == null)
+            return GEOMETRY_CACHE_SIZE_DEFAULT;
+        return result.intValue();
+    }
+
     /**
      * <p>
      * Returns scale computation algorithm to be used. 
@@ -2958,6 +3234,7 @@ public class StreamingRenderer implements GTRenderer {
         private IdentityHashMap decimators = new IdentityHashMap();
         private ScreenMap screenMap;
         private String layerId;
+        GeometryCache geometryCache;
 
 
         public RenderableFeature(String layerId, boolean clone) {
@@ -2980,6 +3257,7 @@ public class StreamingRenderer implements GTRenderer {
 
             if (g == null || g.isEmpty())
                 return null;
+            final Geometry original = g;
             
             try {
                 // process screenmap if necessary (only do it once, 
@@ -3057,6 +3335,8 @@ public class StreamingRenderer implements GTRenderer {
                     } else {
                         return getTransformedShape(RendererUtilities.getCentroid(g), sa);
                     }
+                } else if (g == original && geometryCache != null) {
+                    return getCachedShape(g, sa, symbolizer);
                 } else {
                     return getTransformedShape(g, sa);
                 }
@@ -3080,6 +3360,37 @@ public class StreamingRenderer implements GTRenderer {
             return -1;
         }
 
+        /**
+         * Looks up the transformed shape in the layer geometry cache, before transforming it
+         */
+        private LiteShape2 getCachedShape(Geometry originalGeom, SymbolizerAssociation sa,
+                Symbolizer symbolizer) throws TransformException, FactoryException {
+            int idx = getGeometryIndex(originalGeom);
+            if (idx != -1) {
+                return (LiteShape2) shapes.get(idx);
+            }
+            FeatureId id = feature.getIdentifier();
+            if (id == null || id.getID() == null) {
+                return getTransformedShape(originalGeom, sa);
+            }
+
+            GeometryCache.Key key = new GeometryCache.Key(id.getID(), symbolizer.getGeometry(),
+                    sa.crs);
+            LiteShape2 shape = geometryCache.get(key, originalGeom);
+            if (shape != null) {
+                geometries.add(originalGeom);
+                shapes.add(shape);
+            } else {
+                // the transformation might work in place, keep a copy of the source
+                Geometry source = (Geometry) originalGeom.clone();
+                shape = getTransformedShape(originalGeom, sa);
+                if (shape != null) {
+                    geometryCache.put(key, source, shape);
+                }
+            }
+            return shape;
+        }
+
         private LiteShape2 getTransformedShape(Geometry originalGeom, SymbolizerAssociation sa) throws TransformException,
         FactoryException {
             int idx = getGeometryIndex(originalGeom);
@@ -3499,6 +3810,67 @@ public class StreamingRenderer implements GTRenderer {
         
     }
     
+    /**
+     * A request to add a label to the label cache, used when rendering in parallel
+     */
+    protected class LabelRequest extends RenderingRequest {
+        String layerId;
+
+        TextSymbolizer symbolizer;
+
+        Feature feature;
+
+        LiteShape2 shape;
+
+        public LabelRequest(String layerId, TextSymbolizer symbolizer, Feature feature,
+                LiteShape2 shape) {
+            this.layerId = layerId;
+            this.symbolizer = symbolizer;
+            this.feature = feature;
+            this.shape = shape;
+        }
+
+        @Override
+        void execute() {
+            labelCache.put(layerId, symbolizer, feature, shape, null);
+        }
+    }
+
+    /**
+     * A request to mark the start of a layer in the label cache, used when rendering in parallel
+     */
+    protected class StartLayerRequest extends RenderingRequest {
+        String layerId;
+
+        public StartLayerRequest(String layerId) {
+            this.layerId = layerId;
+        }
+
+        @Override
+        void execute() {
+            labelCache.startLayer(layerId);
+        }
+    }
+
+    /**
+     * A request to mark the end of a layer in the label cache, used when rendering in parallel
+     */
+    protected class EndLayerRequest extends RenderingRequest {
+        String layerId;
+
+        Graphics2D graphics;
+
+        public EndLayerRequest(String layerId, Graphics2D graphics) {
+            this.layerId = layerId;
+            this.graphics = graphics;
+        }
+
+        @Override
+        void execute() {
+            labelCache.endLayer(layerId, graphics, screenSize);
+        }
+    }
+
     /**
      * Marks the end of the request flow, instructs the painting thread to exit
      * @author Andrea Aime - OpenGeo
@@ -3557,6 +3929,104 @@ public class StreamingRenderer implements GTRenderer {
         
     }
     
+    /**
+     * A unit of rendering work that can either run on the rendering executor, buffering its
+     * requests until the consumer gets to it, or straight in the consumer thread, in which case
+     * the requests are sent directly to the consumer queue. Whoever gets to it first wins, so a
+     * consumer never waits on a rendering that has not been started yet.
+     */
+    abstract class DeferredRendering implements Runnable {
+        final boolean parallel;
+
+        final DeferredRenderingBuffer buffer = new DeferredRenderingBuffer(
+                DEFERRED_RENDERING_BUFFER_SIZE);
+
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        Future<?> future;
+
+        /**
+         * @param parallel If false the rendering will always happen in the consumer thread
+         */
+        DeferredRendering(boolean parallel) {
+            this.parallel = parallel;
+        }
+
+        /**
+         * Performs the actual rendering
+         * 
+         * @param target The queue receiving the rendering requests
+         */
+        abstract void render(BlockingQueue<RenderingRequest> target) throws Exception;
+
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                render(buffer);
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            } finally {
+                try {
+                    buffer.put(new EndRequest());
+                } catch (InterruptedException e) {
+                    fireErrorEvent(e);
+                }
+            }
+        }
+
+        /**
+         * Sends all the rendering requests to the target queue, rendering in the current thread
+         * if the executor did not start this rendering yet
+         */
+        void drainTo(BlockingQueue<RenderingRequest> target) throws Exception {
+            if (claimed.compareAndSet(false, true)) {
+                render(target);
+                return;
+            }
+            while (true) {
+                RenderingRequest request = buffer.take();
+                if (request instanceof EndRequest) {
+                    return;
+                }
+                target.put(request);
+            }
+        }
+
+        /**
+         * Stops the rendering, unblocking it in case it's waiting on a full buffer
+         */
+        void cancel() {
+            buffer.discard = true;
+            buffer.clear();
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * The buffer used by {@link DeferredRendering}, ignores puts once the rendering has been
+     * cancelled
+     */
+    class DeferredRenderingBuffer extends RenderingBlockingQueue {
+        private static final long serialVersionUID = -6410372469727734851L;
+
+        volatile boolean discard = false;
+
+        public DeferredRenderingBuffer(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        public void put(RenderingRequest e) throws InterruptedException {
+            if (!discard) {
+                super.put(e);
+            }
+        }
+    }
+
     /**
      * A blocking queue subclass with a special behavior for the occasion when the
      * rendering stop has been requested: puts are getting ignored, and take always
@@ -0,0 +1,42 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+
+import javax.media.jai.CRIFImpl;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+
+/**
+ * CRIF for the {@link ColorMapLookupDescriptor#OPERATION_NAME} operation
+ */
+public class ColorMapLookupCRIF extends CRIFImpl {
+
+    public RenderedImage create(ParameterBlock pb, RenderingHints hints) {
+        final RenderedImage source = pb.getRenderedSource(0);
+        final ColorMapLookupTable table = (ColorMapLookupTable) pb.getObjectParameter(0);
+        final Range noData = (Range) pb.getObjectParameter(1);
+        final ImageLayout layout = hints != null ? (ImageLayout) hints.get(JAI.KEY_IMAGE_LAYOUT)
+                : null;
+        return new ColorMapLookupOpImage(source, table, noData, layout, hints);
+    }
+}
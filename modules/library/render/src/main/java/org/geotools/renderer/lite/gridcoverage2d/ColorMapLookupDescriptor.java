@@ -0,0 +1,84 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+
+import javax.media.jai.JAI;
+import javax.media.jai.OperationDescriptorImpl;
+import javax.media.jai.registry.RenderedRegistryMode;
+
+import org.geotools.image.jai.Registry;
+
+/**
+ * Describes the operation applying a {@link ColorMapLookupTable} to the first band of an image.
+ * The operation is registered in the default JAI instance by {@link #register()}.
+ */
+public class ColorMapLookupDescriptor extends OperationDescriptorImpl {
+
+    private static final long serialVersionUID = 2812164924575316357L;
+
+    /**
+     * The operation name, which is {@value}.
+     */
+    public static final String OPERATION_NAME = "org.geotools.ColorMapLookup";
+
+    private static boolean registered;
+
+    /**
+     * Registers the operation in the default JAI instance, if not already there
+     */
+    public static synchronized void register() {
+        if (!registered) {
+            Registry.registerRIF(JAI.getDefaultInstance(), new ColorMapLookupDescriptor(),
+                    new ColorMapLookupCRIF(), Registry.GEOTOOLS_PRODUCT);
+            registered = true;
+        }
+    }
+
+    /**
+     * Constructs the descriptor.
+     */
+    public ColorMapLookupDescriptor() {
+        super(new String[][] {
+                { "GlobalName", OPERATION_NAME },
+                { "LocalName", OPERATION_NAME },
+                { "Vendor", Registry.GEOTOOLS_PRODUCT },
+                { "Description", "Applies a color map compiled into a lookup table" },
+                { "DocURL", "http://www.geotools.org/" },
+                { "Version", "1.0" },
+                { "arg0Desc", "The color map lookup table" },
+                { "arg1Desc", "The source nodata, mapped to the color map gaps color" } },
+                new String[] { RenderedRegistryMode.MODE_NAME }, 1,
+                new String[] { "table", "noData" },
+                new Class[] { ColorMapLookupTable.class, Range.class },
+                new Object[] { NO_PARAMETER_DEFAULT, null },
+                null);
+    }
+
+    @Override
+    protected boolean validateSources(String modeName, ParameterBlock param,
+            StringBuffer message) {
+        if (!super.validateSources(modeName, param, message)) {
+            return false;
+        }
+        return param.getSource(0) instanceof RenderedImage;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PointOpImage;
+
+/**
+ * Applies a {@link ColorMapLookupTable} to the first band of the source image, producing a
+ * paletted image. Being a point operation, tiles are computed independently, and in parallel when
+ * the tile scheduler is asked for multiple tiles.
+ */
+class ColorMapLookupOpImage extends PointOpImage {
+
+    private final ColorMapLookupTable table;
+
+    private final boolean hasNoData;
+
+    private final double noDataMin;
+
+    private final double noDataMax;
+
+    private final boolean noDataMinIncluded;
+
+    private final boolean noDataMaxIncluded;
+
+    ColorMapLookupOpImage(RenderedImage source, ColorMapLookupTable table, Range noData,
+            ImageLayout layout, Map<?, ?> configuration) {
+        super(source, buildLayout(source, table, layout), configuration, true);
+        this.table = table;
+        // the range contains methods are type specific, work on doubles instead
+        this.hasNoData = noData != null;
+        this.noDataMin = noData != null ? noData.getMin().doubleValue() : Double.NaN;
+        this.noDataMax = noData != null ? noData.getMax().doubleValue() : Double.NaN;
+        this.noDataMinIncluded = noData != null && noData.isMinIncluded();
+        this.noDataMaxIncluded = noData != null && noData.isMaxIncluded();
+    }
+
+    private static ImageLayout buildLayout(RenderedImage source, ColorMapLookupTable table,
+            ImageLayout layout) {
+        final ImageLayout result = layout != null ? (ImageLayout) layout.clone()
+                : new ImageLayout(source);
+        final IndexColorModel icm = table.getColorModel();
+        final int tileWidth = result.getTileWidth(source);
+        final int tileHeight = result.getTileHeight(source);
+        result.setColorModel(icm);
+        result.setSampleModel(icm.createCompatibleSampleModel(tileWidth, tileHeight));
+        return result;
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        final Raster source = sources[0];
+        final int x = destRect.x;
+        final int width = destRect.width;
+        final int[] indexes = new int[width];
+        final int dataType = source.getSampleModel().getDataType();
+        if (dataType == DataBuffer.TYPE_FLOAT || dataType == DataBuffer.TYPE_DOUBLE) {
+            final double[] samples = new double[width];
+            for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+                source.getSamples(x, y, width, 1, 0, samples);
+                for (int i = 0; i < width; i++) {
+                    final double value = samples[i];
+                    if (hasNoData && isNoData(value)) {
+                        indexes[i] = table.gapsIndex;
+                    } else {
+                        indexes[i] = table.lookup(value);
+                    }
+                }
+                dest.setSamples(x, y, width, 1, 0, indexes);
+            }
+        } else {
+            final int[] samples = new int[width];
+            for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+                source.getSamples(x, y, width, 1, 0, samples);
+                for (int i = 0; i < width; i++) {
+                    final int value = samples[i];
+                    if (hasNoData && isNoData(value)) {
+                        indexes[i] = table.gapsIndex;
+                    } else {
+                        indexes[i] = table.lookup(value);
+                    }
+                }
+                dest.setSamples(x, y, width, 1, 0, indexes);
+            }
+        }
+    }
+
+    private boolean isNoData(double value) {
+        if (value != value) {
+            return noDataMin != noDataMin || noDataMax != noDataMax;
+        }
+        return (noDataMinIncluded ? value >= noDataMin : value > noDataMin)
+                && (noDataMaxIncluded ? value <= noDataMax : value < noDataMax);
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import it.geosolutions.jaiext.classifier.LinearColorMap;
+import it.geosolutions.jaiext.classifier.LinearColorMapElement;
+import it.geosolutions.jaiext.piecewise.TransformationException;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * A {@link LinearColorMap} compiled into a dense lookup table from sample values to palette
+ * indexes, so that the color map can be applied without evaluating the piecewise transform on
+ * each pixel.
+ * <p>
+ * For integral data the table has one entry per value between the smallest and largest breakpoint
+ * of the color map, so the lookup is exact. For floating point data the same range is split in
+ * bins of uniform width, each one mapped to the palette index of its center. The bin width is
+ * chosen so that, inside the ramp segments, the palette index error stays below the
+ * {@link #MAX_ERROR_KEY configurable bound} (half a palette entry by default). Bins containing a
+ * breakpoint (the limits of the color map elements, and the values to be preserved) are instead
+ * evaluated exactly for each pixel, so that intervals and single values are classified as they
+ * would be by the color map itself. The table entries are computed on first use.
+ * <p>
+ * Values below the smallest breakpoint and above the largest one all map to the same color (the
+ * color map is constant there), NaN is mapped to the palette index the color map returns for it.
+ */
+public final class ColorMapLookupTable {
+
+    static final Logger LOGGER = Logging.getLogger(ColorMapLookupTable.class);
+
+    /**
+     * System variable enabling or disabling the lookup table fast path (enabled by default)
+     */
+    public static final String ENABLED_KEY = "org.geotools.renderer.colormap.lut";
+
+    /**
+     * System variable with the maximum palette index error allowed for floating point data,
+     * inside ramp segments
+     */
+    public static final String MAX_ERROR_KEY = "org.geotools.renderer.colormap.lut.maxError";
+
+    static final double DEFAULT_MAX_ERROR = 0.5;
+
+    /** The largest table that will be built */
+    static final int MAX_TABLE_SIZE = 1 << 18;
+
+    /** Minimum number of bins per breakpoint, for floating point data */
+    static final int BINS_PER_BREAKPOINT = 64;
+
+    /** Marks the bins that need to be evaluated exactly */
+    static final int EXACT = -1;
+
+    /** Marks the bins that have not been computed yet */
+    static final int UNSET = -2;
+
+    static final boolean ENABLED = Boolean.valueOf(System.getProperty(ENABLED_KEY, "true"));
+
+    static final double MAX_ERROR;
+
+    static {
+        double maxError = DEFAULT_MAX_ERROR;
+        final String prop = System.getProperty(MAX_ERROR_KEY);
+        if (prop != null) {
+            try {
+                maxError = Double.parseDouble(prop);
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Invalid value for " + MAX_ERROR_KEY + ": " + prop
+                        + ", using the default " + DEFAULT_MAX_ERROR, e);
+            }
+        }
+        MAX_ERROR = maxError > 0 ? maxError : DEFAULT_MAX_ERROR;
+    }
+
+    final LinearColorMap colorMap;
+
+    final boolean integral;
+
+    final double offset;
+
+    final double scale;
+
+    final int[] table;
+
+    final int belowIndex;
+
+    final int aboveIndex;
+
+    final int nanIndex;
+
+    final int gapsIndex;
+
+    private ColorMapLookupTable(LinearColorMap colorMap, boolean integral, double offset,
+            double scale, int[] table, double below, double above) {
+        this.colorMap = colorMap;
+        this.integral = integral;
+        this.offset = offset;
+        this.scale = scale;
+        this.table = table;
+        this.gapsIndex = colorMap.hasGaps() ? (int) Math.round(colorMap.getDefaultValue()) : 0;
+        this.belowIndex = evaluate(below);
+        this.aboveIndex = evaluate(above);
+        this.nanIndex = evaluate(Double.NaN);
+    }
+
+    /**
+     * Compiles the color map for data of the given type, using the default maximum error
+     *
+     * @see #create(LinearColorMap, int, double[], double)
+     */
+    static ColorMapLookupTable create(LinearColorMap colorMap, int dataType,
+            double[] preservedValues) {
+        return create(colorMap, dataType, preservedValues, MAX_ERROR);
+    }
+
+    /**
+     * Compiles the color map for data of the given type
+     *
+     * @param colorMap The color map
+     * @param dataType The {@link DataBuffer} type of the data the color map will be applied to
+     * @param preservedValues The values to be preserved by the color map, if any
+     * @param maxError The maximum palette index error for floating point data
+     * @return The lookup table, or null if the color map cannot be compiled into a table of
+     *         reasonable size
+     */
+    static ColorMapLookupTable create(LinearColorMap colorMap, int dataType,
+            double[] preservedValues, double maxError) {
+        // collect the breakpoints, and the maximum bin size satisfying the error bound
+        final List<Double> breakpoints = new ArrayList<Double>();
+        double maxStep = Double.POSITIVE_INFINITY;
+        for (LinearColorMapElement element : colorMap.getDomainElements()) {
+            final double inMin = element.getInputMinimum();
+            final double inMax = element.getInputMaximum();
+            addBreakpoint(breakpoints, inMin);
+            addBreakpoint(breakpoints, inMax);
+            final double span = Math.abs(element.getOutputMaximum()
+                    - element.getOutputMinimum());
+            if (span > 0 && !Double.isInfinite(inMin) && !Double.isInfinite(inMax)) {
+                maxStep = Math.min(maxStep, maxError * (inMax - inMin) / span);
+            }
+        }
+        if (preservedValues != null) {
+            for (double value : preservedValues) {
+                addBreakpoint(breakpoints, value);
+            }
+        }
+        if (breakpoints.isEmpty()) {
+            return null;
+        }
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (double b : breakpoints) {
+            lo = Math.min(lo, b);
+            hi = Math.max(hi, b);
+        }
+        // the color map is constant outside of the breakpoints range
+        final double margin = Math.max(1, Math.max(Math.abs(lo), Math.abs(hi)));
+
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+        case DataBuffer.TYPE_INT: {
+            // one entry per value, exact lookup
+            final long first = Math.max(getMinimum(dataType), (long) Math.floor(lo));
+            final long last = Math.min(getMaximum(dataType), (long) Math.ceil(hi));
+            final long size = last - first + 1;
+            if (size <= 0 || size > MAX_TABLE_SIZE) {
+                return null;
+            }
+            final int[] table = new int[(int) size];
+            Arrays.fill(table, UNSET);
+            return new ColorMapLookupTable(colorMap, true, first, 1, table, first - 1, last + 1);
+        }
+        case DataBuffer.TYPE_FLOAT:
+        case DataBuffer.TYPE_DOUBLE: {
+            double step = maxStep;
+            if (hi > lo) {
+                step = Math.min(step, (hi - lo) / (BINS_PER_BREAKPOINT * breakpoints.size()));
+            } else if (Double.isInfinite(step)) {
+                step = 1;
+            }
+            final double size = Math.floor((hi - lo) / step) + 1;
+            if (!(step > 0) || size > MAX_TABLE_SIZE) {
+                return null;
+            }
+            final int[] table = new int[(int) size];
+            Arrays.fill(table, UNSET);
+            final double scale = 1 / step;
+            // the bins around the breakpoints are evaluated exactly, neighbors included to
+            // account for rounding errors
+            for (double b : breakpoints) {
+                final int bin = (int) Math.floor((b - lo) * scale);
+                for (int i = Math.max(0, bin - 1); i <= Math.min(table.length - 1, bin + 1); i++) {
+                    table[i] = EXACT;
+                }
+            }
+            return new ColorMapLookupTable(colorMap, false, lo, scale, table, lo - margin, hi
+                    + margin);
+        }
+        default:
+            return null;
+        }
+    }
+
+    private static void addBreakpoint(List<Double> breakpoints, double value) {
+        if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+            breakpoints.add(value);
+        }
+    }
+
+    private static long getMinimum(int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+        case DataBuffer.TYPE_USHORT:
+            return 0;
+        case DataBuffer.TYPE_SHORT:
+            return Short.MIN_VALUE;
+        default:
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static long getMaximum(int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return 255;
+        case DataBuffer.TYPE_USHORT:
+            return 65535;
+        case DataBuffer.TYPE_SHORT:
+            return Short.MAX_VALUE;
+        default:
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The color model of the color map
+     */
+    public IndexColorModel getColorModel() {
+        return (IndexColorModel) colorMap.getColorModel();
+    }
+
+    /**
+     * The palette index the color map uses for values it cannot classify
+     */
+    public int getGapsIndex() {
+        return gapsIndex;
+    }
+
+    /**
+     * Returns the palette index of an integral value
+     */
+    public int lookup(int value) {
+        if (!integral) {
+            return lookup((double) value);
+        }
+        final long i = (long) value - (long) offset;
+        if (i < 0) {
+            return belowIndex;
+        } else if (i >= table.length) {
+            return aboveIndex;
+        }
+        int index = table[(int) i];
+        if (index == UNSET) {
+            // concurrent computations of the same entry are harmless, they give the same result
+            index = evaluate(value);
+            table[(int) i] = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the palette index of a value
+     */
+    public int lookup(double value) {
+        if (value != value) {
+            return nanIndex;
+        }
+        if (integral) {
+            // only integral values can show up in integral data
+            return lookup((int) value);
+        }
+        final double position = (value - offset) * scale;
+        if (position < 0) {
+            return belowIndex;
+        } else if (position >= table.length) {
+            return aboveIndex;
+        }
+        final int i = (int) position;
+        int index = table[i];
+        if (index == EXACT) {
+            return evaluate(value);
+        } else if (index == UNSET) {
+            index = evaluate(offset + (i + 0.5) / scale);
+            table[i] = index;
+        }
+        return index;
+    }
+
+    /**
+     * Evaluates the color map on the given value
+     */
+    int evaluate(double value) {
+        try {
+            return (int) Math.round(colorMap.transform(value));
+        } catch (TransformationException e) {
+            return gapsIndex;
+        } catch (IllegalArgumentException e) {
+            return gapsIndex;
+        }
+    }
+
+    /**
+     * The number of entries in the table
+     */
+    int size() {
+        return table.length;
+    }
+
+    @Override
+    public String toString() {
+        return "ColorMapLookupTable[integral=" + integral + ", offset=" + offset + ", step="
+                + (1 / scale) + ", size=" + table.length + "]";
+    }
+}
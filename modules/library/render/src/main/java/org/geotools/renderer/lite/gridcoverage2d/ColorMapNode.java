@@ -20,9 +20,11 @@ import java.awt.Color;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.media.jai.JAI;
 import javax.media.jai.RenderedOp;
 
 import org.geotools.coverage.GridSampleDimension;
@@ -48,6 +50,7 @@ import it.geosolutions.jaiext.classifier.LinearColorMap;
 import it.geosolutions.jaiext.classifier.LinearColorMapElement;
 import it.geosolutions.jaiext.piecewise.Domain1D;
 import it.geosolutions.jaiext.range.NoDataContainer;
+import it.geosolutions.jaiext.range.RangeFactory;
 
 /**
  * This           {@link CoverageProcessingNode}           is responsible for visiting the supplied          {@link ColorMapTransform}           and applying it to the source           {@link GridCoverage2D}          . <p> <strong>What we support and how do we implement it</strong> <p> A ColorMapTransform is created in order to map categories to colors on a single band coverage (or on the visible band of multiband coverage). <p> In this implementation we allow users to use either 256 or 65536 colors via the creation of a paletted image with s suitable palette derived from the single           {@link ColorMapEntry}           that make up the           {@link ColorMapTransform}          .
@@ -97,6 +100,15 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
      */
 	private boolean extendedColors;
 
+	/**
+	 * The values preserved by the color map, used to compile it into a lookup table
+	 */
+	private double[] preservedValues;
+
+	static {
+	    ColorMapLookupDescriptor.register();
+	}
+
 	/**
 	 * Visits the provided {@link ColorMapTransform} and build up a {@link Domain1D}
 	 * for later creation of a palette rendering for this coverage.
@@ -183,6 +195,7 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 			// Create the list of no data colorMapTransform domain elements. Note that all of them 
 			//
 			// /////////////////////////////////////////////////////////////////////
+			preservedValues = candidateNoDataValues;
 			if(candidateNoDataValues!=null&&candidateNoDataValues.length>0){
 				final LinearColorMapElement noDataCategories[] = new LinearColorMapElement[candidateNoDataValues.length];
 				for (int i = 0; i < noDataCategories.length; i++) {
@@ -291,7 +304,27 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 	        w.setROI(CoverageUtilities.getROIProperty(sourceCoverage));
 	        NoDataContainer noDataProperty = CoverageUtilities.getNoDataProperty(sourceCoverage);
                 w.setNoData(noDataProperty != null ? noDataProperty.getAsRange() : null);
-	        w.classify(colorMapTransform, null);
+	        // fast path, when there is no ROI compile the color map into a lookup table
+	        ColorMapLookupTable table = null;
+	        if (ColorMapLookupTable.ENABLED && w.getROI() == null) {
+	            final int dataType = w.getRenderedImage().getSampleModel().getDataType();
+	            table = ColorMapLookupTable.create(colorMapTransform, dataType, preservedValues);
+	        }
+	        if (table != null) {
+	            final boolean noDataNeeded = w.isNoDataNeeded();
+	            final ParameterBlock pb = new ParameterBlock();
+	            pb.setSource(w.getRenderedImage(), 0);
+	            pb.set(table, 0);
+	            pb.set(w.getNoData(), 1);
+	            w.setImage(JAI.create(ColorMapLookupDescriptor.OPERATION_NAME, pb, w.getRenderingHints()));
+	            // same nodata handling as the classification
+	            if (noDataNeeded && colorMapTransform.hasGaps()) {
+	                w.setNoData(RangeFactory.create(colorMapTransform.getDefaultValue(),
+	                        colorMapTransform.getDefaultValue()));
+	            }
+	        } else {
+	            w.classify(colorMapTransform, null);
+	        }
 	        final RenderedOp classified = w.getRenderedOperation();//JAI.create(RasterClassifierOpImage.OPERATION_NAME,pbj);
 
 	        ////
@@ -0,0 +1,473 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.media.jai.PlanarImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.parameter.Parameter;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.resources.image.ImageUtilities;
+import org.geotools.util.Utilities;
+import org.geotools.util.logging.Logging;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Reads ahead the areas surrounding the last rendered one, so that a panning client finds the
+ * next map area already read and its tiles already computed in the JAI tile cache.
+ * <p>
+ * After each render off a {@link GridCoverage2DReader}, the {@link GridCoverageRenderer} asks the
+ * prefetcher to read, in background threads, the ring of eight areas of the same size and
+ * resolution surrounding each area it just read, while it goes on rendering the current one. The
+ * next render claims a prefetched coverage whose read area matches the one it needs, instead of
+ * reading it synchronously, waiting for it if the read is still in progress. At the same time the
+ * reads of the previous ring that are not part of the new ring are cancelled, and their coverages
+ * disposed.
+ * <p>
+ * The prefetcher is opt-in, it's enabled by passing it to the renderer with the
+ * {@link #PREFETCHER} hint. Since each render cancels the prefetching triggered by the previous
+ * one, a prefetcher should be dedicated to a single client (e.g., a map pane), sharing it among
+ * unrelated clients would have them cancel each other work. The number of concurrent reads is
+ * bounded by the size of the thread pool.
+ */
+public class CoveragePrefetcher {
+
+    private static final Logger LOGGER = Logging.getLogger(CoveragePrefetcher.class);
+
+    /**
+     * The rendering hint used to pass a prefetcher to the {@link GridCoverageRenderer}
+     */
+    public static final Hints.Key PREFETCHER = new Hints.Key(CoveragePrefetcher.class);
+
+    /**
+     * Relative tolerance used to match the read envelopes, the neighbour areas are computed
+     * in a different way than the ones the next request will read
+     */
+    static final double EPS = 1e-6;
+
+    static final int QUEUED = 0;
+
+    static final int RUNNING = 1;
+
+    static final int DONE = 2;
+
+    static final int CANCELLED = 3;
+
+    static final int CLAIMED = 4;
+
+    /**
+     * A read of a neighbour area
+     */
+    final class Prefetch implements Runnable {
+        final GridCoverage2DReader reader;
+
+        final GeneralParameterValue[] params;
+
+        final GridGeometry2D gridGeometry;
+
+        /** guarded by this */
+        int state = QUEUED;
+
+        /** guarded by this */
+        GridCoverage2D coverage;
+
+        Prefetch(GridCoverage2DReader reader, GeneralParameterValue[] params,
+                GridGeometry2D gridGeometry) {
+            this.reader = reader;
+            this.params = params;
+            this.gridGeometry = gridGeometry;
+        }
+
+        public void run() {
+            synchronized (this) {
+                if (state != QUEUED) {
+                    return;
+                }
+                state = RUNNING;
+            }
+            GridCoverage2D result = null;
+            try {
+                result = reader.read(readParameters(params, gridGeometry));
+                if (result != null) {
+                    computeTiles(result);
+                }
+            } catch (Throwable t) {
+                LOGGER.log(Level.FINE, "Failed to prefetch " + gridGeometry.getEnvelope2D(), t);
+                dispose(result);
+                result = null;
+            }
+
+            boolean cancelled;
+            synchronized (this) {
+                cancelled = state == CANCELLED;
+                if (!cancelled) {
+                    coverage = result;
+                    state = DONE;
+                }
+                notifyAll();
+            }
+            if (cancelled) {
+                dispose(result);
+            }
+        }
+
+        /**
+         * Computes the tiles so that they end up in the tile cache, giving up as soon as the
+         * prefetch gets cancelled
+         */
+        private void computeTiles(GridCoverage2D coverage) {
+            RenderedImage image = coverage.getRenderedImage();
+            int maxTileX = image.getMinTileX() + image.getNumXTiles();
+            int maxTileY = image.getMinTileY() + image.getNumYTiles();
+            for (int y = image.getMinTileY(); y < maxTileY; y++) {
+                for (int x = image.getMinTileX(); x < maxTileX; x++) {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    image.getTile(x, y);
+                }
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        /**
+         * Returns the prefetched coverage, waiting for it if being read, or null if the read did
+         * not start yet, or failed
+         */
+        GridCoverage2D claim() throws InterruptedException {
+            synchronized (this) {
+                if (state == QUEUED) {
+                    state = CANCELLED;
+                    return null;
+                }
+                while (state == RUNNING) {
+                    wait();
+                }
+                if (state == DONE) {
+                    state = CLAIMED;
+                    return coverage;
+                }
+                return null;
+            }
+        }
+
+        void cancel() {
+            GridCoverage2D disposable = null;
+            synchronized (this) {
+                if (state == QUEUED || state == RUNNING) {
+                    state = CANCELLED;
+                } else if (state == DONE) {
+                    state = CANCELLED;
+                    disposable = coverage;
+                    coverage = null;
+                }
+            }
+            dispose(disposable);
+        }
+
+        boolean matches(GridCoverage2DReader reader, GeneralParameterValue[] params,
+                GridGeometry2D gridGeometry) {
+            return this.reader == reader && sameParameters(this.params, params)
+                    && sameArea(this.gridGeometry, gridGeometry);
+        }
+    }
+
+    final ExecutorService executor;
+
+    /** The prefetches of the last ring, guarded by this */
+    List<Prefetch> pending = new ArrayList<Prefetch>();
+
+    /**
+     * Creates a prefetcher running at most the specified number of concurrent reads
+     */
+    public CoveragePrefetcher(int maxConcurrentReads) {
+        if (maxConcurrentReads <= 0) {
+            throw new IllegalArgumentException("The max number of concurrent reads must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(maxConcurrentReads, new ThreadFactory() {
+            final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CoveragePrefetcher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the prefetched coverage for the specified reader, parameters and read area, or null
+     * if it was not prefetched. The coverage is handed out only once.
+     */
+    GridCoverage2D claim(GridCoverage2DReader reader, GeneralParameterValue[] params,
+            GridGeometry2D gridGeometry) {
+        Prefetch match;
+        synchronized (this) {
+            match = find(pending, reader, params, gridGeometry, true);
+        }
+        if (match == null) {
+            return null;
+        }
+        try {
+            GridCoverage2D coverage = match.claim();
+            if (LOGGER.isLoggable(Level.FINE) && coverage != null) {
+                LOGGER.fine("Using prefetched coverage for " + gridGeometry.getEnvelope2D());
+            }
+            return coverage;
+        } catch (InterruptedException e) {
+            match.cancel();
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Cancels the previous prefetches, and starts reading the ring of areas surrounding the
+     * specified ones. Prefetches of the previous ring that are part of the new one are kept.
+     *
+     * @param reader The reader
+     * @param params The read parameters, other than the grid geometry
+     * @param readGeometries The areas read by the current request
+     * @param mapArea The size of the map, used to compute the neighbour areas
+     */
+    void prefetch(GridCoverage2DReader reader, GeneralParameterValue[] params,
+            Collection<GridGeometry2D> readGeometries, Rectangle mapArea) {
+        final GeneralParameterValue[] paramsCopy = params != null ? params.clone() : null;
+        List<GridGeometry2D> neighbours = new ArrayList<GridGeometry2D>();
+        for (GridGeometry2D gg : readGeometries) {
+            neighbours.addAll(getNeighbours(gg, mapArea));
+        }
+
+        List<Prefetch> scheduled = new ArrayList<Prefetch>();
+        List<Prefetch> previous;
+        synchronized (this) {
+            previous = pending;
+            for (GridGeometry2D neighbour : neighbours) {
+                if (find(scheduled, reader, paramsCopy, neighbour, false) == null) {
+                    Prefetch prefetch = find(previous, reader, paramsCopy, neighbour, true);
+                    if (prefetch == null) {
+                        prefetch = new Prefetch(reader, paramsCopy, neighbour);
+                    }
+                    scheduled.add(prefetch);
+                }
+            }
+            pending = scheduled;
+        }
+
+        for (Prefetch prefetch : previous) {
+            prefetch.cancel();
+        }
+        for (Prefetch prefetch : scheduled) {
+            boolean queued;
+            synchronized (prefetch) {
+                queued = prefetch.state == QUEUED;
+            }
+            if (queued) {
+                executor.execute(prefetch);
+            }
+        }
+    }
+
+    private Prefetch find(List<Prefetch> prefetches, GridCoverage2DReader reader,
+            GeneralParameterValue[] params, GridGeometry2D gridGeometry, boolean remove) {
+        for (Iterator<Prefetch> it = prefetches.iterator(); it.hasNext();) {
+            Prefetch prefetch = it.next();
+            if (prefetch.matches(reader, params, gridGeometry)) {
+                if (remove) {
+                    it.remove();
+                }
+                return prefetch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the eight areas surrounding the specified one, shifted by the size of the map
+     */
+    List<GridGeometry2D> getNeighbours(GridGeometry2D gg, Rectangle mapArea) {
+        List<GridGeometry2D> result = new ArrayList<GridGeometry2D>();
+        MathTransform gridToCRS = gg.getGridToCRS2D(PixelInCell.CELL_CORNER);
+        if (!(gridToCRS instanceof AffineTransform)) {
+            return result;
+        }
+        GridEnvelope2D range = gg.getGridRange2D();
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                AffineTransform shifted = new AffineTransform((AffineTransform) gridToCRS);
+                shifted.translate(dx * mapArea.getWidth(), dy * mapArea.getHeight());
+                result.add(new GridGeometry2D(range, PixelInCell.CELL_CORNER,
+                        new AffineTransform2D(shifted), gg.getCoordinateReferenceSystem(), null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cancels all the pending prefetches and stops the prefetching threads
+     */
+    public void dispose() {
+        List<Prefetch> previous;
+        synchronized (this) {
+            previous = pending;
+            pending = new ArrayList<Prefetch>();
+        }
+        for (Prefetch prefetch : previous) {
+            prefetch.cancel();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * The number of prefetches of the last ring not claimed yet
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    static GeneralParameterValue[] readParameters(GeneralParameterValue[] params,
+            GridGeometry2D gridGeometry) {
+        final String name = AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().toString();
+        List<GeneralParameterValue> result = new ArrayList<GeneralParameterValue>();
+        if (params != null) {
+            for (GeneralParameterValue param : params) {
+                if (!param.getDescriptor().getName().toString().equalsIgnoreCase(name)) {
+                    result.add(param);
+                }
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final Parameter<GridGeometry2D> readGGParam = (Parameter<GridGeometry2D>) AbstractGridFormat.READ_GRIDGEOMETRY2D
+                .createValue();
+        readGGParam.setValue(gridGeometry);
+        result.add(readGGParam);
+        return result.toArray(new GeneralParameterValue[result.size()]);
+    }
+
+    /**
+     * Compares the read parameters, other than the grid geometry
+     */
+    static boolean sameParameters(GeneralParameterValue[] p1, GeneralParameterValue[] p2) {
+        return Utilities.deepEquals(parameterValues(p1), parameterValues(p2));
+    }
+
+    private static Map<String, Object> parameterValues(GeneralParameterValue[] params) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        if (params == null) {
+            return result;
+        }
+        final String name = AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().toString();
+        for (GeneralParameterValue param : params) {
+            String paramName = param.getDescriptor().getName().toString();
+            if (!paramName.equalsIgnoreCase(name)) {
+                Object value = param instanceof ParameterValue ? ((ParameterValue<?>) param)
+                        .getValue() : param;
+                result.put(paramName, new ValueHolder(value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares parameter values deeply, so that array values (e.g., band selections) match
+     */
+    static final class ValueHolder {
+        final Object value;
+
+        ValueHolder(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ValueHolder
+                    && Utilities.deepEquals(value, ((ValueHolder) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Utilities.deepHashCode(value);
+        }
+    }
+
+    /**
+     * Checks the two grid geometries cover the same area at the same resolution, up to
+     * numerical noise
+     */
+    static boolean sameArea(GridGeometry2D gg1, GridGeometry2D gg2) {
+        if (gg1 == null || gg2 == null) {
+            return false;
+        }
+        if (!gg1.getGridRange2D().equals(gg2.getGridRange2D())
+                || !CRS.equalsIgnoreMetadata(gg1.getCoordinateReferenceSystem(),
+                        gg2.getCoordinateReferenceSystem())) {
+            return false;
+        }
+        Envelope2D e1 = gg1.getEnvelope2D();
+        Envelope2D e2 = gg2.getEnvelope2D();
+        double tx = e1.getWidth() * EPS;
+        double ty = e1.getHeight() * EPS;
+        return Math.abs(e1.getMinX() - e2.getMinX()) <= tx
+                && Math.abs(e1.getMaxX() - e2.getMaxX()) <= tx
+                && Math.abs(e1.getMinY() - e2.getMinY()) <= ty
+                && Math.abs(e1.getMaxY() - e2.getMaxY()) <= ty;
+    }
+
+    static void dispose(GridCoverage2D coverage) {
+        if (coverage == null) {
+            return;
+        }
+        RenderedImage image = coverage.getRenderedImage();
+        coverage.dispose(true);
+        if (image instanceof PlanarImage) {
+            ImageUtilities.disposePlanarImageChain((PlanarImage) image);
+        }
+    }
+}
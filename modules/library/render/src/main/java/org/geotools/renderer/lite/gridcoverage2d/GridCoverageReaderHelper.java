@@ -90,6 +90,10 @@ public class GridCoverageReaderHelper {
 
     private boolean sameCRS;
 
+    private CoveragePrefetcher prefetcher;
+
+    private List<GridGeometry2D> readGeometries = new ArrayList<GridGeometry2D>();
+
     public GridCoverageReaderHelper(GridCoverage2DReader reader, Rectangle mapRasterArea,
             ReferencedEnvelope mapExtent, Interpolation interpolation) throws FactoryException, IOException {
         this.reader = reader;
@@ -142,6 +146,21 @@ public class GridCoverageReaderHelper {
         return mapExtent;
     }
 
+    /**
+     * Sets the prefetcher whose coverages are used, when available, instead of reading from the
+     * reader
+     */
+    public void setPrefetcher(CoveragePrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Returns the grid geometries of the areas read so far, intersecting the coverage
+     */
+    public List<GridGeometry2D> getReadGeometries() {
+        return Collections.unmodifiableList(readGeometries);
+    }
+
     private void applyReadGutter(GridEnvelope2D gridRange) {
         gridRange.setBounds(gridRange.x - DEFAULT_PADDING, gridRange.y - DEFAULT_PADDING,
                 gridRange.width + DEFAULT_PADDING * 2, gridRange.height + DEFAULT_PADDING * 2);
@@ -484,6 +503,15 @@ public class GridCoverageReaderHelper {
                     e);
         }
 
+        // use the coverage read ahead while rendering the previous request, if any
+        readGeometries.add(gg);
+        if (prefetcher != null) {
+            GridCoverage2D prefetched = prefetcher.claim(reader, readParams, gg);
+            if (prefetched != null) {
+                return prefetched;
+            }
+        }
+
         // setup the grid geometry param that will be passed to the reader
         final Parameter<GridGeometry2D> readGGParam = (Parameter<GridGeometry2D>) AbstractGridFormat.READ_GRIDGEOMETRY2D
                 .createValue();
@@ -781,6 +781,9 @@ public final class GridCoverageRenderer {
         // read all the coverages we need, cut and whatnot
         GridCoverageReaderHelper rh = new GridCoverageReaderHelper(reader, destinationSize,
                 ReferencedEnvelope.reference(destinationEnvelope), interpolation);
+        CoveragePrefetcher prefetcher = (CoveragePrefetcher) hints
+                .get(CoveragePrefetcher.PREFETCHER);
+        rh.setPrefetcher(prefetcher);
         // are we dealing with a remote service wrapped in a reader, one that can handle reprojection
         // by itself?
         if(GridCoverageReaderHelper.isReprojectingReader(reader)) {
@@ -800,6 +803,11 @@ public final class GridCoverageRenderer {
             coverages = rh.readCoverages(readParams, handler, gridCoverageFactory);
         }
 
+        // read ahead the surrounding areas while we go on rendering the current one
+        if (prefetcher != null) {
+            prefetcher.prefetch(reader, readParams, rh.getReadGeometries(), destinationSize);
+        }
+
         // check if we have to reproject
         boolean reprojectionNeeded = false;
         for (GridCoverage2D coverage : coverages) {
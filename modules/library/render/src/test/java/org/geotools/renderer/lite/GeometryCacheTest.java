@@ -0,0 +1,196 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Tests the layer geometry cache, and checks the rendering output does not change when using it
+ */
+public class GeometryCacheTest {
+
+    private static final long TIME = 2000;
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    GeometryFactory gf = new GeometryFactory();
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        GeometryCache cache = new GeometryCache(100);
+        Expression geom = FF.property("the_geom");
+        Geometry source = source(5);
+        LiteShape2 shape = line(10);
+        cache.put(new GeometryCache.Key("f.1", geom, DefaultGeographicCRS.WGS84), source, shape);
+
+        assertSame(shape, cache.get(new GeometryCache.Key("f.1", geom, DefaultGeographicCRS.WGS84),
+                source));
+        assertSame(shape, cache.get(new GeometryCache.Key("f.1", FF.property("the_geom"),
+                DefaultGeographicCRS.WGS84), source(5)));
+        assertNull(cache.get(new GeometryCache.Key("f.2", geom, DefaultGeographicCRS.WGS84),
+                source));
+        assertNull(cache.get(new GeometryCache.Key("f.1", FF.property("other"),
+                DefaultGeographicCRS.WGS84), source));
+        assertNull(cache.get(new GeometryCache.Key("f.1", geom, null), source));
+        assertEquals(15, cache.getCoordinates());
+    }
+
+    @Test
+    public void testDifferentSourceGeometry() throws Exception {
+        GeometryCache cache = new GeometryCache(100);
+        GeometryCache.Key key = new GeometryCache.Key("f.1", null, null);
+        cache.put(key, source(5), line(10));
+
+        // same fid, but a different geometry, e.g., a duplicate fid or a generalized one
+        assertNull(cache.get(key, source(4)));
+        Coordinate[] coords = source(5).getCoordinates();
+        coords[0] = new Coordinate(100, 0);
+        assertNull(cache.get(key, gf.createLineString(coords)));
+        assertNotNull(cache.get(key, source(5)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        GeometryCache cache = new GeometryCache(45);
+        GeometryCache.Key k1 = new GeometryCache.Key("f.1", null, null);
+        GeometryCache.Key k2 = new GeometryCache.Key("f.2", null, null);
+        GeometryCache.Key k3 = new GeometryCache.Key("f.3", null, null);
+        GeometryCache.Key k4 = new GeometryCache.Key("f.4", null, null);
+        cache.put(k1, source(5), line(10));
+        cache.put(k2, source(5), line(10));
+        cache.put(k3, source(5), line(10));
+        assertEquals(45, cache.getCoordinates());
+
+        // touch the first, the second becomes the eldest
+        assertNotNull(cache.get(k1, source(5)));
+        cache.put(k4, source(5), line(10));
+        assertEquals(3, cache.size());
+        assertEquals(45, cache.getCoordinates());
+        assertNotNull(cache.get(k1, source(5)));
+        assertNull(cache.get(k2, source(5)));
+        assertNotNull(cache.get(k3, source(5)));
+        assertNotNull(cache.get(k4, source(5)));
+
+        // replacing an entry updates the coordinate count
+        cache.put(k4, source(2), line(5));
+        assertEquals(37, cache.getCoordinates());
+    }
+
+    @Test
+    public void testSkipLargeShapes() throws Exception {
+        GeometryCache cache = new GeometryCache(30);
+        GeometryCache.Key k1 = new GeometryCache.Key("f.1", null, null);
+        cache.put(k1, source(5), line(10));
+        cache.put(new GeometryCache.Key("f.2", null, null), source(5), line(26));
+        assertEquals(1, cache.size());
+        assertEquals(15, cache.getCoordinates());
+        assertNotNull(cache.get(k1, source(5)));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        assertEquals(0, StreamingRenderer.GEOMETRY_CACHE_SIZE_DEFAULT);
+    }
+
+    @Test
+    public void testSameRenderingOutput() throws Exception {
+        File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        try {
+            BufferedImage uncached = render(ds, 0);
+            BufferedImage cached = render(ds, 1000000);
+            RendererBaseTest.showImage("Geometry cache", TIME, cached);
+
+            assertEquals(uncached.getWidth(), cached.getWidth());
+            assertEquals(uncached.getHeight(), cached.getHeight());
+            for (int y = 0; y < uncached.getHeight(); y++) {
+                for (int x = 0; x < uncached.getWidth(); x++) {
+                    assertEquals("Pixel differs at " + x + "," + y, uncached.getRGB(x, y),
+                            cached.getRGB(x, y));
+                }
+            }
+        } finally {
+            ds.dispose();
+        }
+    }
+
+    private BufferedImage render(PropertyDataStore ds, int cacheSize) throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style style = sb.createStyle(sb.createPolygonSymbolizer(Color.GRAY, Color.BLACK, 3));
+        FeatureTypeStyle casing = sb.createFeatureTypeStyle(sb.createLineSymbolizer(Color.RED,
+                1));
+        style.featureTypeStyles().add(casing);
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("buildings"), style));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        // force one scan per feature type style, so that the cache gets used
+        hints.put(StreamingRenderer.OPTIMIZE_FTS_RENDERING_KEY, false);
+        hints.put(StreamingRenderer.GEOMETRY_CACHE_SIZE_KEY, cacheSize);
+        renderer.setRendererHints(hints);
+        try {
+            return RendererBaseTest.renderImage(renderer, new ReferencedEnvelope(0, 20, 0, 10,
+                    DefaultGeographicCRS.WGS84), null);
+        } finally {
+            mc.dispose();
+        }
+    }
+
+    private Geometry source(int points) {
+        Coordinate[] coords = new Coordinate[points];
+        for (int i = 0; i < points; i++) {
+            coords[i] = new Coordinate(i * 2, i);
+        }
+        return gf.createLineString(coords);
+    }
+
+    private LiteShape2 line(int points) throws Exception {
+        Coordinate[] coords = new Coordinate[points];
+        for (int i = 0; i < points; i++) {
+            coords[i] = new Coordinate(i, i);
+        }
+        return new LiteShape2(gf.createLineString(coords), null, null, false);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Font;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the parallel rendering path produces the same output as the sequential one
+ */
+public class ParallelRenderingTest {
+
+    private static final long TIME = 2000;
+
+    PropertyDataStore ds;
+
+    ExecutorService executor;
+
+    ReferencedEnvelope bounds;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        executor = Executors.newFixedThreadPool(2);
+        bounds = new ReferencedEnvelope(0, 20, 0, 10, DefaultGeographicCRS.WGS84);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        ds.dispose();
+    }
+
+    @Test
+    public void testOptimizedFTS() throws Exception {
+        assertSameOutput(true);
+    }
+
+    @Test
+    public void testPlainFTS() throws Exception {
+        assertSameOutput(false);
+    }
+
+    private void assertSameOutput(boolean optimizeFTS) throws Exception {
+        BufferedImage sequential = render(null, optimizeFTS);
+        BufferedImage parallel = render(executor, optimizeFTS);
+        RendererBaseTest.showImage("Parallel rendering", TIME, parallel);
+
+        assertEquals(sequential.getWidth(), parallel.getWidth());
+        assertEquals(sequential.getHeight(), parallel.getHeight());
+        for (int y = 0; y < sequential.getHeight(); y++) {
+            for (int x = 0; x < sequential.getWidth(); x++) {
+                assertEquals("Pixel differs at " + x + "," + y, sequential.getRGB(x, y),
+                        parallel.getRGB(x, y));
+            }
+        }
+    }
+
+    private BufferedImage render(ExecutorService executor, boolean optimizeFTS)
+            throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+
+        // casing and fill in two separate feature type styles, plus a label
+        Style polygons = sb.createStyle(sb.createPolygonSymbolizer(Color.GRAY, Color.BLACK, 3));
+        FeatureTypeStyle polygonFill = sb.createFeatureTypeStyle(
+                sb.createPolygonSymbolizer(sb.createFill(Color.YELLOW, 0.5)));
+        polygonFill.rules().get(0).symbolizers().add(
+                sb.createTextSymbolizer(sb.createFill(Color.BLACK),
+                        new Font[] { sb.createFont("Serif", 10) }, null,
+                        sb.literalExpression("building"), null, null));
+        polygons.featureTypeStyles().add(polygonFill);
+
+        Style lines = sb.createStyle(sb.createLineSymbolizer(Color.BLACK, 6));
+        lines.featureTypeStyles().add(
+                sb.createFeatureTypeStyle(sb.createLineSymbolizer(Color.RED, 2)));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("buildings"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("line"), lines));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("buildings"),
+                sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 1))));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        renderer.setRenderingExecutor(executor);
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        hints.put(StreamingRenderer.OPTIMIZE_FTS_RENDERING_KEY, optimizeFTS);
+        renderer.setRendererHints(hints);
+        try {
+            return RendererBaseTest.renderImage(renderer, bounds, null);
+        } finally {
+            mc.dispose();
+        }
+    }
+}
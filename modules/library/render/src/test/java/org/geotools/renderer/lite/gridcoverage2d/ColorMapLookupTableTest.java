@@ -0,0 +1,176 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import static org.junit.Assert.*;
+
+import it.geosolutions.jaiext.classifier.LinearColorMap;
+import it.geosolutions.jaiext.classifier.LinearColorMap.LinearColorMapType;
+import it.geosolutions.jaiext.piecewise.TransformationException;
+import it.geosolutions.jaiext.range.RangeFactory;
+
+import java.awt.Color;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Random;
+
+import javax.media.jai.JAI;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.ColorMapEntry;
+import org.geotools.styling.ColorMapEntryImpl;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory2;
+
+public class ColorMapLookupTableTest {
+
+    static final double NODATA = -9999;
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    @Test
+    public void testFloatRamp() throws Exception {
+        LinearColorMap colorMap = buildColorMap(LinearColorMapType.TYPE_RAMP, 20, 0, 4000);
+        ColorMapLookupTable table = ColorMapLookupTable.create(colorMap,
+                DataBuffer.TYPE_FLOAT, new double[] { NODATA }, 0.5);
+        assertNotNull(table);
+        assertTrue(table.size() <= ColorMapLookupTable.MAX_TABLE_SIZE);
+
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextDouble() * 5000 - 500;
+            // within a ramp segment, the error is bounded
+            assertEquals(expected(colorMap, value), table.lookup(value), 1);
+        }
+        // the breakpoints and the preserved values are exact
+        for (int i = 0; i < 20; i++) {
+            double value = i * 4000 / 19d;
+            assertEquals(expected(colorMap, value), table.lookup(value));
+        }
+        assertEquals(expected(colorMap, NODATA), table.lookup(NODATA));
+        assertEquals(expected(colorMap, Double.NaN), table.lookup(Double.NaN));
+    }
+
+    @Test
+    public void testFloatIntervals() throws Exception {
+        for (int type : new int[] { LinearColorMapType.TYPE_INTERVALS,
+                LinearColorMapType.TYPE_VALUES }) {
+            LinearColorMap colorMap = buildColorMap(type, 10, 0, 100);
+            ColorMapLookupTable table = ColorMapLookupTable.create(colorMap,
+                    DataBuffer.TYPE_DOUBLE, new double[] { NODATA }, 0.5);
+            assertNotNull(table);
+
+            // no interpolation, classification is exact
+            Random random = new Random(1);
+            for (int i = 0; i < 100000; i++) {
+                double value = random.nextDouble() * 120 - 10;
+                assertEquals(expected(colorMap, value), table.lookup(value));
+            }
+            for (int i = 0; i < 10; i++) {
+                double value = i * 100 / 9d;
+                assertEquals(expected(colorMap, value), table.lookup(value));
+                assertEquals(expected(colorMap, Math.nextUp(value)), table.lookup(Math
+                        .nextUp(value)));
+                assertEquals(expected(colorMap, Math.nextAfter(value, Double.NEGATIVE_INFINITY)),
+                        table.lookup(Math.nextAfter(value, Double.NEGATIVE_INFINITY)));
+            }
+        }
+    }
+
+    @Test
+    public void testIntegral() throws Exception {
+        LinearColorMap colorMap = buildColorMap(LinearColorMapType.TYPE_RAMP, 20, -1000, 3000);
+        ColorMapLookupTable table = ColorMapLookupTable.create(colorMap,
+                DataBuffer.TYPE_SHORT, new double[] { Short.MIN_VALUE });
+        assertNotNull(table);
+        for (int value = Short.MIN_VALUE; value <= Short.MAX_VALUE; value++) {
+            assertEquals(expected(colorMap, value), table.lookup(value));
+        }
+
+        // byte data, exact as well
+        colorMap = buildColorMap(LinearColorMapType.TYPE_INTERVALS, 5, 10, 200);
+        table = ColorMapLookupTable.create(colorMap, DataBuffer.TYPE_BYTE, null);
+        assertNotNull(table);
+        for (int value = 0; value < 256; value++) {
+            assertEquals(expected(colorMap, value), table.lookup(value));
+        }
+    }
+
+    @Test
+    public void testOperation() throws Exception {
+        ColorMapLookupDescriptor.register();
+        LinearColorMap colorMap = buildColorMap(LinearColorMapType.TYPE_RAMP, 20, 0, 4000);
+        ColorMapLookupTable table = ColorMapLookupTable.create(colorMap,
+                DataBuffer.TYPE_FLOAT, new double[] { NODATA });
+
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_FLOAT,
+                32, 32, 1);
+        TiledImage image = new TiledImage(0, 0, 100, 100, 0, 0, sm, null);
+        Random random = new Random(2);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                image.setSample(x, y, 0, x % 10 == 0 ? NODATA : random.nextFloat() * 4000);
+            }
+        }
+
+        ParameterBlock pb = new ParameterBlock();
+        pb.setSource(image, 0);
+        pb.set(table, 0);
+        pb.set(RangeFactory.create(NODATA, NODATA), 1);
+        RenderedImage result = JAI.create(ColorMapLookupDescriptor.OPERATION_NAME, pb, null);
+        assertSame(table.getColorModel(), result.getColorModel());
+        assertEquals(32, result.getTileWidth());
+
+        Raster data = result.getData();
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                double value = image.getSampleDouble(x, y, 0);
+                int expected = value == NODATA ? table.getGapsIndex() : table.lookup(value);
+                assertEquals(expected, data.getSample(x, y, 0));
+            }
+        }
+    }
+
+    private int expected(LinearColorMap colorMap, double value) {
+        try {
+            return (int) Math.round(colorMap.transform(value));
+        } catch (TransformationException e) {
+            return (int) Math.round(colorMap.getDefaultValue());
+        }
+    }
+
+    private LinearColorMap buildColorMap(int type, int entries, double min, double max) {
+        SLDColorMapBuilder builder = new SLDColorMapBuilder();
+        builder.setLinearColorMapType(type).setNumberColorMapEntries(entries)
+                .setColorForValuesToPreserve(new Color(0, 0, 0, 0)).addValueToPreserve(NODATA);
+        for (int i = 0; i < entries; i++) {
+            double quantity = min + i * (max - min) / (entries - 1);
+            int gray = i * 255 / (entries - 1);
+            ColorMapEntry entry = new ColorMapEntryImpl();
+            entry.setColor(ff.literal(String.format("#%02X%02X%02X", gray, 255 - gray, gray)));
+            entry.setQuantity(ff.literal(quantity));
+            entry.setOpacity(ff.literal(1.0));
+            builder.addColorMapEntry(entry);
+        }
+        return builder.buildLinearColorMap();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import static org.junit.Assert.*;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.media.jai.Interpolation;
+
+import org.geotools.TestData;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.parameter.Parameter;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.gridcoverage2d.CoveragePrefetcher.Prefetch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.parameter.GeneralParameterValue;
+
+public class CoveragePrefetcherTest {
+
+    static final Rectangle MAP_AREA = new Rectangle(0, 0, 100, 100);
+
+    final AtomicInteger reads = new AtomicInteger();
+
+    GeoTiffReader reader;
+
+    CoveragePrefetcher prefetcher;
+
+    @Before
+    public void setup() throws IOException {
+        File coverageFile = TestData.copy(this, "geotiff/world.tiff");
+        reader = new GeoTiffReader(coverageFile) {
+            @Override
+            public GridCoverage2D read(GeneralParameterValue[] params) throws IOException {
+                reads.incrementAndGet();
+                return super.read(params);
+            }
+        };
+        prefetcher = new CoveragePrefetcher(2);
+    }
+
+    @After
+    public void close() {
+        prefetcher.dispose();
+        reader.dispose();
+    }
+
+    @Test
+    public void testNeighbours() throws Exception {
+        GridGeometry2D gg = new GridGeometry2D(new GridEnvelope2D(MAP_AREA),
+                new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84));
+        List<GridGeometry2D> neighbours = prefetcher.getNeighbours(gg, MAP_AREA);
+        assertEquals(8, neighbours.size());
+        ReferencedEnvelope ring = new ReferencedEnvelope(DefaultGeographicCRS.WGS84);
+        for (GridGeometry2D neighbour : neighbours) {
+            assertEquals(gg.getGridRange2D(), neighbour.getGridRange2D());
+            Envelope2D envelope = neighbour.getEnvelope2D();
+            assertEquals(10, envelope.getWidth(), 1e-9);
+            assertEquals(10, envelope.getHeight(), 1e-9);
+            assertFalse(CoveragePrefetcher.sameArea(gg, neighbour));
+            ring.expandToInclude(ReferencedEnvelope.reference(envelope));
+        }
+        assertEquals(new ReferencedEnvelope(-10, 20, -10, 20, DefaultGeographicCRS.WGS84), ring);
+
+        // computed differently, but the same area
+        GridGeometry2D east = new GridGeometry2D(new GridEnvelope2D(MAP_AREA),
+                new ReferencedEnvelope(10, 20, 0, 10, DefaultGeographicCRS.WGS84));
+        int matches = 0;
+        for (GridGeometry2D neighbour : neighbours) {
+            if (CoveragePrefetcher.sameArea(east, neighbour)) {
+                matches++;
+            }
+        }
+        assertEquals(1, matches);
+    }
+
+    @Test
+    public void testSameParameters() throws Exception {
+        Parameter<GridGeometry2D> gg1 = (Parameter<GridGeometry2D>) AbstractGridFormat.READ_GRIDGEOMETRY2D
+                .createValue();
+        gg1.setValue(new GridGeometry2D(new GridEnvelope2D(MAP_AREA), new ReferencedEnvelope(0,
+                10, 0, 10, DefaultGeographicCRS.WGS84)));
+        Parameter<int[]> bands1 = (Parameter<int[]>) AbstractGridFormat.BANDS.createValue();
+        bands1.setValue(new int[] { 0, 1 });
+        Parameter<int[]> bands2 = (Parameter<int[]>) AbstractGridFormat.BANDS.createValue();
+        bands2.setValue(new int[] { 0, 1 });
+        Parameter<int[]> bands3 = (Parameter<int[]>) AbstractGridFormat.BANDS.createValue();
+        bands3.setValue(new int[] { 2 });
+
+        // the grid geometry is not considered
+        assertTrue(CoveragePrefetcher.sameParameters(null, new GeneralParameterValue[] { gg1 }));
+        assertTrue(CoveragePrefetcher.sameParameters(new GeneralParameterValue[] { bands1, gg1 },
+                new GeneralParameterValue[] { bands2 }));
+        assertFalse(CoveragePrefetcher.sameParameters(new GeneralParameterValue[] { bands1 },
+                new GeneralParameterValue[] { bands3 }));
+        assertFalse(CoveragePrefetcher.sameParameters(new GeneralParameterValue[] { bands1 },
+                null));
+    }
+
+    @Test
+    public void testPanning() throws Exception {
+        GridCoverageReaderHelper helper = helper(0, 0);
+        assertNotNull(helper.readCoverage(null));
+        assertEquals(1, reads.get());
+        prefetcher.prefetch(reader, null, helper.getReadGeometries(), MAP_AREA);
+        assertEquals(8, prefetcher.getPendingCount());
+        waitForPrefetches(9);
+
+        // pan east, the area has been read already
+        helper = helper(10, 0);
+        GridCoverage2D coverage = helper.readCoverage(null);
+        assertNotNull(coverage);
+        assertEquals(9, reads.get());
+        assertEquals(7, prefetcher.getPendingCount());
+
+        // the next ring reuses the four areas in common with the previous one (the first
+        // request area was not prefetched)
+        prefetcher.prefetch(reader, null, helper.getReadGeometries(), MAP_AREA);
+        assertEquals(8, prefetcher.getPendingCount());
+        waitForPrefetches(13);
+        assertEquals(13, reads.get());
+
+        // different read parameters do not match
+        Parameter<int[]> bands = (Parameter<int[]>) AbstractGridFormat.BANDS.createValue();
+        bands.setValue(new int[] { 0 });
+        helper = helper(20, 10);
+        helper.setPrefetcher(prefetcher);
+        helper.readCoverage(new GeneralParameterValue[] { bands });
+        assertEquals(14, reads.get());
+
+        prefetcher.dispose();
+        assertEquals(0, prefetcher.getPendingCount());
+    }
+
+    private GridCoverageReaderHelper helper(double x, double y) throws Exception {
+        ReferencedEnvelope mapExtent = new ReferencedEnvelope(x, x + 10, y, y + 10,
+                DefaultGeographicCRS.WGS84);
+        GridCoverageReaderHelper helper = new GridCoverageReaderHelper(reader, MAP_AREA,
+                mapExtent, Interpolation.getInstance(Interpolation.INTERP_NEAREST));
+        helper.setPrefetcher(prefetcher);
+        return helper;
+    }
+
+    private void waitForPrefetches(int expectedReads) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < timeout) {
+            boolean done = reads.get() >= expectedReads;
+            synchronized (prefetcher) {
+                for (Prefetch prefetch : prefetcher.pending) {
+                    synchronized (prefetch) {
+                        done &= prefetch.state == CoveragePrefetcher.DONE;
+                    }
+                }
+            }
+            if (done) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Prefetches did not complete in time");
+    }
+}
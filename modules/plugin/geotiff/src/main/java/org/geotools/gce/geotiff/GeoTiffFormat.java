@@ -57,6 +57,8 @@ import org.geotools.data.DataSourceException;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.MapInfoFileReader;
 import org.geotools.factory.Hints;
+import org.geotools.gce.geotiff.range.RangeSource;
+import org.geotools.gce.geotiff.range.RangeSourceImageInputStream;
 import org.geotools.parameter.DefaultParameterDescriptor;
 import org.geotools.parameter.DefaultParameterDescriptorGroup;
 import org.geotools.parameter.ParameterGroup;
@@ -172,7 +174,11 @@ public class GeoTiffFormat extends AbstractGridFormat implements Format {
 					closeMe=false;
 			}
 			// get a stream
-			inputStream = (ImageInputStream) ((o instanceof ImageInputStream) ? o: ImageIO.createImageInputStream(o));
+			if (o instanceof RangeSource) {
+			    inputStream = new RangeSourceImageInputStream((RangeSource) o);
+			} else {
+			    inputStream = (ImageInputStream) ((o instanceof ImageInputStream) ? o: ImageIO.createImageInputStream(o));
+			}
 			if (inputStream == null) {
 				if (LOGGER.isLoggable(Level.FINE))
 					LOGGER.fine("Unable to get an ImageInputStream");
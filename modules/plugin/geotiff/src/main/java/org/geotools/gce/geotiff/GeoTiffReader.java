@@ -98,6 +98,9 @@ import org.geotools.data.MapInfoFileReader;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.WorldFileReader;
 import org.geotools.factory.Hints;
+import org.geotools.gce.geotiff.range.CachingRangeSource;
+import org.geotools.gce.geotiff.range.RangeSource;
+import org.geotools.gce.geotiff.range.RangeSourceImageInputStreamSpi;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.image.ImageWorker;
 import org.geotools.image.io.ImageIOExt;
@@ -147,6 +150,9 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 	/** SPI for creating tiff readers in ImageIO tools */
 	private final static TIFFImageReaderSpi READER_SPI = new TIFFImageReaderSpi();
 
+	/** SPI for creating streams out of {@link RangeSource} inputs */
+	private final static ImageInputStreamSpi RANGE_SOURCE_SPI = new RangeSourceImageInputStreamSpi();
+
 	/** Adapter for the GeoTiff crs. */
 	private GeoTiffMetadata2CRSAdapter gtcs;
 	
@@ -207,6 +213,9 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 			if (input instanceof URL) {
 				final URL sourceURL = (URL) input;
 				source = DataUtilities.urlToFile(sourceURL);
+			} else if (input instanceof RangeSource && !(input instanceof CachingRangeSource)) {
+			    // each read opens a new stream, the cache allows them to share header and tiles
+			    source = new CachingRangeSource((RangeSource) input);
 			}
 
 			closeMe = true;
@@ -223,7 +232,7 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 				inStream = (ImageInputStream) source;
 			else{
 
-			    inStreamSPI = ImageIOExt.getImageInputStreamSPI(source);
+			    inStreamSPI = getInputStreamSpi(source);
 			    if (inStreamSPI == null)
                                 throw new IllegalArgumentException("No input stream for the provided source");
 			    inStream = inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), ImageIO.getCacheDirectory());
@@ -257,7 +266,13 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 			// Coverage name
 			//
 			// /////////////////////////////////////////////////////////////////////
-			coverageName = source instanceof File ? ((File) source).getName(): "geotiff_coverage";
+			if (source instanceof File) {
+			    coverageName = ((File) source).getName();
+			} else if (source instanceof RangeSource) {
+			    coverageName = ((RangeSource) source).getName();
+			} else {
+			    coverageName = "geotiff_coverage";
+			}
 			final int dotIndex = coverageName.lastIndexOf('.');
 			if (dotIndex != -1 && dotIndex != coverageName.length())
 				coverageName = coverageName.substring(0, dotIndex);
@@ -278,6 +293,17 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 		}
 	}
 
+    /**
+     * Looks up the {@link ImageInputStreamSpi} for the given source. {@link RangeSource} inputs
+     * are handled directly, as their SPI is not registered in the ImageIO registry.
+     */
+    static ImageInputStreamSpi getInputStreamSpi(Object source) {
+        if (source instanceof RangeSource) {
+            return RANGE_SOURCE_SPI;
+        }
+        return ImageIOExt.getImageInputStreamSPI(source);
+    }
+
     /**
      * Collect georeferencing information about this geotiff.
      * 
@@ -747,7 +773,7 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
             if (source instanceof ImageInputStream ) {
                     stream =(ImageInputStream) source;
             } else {
-                inStreamSPI = ImageIOExt.getImageInputStreamSPI(source);
+                inStreamSPI = getInputStreamSpi(source);
                 if (inStreamSPI == null) {
                     throw new IllegalArgumentException("No input stream for the provided source");
                 }
@@ -0,0 +1,283 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Wraps a {@link RangeSource} adding a cache, in order to minimize the number of requests sent to
+ * the remote source:
+ * <ul>
+ * <li>The first bytes of the source, where tiled GeoTIFFs organized for range access keep the
+ * header and the image file directories, are fetched once with a single request and kept for the
+ * whole life of the source</li>
+ * <li>The rest of the source is accessed in fixed size blocks, kept in a LRU cache of limited
+ * size</li>
+ * <li>Missing blocks that are adjacent are fetched with a single range request, and so are the
+ * ones separated by small gaps when {@link #prefetch(long[], long[]) prefetching} a set of ranges
+ * (e.g., the tiles needed to satisfy a read)</li>
+ * </ul>
+ */
+public class CachingRangeSource implements RangeSource {
+
+    public static final int DEFAULT_HEADER_SIZE = 16 * 1024;
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_MAX_BLOCKS = 256;
+
+    /**
+     * Maximum number of unneeded blocks fetched to join two ranges in a single request
+     */
+    static final int MAX_GAP_BLOCKS = 1;
+
+    final RangeSource delegate;
+
+    final int headerSize;
+
+    final int blockSize;
+
+    final Map<Long, byte[]> blocks;
+
+    long length = -1;
+
+    byte[] header;
+
+    /**
+     * Creates a caching source with the default header size, block size and cache size
+     */
+    public CachingRangeSource(RangeSource delegate) {
+        this(delegate, DEFAULT_HEADER_SIZE, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS);
+    }
+
+    /**
+     * Creates a caching source
+     *
+     * @param delegate The source being cached
+     * @param headerSize The number of bytes at the beginning of the source that are fetched once
+     *        and cached forever
+     * @param blockSize The size of the cached blocks
+     * @param maxBlocks The maximum number of blocks in the cache
+     */
+    public CachingRangeSource(RangeSource delegate, int headerSize, int blockSize,
+            final int maxBlocks) {
+        if (headerSize < 0 || blockSize <= 0 || maxBlocks <= 0) {
+            throw new IllegalArgumentException("Invalid cache configuration, header size "
+                    + headerSize + ", block size " + blockSize + ", max blocks " + maxBlocks);
+        }
+        this.delegate = delegate;
+        this.headerSize = headerSize;
+        this.blockSize = blockSize;
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = -3207306418985413185L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * The wrapped source
+     */
+    public RangeSource getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public synchronized long getLength() throws IOException {
+        if (length < 0) {
+            length = delegate.getLength();
+        }
+        return length;
+    }
+
+    @Override
+    public void read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (position < 0 || position + length > getLength()) {
+            throw new EOFException("Range " + position + "-" + (position + length)
+                    + " is outside of the source, whose length is " + getLength());
+        }
+        // header section
+        byte[] header = getHeader();
+        if (position < header.length) {
+            int count = (int) Math.min(length, header.length - position);
+            System.arraycopy(header, (int) position, buffer, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+        if (length == 0) {
+            return;
+        }
+
+        // block section
+        long first = position / blockSize;
+        long last = (position + length - 1) / blockSize;
+        Map<Long, byte[]> found = getBlocks(new long[] { first }, new long[] { last }, 0);
+        for (long b = first; b <= last; b++) {
+            byte[] block = found.get(b);
+            long blockStart = b * blockSize;
+            int from = (int) (position - blockStart);
+            int count = Math.min(length, block.length - from);
+            System.arraycopy(block, from, buffer, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Loads in the cache the blocks covering the specified ranges, fetching all the missing ones
+     * with as few requests as possible. Ranges are specified by their start position and length,
+     * and need not be sorted (e.g., the offsets and byte counts of the tiles needed for a read).
+     */
+    public void prefetch(long[] offsets, long[] lengths) throws IOException {
+        if (offsets.length != lengths.length) {
+            throw new IllegalArgumentException("Offsets and lengths must have the same size");
+        }
+        final long sourceLength = getLength();
+        final int headerLength = getHeader().length;
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (int i = 0; i < offsets.length; i++) {
+            long start = Math.max(offsets[i], headerLength);
+            long end = Math.min(offsets[i] + lengths[i], sourceLength);
+            if (end > start) {
+                ranges.add(new long[] { start / blockSize, (end - 1) / blockSize });
+            }
+        }
+        if (ranges.isEmpty()) {
+            return;
+        }
+        long[] firsts = new long[ranges.size()];
+        long[] lasts = new long[ranges.size()];
+        for (int i = 0; i < firsts.length; i++) {
+            firsts[i] = ranges.get(i)[0];
+            lasts[i] = ranges.get(i)[1];
+        }
+        getBlocks(firsts, lasts, MAX_GAP_BLOCKS);
+    }
+
+    /**
+     * Returns the header bytes, fetching them on first access
+     */
+    synchronized byte[] getHeader() throws IOException {
+        if (header == null) {
+            int size = (int) Math.min(headerSize, getLength());
+            byte[] bytes = new byte[size];
+            delegate.read(0, bytes, 0, size);
+            header = bytes;
+        }
+        return header;
+    }
+
+    /**
+     * Returns all the blocks in the specified block ranges, fetching the missing ones. Runs of
+     * missing blocks separated by at most maxGap blocks are fetched with a single request.
+     */
+    Map<Long, byte[]> getBlocks(long[] firsts, long[] lasts, int maxGap) throws IOException {
+        Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+        TreeSet<Long> missing = new TreeSet<Long>();
+        synchronized (blocks) {
+            for (int i = 0; i < firsts.length; i++) {
+                for (long b = firsts[i]; b <= lasts[i]; b++) {
+                    if (result.containsKey(b)) {
+                        continue;
+                    }
+                    byte[] block = blocks.get(b);
+                    if (block != null) {
+                        result.put(b, block);
+                    } else {
+                        missing.add(b);
+                    }
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // coalesce the missing blocks into runs, and fetch each run with a single request
+        long[] sorted = new long[missing.size()];
+        int idx = 0;
+        for (Long b : missing) {
+            sorted[idx++] = b;
+        }
+        int runStart = 0;
+        for (int i = 1; i <= sorted.length; i++) {
+            if (i == sorted.length || sorted[i] - sorted[i - 1] > maxGap + 1) {
+                fetch(sorted[runStart], sorted[i - 1], result);
+                runStart = i;
+            }
+        }
+        return result;
+    }
+
+    private void fetch(long firstBlock, long lastBlock, Map<Long, byte[]> result)
+            throws IOException {
+        final long start = firstBlock * blockSize;
+        final long end = Math.min(getLength(), (lastBlock + 1) * blockSize);
+        byte[] bytes = new byte[(int) (end - start)];
+        delegate.read(start, bytes, 0, bytes.length);
+        synchronized (blocks) {
+            for (long b = firstBlock; b <= lastBlock; b++) {
+                int from = (int) ((b - firstBlock) * blockSize);
+                int to = (int) Math.min(bytes.length, from + blockSize);
+                byte[] block = Arrays.copyOfRange(bytes, from, to);
+                blocks.put(b, block);
+                result.put(b, block);
+            }
+        }
+    }
+
+    /**
+     * Drops all the cached blocks (the header is kept)
+     */
+    public void clear() {
+        synchronized (blocks) {
+            blocks.clear();
+        }
+    }
+
+    /**
+     * Closes the wrapped source and drops the cache
+     */
+    @Override
+    public void close() throws IOException {
+        clear();
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingRangeSource[" + delegate + "]";
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link RangeSource} backed by a local file, mostly useful for testing
+ */
+public class FileRangeSource implements RangeSource {
+
+    final File file;
+
+    final RandomAccessFile raf;
+
+    final FileChannel channel;
+
+    public FileRangeSource(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void read(long position, byte[] buffer, int offset, int length) throws IOException {
+        // positional reads do not alter the channel position, so they can run concurrently
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+        long pos = position;
+        while (bb.hasRemaining()) {
+            int read = channel.read(bb, pos);
+            if (read < 0) {
+                throw new EOFException("Reached the end of " + file + " at position " + pos);
+            }
+            pos += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    @Override
+    public String toString() {
+        return "FileRangeSource[" + file + "]";
+    }
+}
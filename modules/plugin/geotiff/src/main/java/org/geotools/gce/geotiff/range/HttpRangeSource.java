@@ -0,0 +1,141 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * A {@link RangeSource} reading from a HTTP server supporting range requests (as most object
+ * storages do). The length of the resource is retrieved once with a HEAD request, each read is
+ * a single GET request with a <code>Range</code> header.
+ */
+public class HttpRangeSource implements RangeSource {
+
+    final URL url;
+
+    int connectTimeout = 30000;
+
+    int readTimeout = 60000;
+
+    volatile long length = -1;
+
+    public HttpRangeSource(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * The connection timeout, in milliseconds
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * The read timeout, in milliseconds
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public String getName() {
+        String path = url.getPath();
+        int idx = path.lastIndexOf('/');
+        return idx >= 0 ? path.substring(idx + 1) : path;
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        if (length < 0) {
+            HttpURLConnection conn = openConnection();
+            try {
+                conn.setRequestMethod("HEAD");
+                checkResponse(conn, HttpURLConnection.HTTP_OK);
+                long contentLength = conn.getContentLengthLong();
+                if (contentLength < 0) {
+                    throw new IOException("The server did not report the length of " + url);
+                }
+                length = contentLength;
+            } finally {
+                conn.disconnect();
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public void read(long position, byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        HttpURLConnection conn = openConnection();
+        try {
+            conn.setRequestProperty("Range", "bytes=" + position + "-" + (position + length - 1));
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_PARTIAL
+                    && !(code == HttpURLConnection.HTTP_OK && position == 0)) {
+                // a server ignoring the range would send back the whole resource
+                checkResponse(conn, HttpURLConnection.HTTP_PARTIAL);
+            }
+            InputStream is = conn.getInputStream();
+            try {
+                int read = 0;
+                while (read < length) {
+                    int count = is.read(buffer, offset + read, length - read);
+                    if (count < 0) {
+                        throw new EOFException("Got only " + read + " bytes out of " + length
+                                + " reading " + url + " at position " + position);
+                    }
+                    read += count;
+                }
+            } finally {
+                is.close();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    HttpURLConnection openConnection() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        return conn;
+    }
+
+    private void checkResponse(HttpURLConnection conn, int expected) throws IOException {
+        int code = conn.getResponseCode();
+        if (code != expected) {
+            throw new IOException("Unexpected response " + code + " " + conn.getResponseMessage()
+                    + " while reading " + url);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do, connections are not kept open
+    }
+
+    @Override
+    public String toString() {
+        return "HttpRangeSource[" + url + "]";
+    }
+}
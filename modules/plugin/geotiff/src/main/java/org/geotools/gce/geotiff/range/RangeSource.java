@@ -0,0 +1,50 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A random access source of bytes, read by ranges. Allows the
+ * {@link org.geotools.gce.geotiff.GeoTiffReader} to access tiled GeoTIFF files (e.g., Cloud
+ * Optimized GeoTIFFs) stored on remote locations supporting range requests, such as HTTP servers
+ * and object storages, without downloading them first.
+ * <p>
+ * Implementations must be thread safe, as the same source can be used by multiple streams at the
+ * same time.
+ */
+public interface RangeSource extends Closeable {
+
+    /**
+     * A name for the source, used to build the coverage name
+     */
+    String getName();
+
+    /**
+     * The total number of bytes available in the source
+     */
+    long getLength() throws IOException;
+
+    /**
+     * Reads exactly length bytes starting at the specified position into the buffer
+     *
+     * @throws java.io.EOFException if the range goes past the end of the source
+     */
+    void read(long position, byte[] buffer, int offset, int length) throws IOException;
+
+}
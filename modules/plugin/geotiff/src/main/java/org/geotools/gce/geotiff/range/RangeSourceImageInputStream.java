@@ -0,0 +1,88 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} reading from a {@link RangeSource}. Closing the
+ * stream does not close the source, which is normally shared among several streams.
+ */
+public class RangeSourceImageInputStream extends ImageInputStreamImpl {
+
+    final RangeSource source;
+
+    final long length;
+
+    final byte[] single = new byte[1];
+
+    public RangeSourceImageInputStream(RangeSource source) throws IOException {
+        this.source = source;
+        this.length = source.getLength();
+    }
+
+    /**
+     * The source this stream is reading from
+     */
+    public RangeSource getSource() {
+        return source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        source.read(streamPos, single, 0, 1);
+        streamPos++;
+        return single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException("Invalid offset " + off + " and length " + len
+                    + " for a buffer of size " + b.length);
+        }
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        source.read(streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "RangeSourceImageInputStream[" + source + "]";
+    }
+}
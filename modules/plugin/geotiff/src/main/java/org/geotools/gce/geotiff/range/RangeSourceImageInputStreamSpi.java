@@ -0,0 +1,48 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff.range;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.imageio.spi.ImageInputStreamSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Creates {@link RangeSourceImageInputStream} instances out of {@link RangeSource} inputs
+ */
+public class RangeSourceImageInputStreamSpi extends ImageInputStreamSpi {
+
+    public RangeSourceImageInputStreamSpi() {
+        super("GeoTools", "1.0", RangeSource.class);
+    }
+
+    @Override
+    public ImageInputStream createInputStreamInstance(Object input, boolean useCache,
+            File cacheDir) throws IOException {
+        if (!(input instanceof RangeSource)) {
+            throw new IllegalArgumentException("Expected a RangeSource, but got " + input);
+        }
+        return new RangeSourceImageInputStream((RangeSource) input);
+    }
+
+    @Override
+    public String getDescription(Locale locale) {
+        return "Image input stream reading from a RangeSource";
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.geotiff;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.gce.geotiff.range.CachingRangeSource;
+import org.geotools.gce.geotiff.range.FileRangeSource;
+import org.geotools.gce.geotiff.range.HttpRangeSource;
+import org.geotools.gce.geotiff.range.RangeSource;
+import org.geotools.test.TestData;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class GeoTiffRangeReadTest {
+
+    static final String TILED_TIFF = "milanogeo1.tif";
+
+    @Test
+    public void testLocalRangeSource() throws Exception {
+        File file = TestData.file(GeoTiffReaderTest.class, TILED_TIFF);
+        CountingRangeSource counting = new CountingRangeSource(new FileRangeSource(file));
+        CachingRangeSource cached = new CachingRangeSource(counting, 4096, 4096, 64);
+        try {
+            assertTrue(new GeoTiffFormat().accepts(cached));
+            GeoTiffReader reader = new GeoTiffReader(cached);
+            assertEquals("milanogeo1", reader.getGridCoverageNames()[0]);
+
+            GridCoverage2D coverage = reader.read(null);
+            Raster data = coverage.getRenderedImage().getData();
+            coverage.dispose(true);
+            assertSameData(file, data);
+            // the header has been read only once, even if multiple streams have been opened
+            assertEquals(1, counting.getRequests(0));
+
+            // everything is in cache now
+            int requests = counting.requests.get();
+            coverage = reader.read(null);
+            coverage.getRenderedImage().getData();
+            coverage.dispose(true);
+            assertEquals(requests, counting.requests.get());
+            reader.dispose();
+        } finally {
+            cached.close();
+        }
+    }
+
+    @Test
+    public void testHttpRangeSource() throws Exception {
+        File file = TestData.file(GeoTiffReaderTest.class, TILED_TIFF);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        final AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new RangeHandler(bytes, requests));
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/cog/"
+                    + TILED_TIFF);
+            HttpRangeSource source = new HttpRangeSource(url);
+            GeoTiffReader reader = new GeoTiffReader(source);
+            assertEquals("milanogeo1", reader.getGridCoverageNames()[0]);
+            GridCoverage2D coverage = reader.read(null);
+            Raster data = coverage.getRenderedImage().getData();
+            coverage.dispose(true);
+            reader.dispose();
+            assertSameData(file, data);
+
+            // the HEAD, the header, and the blocks with the tiles, requested in a few batches
+            int blocks = (int) Math.ceil(bytes.length / (double) CachingRangeSource.DEFAULT_BLOCK_SIZE);
+            assertTrue(requests.get() <= 2 + blocks);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        byte[] bytes = new byte[100 * 100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        CountingRangeSource counting = new CountingRangeSource(new ByteRangeSource(bytes));
+        CachingRangeSource cached = new CachingRangeSource(counting, 100, 100, 1000);
+
+        // header
+        byte[] buffer = new byte[350];
+        cached.read(10, buffer, 0, 50);
+        assertEquals(1, counting.requests.get());
+        assertContent(bytes, 10, buffer, 50);
+
+        // three missing blocks, one request
+        cached.read(1050, buffer, 0, 250);
+        assertEquals(2, counting.requests.get());
+        assertContent(bytes, 1050, buffer, 250);
+
+        // spanning header and blocks, the blocks are cached already
+        cached.read(50, buffer, 0, 10);
+        cached.read(1000, buffer, 0, 300);
+        assertEquals(2, counting.requests.get());
+        assertContent(bytes, 1000, buffer, 300);
+
+        // a block in the middle is cached, two requests
+        cached.read(2000, buffer, 0, 100);
+        assertEquals(3, counting.requests.get());
+        cached.read(1900, buffer, 0, 300);
+        assertEquals(5, counting.requests.get());
+        assertContent(bytes, 1900, buffer, 300);
+
+        // prefetching ranges separated by small gaps is done in a single request
+        cached.prefetch(new long[] { 5000, 5200, 5450 }, new long[] { 50, 100, 10 });
+        assertEquals(6, counting.requests.get());
+        // larger gaps need separate requests
+        cached.prefetch(new long[] { 8000, 6000 }, new long[] { 10, 10 });
+        assertEquals(8, counting.requests.get());
+        cached.read(5000, buffer, 0, 350);
+        cached.read(6000, buffer, 0, 100);
+        assertEquals(8, counting.requests.get());
+        assertContent(bytes, 6000, buffer, 100);
+
+        // last partial block and end of source
+        cached = new CachingRangeSource(counting, 100, 128, 1000);
+        cached.read(bytes.length - 10, buffer, 0, 10);
+        assertContent(bytes, bytes.length - 10, buffer, 10);
+        try {
+            cached.read(bytes.length - 10, buffer, 0, 11);
+            fail("Should have failed, reading past the end");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    private void assertContent(byte[] expected, int position, byte[] actual, int length) {
+        for (int i = 0; i < length; i++) {
+            assertEquals(expected[position + i], actual[i]);
+        }
+    }
+
+    private void assertSameData(File file, Raster actual) throws Exception {
+        GeoTiffReader reader = new GeoTiffReader(file);
+        GridCoverage2D coverage = reader.read(null);
+        try {
+            Raster expected = coverage.getRenderedImage().getData();
+            assertEquals(expected.getBounds(), actual.getBounds());
+            assertEquals(expected.getNumBands(), actual.getNumBands());
+            for (int b = 0; b < expected.getNumBands(); b++) {
+                int[] e = expected.getSamples(expected.getMinX(), expected.getMinY(),
+                        expected.getWidth(), expected.getHeight(), b, (int[]) null);
+                int[] a = actual.getSamples(actual.getMinX(), actual.getMinY(),
+                        actual.getWidth(), actual.getHeight(), b, (int[]) null);
+                assertArrayEquals(e, a);
+            }
+        } finally {
+            coverage.dispose(true);
+            reader.dispose();
+        }
+    }
+
+    static class CountingRangeSource implements RangeSource {
+
+        final RangeSource delegate;
+
+        final AtomicInteger requests = new AtomicInteger();
+
+        final List<Long> positions = Collections.synchronizedList(new ArrayList<Long>());
+
+        CountingRangeSource(RangeSource delegate) {
+            this.delegate = delegate;
+        }
+
+        int getRequests(long position) {
+            return Collections.frequency(new ArrayList<Long>(positions), position);
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public long getLength() throws IOException {
+            return delegate.getLength();
+        }
+
+        @Override
+        public void read(long position, byte[] buffer, int offset, int length) throws IOException {
+            requests.incrementAndGet();
+            positions.add(position);
+            delegate.read(position, buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    static class ByteRangeSource implements RangeSource {
+
+        final byte[] bytes;
+
+        ByteRangeSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String getName() {
+            return "bytes";
+        }
+
+        @Override
+        public long getLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public void read(long position, byte[] buffer, int offset, int length) {
+            System.arraycopy(bytes, (int) position, buffer, offset, length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static class RangeHandler implements HttpHandler {
+
+        static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+        final byte[] bytes;
+
+        final AtomicInteger requests;
+
+        RangeHandler(byte[] bytes, AtomicInteger requests) {
+            this.bytes = bytes;
+            this.requests = requests;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            try {
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Content-Length",
+                            String.valueOf(bytes.length));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                Matcher matcher = range != null ? RANGE.matcher(range) : null;
+                if (matcher == null || !matcher.matches()) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                int start = Integer.parseInt(matcher.group(1));
+                int end = Math.min(bytes.length - 1, Integer.parseInt(matcher.group(2)));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + start + "-" + end + "/" + bytes.length);
+                exchange.sendResponseHeaders(206, end - start + 1);
+                OutputStream os = exchange.getResponseBody();
+                os.write(bytes, start, end - start + 1);
+                os.close();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -447,6 +447,38 @@ public class CatalogManager {
         store.addGranules(collection);
     }
 
+    /**
+     * Removes the granules associated to the specified file from all the coverages of the mosaic.
+     * 
+     * @param fileBeingProcessed the file whose granules have to be removed, it may no longer exist
+     * @param mosaicReader the reader whose catalog has to be updated
+     * @param rootMosaicDir the mosaic directory, used to compute relative locations
+     * @param transaction
+     * @throws IOException
+     */
+    static void removeGranules(
+            final File fileBeingProcessed,
+            final ImageMosaicReader mosaicReader,
+            final String rootMosaicDir,
+            final DefaultTransaction transaction) throws IOException {
+        for (String coverageName : mosaicReader.getGridCoverageNames()) {
+            final GranuleStore store = (GranuleStore) mosaicReader.getGranules(coverageName, false);
+            if (store == null) {
+                continue;
+            }
+            final CatalogConfigurationBean bean = mosaicReader.getRasterManager(coverageName)
+                    .getConfiguration().getCatalogConfigurationBean();
+            final CatalogBuilderConfiguration configuration = new CatalogBuilderConfiguration();
+            configuration.setParameter(Prop.ABSOLUTE_PATH, Boolean.toString(bean.isAbsolutePath()));
+            configuration.setParameter(Prop.ROOT_MOSAIC_DIR, rootMosaicDir);
+            final String fileLocation = prepareLocation(configuration, fileBeingProcessed);
+
+            store.setTransaction(transaction);
+            store.removeGranules(Utils.FF.equal(Utils.FF.property(bean.getLocationAttribute()),
+                    Utils.FF.literal(fileLocation), true));
+        }
+    }
+
     /**
      * Checks if the file system is case sensitive or not using File.exists (the only method
      * that also works on OSX too according to 
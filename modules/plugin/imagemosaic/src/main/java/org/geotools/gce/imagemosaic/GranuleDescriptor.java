@@ -27,8 +27,10 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -36,6 +38,7 @@ import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.spi.ImageInputStreamSpi;
 import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.stream.ImageInputStream;
@@ -55,6 +58,7 @@ import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.GridFormatFinder;
+import org.geotools.coverage.grid.io.OverviewPolicy;
 import org.geotools.coverage.grid.io.footprint.FootprintBehavior;
 import org.geotools.coverage.grid.io.footprint.MultiLevelROI;
 import org.geotools.coverage.grid.io.imageio.MaskOverviewProvider;
@@ -63,6 +67,8 @@ import org.geotools.coverage.grid.io.imageio.MaskOverviewProvider.SpiHelper;
 import org.geotools.data.DataUtilities;
 import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
+import org.geotools.gce.imagemosaic.OverviewsController.OverviewLevel;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.image.ImageWorker;
@@ -157,6 +163,11 @@ public class GranuleDescriptor {
 		
 		final int height;
 
+		/** The tile size of this level, 0 if unknown */
+		final int tileWidth;
+
+		final int tileHeight;
+
 		final AffineTransform2D baseToLevelTransform;
 		
 		final AffineTransform2D gridToWorldTransformCorner;
@@ -185,6 +196,11 @@ public class GranuleDescriptor {
 		}
 
 		public GranuleOverviewLevelDescriptor(final double scaleX,final double scaleY,final int width,final int height) {
+			this(scaleX, scaleY, width, height, 0, 0);
+		}
+
+		public GranuleOverviewLevelDescriptor(final double scaleX, final double scaleY,
+				final int width, final int height, final int tileWidth, final int tileHeight) {
 			this.scaleX = scaleX;
 			this.scaleY = scaleY;
 			this.baseToLevelTransform=new AffineTransform2D( XAffineTransform.getScaleInstance(scaleX,scaleY,0,0));
@@ -195,6 +211,8 @@ public class GranuleDescriptor {
 			this.gridToWorldTransformCorner=new AffineTransform2D(gridToWorldTransform_);
 			this.width = width;
 			this.height = height;
+			this.tileWidth = tileWidth;
+			this.tileHeight = tileHeight;
 			this.rasterDimensions= new Rectangle(0,0,width,height);
 		}
 
@@ -217,6 +235,8 @@ public class GranuleDescriptor {
 			.append("height:\t\t").append(height).append("\n")
 			.append("scaleX:\t\t").append(scaleX).append("\n")
 			.append("scaleY:\t\t").append(scaleY).append("\n")
+			.append("tileWidth:\t\t").append(tileWidth).append("\n")
+			.append("tileHeight:\t\t").append(tileHeight).append("\n")
 			.append("baseToLevelTransform:\t\t").append(baseToLevelTransform.toString()).append("\n")
 			.append("gridToWorldTransform:\t\t").append(gridToWorldTransformCorner.toString()).append("\n");
 			return buffer.toString();
@@ -287,6 +307,9 @@ public class GranuleDescriptor {
 	URL granuleUrl;
 	
 	int maxDecimationFactor = -1;
+
+	/** Uncompressed pixel size, lazily computed for the cost based overview policy */
+	int bytesPerPixel = -1;
 	
 	final Map<Integer,GranuleOverviewLevelDescriptor> granuleLevels= Collections.synchronizedMap(new HashMap<Integer,GranuleOverviewLevelDescriptor>());
 	
@@ -389,7 +412,10 @@ public class GranuleDescriptor {
 			this.baseGridToWorld = geMapper.createAffineTransform();
 			
 			// add the base level
-			this.granuleLevels.put(Integer.valueOf(0), new GranuleOverviewLevelDescriptor(1, 1, originalDimension.width, originalDimension.height));
+			final Dimension tileSize = getTileSize(reader, 0);
+			this.granuleLevels.put(Integer.valueOf(0), new GranuleOverviewLevelDescriptor(1, 1,
+			        originalDimension.width, originalDimension.height, tileSize.width,
+			        tileSize.height));
 			
 			////////////////////// Setting overviewController ///////////////////////
 			
@@ -495,6 +521,12 @@ public class GranuleDescriptor {
         
     }
 
+    private static boolean hasAuxiliaryPaths(Hints hints) {
+        return hints != null
+                && (hints.containsKey(Utils.AUXILIARY_FILES_PATH) || hints
+                        .containsKey(Utils.AUXILIARY_DATASTORE_PATH));
+    }
+
     private void updateReaderWithAuxiliaryPath(Hints hints, ImageReader reader, Key key,
             String method) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
         String filePath = (String) hints.get(key);
@@ -741,11 +773,30 @@ public class GranuleDescriptor {
 		ImageInputStream inStream=null;
 		ImageReader reader=null;
 		boolean cleanupInFinally = request.getReadType() != ReadType.JAI_IMAGEREAD;
+		// the JAI ImageRead keeps using the reader after this method returns, and the readers
+		// customized with auxiliary files are not shared, only pool the direct reads
+		final GranuleReaderPool pool = cleanupInFinally && !hasAuxiliaryPaths(hints) ? 
+		        request.rasterManager.parentReader.granuleReaderPool : null;
+		GranuleReaderPool.PooledReader pooled = null;
+		// on failures the pooled reader state is unknown (e.g., a partially consumed stream),
+		// it gets checked back in only if the load completes
+		boolean discardPooled = false;
 		try {
 			//
 			//get info about the raster we have to read
 			//
 			
+			if (pool != null) {
+			    pooled = request.rasterManager.parentReader.checkoutPooledReader(granuleUrl);
+			}
+			if (pooled != null) {
+			    inStream = pooled.stream;
+			    reader = pooled.reader;
+			    if (cachedReaderSPI == null) {
+			        // the reader might have been opened by another descriptor of the same granule
+			        cachedReaderSPI = reader.getOriginatingProvider();
+			    }
+			} else {
 			// get a stream
 		        assert cachedStreamSPI!=null:"no cachedStreamSPI available!";
                         inStream = cachedStreamSPI.createInputStreamInstance(granuleUrl, ImageIO.getUseCache(), ImageIO.getCacheDirectory());
@@ -771,20 +822,36 @@ public class GranuleDescriptor {
 			// set input
 			customizeReaderInitialization(reader, hints);
 			reader.setInput(inStream);
+			if (pool != null) {
+			    pooled = pool.track(granuleUrl, inStream, reader);
+			}
+			}
 			
                         // Checking for heterogeneous granules and if the mosaic is not multidimensional
                         if (request.isHeterogeneousGranules() && singleDimensionalGranule) {
 			    // create read parameters
 			    readParameters = new ImageReadParam();
 			    
+			    final double[] requestedResolution = request.spatialRequestHelper.getComputedResolution();
+			    if (request.getOverviewPolicy() == OverviewPolicy.COST && requestedResolution != null) {
+			        // use the tile layout of this granule levels to estimate the read costs
+			        imageIndex = ReadParamsController.setCostBasedReadParams(
+			                requestedResolution,
+			                request.getDecimationPolicy(),
+			                readParameters,
+			                getLevelLayouts(reader),
+			                intersection.getWidth(),
+			                intersection.getHeight());
+			    } else {
 			    //override the overviews controller for the base layer
 			    imageIndex = ReadParamsController.setReadParams(
-			            request.spatialRequestHelper.getComputedResolution(),
+			            requestedResolution,
 			            request.getOverviewPolicy(),
 			            request.getDecimationPolicy(), 
 			            readParameters,
 			            request.rasterManager,
 			            overviewsController);
+			    }
 			} else {
 			    imageIndex = index;
 			    readParameters = imageReadParameters;
@@ -797,6 +864,10 @@ public class GranuleDescriptor {
                         // If the file is external we must update the Granule elements
                         if(isExternal){
                             // Disposing File Reader and Stream
+                            if (pooled != null) {
+                                pool.checkin(pooled);
+                                pooled = null;
+                            } else {
                             try {
                                 if (inStream != null) {
                                     inStream.close();
@@ -806,7 +877,17 @@ public class GranuleDescriptor {
                                     reader.dispose();
                                 }
                             }
+                            }
+                            inStream = null;
+                            reader = null;
                             granuleURLUpdated = ovrProvider.getOvrURL();
+                            if (pool != null) {
+                                pooled = request.rasterManager.parentReader.checkoutPooledReader(granuleURLUpdated);
+                            }
+                            if (pooled != null) {
+                                inStream = pooled.stream;
+                                reader = pooled.reader;
+                            } else {
                             assert ovrProvider.getExternalOverviewInputStreamSpi() != null : "no cachedStreamSPI available for external overview!";
                             inStream = ovrProvider.getExternalOverviewInputStreamSpi().createInputStreamInstance(granuleURLUpdated,
                                     ImageIO.getUseCache(), ImageIO.getCacheDirectory());
@@ -824,6 +905,10 @@ public class GranuleDescriptor {
                             }
                             // set input
                             reader.setInput(inStream, false, false);
+                            if (pool != null) {
+                                pooled = pool.track(granuleURLUpdated, inStream, reader);
+                            }
+                            }
                             // External Overview index
                             ovrIndex = ovrProvider.getOverviewIndex(imageIndex);
                             
@@ -904,6 +989,7 @@ public class GranuleDescriptor {
 					        + this.toString() + " with request "
 					        + request.toString() + " Resulting in no granule loaded: Empty result",e);
 				}
+				discardPooled = true;
 				return null;
 			}
 
@@ -978,6 +1064,7 @@ public class GranuleDescriptor {
                     if (LOGGER.isLoggable(java.util.logging.Level.INFO))
                         LOGGER.info("Unable to create a granuleDescriptor " + this.toString()
                                 + " due to a problem when managing the ROI");
+                    discardPooled = true;
                     return null;
                 }
 
@@ -1076,21 +1163,34 @@ public class GranuleDescriptor {
 				LOGGER.log(java.util.logging.Level.WARNING, new StringBuilder("Unable to load raster for granuleDescriptor ")
 				.append(this.toString()).append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString(), e);
 			}
+			discardPooled = true;
 			return null;
 		} catch (org.opengis.referencing.operation.NoninvertibleTransformException e) {
                     if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
                         LOGGER.log(java.util.logging.Level.WARNING, new StringBuilder("Unable to load raster for granuleDescriptor ")
                         .append(this.toString()).append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString(), e);
                     }
+			discardPooled = true;
 			return null;
 		} catch (TransformException e) {
                     if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
                         LOGGER.log(java.util.logging.Level.WARNING, new StringBuilder("Unable to load raster for granuleDescriptor ")
                         .append(this.toString()).append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString(), e);
                     }
+			discardPooled = true;
 			return null;
+		} catch (IOException | RuntimeException | Error e) {
+		    discardPooled = true;
+		    throw e;
 
                 } finally {
+                    if (pooled != null) {
+                        if (discardPooled) {
+                            pool.discard(pooled);
+                        } else {
+                            pool.checkin(pooled);
+                        }
+                    } else {
                     try {
                         if (cleanupInFinally && inStream != null) {
                             inStream.close();
@@ -1100,6 +1200,7 @@ public class GranuleDescriptor {
                             reader.dispose();
                         }
                     }
+                    }
                 }
             }
 
@@ -1128,7 +1229,10 @@ public class GranuleDescriptor {
 					final double scaleY=baseLevel.height/(1.0*levelDimension.height);
 					
 					// add the base level
-					final GranuleOverviewLevelDescriptor newLevel=new GranuleOverviewLevelDescriptor(scaleX,scaleY,levelDimension.width,levelDimension.height);
+					final Dimension tileSize = getTileSize(reader, index);
+					final GranuleOverviewLevelDescriptor newLevel = new GranuleOverviewLevelDescriptor(
+					        scaleX, scaleY, levelDimension.width, levelDimension.height,
+					        tileSize.width, tileSize.height);
 					this.granuleLevels.put(Integer.valueOf(indexValue),newLevel);
 					
 					return newLevel;
@@ -1145,6 +1249,100 @@ public class GranuleDescriptor {
 		}
 	}
 
+	/**
+	 * Returns the tile size of the specified image, or 0,0 if it cannot be determined
+	 */
+	private static Dimension getTileSize(final ImageReader reader, final int index) {
+	    try {
+	        return new Dimension(reader.getTileWidth(index), reader.getTileHeight(index));
+	    } catch (Exception e) {
+	        if (LOGGER.isLoggable(java.util.logging.Level.FINE)) {
+	            LOGGER.log(java.util.logging.Level.FINE, "Could not determine the tile size of image " + index, e);
+	        }
+	        return new Dimension(0, 0);
+	    }
+	}
+
+	/**
+	 * Returns the layout of the levels of this granule, sorted by resolution, for the
+	 * {@link ReadCostModel}. The tile layout of internal overviews is loaded and cached in the
+	 * level descriptors, external overviews are described by resolution only.
+	 */
+	List<LevelLayout> getLevelLayouts(final ImageReader reader) {
+	    if (bytesPerPixel < 0) {
+	        bytesPerPixel = getBytesPerPixel(reader);
+	    }
+	    final List<LevelLayout> result = new ArrayList<LevelLayout>();
+	    for (OverviewLevel level : overviewsController.resolutionsLevels) {
+	        final int imageChoice = level.imageChoice;
+	        if (ovrProvider.isExternalOverview(imageChoice)) {
+	            result.add(new LevelLayout(imageChoice, level.resolutionX, level.resolutionY, 0,
+	                    0, 0, 0, bytesPerPixel));
+	        } else {
+	            final GranuleOverviewLevelDescriptor descriptor = getLevel(
+	                    ovrProvider.getOverviewIndex(imageChoice), reader, imageChoice, false);
+	            result.add(new LevelLayout(imageChoice, level.resolutionX, level.resolutionY,
+	                    descriptor.width, descriptor.height, descriptor.tileWidth,
+	                    descriptor.tileHeight, bytesPerPixel));
+	        }
+	    }
+	    return result;
+	}
+
+	/**
+	 * Returns the layout of the levels of this granule, opening a reader on it
+	 * 
+	 * @see #getLevelLayouts(ImageReader)
+	 */
+	List<LevelLayout> getLevelLayouts() throws IOException {
+	    ImageInputStream inStream = null;
+	    ImageReader reader = null;
+	    try {
+	        inStream = cachedStreamSPI.createInputStreamInstance(granuleUrl, ImageIO.getUseCache(),
+	                ImageIO.getCacheDirectory());
+	        if (inStream == null) {
+	            throw new IOException("Unable to create an inputstream for the granuleurl:" + granuleUrl);
+	        }
+	        reader = cachedReaderSPI != null ? cachedReaderSPI.createReaderInstance()
+	                : ImageIOExt.getImageioReader(inStream);
+	        if (reader == null) {
+	            throw new IOException("Unable to get an ImageReader for the provided file " + granuleUrl);
+	        }
+	        final boolean ignoreMetadata = customizeReaderInitialization(reader, null);
+	        reader.setInput(inStream, false, ignoreMetadata);
+	        return getLevelLayouts(reader);
+	    } finally {
+	        if (reader != null) {
+	            reader.dispose();
+	        }
+	        if (inStream != null) {
+	            try {
+	                inStream.close();
+	            } catch (Throwable t) {
+	                // ignore
+	            }
+	        }
+	    }
+	}
+
+	private static int getBytesPerPixel(final ImageReader reader) {
+	    try {
+	        final ImageTypeSpecifier type = reader.getRawImageType(0);
+	        if (type != null) {
+	            int bits = 0;
+	            for (int size : type.getSampleModel().getSampleSize()) {
+	                bits += size;
+	            }
+	            return Math.max(1, bits / 8);
+	        }
+	    } catch (Exception e) {
+	        if (LOGGER.isLoggable(java.util.logging.Level.FINE)) {
+	            LOGGER.log(java.util.logging.Level.FINE, "Could not determine the pixel size", e);
+	        }
+	    }
+	    return 0;
+	}
+
 	GranuleOverviewLevelDescriptor getLevel(final int index) {
 		
 			//load level
@@ -0,0 +1,157 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Keeps track of the size and last modification time of the files harvested into a mosaic, so
+ * that an incremental harvest can skip the files that did not change since the last run, and
+ * remove the granules of the files that have been deleted.
+ * <p>
+ * The fingerprints are stored in the {@link Utils#FINGERPRINTS_FILE} file of the mosaic
+ * directory, keyed by canonical path. Instances are not thread safe, they are meant to be used by
+ * the walker thread only.
+ */
+class GranuleFingerprints {
+
+    final File file;
+
+    final Properties fingerprints = new Properties();
+
+    /**
+     * The paths of the files met during the current harvest
+     */
+    final Set<String> visited = new HashSet<String>();
+
+    /**
+     * Loads the fingerprints from the specified file, if it exists
+     */
+    GranuleFingerprints(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            InputStream is = new BufferedInputStream(new FileInputStream(file));
+            try {
+                fingerprints.load(is);
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the file has been harvested before and did not change since then. Marks the
+     * file as visited.
+     */
+    boolean isUnchanged(File granule) throws IOException {
+        String path = granule.getCanonicalPath();
+        visited.add(path);
+        return fingerprint(granule).equals(fingerprints.getProperty(path));
+    }
+
+    /**
+     * Returns true if the file has been harvested before, changed or not
+     */
+    boolean isKnown(File granule) throws IOException {
+        return fingerprints.containsKey(granule.getCanonicalPath());
+    }
+
+    /**
+     * Records the current fingerprint of a harvested file
+     */
+    void update(File granule) throws IOException {
+        fingerprints.setProperty(granule.getCanonicalPath(), fingerprint(granule));
+    }
+
+    /**
+     * Forgets about all the files harvested before
+     */
+    void clear() {
+        fingerprints.clear();
+    }
+
+    /**
+     * Forgets about a file
+     */
+    void remove(File granule) throws IOException {
+        fingerprints.remove(granule.getCanonicalPath());
+    }
+
+    /**
+     * Returns the previously harvested files, contained in the specified directories, that have
+     * not been visited by the current harvest and no longer exist
+     */
+    List<File> getDeleted(Collection<File> directories) throws IOException {
+        List<String> prefixes = new ArrayList<String>();
+        for (File directory : directories) {
+            prefixes.add(directory.getCanonicalPath() + File.separator);
+        }
+        List<File> deleted = new ArrayList<File>();
+        for (String path : fingerprints.stringPropertyNames()) {
+            if (visited.contains(path)) {
+                continue;
+            }
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    File granule = new File(path);
+                    if (!granule.exists()) {
+                        deleted.add(granule);
+                    }
+                    break;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Writes the fingerprints back to their file, replacing it only once fully written
+     */
+    void store() throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(temp));
+        try {
+            fingerprints.store(os, "Harvested granules fingerprints: size;last modified");
+        } finally {
+            os.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    int size() {
+        return fingerprints.size();
+    }
+
+    static String fingerprint(File granule) {
+        return granule.length() + ";" + granule.lastModified();
+    }
+}
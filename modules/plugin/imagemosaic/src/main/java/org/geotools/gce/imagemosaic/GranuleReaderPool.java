@@ -0,0 +1,298 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.geotools.util.Utilities;
+
+/**
+ * A bounded pool of open {@link ImageReader} instances, each one with its input stream already set,
+ * keyed by granule URL.
+ * <p>
+ * Opening a stream and parsing the headers of a granule (e.g., the TIFF directories) can dominate
+ * the cost of reading small areas out of a mosaic made of many granules. The pool keeps the
+ * readers of the recently used granules open, and hands them out to one thread at a time: a
+ * checked out reader is owned by the caller until it is checked back in. Internal overviews are
+ * read from the same reader, external ones are keyed by the URL of the overview file.
+ * <p>
+ * The number of open readers, and thus of open file handles, is capped: when the cap is reached
+ * the least recently used idle readers are closed. Readers checked out at the same time are never
+ * waited for, if they exceed the cap they are closed as soon as they are checked back in.
+ * <p>
+ * A pool can be shared among several {@link ImageMosaicReader} by means of the
+ * {@link Utils#GRANULE_READER_POOL} hint, and exposes hit, miss and open handle counts to help
+ * sizing it.
+ */
+public class GranuleReaderPool {
+
+    private final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(GranuleReaderPool.class);
+
+    /**
+     * An open reader along with its input stream
+     */
+    static final class PooledReader {
+        final URL url;
+
+        final ImageInputStream stream;
+
+        final ImageReader reader;
+
+        PooledReader(URL url, ImageInputStream stream, ImageReader reader) {
+            this.url = url;
+            this.stream = stream;
+            this.reader = reader;
+        }
+
+        void dispose() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the stream of " + url, e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    final int maxOpenReaders;
+
+    /**
+     * The idle readers, per granule
+     */
+    final Map<URL, LinkedList<PooledReader>> idle = new HashMap<URL, LinkedList<PooledReader>>();
+
+    /**
+     * The idle readers, least recently used first
+     */
+    final LinkedHashSet<PooledReader> lru = new LinkedHashSet<PooledReader>();
+
+    int openReaders;
+
+    long hits;
+
+    long misses;
+
+    long evictions;
+
+    /**
+     * Creates a new pool
+     *
+     * @param maxOpenReaders The max number of readers kept open, including the checked out ones
+     */
+    public GranuleReaderPool(int maxOpenReaders) {
+        if (maxOpenReaders <= 0) {
+            throw new IllegalArgumentException("The max number of open readers must be positive");
+        }
+        this.maxOpenReaders = maxOpenReaders;
+    }
+
+    /**
+     * Returns an idle reader for the specified granule, or null if none is available. The caller
+     * owns the reader until it is checked back in, or discarded.
+     */
+    synchronized PooledReader checkout(URL url) {
+        LinkedList<PooledReader> readers = idle.get(url);
+        if (readers == null) {
+            misses++;
+            return null;
+        }
+        PooledReader pooled = readers.removeLast();
+        if (readers.isEmpty()) {
+            idle.remove(url);
+        }
+        lru.remove(pooled);
+        hits++;
+        return pooled;
+    }
+
+    /**
+     * Starts tracking a reader just opened by the caller after a failed checkout, closing idle
+     * readers if needed to honour the max number of open readers
+     */
+    PooledReader track(URL url, ImageInputStream stream, ImageReader reader) {
+        Utilities.ensureNonNull("url", url);
+        Utilities.ensureNonNull("stream", stream);
+        Utilities.ensureNonNull("reader", reader);
+        List<PooledReader> evicted = new ArrayList<PooledReader>();
+        synchronized (this) {
+            openReaders++;
+            Iterator<PooledReader> it = lru.iterator();
+            while (openReaders > maxOpenReaders && it.hasNext()) {
+                PooledReader eldest = it.next();
+                it.remove();
+                removeIdle(eldest);
+                evicted.add(eldest);
+            }
+        }
+        dispose(evicted);
+        return new PooledReader(url, stream, reader);
+    }
+
+    /**
+     * Returns a checked out reader to the pool, making it available to other threads
+     */
+    void checkin(PooledReader pooled) {
+        synchronized (this) {
+            if (openReaders <= maxOpenReaders) {
+                LinkedList<PooledReader> readers = idle.get(pooled.url);
+                if (readers == null) {
+                    readers = new LinkedList<PooledReader>();
+                    idle.put(pooled.url, readers);
+                }
+                readers.add(pooled);
+                lru.add(pooled);
+                return;
+            }
+            // too many readers have been checked out at the same time
+            openReaders--;
+            evictions++;
+        }
+        pooled.dispose();
+    }
+
+    /**
+     * Closes a checked out reader that should not be reused, e.g., because it failed reading
+     */
+    void discard(PooledReader pooled) {
+        synchronized (this) {
+            openReaders--;
+        }
+        pooled.dispose();
+    }
+
+    /**
+     * Closes the idle readers of the specified granule, to be called when the granule is removed
+     * or modified
+     */
+    public void invalidate(URL url) {
+        List<PooledReader> evicted;
+        synchronized (this) {
+            LinkedList<PooledReader> readers = idle.remove(url);
+            if (readers == null) {
+                return;
+            }
+            evicted = new ArrayList<PooledReader>(readers);
+            lru.removeAll(readers);
+            openReaders -= readers.size();
+        }
+        dispose(evicted);
+    }
+
+    /**
+     * Closes all the idle readers
+     */
+    public void clear() {
+        List<PooledReader> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<PooledReader>(lru);
+            lru.clear();
+            idle.clear();
+            openReaders -= evicted.size();
+        }
+        dispose(evicted);
+    }
+
+    private void removeIdle(PooledReader pooled) {
+        LinkedList<PooledReader> readers = idle.get(pooled.url);
+        readers.remove(pooled);
+        if (readers.isEmpty()) {
+            idle.remove(pooled.url);
+        }
+        openReaders--;
+        evictions++;
+    }
+
+    private void dispose(List<PooledReader> readers) {
+        for (PooledReader pooled : readers) {
+            pooled.dispose();
+        }
+    }
+
+    /**
+     * The max number of open readers
+     */
+    public int getMaxOpenReaders() {
+        return maxOpenReaders;
+    }
+
+    /**
+     * The number of readers currently open, idle or checked out, each one holding a file handle
+     */
+    public synchronized int getOpenReaders() {
+        return openReaders;
+    }
+
+    /**
+     * The number of open readers waiting in the pool
+     */
+    public synchronized int getIdleReaders() {
+        return lru.size();
+    }
+
+    /**
+     * The number of checkouts that found an open reader
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * The number of checkouts that required opening a new reader
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * The number of readers closed to honour the max number of open readers
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * The ratio of checkouts that found an open reader, or 0 if no checkout happened yet
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -579,6 +579,9 @@ public class ImageMosaicConfigHandler {
         if (props.containsKey(Prop.CACHING))
             IndexerUtils.setParam(parameters, props, Prop.CACHING);
 
+        if (props.containsKey(Prop.MAPPED_INDEX))
+            IndexerUtils.setParam(parameters, props, Prop.MAPPED_INDEX);
+
         if (props.containsKey(Prop.ROOT_MOSAIC_DIR)) {
             // Overriding root mosaic directory
             IndexerUtils.setParam(parameters, props, Prop.ROOT_MOSAIC_DIR);
@@ -596,6 +599,9 @@ public class ImageMosaicConfigHandler {
         if (props.containsKey(Prop.CAN_BE_EMPTY)) {
             IndexerUtils.setParam(parameters, props, Prop.CAN_BE_EMPTY);
         }
+        if (props.containsKey(Prop.INCREMENTAL)) {
+            IndexerUtils.setParam(parameters, props, Prop.INCREMENTAL);
+        }
         if (props.containsKey(Prop.WRAP_STORE)) {
             IndexerUtils.setParam(parameters, props, Prop.WRAP_STORE);
         }
@@ -695,6 +701,9 @@ public class ImageMosaicConfigHandler {
         }
         properties.setProperty(Utils.Prop.CACHING,
                 Boolean.toString(catalogConfigurationBean.isCaching()));
+        if (catalogConfigurationBean.isMappedIndex()) {
+            properties.setProperty(Utils.Prop.MAPPED_INDEX, Boolean.TRUE.toString());
+        }
         if (mosaicConfiguration.getAuxiliaryFilePath() != null) {
             properties.setProperty(Utils.Prop.AUXILIARY_FILE,
                     mosaicConfiguration.getAuxiliaryFilePath());
@@ -850,6 +859,8 @@ public class ImageMosaicConfigHandler {
             final CatalogConfigurationBean catalogConfigurationBean = new CatalogConfigurationBean();
             catalogConfigurationBean.setCaching(IndexerUtils.getParameterAsBoolean(Prop.CACHING,
                     indexer));
+            catalogConfigurationBean.setMappedIndex(IndexerUtils.getParameterAsBoolean(
+                    Prop.MAPPED_INDEX, indexer));
             catalogConfigurationBean.setAbsolutePath(IndexerUtils.getParameterAsBoolean(
                     Prop.ABSOLUTE_PATH, indexer));
 
@@ -109,25 +109,34 @@ public class ImageMosaicDirectoryWalker extends ImageMosaicWalker {
             configHandler.indexingPreamble();
 
             try {
+                loadFingerprints();
+
                 // start walking directories
+                final List<File> directories = new ArrayList<File>();
                 for (String indexingDirectory : indexingDirectories) {
-                    walk(new File(indexingDirectory), null);
+                    final File directory = new File(indexingDirectory);
+                    directories.add(directory);
+                    walk(directory, null);
 
                     // did we cancel?
                     if (getStop()){
                         break;
                     }
                 }
+                completePendingGranules();
                 // did we cancel?
                 if (getStop()){
                     rollbackTransaction();
                 }else{
+                    removeDeletedGranules(directories);
                     commitTransaction();
+                    storeFingerprints();
                 }
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Failure occurred while collecting the granules", e);
                 rollbackTransaction();
             } finally {
+                discardPendingGranules();
                 try {
                     configHandler.indexingPostamble(!getStop());
                 } catch (Exception e) {
@@ -224,7 +233,9 @@ public class ImageMosaicDirectoryWalker extends ImageMosaicWalker {
                 .suffixFileFilter("gbx9"), FileFilterUtils.suffixFileFilter("ncx"), FileFilterUtils
                 .nameFileFilter("error.txt"), FileFilterUtils.nameFileFilter("error.txt.lck"),
                 FileFilterUtils.suffixFileFilter("properties"), FileFilterUtils
-                        .suffixFileFilter("svn-base"));
+                        .suffixFileFilter("svn-base"), FileFilterUtils
+                        .nameFileFilter(Utils.FINGERPRINTS_FILE), FileFilterUtils
+                        .nameFileFilter(Utils.FINGERPRINTS_FILE + ".tmp"));
         filesFilter = FileFilterUtils.or(filesFilter,
                 FileFilterUtils.nameFileFilter("indexer.properties"));
 
@@ -160,6 +160,12 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
 
         int maxAllowedTiles=ImageMosaicFormat.MAX_ALLOWED_TILES.getDefaultValue();
 
+        /** The pool of open granule readers, or null if the readers are not pooled */
+        GranuleReaderPool granuleReaderPool;
+
+        /** The granules looked up in the pool by this reader, as the pool might be shared */
+        final Set<URL> pooledGranules = Collections.newSetFromMap(new ConcurrentHashMap<URL, Boolean>());
+
 	/** The suggested SPI to avoid SPI lookup*/
 	ImageReaderSpi suggestedSPI;
 	
@@ -202,7 +208,7 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                 // File Filter associated to the input File
                 IOFileFilter filter = FileFilterUtils.nameFileFilter(file.getName());
                 // Harvesting file
-                harvestCalculation(defaultCoverage, result, reader, directory, filter);
+                harvestCalculation(defaultCoverage, hints, result, reader, directory, filter);
                 
             }
         }, DIRECTORY {
@@ -215,7 +221,7 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                     directory = (File) source;
                 }
                 // Harvesting directory
-                harvestCalculation(defaultCoverage, result, reader, directory, null);
+                harvestCalculation(defaultCoverage, hints, result, reader, directory, null);
                 
             }
         }, FILE_COLLECTION {
@@ -243,7 +249,7 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                 } 
                 
                 configuration.setParameter(Prop.INDEX_NAME, defaultCoverage);
-                configuration.setHints(new Hints(Utils.MOSAIC_READER, reader));
+                configuration.setHints(harvestHints(hints, reader));
                 
                 File mosaicSource = DataUtilities.urlToFile(reader.sourceURL);
                 if(!mosaicSource.isDirectory()) {
@@ -284,6 +290,18 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
 	    
 	    HarvestedResource(){}
 	    
+	    /**
+	     * Builds the hints of the harvest run configuration, propagating the executor used to
+	     * open the granules in parallel, if any
+	     */
+	    private static Hints harvestHints(Hints hints, ImageMosaicReader reader) {
+	        Hints harvestHints = new Hints(Utils.MOSAIC_READER, reader);
+	        if (hints != null && hints.get(Hints.EXECUTOR_SERVICE) != null) {
+	            harvestHints.put(Hints.EXECUTOR_SERVICE, hints.get(Hints.EXECUTOR_SERVICE));
+	        }
+	        return harvestHints;
+	    }
+	    
 	    /**
 	     * Harvesting of the input resource. The result will be strored inside the {@link List} object.
 	     * 
@@ -362,12 +380,13 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
              * Method for harvesting on a directory
              * 
              * @param defaultCoverage
+             * @param hints
              * @param result
              * @param reader
              * @param directory
              * @param filter
              */
-            private static void harvestCalculation(String defaultCoverage,
+            private static void harvestCalculation(String defaultCoverage, Hints hints,
                 final List<HarvestedSource> result, final ImageMosaicReader reader, File directory,
                 IOFileFilter filter) {
                 // prepare the walker configuration
@@ -380,7 +399,7 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                     defaultCoverage = (coverageNames != null && coverageNames.length > 0) ? coverageNames[0] : Utils.DEFAULT_INDEX_NAME;
                 } 
                 configuration.setParameter(Prop.INDEX_NAME, defaultCoverage);
-                configuration.setHints(new Hints(Utils.MOSAIC_READER, reader));
+                configuration.setHints(harvestHints(hints, reader));
                 
                 File mosaicSource = DataUtilities.urlToFile(reader.sourceURL);
                 if(!mosaicSource.isDirectory()) {
@@ -455,6 +474,11 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
         if (this.hints.containsKey(Hints.MAX_ALLOWED_TILES))
             this.maxAllowedTiles = ((Integer) this.hints.get(Hints.MAX_ALLOWED_TILES));
 
+        // pool of open granule readers, if any
+        if (this.hints.containsKey(Utils.GRANULE_READER_POOL)) {
+            this.granuleReaderPool = (GranuleReaderPool) this.hints.get(Utils.GRANULE_READER_POOL);
+        }
+
         //
         // Check source
         //
@@ -1310,6 +1334,13 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
 
         // Dispose before deleting to make sure any lock on files or resources is released
         dispose();
+        if (granuleReaderPool != null) {
+            // the pool might be shared with other mosaics, only close the readers of this one
+            for (URL url : pooledGranules) {
+                granuleReaderPool.invalidate(url);
+            }
+            pooledGranules.clear();
+        }
         removeDB();
         if (deleteData) {
             // quick way: delete everything
@@ -1322,6 +1353,15 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
         }
     }
 
+    /**
+     * Returns an idle pooled reader for the specified granule, or null if none is available,
+     * keeping track of the granules this reader used the pool for
+     */
+    GranuleReaderPool.PooledReader checkoutPooledReader(URL url) {
+        pooledGranules.add(url);
+        return granuleReaderPool.checkout(url);
+    }
+
     private void removeDB() throws IOException {
         final File parent = DataUtilities.urlToFile(sourceURL).getParentFile();
 
@@ -1374,6 +1414,7 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                 // Initialization steps
                 configHandler.indexingPreamble();
                 startTransaction();
+                loadFingerprints();
                 
                 // Setting of the Collection size
                 setNumFiles(files.size());
@@ -1399,11 +1440,14 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                     }
                 }
                 
+                completePendingGranules();
+
                 // close transaction
                 if (getStop()) {
                     rollbackTransaction();
                 } else {
                     commitTransaction();
+                    storeFingerprints();
                 }
                 
             } catch (IOException e) {
@@ -1416,6 +1460,8 @@ public class ImageMosaicReader extends AbstractGridCoverage2DReader implements S
                     throw new IllegalStateException(e);
                 }
             }finally{
+                discardPendingGranules();
+
                 // close transaction
                 try {
                     closeTransaction();
@@ -3,8 +3,14 @@ package org.geotools.gce.imagemosaic;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,7 +27,10 @@ import org.geotools.coverage.grid.io.GridFormatFinder;
 import org.geotools.coverage.grid.io.UnknownFormat;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
 import org.geotools.factory.Hints;
+import org.geotools.gce.imagemosaic.Utils.Prop;
+import org.geotools.gce.imagemosaic.catalog.GranuleCatalog;
 import org.geotools.util.Utilities;
 
 /**
@@ -62,7 +71,56 @@ abstract class ImageMosaicWalker implements Runnable {
 
     protected final Hints excludeMosaicHints = new Hints(Utils.EXCLUDE_MOSAIC, true);
 
-    private AbstractGridFormat cachedFormat;
+    private volatile AbstractGridFormat cachedFormat;
+
+    /**
+     * Max number of granules opened in parallel and waiting to be indexed
+     */
+    static final int MAX_PENDING_GRANULES = 32;
+
+    /**
+     * The executor used to open the granules in parallel, or null to open them in the walker
+     * thread
+     */
+    private final ExecutorService executor;
+
+    private final LinkedList<Future<OpenedGranule>> pendingGranules = new LinkedList<Future<OpenedGranule>>();
+
+    /**
+     * The fingerprints of the harvested files, not null only when harvesting incrementally
+     */
+    private GranuleFingerprints fingerprints;
+
+    /**
+     * A file opened for harvesting, along with the outcome of the opening
+     */
+    static final class OpenedGranule {
+        final File file;
+
+        /** The file has been harvested before, and changed since then */
+        final boolean replacing;
+
+        String name;
+
+        String extension;
+
+        GridCoverage2DReader reader;
+
+        /** The file failed the {@link ImageMosaicWalker#checkFile(File)} checks */
+        boolean skipped;
+
+        /** No format can read the file */
+        boolean unsupported;
+
+        IOException pathError;
+
+        Exception error;
+
+        OpenedGranule(File file, boolean replacing) {
+            this.file = file;
+            this.replacing = replacing;
+        }
+    }
 
     /**
      * index of the file being processed
@@ -86,6 +144,11 @@ abstract class ImageMosaicWalker implements Runnable {
         this.configHandler = configHandler;
         this.eventHandler = eventHandler;
 
+        // open the granules in parallel if an executor has been provided
+        final Hints hints = configHandler.getRunConfiguration().getHints();
+        final Object executor = hints != null ? hints.get(Hints.EXECUTOR_SERVICE) : null;
+        this.executor = executor instanceof ExecutorService ? (ExecutorService) executor : null;
+
     }
 
     public boolean getStop() {
@@ -106,41 +169,72 @@ abstract class ImageMosaicWalker implements Runnable {
 
     protected void handleFile(final File fileBeingProcessed) throws IOException {
 
-        // increment counter
-        fileIndex++;
+        //
+        // Skip the files already harvested if incremental
+        //
+        boolean known = false;
+        if (fingerprints != null) {
+            if (fingerprints.isUnchanged(fileBeingProcessed)) {
+                fileIndex++;
+                eventHandler.fireFileEvent(Level.FINE, fileBeingProcessed, false, "Skipped file "
+                        + fileBeingProcessed + ": unchanged since the last harvest",
+                        ((fileIndex * 100.0) / numFiles));
+                return;
+            }
+            known = fingerprints.isKnown(fileBeingProcessed);
+        }
+        final boolean replacing = known;
+
+        if (executor == null) {
+            indexGranule(openGranule(fileBeingProcessed, replacing));
+            return;
+        }
+
+        // open in parallel, index in order, without keeping too many readers open
+        pendingGranules.add(executor.submit(new Callable<OpenedGranule>() {
+
+            @Override
+            public OpenedGranule call() throws Exception {
+                return openGranule(fileBeingProcessed, replacing);
+            }
+        }));
+        while (pendingGranules.size() > MAX_PENDING_GRANULES) {
+            indexGranule(nextPendingGranule());
+        }
+    }
+
+    /**
+     * Opens a reader on the file, this is the expensive part of the harvest and can run in
+     * parallel, no event is fired here as the listeners are not expected to be thread safe
+     */
+    private OpenedGranule openGranule(final File fileBeingProcessed, final boolean replacing) {
+        final OpenedGranule granule = new OpenedGranule(fileBeingProcessed, replacing);
 
         //
         // Check that this file is actually good to go
         //
-        if (!checkFile(fileBeingProcessed))
-            return;
+        if (!checkFile(fileBeingProcessed)) {
+            granule.skipped = true;
+            return granule;
+        }
 
         // replacing chars on input path
-        String validFileName;
-        String extension;
         try {
-            validFileName = fileBeingProcessed.getCanonicalPath();
+            String validFileName = fileBeingProcessed.getCanonicalPath();
             validFileName = FilenameUtils.normalize(validFileName);
-            extension = FilenameUtils.getExtension(validFileName);
+            granule.extension = FilenameUtils.getExtension(validFileName);
+            granule.name = FilenameUtils.getName(validFileName);
         } catch (IOException e) {
-            eventHandler.fireFileEvent(
-                    Level.FINER,
-                    fileBeingProcessed,
-                    false,
-                    "Exception occurred while processing file " + fileBeingProcessed + ": "
-                            + e.getMessage(), ((fileIndex * 100.0) / numFiles));
-            eventHandler.fireException(e);
-            return;
+            granule.pathError = e;
+            return granule;
         }
-        validFileName = FilenameUtils.getName(validFileName);
-        eventHandler.fireEvent(Level.INFO, "Now indexing file " + validFileName,
-                ((fileIndex * 100.0) / numFiles));
-        GridCoverage2DReader coverageReader = null;
+
         try {
             // STEP 1
             // Getting a coverage reader for this coverage.
             //
             final AbstractGridFormat format;
+            final AbstractGridFormat cachedFormat = this.cachedFormat;
             if (cachedFormat == null) {
                 // When looking for formats which may parse this file, make sure to exclude the ImageMosaicFormat as return
                 format = (AbstractGridFormat) GridFormatFinder.findFormat(fileBeingProcessed,
@@ -153,18 +247,72 @@ abstract class ImageMosaicWalker implements Runnable {
                 }
             }
             if ((format instanceof UnknownFormat) || format == null) {
-                if (!logExcludes.contains(extension)) {
+                granule.unsupported = true;
+                return granule;
+            }
+            this.cachedFormat = format;
+
+            final Hints configurationHints = configHandler.getRunConfiguration().getHints();
+            granule.reader = (GridCoverage2DReader) format.getReader(fileBeingProcessed,
+                    configurationHints);
+        } catch (Exception e) {
+            granule.error = e;
+        }
+        return granule;
+    }
+
+    /**
+     * Adds the granules of an opened file to the catalog
+     */
+    private void indexGranule(final OpenedGranule granule) throws IOException {
+
+        // increment counter
+        fileIndex++;
+
+        final File fileBeingProcessed = granule.file;
+        if (granule.skipped) {
+            return;
+        }
+        if (granule.pathError != null) {
+            eventHandler.fireFileEvent(
+                    Level.FINER,
+                    fileBeingProcessed,
+                    false,
+                    "Exception occurred while processing file " + fileBeingProcessed + ": "
+                            + granule.pathError.getMessage(), ((fileIndex * 100.0) / numFiles));
+            eventHandler.fireException(granule.pathError);
+            return;
+        }
+        GridCoverage2DReader coverageReader = granule.reader;
+        if (getStop()) {
+            // the harvest failed on a previous file, just release the resources
+            dispose(coverageReader);
+            return;
+        }
+        eventHandler.fireEvent(Level.INFO, "Now indexing file " + granule.name,
+                ((fileIndex * 100.0) / numFiles));
+        try {
+            if (granule.error != null) {
+                throw granule.error;
+            }
+            if (granule.replacing) {
+                // the file changed since the last harvest, drop its old granules first
+                CatalogManager.removeGranules(fileBeingProcessed, configHandler.getParentReader(),
+                        configHandler.getRunConfiguration().getParameter(Prop.ROOT_MOSAIC_DIR),
+                        transaction);
+                invalidatePooledReaders(fileBeingProcessed);
+            }
+            if (granule.unsupported) {
+                if (granule.replacing) {
+                    fingerprints.remove(fileBeingProcessed);
+                }
+                if (!logExcludes.contains(granule.extension)) {
                     eventHandler.fireFileEvent(Level.INFO, fileBeingProcessed, false, "Skipped file "
                             + fileBeingProcessed + ": File format is not supported.",
                             ((fileIndex * 99.0) / numFiles));
                 }
                 return;
             }
-            cachedFormat = format;
-
-            final Hints configurationHints = configHandler.getRunConfiguration().getHints();
-            coverageReader = (GridCoverage2DReader) format.getReader(fileBeingProcessed,
-                    configurationHints);
 
             // Setting of the ReaderSPI to use
             if(configHandler.getCachedReaderSPI() == null){
@@ -215,6 +363,12 @@ abstract class ImageMosaicWalker implements Runnable {
                         + fileBeingProcessed, (((fileIndex + 1) * 99.0) / numFiles));
 
             }
+
+            // the file might have changed, don't keep serving it from open readers
+            invalidatePooledReaders(fileBeingProcessed);
+            if (fingerprints != null) {
+                fingerprints.update(fileBeingProcessed);
+            }
         } catch (Exception e) {
             // we got an exception, we should stop the walk
             eventHandler.fireException(e);
@@ -227,19 +381,139 @@ abstract class ImageMosaicWalker implements Runnable {
             //
             // release resources
             //
+            dispose(coverageReader);
+        }
+
+    }
+
+    private void dispose(GridCoverage2DReader coverageReader) {
+        try {
+            if (coverageReader != null)
+                // release resources
+                coverageReader.dispose();
+        } catch (Throwable e) {
+            // ignore exception
+            if (LOGGER.isLoggable(Level.FINEST))
+                LOGGER.log(Level.FINEST, e.getLocalizedMessage(), e);
+        }
+    }
+
+    private OpenedGranule nextPendingGranule() throws IOException {
+        Future<OpenedGranule> future = pendingGranules.removeFirst();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a granule to be opened", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to open a granule", e.getCause());
+        }
+    }
+
+    /**
+     * Indexes the granules still being opened in parallel, to be called once all the files have
+     * been handled, before committing the transaction
+     */
+    protected void completePendingGranules() throws IOException {
+        while (!pendingGranules.isEmpty()) {
+            indexGranule(nextPendingGranule());
+        }
+    }
+
+    /**
+     * Releases the granules still being opened in parallel without indexing them, to be called
+     * when the walk fails
+     */
+    protected void discardPendingGranules() {
+        while (!pendingGranules.isEmpty()) {
             try {
-                if (coverageReader != null)
-                    // release resources
-                    coverageReader.dispose();
-            } catch (Throwable e) {
-                // ignore exception
-                if (LOGGER.isLoggable(Level.FINEST))
-                    LOGGER.log(Level.FINEST, e.getLocalizedMessage(), e);
+                dispose(nextPendingGranule().reader);
+            } catch (IOException e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
             }
         }
+    }
 
+    private void invalidatePooledReaders(File file) {
+        ImageMosaicReader parentReader = configHandler.getParentReader();
+        if (parentReader != null && parentReader.granuleReaderPool != null) {
+            parentReader.granuleReaderPool.invalidate(DataUtilities.fileToURL(file));
+        }
     }
-    
+
+    /**
+     * Loads the fingerprints of the files harvested by the previous runs, if incremental
+     * harvesting is enabled. The fingerprints are ignored if the catalog is empty, e.g., because
+     * it has been recreated, as the files they refer to are no longer in it.
+     */
+    protected void loadFingerprints() throws IOException {
+        if (Boolean.parseBoolean(configHandler.getRunConfiguration().getParameter(
+                Prop.INCREMENTAL))) {
+            if (configHandler.getParentReader() == null) {
+                throw new IOException(
+                        "Incremental harvesting requires the mosaic reader to update its catalog");
+            }
+            File mosaicDir = new File(configHandler.getRunConfiguration().getParameter(
+                    Prop.ROOT_MOSAIC_DIR));
+            fingerprints = new GranuleFingerprints(new File(mosaicDir, Utils.FINGERPRINTS_FILE));
+            if (fingerprints.size() > 0 && isCatalogEmpty()) {
+                LOGGER.fine("The catalog is empty, ignoring the fingerprints of the previous harvests");
+                fingerprints.clear();
+            }
+        }
+    }
+
+    private boolean isCatalogEmpty() throws IOException {
+        final GranuleCatalog catalog = configHandler.getCatalog();
+        final String[] typeNames = catalog != null ? catalog.getTypeNames() : null;
+        if (typeNames == null) {
+            return true;
+        }
+        for (String typeName : typeNames) {
+            // a negative count means the count is not known, assume it's not empty
+            if (catalog.getGranulesCount(new Query(typeName)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes from the catalog the granules of the files, previously harvested from the specified
+     * directories, that have been deleted since then. Only works when harvesting incrementally.
+     */
+    protected void removeDeletedGranules(Collection<File> directories) throws IOException {
+        if (fingerprints == null) {
+            return;
+        }
+        final String rootMosaicDir = configHandler.getRunConfiguration().getParameter(
+                Prop.ROOT_MOSAIC_DIR);
+        for (File deleted : fingerprints.getDeleted(directories)) {
+            CatalogManager.removeGranules(deleted, configHandler.getParentReader(),
+                    rootMosaicDir, transaction);
+            invalidatePooledReaders(deleted);
+            fingerprints.remove(deleted);
+            eventHandler.fireEvent(Level.INFO, "Removed the granules of deleted file " + deleted,
+                    100);
+        }
+    }
+
+    /**
+     * Persists the fingerprints of the harvested files, to be called once the transaction has
+     * been committed
+     */
+    protected void storeFingerprints() {
+        if (fingerprints != null) {
+            try {
+                fingerprints.store();
+            } catch (IOException e) {
+                // the next run will just harvest again the files
+                LOGGER.log(Level.WARNING, "Failed to store the granule fingerprints", e);
+            }
+        }
+    }
+
     /**
      * Create a transaction for being used in this walker
      */
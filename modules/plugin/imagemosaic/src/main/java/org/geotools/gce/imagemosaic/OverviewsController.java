@@ -18,8 +18,10 @@ package org.geotools.gce.imagemosaic;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
 import org.geotools.util.Utilities;
 
 /**
@@ -34,6 +36,10 @@ final  class OverviewsController {
     final ArrayList<OverviewLevel> resolutionsLevels = new ArrayList<OverviewLevel>();
 
     private int numberOfOverviews;
+
+    /** The layout of the levels of a sample granule, or null if not known */
+    private volatile List<LevelLayout> granuleLayouts;
+
     /**
      * Constructor.
      * 
@@ -100,6 +106,11 @@ final  class OverviewsController {
         } else {
             return 0;
         }
+        if (policy == OverviewPolicy.COST) {
+            // the area to be read is not known here, the cost model assumes a nominal one
+            return ReadCostModel.pick(getLevelLayouts(), requestedResolution, 0, 0, true,
+                    ReadCostModel.QUALITY_TOLERANCE).imageChoice;
+        }
         final int leastReduceAxis = requestedScaleFactorX <= requestedScaleFactorY ? 0 : 1;
         final double requestedScaleFactor = leastReduceAxis == 0 ? requestedScaleFactorX : requestedScaleFactorY;
 
@@ -146,6 +157,43 @@ final  class OverviewsController {
         return max.imageChoice;
     }
 
+    /**
+     * Returns the levels for the {@link ReadCostModel}, sorted by resolution. The tile layout of
+     * each level is taken from the sample granule layouts, if set, while the level size is left
+     * unknown, as a read can span many granules.
+     */
+    List<LevelLayout> getLevelLayouts() {
+        final List<LevelLayout> layouts = granuleLayouts;
+        List<LevelLayout> result = new ArrayList<LevelLayout>(resolutionsLevels.size());
+        for (OverviewLevel level : resolutionsLevels) {
+            int tileWidth = 0;
+            int tileHeight = 0;
+            int bytesPerPixel = 0;
+            if (layouts != null) {
+                for (LevelLayout layout : layouts) {
+                    if (layout.imageChoice == level.imageChoice) {
+                        tileWidth = layout.tileWidth;
+                        tileHeight = layout.tileHeight;
+                        bytesPerPixel = layout.bytesPerPixel;
+                        break;
+                    }
+                }
+            }
+            result.add(new LevelLayout(level.imageChoice, level.resolutionX, level.resolutionY,
+                    0, 0, tileWidth, tileHeight, bytesPerPixel));
+        }
+        return result;
+    }
+
+    /**
+     * Sets the layout of the levels of a sample granule, used to fill in the tile layout of the
+     * levels returned by {@link #getLevelLayouts()}. Granules of an homogeneous mosaic share the
+     * same layout.
+     */
+    void setGranuleLayouts(List<LevelLayout> granuleLayouts) {
+        this.granuleLayouts = granuleLayouts;
+    }
+
     public int getNumberOfOverviews() {
         return numberOfOverviews;
     }
@@ -36,14 +36,18 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,6 +76,7 @@ import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.coverage.grid.io.OverviewPolicy;
 import org.geotools.coverage.grid.io.footprint.FootprintBehavior;
 import org.geotools.data.DataSourceException;
 import org.geotools.data.DataUtilities;
@@ -315,6 +320,20 @@ class RasterLayerResponse{
         private final double[][] sourceThreshold;
         
     }
+    /**
+     * A granule ready to be mosaicked, along with the path of the file it has been read from.
+     */
+    private static class PreparedGranule {
+        private final MosaicElement element;
+
+        private final String canonicalPath;
+
+        private PreparedGranule(MosaicElement element, String canonicalPath) {
+            this.element = element;
+            this.canonicalPath = canonicalPath;
+        }
+    }
+
     /**
      * 
      * This class is responsible for collecting the granules that 
@@ -346,7 +365,7 @@ class RasterLayerResponse{
         private final boolean dryRun;
 
         /** The final lists for granules to be computed, splitted per dimension value.*/
-        private final List<Future<GranuleLoadingResult>> granulesFutures = new ArrayList<Future<GranuleLoadingResult>>();
+        private final List<CompletableFuture<GranuleLoadingResult>> granulesFutures = new ArrayList<CompletableFuture<GranuleLoadingResult>>();
 
         private double[][] sourceThreshold;
 
@@ -354,9 +373,11 @@ class RasterLayerResponse{
 
         private boolean doInputTransparency;
 
-        private int[] alphaIndex= new int[1];
-
         private Color inputTransparentColor;
+
+        private boolean isParallel() {
+            return multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null;
+        }
         
         /**
          * This method is responsible for collecting all the granules accepting a certain {@link Filter}.
@@ -380,14 +401,29 @@ class RasterLayerResponse{
                 
                 final GranuleLoader loader = new GranuleLoader(baseReadParameters, imageChoice, mosaicBBox, finalWorldToGridCorner, granuleDescriptor, request, hints);
                 if (!dryRun) {
-                    if (multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null) {
+                    if (isParallel()) {
                         // MULTITHREADED EXECUTION submitting the task
-                        granulesFutures.add(rasterManager.parentReader.multiThreadedLoader.submit(loader));
+                        granulesFutures.add(CompletableFuture.supplyAsync(
+                                new Supplier<GranuleLoadingResult>() {
+
+                                    @Override
+                                    public GranuleLoadingResult get() {
+                                        try {
+                                            return loader.call();
+                                        } catch (Exception e) {
+                                            throw new CompletionException(e);
+                                        }
+                                    }
+                                }, rasterManager.parentReader.multiThreadedLoader));
                     } else {
                         // SINGLE THREADED Execution, we defer the execution to when we have done the loading
-                        final FutureTask<GranuleLoadingResult> task = new FutureTask<GranuleLoadingResult>(loader);
+                        final CompletableFuture<GranuleLoadingResult> task = new CompletableFuture<GranuleLoadingResult>();
+                        try {
+                            task.complete(loader.call()); // run in current thread
+                        } catch (Exception e) {
+                            task.completeExceptionally(e);
+                        }
                         granulesFutures.add(task);
-                        task.run(); // run in current thread
                     }
                 }
                 if (LOGGER.isLoggable(Level.FINE)) {
@@ -420,90 +456,74 @@ class RasterLayerResponse{
                 return null;
             }
             
-           // execute them all
+           // the transparency setup and the mosaic threshold depend on the first granule loaded
+           try {
+               for (Future<GranuleLoadingResult> future : granulesFutures) {
+                   final GranuleLoadingResult result = future.get();
+                   if (result != null && result.getRaster() != null) {
+                       setupFromFirstGranule(result.getRaster());
+                       break;
+                   }
+               }
+           } catch (Exception e) {
+               if (LOGGER.isLoggable(Level.INFO)){
+                   LOGGER.info("Adding to mosaic failed, original request was " + request);
+               }
+               cancelPending(Collections.<Future<PreparedGranule>> emptyList());
+               throw new IOException(e);
+           }
+
+           // schedule the preprocessing of each granule as soon as it's loaded, while
+           // the other granules are still loading. In parallel mode the preprocessing
+           // runs as a separate task in the loader executor, so that the loader threads
+           // can move on to the next granules
+           final boolean parallel = isParallel();
+           final List<Future<PreparedGranule>> prepared = new ArrayList<Future<PreparedGranule>>(granulesFutures.size());
+           final Function<GranuleLoadingResult, PreparedGranule> preparation = new Function<GranuleLoadingResult, PreparedGranule>() {
+
+               @Override
+               public PreparedGranule apply(GranuleLoadingResult result) {
+                   try {
+                       return prepareGranule(result);
+                   } catch (IOException e) {
+                       throw new CompletionException(e);
+                   }
+               }
+           };
+           for (CompletableFuture<GranuleLoadingResult> future : granulesFutures) {
+               if (parallel) {
+                   prepared.add(future.thenApplyAsync(preparation,
+                           rasterManager.parentReader.multiThreadedLoader));
+               } else {
+                   prepared.add(future.thenApply(preparation));
+               }
+           }
+
+           // collect the results, in the same order the granules were visited
            final StringBuilder paths = new StringBuilder();
            final List<MosaicElement> returnValues= new ArrayList<RasterLayerResponse.MosaicElement>();
-           // collect sources for the current dimension and then process them
-           for (Future<GranuleLoadingResult> future :granulesFutures) {
-                     
+           for (Future<PreparedGranule> future : prepared) {
                 try {
-                    // get the resulting RenderedImage
-                    final GranuleLoadingResult result = future.get();
-                    if (result == null) {
-                        if (LOGGER.isLoggable(Level.FINE)){
-                            LOGGER.log(Level.FINE, "Unable to load the raster for granule with request " + request.toString());
-                        }
+                    final PreparedGranule granule = future.get();
+                    if (granule == null) {
                         continue;
                     }
-                    final RenderedImage loadedImage = result.getRaster();
-                    if (loadedImage == null) {
-                        if (LOGGER.isLoggable(Level.FINE)) {
-                           LOGGER.log(Level.FINE,
-                                   "Unable to load the raster for granuleDescriptor " +result.granuleUrl+ " with request "+request.toString()
-                           );
-                       }
-                       continue;
-                   }
-                   
-                   // now process it
-                    if (sourceThreshold == null) {
-                            //
-                            // We check here if the images have an alpha channel or some
-                            // other sort of transparency. In case we have transparency
-                            // I also save the index of the transparent channel.
-                            //
-                            // Specifically, I have to check if the loaded image have
-                            // transparency, because if we do a ROI and/or we have a
-                            // transparent color to set we have to remove it.
-                            //
-                            final ColorModel cm = loadedImage.getColorModel();
-                            hasAlpha = cm.hasAlpha();
-                            if (hasAlpha){
-                                alphaIndex[0]= cm.getNumComponents() - 1 ;
-                            }
-
-                            //
-                            // we set the input threshold accordingly to the input
-                            // image data type. I find the default value (which is 0) very bad
-                            // for data type other than byte and ushort. With float and double
-                            // it can cut off a large par of the dynamic.
-                            //
-                            sourceThreshold = new double[][] { { CoverageUtilities.getMosaicThreshold(loadedImage.getSampleModel().getDataType()) } };                                                                  
-                   }                                    
-
-                   // moving on
-                   if (LOGGER.isLoggable(Level.FINE)) {
-                       LOGGER.fine("Adding to mosaic granule " +result.granuleUrl);
-                   }
-
-                   // path management
-                   File inputFile = DataUtilities.urlToFile(result.granuleUrl);
-                   String canonicalPath = inputFile.getCanonicalPath();
-                   // Remove ovr extension if present
-                   String fileCanonicalPath = canonicalPath;
-                   if (canonicalPath.endsWith(".ovr")) {
-                       fileCanonicalPath = canonicalPath.substring(0, canonicalPath.length() - 4);
-                   }
-                   paths.append(canonicalPath).append(",");
-                   
-                   // add to the mosaic collection, with preprocessing
-                   // TODO pluggable mechanism for processing (artifacts,etc...)
-                   MosaicElement input = preProcessGranuleRaster(
-                                           loadedImage,
-                                           result,
-                                           fileCanonicalPath);  
-                   returnValues.add(input);
-                   
+                    paths.append(granule.canonicalPath).append(",");
+                    returnValues.add(granule.element);
                 } catch (Exception e) {
                     if (LOGGER.isLoggable(Level.INFO)){
                         LOGGER.info("Adding to mosaic failed, original request was " + request);
                     }
+                    // no point in loading and preparing the other granules
+                    cancelPending(prepared);
                     throw new IOException(e);
-                }               
-               
-
-               // collect paths
-                granulesPaths = paths.length() > 1 ? paths.substring(0, paths.length() - 1) : "";
+                }
+           }
+           // collect paths
+           granulesPaths = paths.length() > 1 ? paths.substring(0, paths.length() - 1) : "";
+           if (doInputTransparency && !returnValues.isEmpty()) {
+               // the transparent color has been turned into an alpha channel
+               hasAlpha = true;
            }
            if (returnValues == null || returnValues.isEmpty()) {
                if (LOGGER.isLoggable(Level.INFO)){
@@ -513,6 +533,90 @@ class RasterLayerResponse{
            return new MosaicInputs(doInputTransparency, hasAlpha, returnValues, sourceThreshold);
         }
 
+        /**
+         * Cancels the granule loads and preparations not completed yet. The loads already running
+         * cannot be interrupted, the ones still queued in the executor will be skipped.
+         */
+        private void cancelPending(List<Future<PreparedGranule>> prepared) {
+            for (Future<PreparedGranule> future : prepared) {
+                future.cancel(false);
+            }
+            for (Future<GranuleLoadingResult> future : granulesFutures) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * Checks if the first granule has an alpha channel, and sets the mosaic threshold
+         * according to its data type.
+         */
+        private void setupFromFirstGranule(RenderedImage loadedImage) {
+            //
+            // We check here if the images have an alpha channel or some
+            // other sort of transparency.
+            //
+            // Specifically, I have to check if the loaded image have
+            // transparency, because if we do a ROI and/or we have a
+            // transparent color to set we have to remove it.
+            //
+            final ColorModel cm = loadedImage.getColorModel();
+            hasAlpha = cm.hasAlpha();
+
+            //
+            // we set the input threshold accordingly to the input
+            // image data type. I find the default value (which is 0) very bad
+            // for data type other than byte and ushort. With float and double
+            // it can cut off a large par of the dynamic.
+            //
+            sourceThreshold = new double[][] { { CoverageUtilities.getMosaicThreshold(loadedImage.getSampleModel().getDataType()) } };
+        }
+
+        /**
+         * Turns a loaded granule into a {@link MosaicElement}. Does not alter the collector state,
+         * so it can be run concurrently on different granules.
+         * 
+         * @return the prepared granule, or null if the granule could not be loaded
+         */
+        private PreparedGranule prepareGranule(GranuleLoadingResult result) throws IOException {
+            if (result == null) {
+                if (LOGGER.isLoggable(Level.FINE)){
+                    LOGGER.log(Level.FINE, "Unable to load the raster for granule with request " + request.toString());
+                }
+                return null;
+            }
+            final RenderedImage loadedImage = result.getRaster();
+            if (loadedImage == null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE,
+                            "Unable to load the raster for granuleDescriptor " +result.granuleUrl+ " with request "+request.toString()
+                    );
+                }
+                return null;
+            }
+
+            // moving on
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Adding to mosaic granule " +result.granuleUrl);
+            }
+
+            // path management
+            File inputFile = DataUtilities.urlToFile(result.granuleUrl);
+            String canonicalPath = inputFile.getCanonicalPath();
+            // Remove ovr extension if present
+            String fileCanonicalPath = canonicalPath;
+            if (canonicalPath.endsWith(".ovr")) {
+                fileCanonicalPath = canonicalPath.substring(0, canonicalPath.length() - 4);
+            }
+
+            // add to the mosaic collection, with preprocessing
+            // TODO pluggable mechanism for processing (artifacts,etc...)
+            MosaicElement input = preProcessGranuleRaster(
+                                    loadedImage,
+                                    result,
+                                    fileCanonicalPath);
+            return new PreparedGranule(input, canonicalPath);
+        }
+
         private MosaicElement preProcessGranuleRaster(
             	RenderedImage granule,  
             	final GranuleLoadingResult result, 
@@ -553,14 +657,12 @@ class RasterLayerResponse{
                     LOGGER.fine("Support for alpha on input granule " + result.granuleUrl);
                 }
                 granule = new ImageWorker(granule).makeColorTransparent(inputTransparentColor).getRenderedImage();
-                hasAlpha=granule.getColorModel().hasAlpha();
                 if(!granule.getColorModel().hasAlpha()){
                     // if the resulting image has no transparency (can happen with IndexColorModel then we need to try component
                     // color model
                     granule = new ImageWorker(granule).forceComponentColorModel(true).makeColorTransparent(inputTransparentColor).getRenderedImage();
-                    hasAlpha=granule.getColorModel().hasAlpha();
                 }
-                assert hasAlpha;
+                assert granule.getColorModel().hasAlpha();
                 
             }
             PlanarImage alphaChannel=null;		
@@ -571,7 +673,7 @@ class RasterLayerResponse{
                     granule=w.getRenderedImage();
                 }
                 // doing this here gives the guarantee that I get the correct index for the transparency band
-                alphaIndex[0] = granule.getColorModel().getNumComponents() - 1;
+                final int[] alphaIndex = new int[] { granule.getColorModel().getNumComponents() - 1 };
                 assert alphaIndex[0]< granule.getSampleModel().getNumBands();
                 
                 //
@@ -1426,13 +1528,26 @@ class RasterLayerResponse{
         // the other levels can be computed accordingly knowing the scale
         // factors.            
         if (request.spatialRequestHelper.getComputedBBox() != null && request.spatialRequestHelper.getComputedRasterArea() != null && !request.isHeterogeneousGranules()){
+            final double[] requestedResolution = request.spatialRequestHelper.getComputedResolution();
+            if (request.getOverviewPolicy() == OverviewPolicy.COST && requestedResolution != null) {
+                // use the tile layout of the mosaic levels and the area to be read
+                final BoundingBox readBBox = request.spatialRequestHelper.getComputedBBox();
+                imageChoice = ReadParamsController.setCostBasedReadParams(
+                        requestedResolution,
+                        request.getDecimationPolicy(),
+                        baseReadParameters,
+                        request.rasterManager.getLevelLayouts(),
+                        readBBox.getWidth(),
+                        readBBox.getHeight());
+            } else {
             imageChoice = ReadParamsController.setReadParams(
-                    request.spatialRequestHelper.getComputedResolution(),
+                    requestedResolution,
                     request.getOverviewPolicy(),
                     request.getDecimationPolicy(),
                     baseReadParameters,
                     request.rasterManager,
                     request.rasterManager.overviewsController); // use general overviews controller
+            }
         } else {
             imageChoice = 0;
         }
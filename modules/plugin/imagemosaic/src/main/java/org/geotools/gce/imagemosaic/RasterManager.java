@@ -68,6 +68,7 @@ import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.SortByImpl;
 import org.geotools.gce.imagemosaic.OverviewsController.OverviewLevel;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
 import org.geotools.gce.imagemosaic.catalog.CatalogConfigurationBean;
 import org.geotools.gce.imagemosaic.catalog.GranuleCatalog;
 import org.geotools.gce.imagemosaic.catalog.GranuleCatalogSource;
@@ -856,6 +857,9 @@ public class RasterManager {
 
     OverviewsController overviewsController;
 
+    /** Whether the tile layout of the levels has been looked up, see {@link #getLevelLayouts()} */
+    private volatile boolean levelLayoutsLoaded;
+
     OverviewPolicy overviewPolicy;
 
     DecimationPolicy decimationPolicy;
@@ -959,6 +963,7 @@ public class RasterManager {
             }
             overviewsController = new OverviewsController(highRes,
                   numOverviews, overviews);
+            levelLayoutsLoaded = false;
             imposedEnvelope = configuration.getEnvelope();
         }
     }
@@ -1104,7 +1109,8 @@ public class RasterManager {
 	 * @return the overview policy which can be one of
 	 *         {@link OverviewPolicy#IGNORE},
 	 *         {@link OverviewPolicy#NEAREST},
-	 *         {@link OverviewPolicy#SPEED}, {@link OverviewPolicy#QUALITY}.
+	 *         {@link OverviewPolicy#SPEED}, {@link OverviewPolicy#QUALITY},
+	 *         {@link OverviewPolicy#COST}.
 	 *         Default is {@link OverviewPolicy#NEAREST}.
 	 */
 	private OverviewPolicy extractOverviewPolicy() {
@@ -1174,6 +1180,39 @@ public class RasterManager {
 
 	}
 
+	/**
+	 * Returns the levels of the mosaic for the {@link ReadCostModel}. Granules of an homogeneous
+	 * mosaic share the same layout, so the tile layout of the levels is looked up once, in a
+	 * sample granule.
+	 */
+	List<LevelLayout> getLevelLayouts() {
+	    if (!levelLayoutsLoaded) {
+	        try {
+	            final GranuleDescriptor[] sample = new GranuleDescriptor[1];
+	            final Query query = new Query(typeName);
+	            query.setMaxFeatures(1);
+	            granuleCatalog.getGranuleDescriptors(query, new GranuleCatalogVisitor() {
+
+	                public void visit(GranuleDescriptor granule, Object o) {
+	                    if (sample[0] == null) {
+	                        sample[0] = granule;
+	                    }
+	                }
+	            });
+	            if (sample[0] != null) {
+	                overviewsController.setGranuleLayouts(sample[0].getLevelLayouts());
+	            }
+	        } catch (Exception e) {
+	            if (LOGGER.isLoggable(Level.FINE)) {
+	                LOGGER.log(Level.FINE, "Could not determine the tile layout of the mosaic "
+	                        + "levels, read costs will be estimated on the resolutions alone", e);
+	            }
+	        }
+	        levelLayoutsLoaded = true;
+	    }
+	    return overviewsController.getLevelLayouts();
+	}
+
 	public PathType getPathType() {
 		return pathType;
 	}
@@ -0,0 +1,259 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.io.OverviewPolicy;
+
+/**
+ * Estimates the cost of reading an area out of each level (native resolution or overview) of a
+ * raster, combined with the subsampling needed to get close to the requested resolution, and
+ * picks the cheapest combination among the ones within the quality tolerance. Used to implement
+ * the {@link OverviewPolicy#COST} policy.
+ * <p>
+ * The cost accounts for the bytes read and pixels decoded, which depend on the tiles touched by
+ * the read rather than on the requested area alone: a read over a striped or coarsely tiled level
+ * decodes whole tile rows, even if a few pixels are needed. Subsampling does not reduce these, as
+ * the tiles are decoded anyway, but it reduces the pixels copied in the output.
+ * <p>
+ * A level is acceptable if its resolution is finer than the requested one, or coarser by no more
+ * than the quality tolerance, which can be set with the {@link #QUALITY_TOLERANCE_KEY} system
+ * variable (10% by default). The native resolution level is always acceptable.
+ */
+final class ReadCostModel {
+
+    private final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(ReadCostModel.class);
+
+    /**
+     * System variable controlling the quality tolerance of the cost based overview policy
+     */
+    public static final String QUALITY_TOLERANCE_KEY = "org.geotools.imagemosaic.cost.tolerance";
+
+    static final double DEFAULT_QUALITY_TOLERANCE = 0.1;
+
+    static final double QUALITY_TOLERANCE;
+
+    static {
+        double tolerance = DEFAULT_QUALITY_TOLERANCE;
+        final String prop = System.getProperty(QUALITY_TOLERANCE_KEY);
+        if (prop != null) {
+            try {
+                tolerance = Math.max(0, Double.parseDouble(prop));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Invalid value for " + QUALITY_TOLERANCE_KEY + ": "
+                        + prop + ", using the default " + DEFAULT_QUALITY_TOLERANCE, e);
+            }
+        }
+        QUALITY_TOLERANCE = tolerance;
+    }
+
+    /** Cost of decoding a pixel, relative to reading a byte */
+    static final double DECODE_COST = 1;
+
+    /** Cost of copying a pixel in the output, relative to reading a byte */
+    static final double COPY_COST = 0.5;
+
+    /** Fixed cost of accessing a tile (seek, decoder setup), in bytes read */
+    static final double TILE_COST = 4096;
+
+    /** Output size assumed when the area to be read is not known */
+    static final int NOMINAL_OUTPUT_SIZE = 1024;
+
+    /**
+     * The layout of a raster level, as far as the cost estimate is concerned
+     */
+    static final class LevelLayout {
+
+        final int imageChoice;
+
+        final double resolutionX;
+
+        final double resolutionY;
+
+        final int width;
+
+        final int height;
+
+        final int tileWidth;
+
+        final int tileHeight;
+
+        final int bytesPerPixel;
+
+        /**
+         * @param imageChoice The level index
+         * @param resolutionX The level resolution along the horizontal axis
+         * @param resolutionY The level resolution along the vertical axis
+         * @param width The level width, or 0 if unknown
+         * @param height The level height, or 0 if unknown
+         * @param tileWidth The level tile width, or 0 if unknown
+         * @param tileHeight The level tile height, or 0 if unknown
+         * @param bytesPerPixel The uncompressed pixel size, or 0 if unknown
+         */
+        LevelLayout(int imageChoice, double resolutionX, double resolutionY, int width,
+                int height, int tileWidth, int tileHeight, int bytesPerPixel) {
+            this.imageChoice = imageChoice;
+            this.resolutionX = resolutionX;
+            this.resolutionY = resolutionY;
+            this.width = width;
+            this.height = height;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.bytesPerPixel = bytesPerPixel > 0 ? bytesPerPixel : 1;
+        }
+
+        @Override
+        public String toString() {
+            return "LevelLayout[imageChoice=" + imageChoice + ", resolution=" + resolutionX + ","
+                    + resolutionY + ", size=" + width + "x" + height + ", tile=" + tileWidth
+                    + "x" + tileHeight + ", bytesPerPixel=" + bytesPerPixel + "]";
+        }
+    }
+
+    /**
+     * A level and subsampling combination, with its estimated cost
+     */
+    static final class ReadChoice {
+
+        final int imageChoice;
+
+        final int subsamplingX;
+
+        final int subsamplingY;
+
+        final double bytesRead;
+
+        final double pixelsDecoded;
+
+        final double cost;
+
+        ReadChoice(int imageChoice, int subsamplingX, int subsamplingY, double bytesRead,
+                double pixelsDecoded, double cost) {
+            this.imageChoice = imageChoice;
+            this.subsamplingX = subsamplingX;
+            this.subsamplingY = subsamplingY;
+            this.bytesRead = bytesRead;
+            this.pixelsDecoded = pixelsDecoded;
+            this.cost = cost;
+        }
+
+        @Override
+        public String toString() {
+            return "ReadChoice[imageChoice=" + imageChoice + ", subsampling=" + subsamplingX
+                    + "," + subsamplingY + ", bytesRead=" + bytesRead + ", pixelsDecoded="
+                    + pixelsDecoded + ", cost=" + cost + "]";
+        }
+    }
+
+    private ReadCostModel() {
+    }
+
+    /**
+     * Picks the cheapest level and subsampling combination
+     *
+     * @param levels The available levels, the native resolution one must be first
+     * @param requestedResolution The requested resolution
+     * @param areaWidth The width of the area to be read, in world units, or a non positive number
+     *        if unknown
+     * @param areaHeight The height of the area to be read, in world units, or a non positive
+     *        number if unknown
+     * @param decimation Whether subsampling can be used
+     * @param tolerance How much coarser than the requested one the resolution of the chosen
+     *        level can be, as a fraction of the requested resolution
+     * @return The cheapest choice
+     */
+    static ReadChoice pick(List<LevelLayout> levels, double[] requestedResolution,
+            double areaWidth, double areaHeight, boolean decimation, double tolerance) {
+        if (areaWidth <= 0 || areaHeight <= 0) {
+            areaWidth = requestedResolution[0] * NOMINAL_OUTPUT_SIZE;
+            areaHeight = requestedResolution[1] * NOMINAL_OUTPUT_SIZE;
+        }
+        final double maxResX = requestedResolution[0] * (1 + tolerance);
+        final double maxResY = requestedResolution[1] * (1 + tolerance);
+        ReadChoice best = null;
+        for (int i = 0; i < levels.size(); i++) {
+            LevelLayout level = levels.get(i);
+            if (i > 0 && (level.resolutionX > maxResX || level.resolutionY > maxResY)) {
+                continue;
+            }
+            ReadChoice choice = estimate(level, requestedResolution, areaWidth, areaHeight,
+                    decimation);
+            if (LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.finer("Estimated " + choice + " for " + level);
+            }
+            // on ties prefer the finer level, levels are sorted by resolution
+            if (best == null || choice.cost < best.cost) {
+                best = choice;
+            }
+        }
+        return best;
+    }
+
+    static ReadChoice estimate(LevelLayout level, double[] requestedResolution,
+            double areaWidth, double areaHeight, boolean decimation) {
+        // pixels to be read in the level
+        double pixelsX = Math.ceil(areaWidth / level.resolutionX);
+        double pixelsY = Math.ceil(areaHeight / level.resolutionY);
+        if (level.width > 0) {
+            pixelsX = Math.min(pixelsX, level.width);
+        }
+        if (level.height > 0) {
+            pixelsY = Math.min(pixelsY, level.height);
+        }
+        pixelsX = Math.max(1, pixelsX);
+        pixelsY = Math.max(1, pixelsY);
+
+        // subsampling, same logic as the decimation in ReadParamsController
+        int subsamplingX = 1;
+        int subsamplingY = 1;
+        if (decimation) {
+            subsamplingX = (int) Math.max(1, Math.min(pixelsX,
+                    Math.floor(requestedResolution[0] / level.resolutionX)));
+            subsamplingY = (int) Math.max(1, Math.min(pixelsY,
+                    Math.floor(requestedResolution[1] / level.resolutionY)));
+        }
+
+        // tiles touched, on average, by a read of the given size at a random position
+        double tilesX = tiles(pixelsX, level.tileWidth, level.width);
+        double tilesY = tiles(pixelsY, level.tileHeight, level.height);
+        double decodedX = level.tileWidth > 0 ? tilesX * level.tileWidth : pixelsX;
+        double decodedY = level.tileHeight > 0 ? tilesY * level.tileHeight : pixelsY;
+        final double pixelsDecoded = decodedX * decodedY;
+        final double bytesRead = pixelsDecoded * level.bytesPerPixel + tilesX * tilesY
+                * TILE_COST;
+        final double pixelsCopied = Math.ceil(pixelsX / subsamplingX)
+                * Math.ceil(pixelsY / subsamplingY);
+        final double cost = bytesRead + pixelsDecoded * DECODE_COST + pixelsCopied * COPY_COST;
+        return new ReadChoice(level.imageChoice, subsamplingX, subsamplingY, bytesRead,
+                pixelsDecoded, cost);
+    }
+
+    private static double tiles(double pixels, int tileSize, int size) {
+        if (tileSize <= 0) {
+            return 1;
+        }
+        double tiles = (pixels - 1) / tileSize + 1;
+        if (size > 0) {
+            tiles = Math.min(tiles, Math.ceil(size / (double) tileSize));
+        }
+        return tiles;
+    }
+}
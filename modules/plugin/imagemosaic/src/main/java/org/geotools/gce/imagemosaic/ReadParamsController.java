@@ -17,6 +17,7 @@
 package org.geotools.gce.imagemosaic;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
@@ -26,6 +27,8 @@ import org.geotools.coverage.grid.io.OverviewPolicy;
 import org.geotools.factory.Hints;
 import org.geotools.gce.imagemosaic.OverviewsController.OverviewLevel;
 import org.geotools.gce.imagemosaic.RasterManager.SpatialDomainManager;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
+import org.geotools.gce.imagemosaic.ReadCostModel.ReadChoice;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.util.Utilities;
 import org.opengis.referencing.operation.TransformException;
@@ -176,6 +179,11 @@ public class ReadParamsController {
             if (overviewPolicy.equals(OverviewPolicy.IGNORE) && decimationPolicy.equals(DecimationPolicy.DISALLOW))
                     return imageChoice;
 
+            if (overviewPolicy == OverviewPolicy.COST && requestedResolution != null) {
+                return setCostBasedReadParams(requestedResolution, decimationPolicy, readParams,
+                        overviewController.getLevelLayouts(), 0, 0);
+            }
+
             if (!overviewPolicy.equals(OverviewPolicy.IGNORE)) {
                 imageChoice = overviewController.pickOverviewLevel(overviewPolicy, requestedResolution);
             }
@@ -187,5 +195,33 @@ public class ReadParamsController {
             return imageChoice;
 
     }
+
+    /**
+     * Picks the level and subsampling combination with the lowest estimated read cost, as per
+     * the {@link OverviewPolicy#COST} policy, and sets the subsampling in the read parameters.
+     * 
+     * @param requestedResolution the requested resolution
+     * @param decimationPolicy whether subsampling can be used
+     * @param readParams the read parameters to be filled
+     * @param levels the available levels, sorted by resolution, with their tile layout, if known
+     * @param areaWidth the width of the area to be read, in world units, or 0 if not known
+     * @param areaHeight the height of the area to be read, in world units, or 0 if not known
+     * @return the index of the level to be read
+     */
+    static int setCostBasedReadParams(
+                    final double[] requestedResolution,
+                    final DecimationPolicy decimationPolicy,
+                    final ImageReadParam readParams,
+                    final List<LevelLayout> levels,
+                    final double areaWidth,
+                    final double areaHeight) {
+            Utilities.ensureNonNull("readParams", readParams);
+            Utilities.ensureNonNull("requestedResolution", requestedResolution);
+            final boolean decimation = !DecimationPolicy.DISALLOW.equals(decimationPolicy);
+            final ReadChoice choice = ReadCostModel.pick(levels, requestedResolution, areaWidth,
+                    areaHeight, decimation, ReadCostModel.QUALITY_TOLERANCE);
+            readParams.setSourceSubsampling(choice.subsamplingX, choice.subsamplingY, 0, 0);
+            return choice.imageChoice;
+    }
 }
 
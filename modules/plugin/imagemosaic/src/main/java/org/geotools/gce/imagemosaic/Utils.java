@@ -148,12 +148,21 @@ public class Utils {
 
     public final static Key MOSAIC_READER = new Key(ImageMosaicReader.class);
 
+    /**
+     * Hint providing the {@link GranuleReaderPool} used to keep the granule readers open between
+     * direct reads, can be shared among several mosaics
+     */
+    public final static Key GRANULE_READER_POOL = new Key(GranuleReaderPool.class);
+
     public static final String RANGE_SPLITTER_CHAR = ";";
 
     public final static String INDEXER_PROPERTIES = "indexer.properties";
 
     public final static String INDEXER_XML = "indexer.xml";
 
+    /** The file storing the fingerprints of the granules of an incrementally harvested mosaic */
+    public final static String FINGERPRINTS_FILE = "granules.fingerprints";
+
     private static JAXBContext CONTEXT = null;
     
     public final static String PAM_DATASET = "PamDataset";
@@ -226,6 +235,13 @@ public class Utils {
         public final static String HARVEST_DIRECTORY = "HarvestingDirectory";
         public final static String CAN_BE_EMPTY = "CanBeEmpty";
 
+        /**
+         * Sets if the harvest should skip the files that did not change since the last run, and
+         * remove the granules of the deleted ones (default is FALSE)<br/>
+         * {@value TRUE|FALSE}
+         */
+        public final static String INCREMENTAL = "Incremental";
+
         /** Sets if the reader should look for auxiliary metadata PAM files */
         public static final String CHECK_AUXILIARY_METADATA = "CheckAuxiliaryMetadata";
 
@@ -237,6 +253,13 @@ public class Utils {
         public static final String PROPERTY_COLLECTORS = "PropertyCollectors";
         public final static String CACHING= "Caching";
         public static final String WRAP_STORE = "WrapStore";
+
+        /**
+         * When caching, keep the granule index in a memory mapped file rather than on the heap
+         * (default is FALSE)<br/>
+         * {@value TRUE|FALSE}
+         */
+        public static final String MAPPED_INDEX = "MappedIndex";
     }
         /**
      * Extracts a bbox from a filter in case there is at least one.
@@ -388,7 +411,8 @@ public class Utils {
                 FileFilterUtils.suffixFileFilter("sample_image"),
                 FileFilterUtils.nameFileFilter("error.txt.lck"),
                 FileFilterUtils.suffixFileFilter("xml"),
-                FileFilterUtils.suffixFileFilter("db"));
+                FileFilterUtils.suffixFileFilter("db"),
+                FileFilterUtils.nameFileFilter(FINGERPRINTS_FILE));
         return filesFilter;
     }
 
@@ -400,7 +424,8 @@ public class Utils {
                 FileFilterUtils.suffixFileFilter("shx"), FileFilterUtils.suffixFileFilter("qix"),
                 FileFilterUtils.suffixFileFilter("lyr"), FileFilterUtils.suffixFileFilter("prj"),
                 FileFilterUtils.suffixFileFilter("sample_image"),
-                FileFilterUtils.suffixFileFilter("db"));
+                FileFilterUtils.suffixFileFilter("db"),
+                FileFilterUtils.nameFileFilter(FINGERPRINTS_FILE));
         return filesFilter;
     }
 
@@ -587,6 +612,10 @@ public class Utils {
 			    catalogConfigurationBean.setCaching(Boolean.valueOf(Utils.DEFAULT_CACHING_BEHAVIOR));
 			}
 		}
+		if (properties.containsKey(Prop.MAPPED_INDEX)) {
+		    catalogConfigurationBean.setMappedIndex(Boolean.valueOf(properties.getProperty(
+		            Prop.MAPPED_INDEX).trim()));
+		}
 
 		//
 		// name is not optional
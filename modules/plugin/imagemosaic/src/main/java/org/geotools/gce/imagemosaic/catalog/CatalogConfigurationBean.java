@@ -38,6 +38,9 @@ public class CatalogConfigurationBean {
     /** we want to use caching for our index. */
     private boolean caching = Utils.DEFAULT_CONFIGURATION_CACHING;
 
+    /** when caching, keep the index in a memory mapped file instead of the heap */
+    private boolean mappedIndex;
+
     private boolean heterogeneous;
 
     /**
@@ -95,6 +98,14 @@ public class CatalogConfigurationBean {
         this.caching = caching;
     }
 
+    public boolean isMappedIndex() {
+        return mappedIndex;
+    }
+
+    public void setMappedIndex(boolean mappedIndex) {
+        this.mappedIndex = mappedIndex;
+    }
+
     /**
      * @return the suggestedSPI
      */
@@ -143,9 +143,14 @@ public abstract class GranuleCatalogFactory {
 		if (overrideParams != null && !overrideParams.isEmpty()) {
 		    params.putAll(overrideParams);
 		}
-		final GranuleCatalog catalog = catalogConfigurationBean.isCaching()?
-		        new STRTreeGranuleCatalog(params,spi,hints):
-		            new CachingDataStoreGranuleCatalog(new GTDataStoreGranuleCatalog(params,false,spi,hints));
+		final GranuleCatalog catalog;
+		if (!catalogConfigurationBean.isCaching()) {
+		    catalog = new CachingDataStoreGranuleCatalog(new GTDataStoreGranuleCatalog(params,false,spi,hints));
+		} else if (catalogConfigurationBean.isMappedIndex()) {
+		    catalog = new MappedGranuleCatalog(params,spi,hints);
+		} else {
+		    catalog = new STRTreeGranuleCatalog(params,spi,hints);
+		}
 
 		return catalog;
 	}
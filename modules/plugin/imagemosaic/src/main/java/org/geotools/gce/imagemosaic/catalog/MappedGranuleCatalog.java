@@ -0,0 +1,396 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.io.footprint.MultiLevelROI;
+import org.geotools.data.DataStoreFactorySpi;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.Transaction;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.Utils;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.SoftValueHashMap;
+import org.geotools.util.Utilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A caching {@link GranuleCatalog} that, unlike {@link STRTreeGranuleCatalog}, keeps the granules
+ * off the heap: on first access the whole wrapped catalog is copied into a
+ * {@link PackedGranuleIndex}, a memory mapped file holding a packed R-tree and the granule
+ * attributes in columnar form.
+ * <p>
+ * Searches walk the mapped tree, rebuild the features of the granules it hits, and evaluate the
+ * query filter on them. {@link GranuleDescriptor} instances are created only for the granules
+ * matching a request, and kept in a soft cache, so that the heap usage no longer grows with the
+ * size of the mosaic.
+ * <p>
+ * The index file is a private copy of the catalog, created in the temporary directory and
+ * removed on {@link #dispose()}. Like {@link STRTreeGranuleCatalog}, the catalog is read only.
+ */
+class MappedGranuleCatalog extends GranuleCatalog {
+
+    /** Logger. */
+    final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(MappedGranuleCatalog.class);
+
+    private GTDataStoreGranuleCatalog wrappedCatalogue;
+
+    private final String typeName;
+
+    private PackedGranuleIndex index;
+
+    private final SoftValueHashMap<String, GranuleDescriptor> descriptorsCache = new SoftValueHashMap<String, GranuleDescriptor>();
+
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+
+    public MappedGranuleCatalog(final Properties params, DataStoreFactorySpi spi,
+            final Hints hints) {
+        super(hints);
+        Utilities.ensureNonNull("params", params);
+        this.wrappedCatalogue = new GTDataStoreGranuleCatalog(params, false, spi, hints);
+        String typeName = (String) params.get(Utils.Prop.TYPENAME);
+        if (typeName == null) {
+            typeName = wrappedCatalogue.typeNames.iterator().next();
+        }
+        this.typeName = typeName;
+    }
+
+    /**
+     * Builds the index if missing, upgrading the read lock to a write lock while doing so
+     */
+    private void checkIndex(Lock readLock) throws IOException {
+        if (index != null) {
+            return;
+        }
+        final Lock writeLock = rwLock.writeLock();
+        try {
+            readLock.unlock();
+            writeLock.lock();
+            if (index == null) {
+                index = createIndex();
+            }
+        } finally {
+            readLock.lock();
+            writeLock.unlock();
+        }
+    }
+
+    private PackedGranuleIndex createIndex() throws IOException {
+        final SimpleFeatureType schema = wrappedCatalogue.getType(typeName);
+        final File file = File.createTempFile("granules", ".gmi");
+        final long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            PackedGranuleIndex.Builder builder = new PackedGranuleIndex.Builder(file, schema,
+                    PackedGranuleIndex.DEFAULT_NODE_SIZE);
+            SimpleFeatureIterator it = null;
+            try {
+                it = wrappedCatalogue.getGranules(new Query(typeName)).features();
+                while (it.hasNext()) {
+                    builder.add(it.next());
+                }
+            } catch (IOException e) {
+                builder.dispose();
+                throw e;
+            } finally {
+                if (it != null) {
+                    it.close();
+                }
+            }
+            builder.build();
+
+            PackedGranuleIndex result = new PackedGranuleIndex(file, schema);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Built the granule index " + file + " with " + result.size()
+                        + " granules in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            success = true;
+            return result;
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Visits the features of the granules matching the query
+     */
+    private interface MatchVisitor {
+        void visit(SimpleFeature feature);
+    }
+
+    private void visitMatches(Query q, MatchVisitor visitor) {
+        final Filter filter = q.getFilter() != null ? q.getFilter() : Filter.INCLUDE;
+        final int maxGranules = q.getMaxFeatures();
+        final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(index.schema);
+        int numGranules = 0;
+        for (int row : index.query(extractAndCombineBBox(filter))) {
+            if (maxGranules > 0 && numGranules >= maxGranules) {
+                break;
+            }
+            SimpleFeature feature = index.getFeature(row, builder);
+            if (filter.evaluate(feature)) {
+                visitor.visit(feature);
+                numGranules++;
+            }
+        }
+    }
+
+    private Envelope extractAndCombineBBox(Filter filter) {
+        final Utils.BBOXFilterExtractor bboxExtractor = new Utils.BBOXFilterExtractor();
+        filter.accept(bboxExtractor, null);
+        ReferencedEnvelope requestedBBox = bboxExtractor.getBBox();
+        Envelope bounds = index.getBounds();
+        if (requestedBBox != null) {
+            return bounds.intersection(requestedBBox);
+        }
+        return bounds;
+    }
+
+    private GranuleDescriptor getGranuleDescriptor(SimpleFeature sf) {
+        final String featureId = sf.getID();
+        synchronized (descriptorsCache) {
+            GranuleDescriptor granule = descriptorsCache.get(featureId);
+            if (granule != null) {
+                return granule;
+            }
+        }
+        try {
+            MultiLevelROI footprint = getGranuleFootprint(sf);
+            if (footprint != null && footprint.isEmpty()) {
+                return null;
+            }
+            GranuleDescriptor granule = new GranuleDescriptor(sf,
+                    wrappedCatalogue.suggestedRasterSPI, wrappedCatalogue.pathType,
+                    wrappedCatalogue.locationAttribute, wrappedCatalogue.parentLocation,
+                    footprint, wrappedCatalogue.heterogeneous, hints);
+            synchronized (descriptorsCache) {
+                descriptorsCache.put(featureId, granule);
+            }
+            return granule;
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Skipping invalid granule", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void getGranuleDescriptors(Query q, final GranuleCatalogVisitor visitor)
+            throws IOException {
+        Utilities.ensureNonNull("q", q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            checkIndex(lock);
+            visitMatches(q, new MatchVisitor() {
+
+                @Override
+                public void visit(SimpleFeature feature) {
+                    GranuleDescriptor granule = getGranuleDescriptor(feature);
+                    if (granule != null) {
+                        visitor.visit(granule, null);
+                    }
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SimpleFeatureCollection getGranules(Query q) throws IOException {
+        Utilities.ensureNonNull("q", q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            checkIndex(lock);
+            final ListFeatureCollection retVal = new ListFeatureCollection(index.schema);
+            visitMatches(q, new MatchVisitor() {
+
+                @Override
+                public void visit(SimpleFeature feature) {
+                    retVal.add(feature);
+                }
+            });
+            return retVal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getGranulesCount(Query q) throws IOException {
+        return wrappedCatalogue.getGranulesCount(mergeHints(q));
+    }
+
+    @Override
+    public void computeAggregateFunction(Query query, FeatureCalc function) throws IOException {
+        query = mergeHints(query);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            wrappedCatalogue.computeAggregateFunction(query, function);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public BoundingBox getBounds(String typeName) {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getBounds(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SimpleFeatureType getType(String typeName) throws IOException {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getType(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] { typeName };
+    }
+
+    /**
+     * Sorting is not supported, the granules are returned in catalog order
+     */
+    @Override
+    public QueryCapabilities getQueryCapabilities(String typeName) {
+        return new QueryCapabilities();
+    }
+
+    @Override
+    public void dispose() {
+        final Lock l = rwLock.writeLock();
+        try {
+            l.lock();
+            if (index != null) {
+                index.close();
+                if (!index.file.delete()) {
+                    index.file.deleteOnExit();
+                }
+            }
+            if (wrappedCatalogue != null) {
+                try {
+                    wrappedCatalogue.dispose();
+                } catch (Exception e) {
+                    if (LOGGER.isLoggable(Level.FINE))
+                        LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+                }
+            }
+            if (multiScaleROIProvider != null) {
+                multiScaleROIProvider.dispose();
+            }
+        } finally {
+            index = null;
+            wrappedCatalogue = null;
+            multiScaleROIProvider = null;
+            synchronized (descriptorsCache) {
+                descriptorsCache.clear();
+            }
+            l.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException
+     */
+    private void checkStore() throws IllegalStateException {
+        if (wrappedCatalogue == null)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+    }
+
+    @Override
+    public void addGranules(String typeName, Collection<SimpleFeature> granules,
+            Transaction transaction) throws IOException {
+        throw new UnsupportedOperationException("Unsupported operation");
+    }
+
+    @Override
+    public void createType(String namespace, String typeName, String typeSpec)
+            throws IOException, SchemaException {
+        throw new UnsupportedOperationException("Unsupported operation");
+    }
+
+    @Override
+    public void createType(SimpleFeatureType featureType) throws IOException {
+        throw new UnsupportedOperationException("Unsupported operation");
+    }
+
+    @Override
+    public void createType(String identification, String typeSpec) throws SchemaException,
+            IOException {
+        throw new UnsupportedOperationException("Unsupported operation");
+    }
+
+    @Override
+    public int removeGranules(Query query) {
+        throw new UnsupportedOperationException("Unsupported operation");
+    }
+
+    @Override
+    public void removeType(String typeName) throws IOException {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            wrappedCatalogue.removeType(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
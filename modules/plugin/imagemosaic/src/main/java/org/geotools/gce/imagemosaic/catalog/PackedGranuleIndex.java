@@ -0,0 +1,771 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * A read only granule index stored in a memory mapped file, made of a packed Hilbert R-tree
+ * over the granule bounds, and of one column per granule attribute (footprint, location, time,
+ * elevation and any additional domain).
+ * <p>
+ * Nothing but the file header lives on the heap: the tree is searched straight out of the mapped
+ * file, and a {@link SimpleFeature} is rebuilt out of the columns only for the granules hit by a
+ * search. Fixed size values (dates, numbers, booleans) are stored as a presence flag followed by
+ * 8 bytes, variable size ones (geometries as WKB, strings as UTF-8) as an offset/length pair
+ * pointing into a per column blob.
+ * <p>
+ * The file layout is:
+ * <ul>
+ * <li>magic, version and header length</li>
+ * <li>header: granule count, node size, level ends, bounds, column descriptions</li>
+ * <li>tree: the node boxes (minx, miny, maxx, maxy), followed by the node indices. The first
+ * nodes are the granules in Hilbert order, pointing to the granule row, the others point to the
+ * position of their first child</li>
+ * <li>the columns, in the order of the feature type attributes, preceded by the feature ids</li>
+ * </ul>
+ */
+class PackedGranuleIndex {
+
+    final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(PackedGranuleIndex.class);
+
+    static final int MAGIC = 0x474D4958;
+
+    static final int VERSION = 1;
+
+    static final int DEFAULT_NODE_SIZE = 16;
+
+    static final byte GEOMETRY = 0;
+
+    static final byte STRING = 1;
+
+    static final byte DATE = 2;
+
+    static final byte DOUBLE = 3;
+
+    static final byte LONG = 4;
+
+    static final byte BOOLEAN = 5;
+
+    /** Bytes per row in fixed size columns: presence flag and value */
+    static final int FIXED_ROW_SIZE = 9;
+
+    /** Bytes per row in the offsets of variable size columns: offset and length */
+    static final int VARIABLE_ROW_SIZE = 12;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    /**
+     * A mapped column
+     */
+    static final class Column {
+        final String name;
+
+        final byte type;
+
+        final ByteBuffer values;
+
+        final ByteBuffer blob;
+
+        Column(String name, byte type, ByteBuffer values, ByteBuffer blob) {
+            this.name = name;
+            this.type = type;
+            this.values = values;
+            this.blob = blob;
+        }
+
+        /**
+         * Reads the value of a row. Numbers and dates are returned in their widest type, the
+         * feature builder takes care of converting them to the attribute binding
+         */
+        Object read(int row) {
+            if (blob == null) {
+                int position = row * FIXED_ROW_SIZE;
+                if (values.get(position) == 0) {
+                    return null;
+                }
+                switch (type) {
+                case DATE:
+                    return new Date(values.getLong(position + 1));
+                case DOUBLE:
+                    return values.getDouble(position + 1);
+                case LONG:
+                    return values.getLong(position + 1);
+                default:
+                    return values.getLong(position + 1) != 0;
+                }
+            }
+
+            int position = row * VARIABLE_ROW_SIZE;
+            int length = values.getInt(position + 8);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            // absolute bulk gets are not available, use a private view to stay thread safe
+            ByteBuffer view = blob.duplicate();
+            view.position((int) values.getLong(position));
+            view.get(bytes);
+            if (type == GEOMETRY) {
+                try {
+                    return new WKBReader(GEOMETRY_FACTORY).read(bytes);
+                } catch (ParseException e) {
+                    throw new IllegalStateException("Invalid geometry in column " + name
+                            + " at row " + row, e);
+                }
+            }
+            return new String(bytes, UTF8);
+        }
+    }
+
+    final File file;
+
+    final SimpleFeatureType schema;
+
+    final int count;
+
+    final int nodeSize;
+
+    final int numNodes;
+
+    final int[] levelEnds;
+
+    final Envelope bounds;
+
+    final DoubleBuffer boxes;
+
+    final IntBuffer indices;
+
+    final Column fids;
+
+    final Column[] columns;
+
+    /** The mapped buffers, to be unmapped on close */
+    final List<MappedByteBuffer> buffers = new ArrayList<MappedByteBuffer>();
+
+    /**
+     * Maps an index file built by a {@link Builder}
+     */
+    PackedGranuleIndex(File file, SimpleFeatureType schema) throws IOException {
+        this.file = file;
+        this.schema = schema;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer prefix = read(channel, 0, 12);
+            if (prefix.getInt() != MAGIC) {
+                throw new IOException(file + " is not a granule index file");
+            }
+            int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported granule index version " + version);
+            }
+            int headerLength = prefix.getInt();
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(channel,
+                    12, headerLength).array()));
+            count = header.readInt();
+            nodeSize = header.readInt();
+            numNodes = header.readInt();
+            levelEnds = new int[header.readInt()];
+            for (int i = 0; i < levelEnds.length; i++) {
+                levelEnds[i] = header.readInt();
+            }
+            double minX = header.readDouble();
+            double minY = header.readDouble();
+            double maxX = header.readDouble();
+            double maxY = header.readDouble();
+            bounds = count > 0 ? new Envelope(minX, maxX, minY, maxY) : new Envelope();
+
+            long position = 12 + headerLength;
+            boxes = map(channel, position, numNodes * 32l).asDoubleBuffer();
+            position += numNodes * 32l;
+            indices = map(channel, position, numNodes * 4l).asIntBuffer();
+            position += numNodes * 4l;
+
+            int columnCount = header.readInt();
+            if (columnCount != schema.getAttributeCount() + 1) {
+                throw new IOException("The granule index has " + columnCount
+                        + " columns, but the granule type has " + schema.getAttributeCount()
+                        + " attributes");
+            }
+            Column[] mapped = new Column[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                String name = header.readUTF();
+                byte type = header.readByte();
+                long valuesLength = header.readLong();
+                long blobLength = header.readLong();
+                ByteBuffer values = map(channel, position, valuesLength);
+                position += valuesLength;
+                ByteBuffer blob = null;
+                if (type == GEOMETRY || type == STRING) {
+                    blob = map(channel, position, blobLength);
+                    position += blobLength;
+                }
+                mapped[i] = new Column(name, type, values, blob);
+                if (i > 0 && !name.equals(schema.getDescriptor(i - 1).getLocalName())) {
+                    throw new IOException("The granule index column " + name
+                            + " does not match the granule type attribute "
+                            + schema.getDescriptor(i - 1).getLocalName());
+                }
+            }
+            fids = mapped[0];
+            columns = Arrays.copyOfRange(mapped, 1, mapped.length);
+        } catch (IOException e) {
+            close();
+            throw e;
+        } finally {
+            // the mappings stay valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    private ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the granule index file " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size)
+            throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The granule index section at " + position + " is " + size
+                    + " bytes long, exceeding the max mappable size");
+        }
+        MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, size);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * The number of granules in the index
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * The bounds of all the granules, a null envelope if the index is empty
+     */
+    Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * Returns the rows of the granules whose bounds intersect the specified envelope, in
+     * ascending order (that is, in the order the granules have been added to the index)
+     */
+    int[] query(Envelope envelope) {
+        if (count == 0 || envelope == null || envelope.isNull()) {
+            return new int[0];
+        }
+        final double minX = envelope.getMinX();
+        final double minY = envelope.getMinY();
+        final double maxX = envelope.getMaxX();
+        final double maxY = envelope.getMaxY();
+
+        int[] results = new int[16];
+        int found = 0;
+        // pairs of node position and level still to be visited
+        int[] stack = new int[16];
+        int top = 0;
+        int node = numNodes - 1;
+        int level = levelEnds.length - 1;
+        while (true) {
+            final int end = Math.min(node + nodeSize, levelEnds[level]);
+            for (int pos = node; pos < end; pos++) {
+                final int box = pos * 4;
+                if (maxX < boxes.get(box) || maxY < boxes.get(box + 1)
+                        || minX > boxes.get(box + 2) || minY > boxes.get(box + 3)) {
+                    continue;
+                }
+                final int index = indices.get(pos);
+                if (pos < count) {
+                    if (found == results.length) {
+                        results = Arrays.copyOf(results, found * 2);
+                    }
+                    results[found++] = index;
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = index;
+                    stack[top++] = level - 1;
+                }
+            }
+            if (top == 0) {
+                break;
+            }
+            level = stack[--top];
+            node = stack[--top];
+        }
+
+        results = Arrays.copyOf(results, found);
+        Arrays.sort(results);
+        return results;
+    }
+
+    /**
+     * Rebuilds the feature stored at the specified row
+     *
+     * @param builder A builder for the index feature type, reused across calls by the same thread
+     */
+    SimpleFeature getFeature(int row, SimpleFeatureBuilder builder) {
+        for (int i = 0; i < columns.length; i++) {
+            builder.set(i, columns[i].read(row));
+        }
+        return builder.buildFeature((String) fids.read(row));
+    }
+
+    /**
+     * Unmaps the file. The index must not be used anymore after this call, callers are in charge
+     * of making sure no other thread is reading from it.
+     */
+    void close() {
+        for (MappedByteBuffer buffer : buffers) {
+            NIOUtilities.clean(buffer, true);
+        }
+        buffers.clear();
+    }
+
+    static byte getColumnType(AttributeDescriptor descriptor) {
+        Class<?> binding = descriptor.getType().getBinding();
+        if (Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        } else if (Date.class.isAssignableFrom(binding)) {
+            return DATE;
+        } else if (Double.class.equals(binding) || Float.class.equals(binding)
+                || java.math.BigDecimal.class.equals(binding)) {
+            return DOUBLE;
+        } else if (Number.class.isAssignableFrom(binding)) {
+            return LONG;
+        } else if (Boolean.class.equals(binding)) {
+            return BOOLEAN;
+        }
+        return STRING;
+    }
+
+    /**
+     * Writes the values of a column into temporary files, to be appended to the index file once
+     * all the granules have been added
+     */
+    static final class ColumnWriter {
+        final String name;
+
+        final byte type;
+
+        final File valuesFile;
+
+        final File blobFile;
+
+        final DataOutputStream values;
+
+        final DataOutputStream blob;
+
+        final WKBWriter wkbWriter;
+
+        long valuesLength;
+
+        long blobLength;
+
+        ColumnWriter(String name, byte type, File directory) throws IOException {
+            this.name = name;
+            this.type = type;
+            this.valuesFile = File.createTempFile("column", ".tmp", directory);
+            this.values = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                    valuesFile)));
+            if (type == GEOMETRY || type == STRING) {
+                this.blobFile = File.createTempFile("column", ".tmp", directory);
+                this.blob = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                        blobFile)));
+            } else {
+                this.blobFile = null;
+                this.blob = null;
+            }
+            this.wkbWriter = type == GEOMETRY ? new WKBWriter() : null;
+        }
+
+        void write(Object value) throws IOException {
+            if (blob == null) {
+                valuesLength += FIXED_ROW_SIZE;
+                if (value == null) {
+                    values.writeByte(0);
+                    values.writeLong(0);
+                    return;
+                }
+                values.writeByte(1);
+                switch (type) {
+                case DATE:
+                    values.writeLong(((Date) value).getTime());
+                    break;
+                case DOUBLE:
+                    values.writeDouble(((Number) value).doubleValue());
+                    break;
+                case LONG:
+                    values.writeLong(((Number) value).longValue());
+                    break;
+                default:
+                    values.writeLong(((Boolean) value) ? 1 : 0);
+                }
+                return;
+            }
+
+            valuesLength += VARIABLE_ROW_SIZE;
+            if (value == null) {
+                values.writeLong(0);
+                values.writeInt(-1);
+                return;
+            }
+            byte[] bytes;
+            if (type == GEOMETRY) {
+                bytes = wkbWriter.write((Geometry) value);
+            } else {
+                String converted = Converters.convert(value, String.class);
+                bytes = (converted != null ? converted : value.toString()).getBytes(UTF8);
+            }
+            values.writeLong(blobLength);
+            values.writeInt(bytes.length);
+            blob.write(bytes);
+            blobLength += bytes.length;
+        }
+
+        void close() throws IOException {
+            values.close();
+            if (blob != null) {
+                blob.close();
+            }
+        }
+
+        void copyTo(DataOutputStream out) throws IOException {
+            Files.copy(valuesFile.toPath(), out);
+            if (blobFile != null) {
+                Files.copy(blobFile.toPath(), out);
+            }
+        }
+
+        void dispose() {
+            try {
+                close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the temporary column files", e);
+            }
+            valuesFile.delete();
+            if (blobFile != null) {
+                blobFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Builds an index file streaming over the granules. Only the granule bounds are kept in
+     * memory until {@link #build()} sorts them along the Hilbert curve and packs the tree.
+     */
+    static final class Builder {
+
+        static final int HILBERT_MAX = (1 << 16) - 1;
+
+        final File file;
+
+        final SimpleFeatureType schema;
+
+        final int nodeSize;
+
+        final ColumnWriter[] writers;
+
+        final Envelope bounds = new Envelope();
+
+        double[] granuleBoxes = new double[1024];
+
+        int count;
+
+        Builder(File file, SimpleFeatureType schema, int nodeSize) throws IOException {
+            if (nodeSize < 2) {
+                throw new IllegalArgumentException("The node size must be at least 2");
+            }
+            this.file = file;
+            this.schema = schema;
+            this.nodeSize = nodeSize;
+            this.writers = new ColumnWriter[schema.getAttributeCount() + 1];
+            File directory = file.getAbsoluteFile().getParentFile();
+            try {
+                writers[0] = new ColumnWriter("", STRING, directory);
+                for (int i = 1; i < writers.length; i++) {
+                    AttributeDescriptor descriptor = schema.getDescriptor(i - 1);
+                    writers[i] = new ColumnWriter(descriptor.getLocalName(),
+                            getColumnType(descriptor), directory);
+                }
+            } catch (IOException e) {
+                dispose();
+                throw e;
+            }
+        }
+
+        /**
+         * Adds a granule. Granules without a geometry cannot be hit by any search and are skipped.
+         */
+        void add(SimpleFeature feature) throws IOException {
+            Geometry geometry = (Geometry) feature.getDefaultGeometry();
+            if (geometry == null || geometry.isEmpty()) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Skipping granule " + feature.getID() + " without a geometry");
+                }
+                return;
+            }
+            Envelope envelope = geometry.getEnvelopeInternal();
+            if ((count + 1) * 4 > granuleBoxes.length) {
+                granuleBoxes = Arrays.copyOf(granuleBoxes, granuleBoxes.length * 2);
+            }
+            int box = count * 4;
+            granuleBoxes[box] = envelope.getMinX();
+            granuleBoxes[box + 1] = envelope.getMinY();
+            granuleBoxes[box + 2] = envelope.getMaxX();
+            granuleBoxes[box + 3] = envelope.getMaxY();
+            bounds.expandToInclude(envelope);
+
+            writers[0].write(feature.getID());
+            for (int i = 1; i < writers.length; i++) {
+                writers[i].write(feature.getAttribute(i - 1));
+            }
+            count++;
+        }
+
+        /**
+         * Packs the tree and writes out the index file
+         */
+        void build() throws IOException {
+            try {
+                for (ColumnWriter writer : writers) {
+                    writer.close();
+                }
+
+                // sort the granules along the Hilbert curve, packing the row in the lower bits
+                final long[] keys = new long[count];
+                final double width = bounds.getWidth();
+                final double height = bounds.getHeight();
+                for (int i = 0; i < count; i++) {
+                    int box = i * 4;
+                    double cx = (granuleBoxes[box] + granuleBoxes[box + 2]) / 2;
+                    double cy = (granuleBoxes[box + 1] + granuleBoxes[box + 3]) / 2;
+                    int x = width > 0 ? (int) (HILBERT_MAX * (cx - bounds.getMinX()) / width) : 0;
+                    int y = height > 0 ? (int) (HILBERT_MAX * (cy - bounds.getMinY()) / height)
+                            : 0;
+                    keys[i] = ((hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+                }
+                Arrays.sort(keys);
+
+                // compute the level sizes, the root is the last node
+                List<Integer> ends = new ArrayList<Integer>();
+                int numNodes = count;
+                ends.add(numNodes);
+                if (count > 0) {
+                    int n = count;
+                    do {
+                        n = (n + nodeSize - 1) / nodeSize;
+                        numNodes += n;
+                        ends.add(numNodes);
+                    } while (n != 1);
+                }
+
+                final double[] nodeBoxes = new double[numNodes * 4];
+                final int[] nodeIndices = new int[numNodes];
+                for (int i = 0; i < count; i++) {
+                    int row = (int) (keys[i] & 0x7FFFFFFF);
+                    System.arraycopy(granuleBoxes, row * 4, nodeBoxes, i * 4, 4);
+                    nodeIndices[i] = row;
+                }
+                granuleBoxes = null;
+                int pos = 0;
+                int write = count;
+                for (int level = 0; level < ends.size() - 1; level++) {
+                    int end = ends.get(level);
+                    while (pos < end) {
+                        int start = pos;
+                        int last = Math.min(pos + nodeSize, end);
+                        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                        for (; pos < last; pos++) {
+                            minX = Math.min(minX, nodeBoxes[pos * 4]);
+                            minY = Math.min(minY, nodeBoxes[pos * 4 + 1]);
+                            maxX = Math.max(maxX, nodeBoxes[pos * 4 + 2]);
+                            maxY = Math.max(maxY, nodeBoxes[pos * 4 + 3]);
+                        }
+                        nodeBoxes[write * 4] = minX;
+                        nodeBoxes[write * 4 + 1] = minY;
+                        nodeBoxes[write * 4 + 2] = maxX;
+                        nodeBoxes[write * 4 + 3] = maxY;
+                        nodeIndices[write] = start;
+                        write++;
+                    }
+                }
+
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                DataOutputStream header = new DataOutputStream(bos);
+                header.writeInt(count);
+                header.writeInt(nodeSize);
+                header.writeInt(numNodes);
+                header.writeInt(ends.size());
+                for (Integer end : ends) {
+                    header.writeInt(end);
+                }
+                header.writeDouble(count > 0 ? bounds.getMinX() : 0);
+                header.writeDouble(count > 0 ? bounds.getMinY() : 0);
+                header.writeDouble(count > 0 ? bounds.getMaxX() : 0);
+                header.writeDouble(count > 0 ? bounds.getMaxY() : 0);
+                header.writeInt(writers.length);
+                for (ColumnWriter writer : writers) {
+                    header.writeUTF(writer.name);
+                    header.writeByte(writer.type);
+                    header.writeLong(writer.valuesLength);
+                    header.writeLong(writer.blobLength);
+                }
+                header.close();
+
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(file), 64 * 1024));
+                try {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(bos.size());
+                    bos.writeTo(out);
+                    for (double value : nodeBoxes) {
+                        out.writeDouble(value);
+                    }
+                    for (int index : nodeIndices) {
+                        out.writeInt(index);
+                    }
+                    for (ColumnWriter writer : writers) {
+                        writer.copyTo(out);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                dispose();
+            }
+        }
+
+        void dispose() {
+            for (ColumnWriter writer : writers) {
+                if (writer != null) {
+                    writer.dispose();
+                }
+            }
+        }
+
+        /**
+         * Maps a position on a 2^16 x 2^16 grid to its distance along the Hilbert curve, see
+         * "Fast Hilbert curve generation, sorting, and range queries" by rawrunprotected
+         */
+        static int hilbert(int x, int y) {
+            int a = x ^ y;
+            int b = 0xFFFF ^ a;
+            int c = 0xFFFF ^ (x | y);
+            int d = x & (y ^ 0xFFFF);
+
+            int A = a | (b >> 1);
+            int B = (a >> 1) ^ a;
+            int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+            int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+            a = A;
+            b = B;
+            c = C;
+            d = D;
+            A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+            B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+            C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+            D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+            a = A;
+            b = B;
+            c = C;
+            d = D;
+            A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+            B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+            C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+            D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+            a = A;
+            b = B;
+            c = C;
+            d = D;
+            C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+            D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+            a = C ^ (C >> 1);
+            b = D ^ (D >> 1);
+
+            int i0 = x ^ y;
+            int i1 = b | (0xFFFF ^ (i0 | a));
+
+            i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+            i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+            i0 = (i0 | (i0 << 2)) & 0x33333333;
+            i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+            i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+            i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+            i1 = (i1 | (i1 << 2)) & 0x33333333;
+            i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+            return (i1 << 1) | i0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GranuleFingerprintsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File mosaic;
+
+    File data;
+
+    @Before
+    public void setup() throws Exception {
+        mosaic = folder.newFolder("mosaic");
+        data = folder.newFolder("data");
+    }
+
+    @Test
+    public void testUnchangedAcrossRuns() throws Exception {
+        File granule = granule("g1.tif", "abc");
+        File fingerprintsFile = new File(mosaic, Utils.FINGERPRINTS_FILE);
+
+        GranuleFingerprints fingerprints = new GranuleFingerprints(fingerprintsFile);
+        assertFalse(fingerprints.isUnchanged(granule));
+        assertFalse(fingerprints.isKnown(granule));
+        fingerprints.update(granule);
+        fingerprints.store();
+        assertTrue(fingerprintsFile.exists());
+        assertFalse(new File(mosaic, Utils.FINGERPRINTS_FILE + ".tmp").exists());
+
+        // next run
+        fingerprints = new GranuleFingerprints(fingerprintsFile);
+        assertEquals(1, fingerprints.size());
+        assertTrue(fingerprints.isUnchanged(granule));
+
+        // modify the file
+        FileUtils.writeStringToFile(granule, "abcdef");
+        fingerprints = new GranuleFingerprints(fingerprintsFile);
+        assertFalse(fingerprints.isUnchanged(granule));
+        assertTrue(fingerprints.isKnown(granule));
+    }
+
+    @Test
+    public void testDeleted() throws Exception {
+        File g1 = granule("g1.tif", "abc");
+        File g2 = granule("g2.tif", "abc");
+        File other = new File(folder.newFolder("other"), "g3.tif");
+        FileUtils.writeStringToFile(other, "abc");
+
+        GranuleFingerprints fingerprints = new GranuleFingerprints(new File(mosaic,
+                Utils.FINGERPRINTS_FILE));
+        fingerprints.update(g1);
+        fingerprints.update(g2);
+        fingerprints.update(other);
+
+        assertTrue(g2.delete());
+        assertTrue(other.delete());
+        // the files visited in this run are never reported as deleted
+        fingerprints.isUnchanged(g1);
+        // only the files in the harvested directories are considered
+        List<File> deleted = fingerprints.getDeleted(Collections.singletonList(data));
+        assertEquals(1, deleted.size());
+        assertEquals(g2.getCanonicalFile(), deleted.get(0).getCanonicalFile());
+
+        fingerprints.remove(g2);
+        assertFalse(fingerprints.isKnown(g2));
+        assertEquals(2, fingerprints.size());
+
+        fingerprints.clear();
+        assertFalse(fingerprints.isKnown(g1));
+        assertEquals(0, fingerprints.size());
+    }
+
+    private File granule(String name, String contents) throws Exception {
+        File file = new File(data, name);
+        FileUtils.writeStringToFile(file, contents);
+        return file;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.geotools.gce.imagemosaic.GranuleReaderPool.PooledReader;
+import org.junit.Test;
+
+public class GranuleReaderPoolTest {
+
+    /**
+     * A stream that records whether it has been closed
+     */
+    static class TrackingStream extends MemoryCacheImageInputStream {
+        boolean closed;
+
+        TrackingStream() {
+            super(new ByteArrayInputStream(new byte[0]));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    @Test
+    public void testCheckoutCheckin() throws Exception {
+        GranuleReaderPool pool = new GranuleReaderPool(2);
+        URL url = new URL("file:/data/granule1.tif");
+        assertNull(pool.checkout(url));
+        PooledReader pooled = open(pool, url);
+        assertEquals(1, pool.getOpenReaders());
+        assertEquals(0, pool.getIdleReaders());
+
+        // nothing to hand out while checked out
+        assertNull(pool.checkout(url));
+        pool.checkin(pooled);
+        assertEquals(1, pool.getIdleReaders());
+
+        assertSame(pooled, pool.checkout(url));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(1d / 3, pool.getHitRate(), 1e-9);
+        pool.checkin(pooled);
+        assertFalse(((TrackingStream) pooled.stream).closed);
+
+        pool.resetStatistics();
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(0, pool.getHitRate(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        GranuleReaderPool pool = new GranuleReaderPool(2);
+        URL url1 = new URL("file:/data/granule1.tif");
+        URL url2 = new URL("file:/data/granule2.tif");
+        URL url3 = new URL("file:/data/granule3.tif");
+        PooledReader r1 = open(pool, url1);
+        PooledReader r2 = open(pool, url2);
+        pool.checkin(r1);
+        pool.checkin(r2);
+        // use the first granule again, the second one becomes the least recently used
+        pool.checkin(pool.checkout(url1));
+
+        PooledReader r3 = open(pool, url3);
+        assertEquals(2, pool.getOpenReaders());
+        assertEquals(1, pool.getEvictionCount());
+        assertTrue(((TrackingStream) r2.stream).closed);
+        assertFalse(((TrackingStream) r1.stream).closed);
+        pool.checkin(r3);
+        assertNull(pool.checkout(url2));
+        assertSame(r1, pool.checkout(url1));
+    }
+
+    @Test
+    public void testCapWithCheckedOutReaders() throws Exception {
+        GranuleReaderPool pool = new GranuleReaderPool(1);
+        URL url = new URL("file:/data/granule1.tif");
+        // two threads reading the same granule at the same time
+        PooledReader r1 = open(pool, url);
+        PooledReader r2 = open(pool, url);
+        assertEquals(2, pool.getOpenReaders());
+
+        // the one exceeding the cap is closed on checkin
+        pool.checkin(r1);
+        assertTrue(((TrackingStream) r1.stream).closed);
+        pool.checkin(r2);
+        assertFalse(((TrackingStream) r2.stream).closed);
+        assertEquals(1, pool.getOpenReaders());
+        assertEquals(1, pool.getIdleReaders());
+    }
+
+    @Test
+    public void testDiscardAndInvalidate() throws Exception {
+        GranuleReaderPool pool = new GranuleReaderPool(4);
+        URL url1 = new URL("file:/data/granule1.tif");
+        URL url2 = new URL("file:/data/granule2.tif");
+        PooledReader r1 = open(pool, url1);
+        pool.discard(r1);
+        assertTrue(((TrackingStream) r1.stream).closed);
+        assertEquals(0, pool.getOpenReaders());
+
+        PooledReader r2 = open(pool, url1);
+        PooledReader r3 = open(pool, url2);
+        pool.checkin(r2);
+        pool.checkin(r3);
+        pool.invalidate(url1);
+        assertTrue(((TrackingStream) r2.stream).closed);
+        assertEquals(1, pool.getOpenReaders());
+        assertNull(pool.checkout(url1));
+
+        pool.clear();
+        assertTrue(((TrackingStream) r3.stream).closed);
+        assertEquals(0, pool.getOpenReaders());
+        assertEquals(0, pool.getIdleReaders());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new GranuleReaderPool(0);
+    }
+
+    private PooledReader open(GranuleReaderPool pool, URL url) {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("png").next();
+        TrackingStream stream = new TrackingStream();
+        reader.setInput(stream);
+        return pool.track(url, stream, reader);
+    }
+}
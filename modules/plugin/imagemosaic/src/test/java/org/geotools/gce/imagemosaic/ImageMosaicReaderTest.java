@@ -62,6 +62,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 import javax.media.jai.RenderedOp;
@@ -3006,6 +3008,104 @@ public class ImageMosaicReaderTest extends Assert{
         }
     }
 
+
+    @Test
+    public void testIncrementalHarvest() throws Exception {
+        incrementalHarvest("rgbIncremental", null);
+    }
+
+    @Test
+    public void testIncrementalHarvestParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            incrementalHarvest("rgbIncrementalParallel", executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void incrementalHarvest(String name, ExecutorService executor) throws Exception {
+        File source = DataUtilities.urlToFile(rgbURL);
+        File directory = new File(TestData.file(this, "."), name);
+        if (directory.exists()) {
+            FileUtils.deleteDirectory(directory);
+        }
+        FileUtils.copyDirectory(source, directory);
+        Properties indexer = new Properties();
+        indexer.put(Prop.INCREMENTAL, "true");
+        try (OutputStream os = new FileOutputStream(new File(directory, "indexer.properties"))) {
+            indexer.store(os, null);
+        }
+        final File changed = new File(directory, "global_mosaic_0.png");
+        final File deleted = new File(directory, "global_mosaic_1.png");
+        final Hints hints = executor != null ? new Hints(Hints.EXECUTOR_SERVICE, executor) : null;
+
+        // the mosaic creation records the fingerprints of all the granules
+        URL url = DataUtilities.fileToURL(directory);
+        ImageMosaicReader reader = TestUtils.getReader(url, TestUtils.getFormat(url), hints);
+        try {
+            assertTrue(new File(directory, Utils.FINGERPRINTS_FILE).exists());
+            String coverageName = reader.getGridCoverageNames()[0];
+            assertEquals(24, reader.getGranules(coverageName, true).getCount(Query.ALL));
+
+            // unchanged files are skipped
+            List<HarvestedSource> summary = reader.harvest(null, directory, hints);
+            HarvestedSource harvested = getHarvested(summary, changed);
+            assertFalse(harvested.success());
+            assertTrue(harvested.getMessage().contains("unchanged"));
+            assertEquals(24, reader.getGranules(coverageName, true).getCount(Query.ALL));
+
+            // a changed file gets its granules replaced
+            assertTrue(changed.setLastModified(changed.lastModified() + 10000));
+            summary = reader.harvest(null, directory, hints);
+            assertTrue(getHarvested(summary, changed).success());
+            assertFalse(getHarvested(summary, deleted).success());
+            assertEquals(24, reader.getGranules(coverageName, true).getCount(Query.ALL));
+            assertEquals(1, countGranules(reader, coverageName, changed));
+
+            // a deleted file gets its granules removed
+            assertTrue(deleted.delete());
+            reader.harvest(null, directory, hints);
+            assertEquals(23, reader.getGranules(coverageName, true).getCount(Query.ALL));
+            assertEquals(0, countGranules(reader, coverageName, deleted));
+            assertEquals(1, countGranules(reader, coverageName, changed));
+        } finally {
+            reader.dispose();
+        }
+
+        // the fingerprints are ignored if the catalog gets recreated
+        for (File file : FileUtils.listFiles(directory, new RegexFileFilter(name + "\\..*"), null)) {
+            assertTrue(file.delete());
+        }
+        for (File file : FileUtils.listFiles(directory, new RegexFileFilter("sample_image.*"), null)) {
+            assertTrue(file.delete());
+        }
+        reader = TestUtils.getReader(url, TestUtils.getFormat(url), hints);
+        try {
+            String coverageName = reader.getGridCoverageNames()[0];
+            assertEquals(23, reader.getGranules(coverageName, true).getCount(Query.ALL));
+        } finally {
+            reader.dispose();
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    private HarvestedSource getHarvested(List<HarvestedSource> summary, File file)
+            throws IOException {
+        for (HarvestedSource harvested : summary) {
+            if (file.getCanonicalFile().equals(((File) harvested.getSource()).getCanonicalFile())) {
+                return harvested;
+            }
+        }
+        fail("Could not find " + file + " among the harvested sources");
+        return null;
+    }
+
+    private int countGranules(ImageMosaicReader reader, String coverageName, File file)
+            throws Exception {
+        Filter filter = FF.equal(FF.property("location"), FF.literal(file.getName()), true);
+        return reader.getGranules(coverageName, true).getCount(new Query(null, filter));
+    }
     
     @Test
     public void testHarvestError() throws Exception {
@@ -4100,6 +4200,115 @@ public class ImageMosaicReaderTest extends Assert{
         TestUtils.checkCoverage(reader, new GeneralParameterValue[0], "Ignore invalid granule");
     }
     
+    @Test
+    public void testMultithreadedLoadingSameOutput() throws Exception {
+        final AbstractGridFormat format = TestUtils.getFormat(rgbAURL);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final ImageMosaicReader reader = TestUtils.getReader(rgbAURL, format, new Hints(
+                Hints.EXECUTOR_SERVICE, executor));
+        try {
+            // the granules have an alpha channel, so they all go through the preprocessing
+            RenderedImage sequential = readMosaic(reader, false);
+            RenderedImage parallel = readMosaic(reader, true);
+            ImageAssert.assertEquals(sequential, parallel, 0);
+        } finally {
+            reader.dispose();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMultithreadedLoadingInvalidGranule() throws Exception {
+        File source = DataUtilities.urlToFile(rgbURL);
+        File directory = new File(TestData.file(this, "."), "rgbMultithreaded");
+        if (directory.exists()) {
+            FileUtils.deleteDirectory(directory);
+        }
+        FileUtils.copyDirectory(source, directory);
+        URL url = DataUtilities.fileToURL(directory);
+        final AbstractGridFormat format = TestUtils.getFormat(url);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final ImageMosaicReader reader = TestUtils.getReader(url, format, new Hints(
+                Hints.EXECUTOR_SERVICE, executor));
+        try {
+            RenderedImage expected = readMosaic(reader, false);
+
+            // add a granule that cannot be read
+            GranuleStore granules = (GranuleStore) reader.getGranules(
+                    reader.getGridCoverageNames()[0], false);
+            SimpleFeature first = DataUtilities.first(granules.getGranules(Query.ALL));
+            first.setAttribute("location", "global_mosaic_11-invalid.png");
+            Transaction t = new DefaultTransaction();
+            granules.setTransaction(t);
+            granules.addGranules(DataUtilities.collection(first));
+            t.commit();
+            t.close();
+
+            // the failing granule is skipped, without affecting the others
+            ImageAssert.assertEquals(expected, readMosaic(reader, false), 0);
+            ImageAssert.assertEquals(expected, readMosaic(reader, true), 0);
+        } finally {
+            reader.dispose();
+            executor.shutdown();
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    @Test
+    public void testPooledReaderDiscardedOnFailure() throws Exception {
+        File source = DataUtilities.urlToFile(rgbURL);
+        File directory = new File(TestData.file(this, "."), "rgbPooled");
+        if (directory.exists()) {
+            FileUtils.deleteDirectory(directory);
+        }
+        FileUtils.copyDirectory(source, directory);
+        URL url = DataUtilities.fileToURL(directory);
+        final AbstractGridFormat format = TestUtils.getFormat(url);
+        final GranuleReaderPool pool = new GranuleReaderPool(64);
+        final ImageMosaicReader reader = TestUtils.getReader(url, format, new Hints(
+                Utils.GRANULE_READER_POOL, pool));
+        try {
+            RenderedImage expected = readMosaic(reader, false);
+            final int openReaders = pool.getOpenReaders();
+            assertTrue(openReaders > 0);
+            assertEquals(openReaders, pool.getIdleReaders());
+
+            // truncate a granule, the pooled reader already parsed its header but fails reading
+            File granule = new File(directory, "global_mosaic_0.png");
+            byte[] content = FileUtils.readFileToByteArray(granule);
+            FileUtils.writeByteArrayToFile(granule, Arrays.copyOf(content, content.length / 2));
+            readMosaic(reader, false);
+            // the failed reader has been closed instead of being checked back in
+            assertEquals(openReaders - 1, pool.getOpenReaders());
+            assertEquals(openReaders - 1, pool.getIdleReaders());
+
+            // the next read of the granule gets a fresh reader
+            FileUtils.writeByteArrayToFile(granule, content);
+            final long misses = pool.getMissCount();
+            ImageAssert.assertEquals(expected, readMosaic(reader, false), 0);
+            assertEquals(misses + 1, pool.getMissCount());
+            assertEquals(openReaders, pool.getOpenReaders());
+        } finally {
+            reader.dispose();
+            pool.clear();
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    private RenderedImage readMosaic(ImageMosaicReader reader, boolean multithreaded)
+            throws IOException {
+        final ParameterValue<Boolean> multithreading = ImageMosaicFormat.ALLOW_MULTITHREADING
+                .createValue();
+        multithreading.setValue(multithreaded);
+        // direct reads, so that the granules are actually loaded by the executor
+        final ParameterValue<Boolean> useJai = ImageMosaicFormat.USE_JAI_IMAGEREAD.createValue();
+        useJai.setValue(false);
+        GridCoverage2D coverage = reader.read(new GeneralParameterValue[] { multithreading,
+                useJai });
+        assertNotNull(coverage);
+        return coverage.getRenderedImage();
+    }
+
     @Test
     public void testReadSingleGranule() throws Exception {
         final AbstractGridFormat format = TestUtils.getFormat(rgbURL);
@@ -25,6 +25,8 @@ import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageReadParam;
@@ -43,6 +45,7 @@ import org.geotools.coverage.grid.io.UnknownFormat;
 import org.geotools.coverage.grid.io.footprint.MultiLevelROI;
 import org.geotools.data.DataUtilities;
 import org.geotools.factory.Hints;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
@@ -240,6 +243,67 @@ public class OverviewsControllerTest extends Assert {
         }
     }
 
+    /**
+     * Tests the {@link OverviewPolicy#COST} policy of the {@link OverviewsController}, using the
+     * tile layout of a sample granule
+     */
+    @Test
+    public void testCostPolicyTileLayout() throws Exception {
+        final OverviewsController controller = new OverviewsController(new double[] { 1, 1 }, 1,
+                new double[][] { { 2, 2 } });
+        // without a sample granule only the resolutions are known, and the overview is
+        // always the cheapest, as it has less pixels to decode
+        for (LevelLayout layout : controller.getLevelLayouts()) {
+            assertEquals(0, layout.tileWidth);
+            assertEquals(0, layout.tileHeight);
+        }
+        assertEquals(1, controller.pickOverviewLevel(OverviewPolicy.COST, new double[] { 2, 2 }));
+
+        // the overview is stored in full width strips, the tiled native level gets cheaper
+        controller.setGranuleLayouts(Arrays.asList(
+                new LevelLayout(0, 1, 1, 100000, 100000, 256, 256, 1),
+                new LevelLayout(1, 2, 2, 50000, 50000, 50000, 64, 1)));
+        List<LevelLayout> layouts = controller.getLevelLayouts();
+        assertEquals(256, layouts.get(0).tileWidth);
+        assertEquals(50000, layouts.get(1).tileWidth);
+        assertEquals(64, layouts.get(1).tileHeight);
+        assertEquals(0, controller.pickOverviewLevel(OverviewPolicy.COST, new double[] { 2, 2 }));
+
+        // the read area is accounted for, reading a large area the overview is cheaper again
+        final ImageReadParam params = new ImageReadParam();
+        int imageChoice = ReadParamsController.setCostBasedReadParams(new double[] { 2, 2 },
+                DecimationPolicy.ALLOW, params, layouts, 100, 100);
+        assertEquals(0, imageChoice);
+        assertEquals(2, params.getSourceXSubsampling());
+        imageChoice = ReadParamsController.setCostBasedReadParams(new double[] { 2, 2 },
+                DecimationPolicy.ALLOW, params, layouts, 100000, 100000);
+        assertEquals(1, imageChoice);
+        assertEquals(1, params.getSourceXSubsampling());
+    }
+
+    /**
+     * Tests the tile layout of a granule is made available to the {@link OverviewsController}
+     */
+    @Test
+    public void testGranuleLevelLayouts() throws Exception {
+        final CoordinateReferenceSystem WGS84 = CRS.decode("EPSG:4326", true);
+        final File file = new File(TestData.file(this, "heterogeneous"), "world_a.tif");
+        final GranuleDescriptor granule = new GranuleDescriptor(file.getAbsolutePath(),
+                new ReferencedEnvelope(-180, 0, -90, 90, WGS84), spi, (MultiLevelROI) null, true);
+        final List<LevelLayout> granuleLayouts = granule.getLevelLayouts();
+        // native level and 4 overviews
+        assertEquals(5, granuleLayouts.size());
+
+        final OverviewsController controller = new OverviewsController(new double[] {
+                0.833333333333333, 0.833333333333333 }, 0, null);
+        controller.setGranuleLayouts(granuleLayouts);
+        final LevelLayout layout = controller.getLevelLayouts().get(0);
+        assertEquals(granuleLayouts.get(0).tileWidth, layout.tileWidth);
+        assertEquals(granuleLayouts.get(0).tileHeight, layout.tileHeight);
+        assertTrue(layout.tileWidth > 0);
+        assertTrue(layout.tileHeight > 0);
+    }
+
 
     /**
      * @param args
@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageReadParam;
+
+import org.geotools.coverage.grid.io.DecimationPolicy;
+import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.gce.imagemosaic.ReadCostModel.LevelLayout;
+import org.geotools.gce.imagemosaic.ReadCostModel.ReadChoice;
+import org.junit.Test;
+
+public class ReadCostModelTest {
+
+    static final double TOLERANCE = 0.1;
+
+    @Test
+    public void testTolerance() {
+        List<LevelLayout> levels = Arrays.asList(
+                new LevelLayout(0, 1, 1, 8192, 8192, 256, 256, 3),
+                new LevelLayout(1, 2, 2, 4096, 4096, 256, 256, 3),
+                new LevelLayout(2, 4, 4, 2048, 2048, 256, 256, 3));
+
+        // slightly coarser than requested, but within tolerance
+        ReadChoice choice = ReadCostModel.pick(levels, new double[] { 1.9, 1.9 }, 0, 0, true,
+                TOLERANCE);
+        assertEquals(1, choice.imageChoice);
+        assertEquals(1, choice.subsamplingX);
+
+        // out of tolerance, the native level needs to be used, with subsampling
+        choice = ReadCostModel.pick(levels, new double[] { 1.5, 1.5 }, 0, 0, true, TOLERANCE);
+        assertEquals(0, choice.imageChoice);
+        assertEquals(1, choice.subsamplingX);
+        choice = ReadCostModel.pick(levels, new double[] { 3.9, 3.9 }, 0, 0, true, TOLERANCE);
+        assertEquals(2, choice.imageChoice);
+        choice = ReadCostModel.pick(levels, new double[] { 3.5, 3.5 }, 0, 0, true, TOLERANCE);
+        assertEquals(1, choice.imageChoice);
+
+        // decimation on the chosen level
+        choice = ReadCostModel.pick(levels, new double[] { 9, 9 }, 0, 0, true, TOLERANCE);
+        assertEquals(2, choice.imageChoice);
+        assertEquals(2, choice.subsamplingX);
+        assertEquals(2, choice.subsamplingY);
+        choice = ReadCostModel.pick(levels, new double[] { 9, 9 }, 0, 0, false, TOLERANCE);
+        assertEquals(2, choice.imageChoice);
+        assertEquals(1, choice.subsamplingX);
+    }
+
+    @Test
+    public void testTileLayout() {
+        // the overview is stored in full width strips, reading a small area out of it
+        // means decoding whole rows, the tiled native resolution is cheaper
+        List<LevelLayout> levels = Arrays.asList(
+                new LevelLayout(0, 1, 1, 100000, 100000, 256, 256, 1),
+                new LevelLayout(1, 2, 2, 50000, 50000, 50000, 64, 1));
+        ReadChoice choice = ReadCostModel.pick(levels, new double[] { 2, 2 }, 100, 100, true,
+                TOLERANCE);
+        assertEquals(0, choice.imageChoice);
+        assertEquals(2, choice.subsamplingX);
+        assertEquals(2, choice.subsamplingY);
+        assertTrue(choice.pixelsDecoded < 256 * 256 * 4);
+
+        // reading a large area the overview is the cheapest again
+        choice = ReadCostModel.pick(levels, new double[] { 2, 2 }, 100000, 100000, true,
+                TOLERANCE);
+        assertEquals(1, choice.imageChoice);
+    }
+
+    @Test
+    public void testOverviewsController() {
+        OverviewsController controller = new OverviewsController(new double[] { 1, 1 }, 3,
+                new double[][] { { 2, 2 }, { 4, 4 }, { 8, 8 } });
+        assertEquals(1, controller.pickOverviewLevel(OverviewPolicy.COST,
+                new double[] { 2.1, 2.1 }));
+        assertEquals(1, controller.pickOverviewLevel(OverviewPolicy.COST,
+                new double[] { 3.5, 3.5 }));
+        assertEquals(0, controller.pickOverviewLevel(OverviewPolicy.COST,
+                new double[] { 1, 1 }));
+        assertEquals(3, controller.pickOverviewLevel(OverviewPolicy.COST,
+                new double[] { 100, 100 }));
+
+        ImageReadParam params = new ImageReadParam();
+        int imageChoice = ReadParamsController.setCostBasedReadParams(new double[] { 3.5, 3.5 },
+                DecimationPolicy.ALLOW, params, controller.getLevelLayouts(), 0, 0);
+        assertEquals(1, imageChoice);
+        assertEquals(1, params.getSourceXSubsampling());
+        imageChoice = ReadParamsController.setCostBasedReadParams(new double[] { 20, 20 },
+                DecimationPolicy.ALLOW, params, controller.getLevelLayouts(), 0, 0);
+        assertEquals(3, imageChoice);
+        assertEquals(2, params.getSourceXSubsampling());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Polygon;
+
+public class PackedGranuleIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    SimpleFeatureType schema;
+
+    @Before
+    public void setup() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("granules");
+        tb.add("the_geom", Polygon.class);
+        tb.add("location", String.class);
+        tb.add("time", Date.class);
+        tb.add("elevation", Double.class);
+        tb.add("band", Integer.class);
+        tb.add("valid", Boolean.class);
+        schema = tb.buildFeatureType();
+    }
+
+    @Test
+    public void testQueryMatchesBruteForce() throws Exception {
+        Random random = new Random(1);
+        List<Envelope> envelopes = new ArrayList<Envelope>();
+        PackedGranuleIndex.Builder builder = builder(new File(folder.getRoot(), "index.gmi"));
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Envelope envelope = new Envelope(x, x + random.nextDouble() * 5, y, y
+                    + random.nextDouble() * 5);
+            envelopes.add(envelope);
+            builder.add(granule(i, envelope));
+        }
+        builder.build();
+
+        PackedGranuleIndex index = new PackedGranuleIndex(builder.file, schema);
+        try {
+            assertEquals(1000, index.size());
+            for (int i = 0; i < 50; i++) {
+                double x = random.nextDouble() * 360 - 180;
+                double y = random.nextDouble() * 180 - 90;
+                Envelope search = new Envelope(x, x + 20, y, y + 10);
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int j = 0; j < envelopes.size(); j++) {
+                    if (envelopes.get(j).intersects(search)) {
+                        expected.add(j);
+                    }
+                }
+                int[] rows = index.query(search);
+                assertEquals(expected.size(), rows.length);
+                for (int j = 0; j < rows.length; j++) {
+                    assertEquals(expected.get(j).intValue(), rows[j]);
+                }
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testAttributes() throws Exception {
+        PackedGranuleIndex.Builder builder = builder(new File(folder.getRoot(), "index.gmi"));
+        builder.add(granule(0, new Envelope(0, 10, 0, 10)));
+        SimpleFeature nulls = granule(1, new Envelope(10, 20, 0, 10));
+        for (String name : new String[] { "location", "time", "elevation", "band", "valid" }) {
+            nulls.setAttribute(name, null);
+        }
+        builder.add(nulls);
+        // granules without a geometry cannot be found, they are not indexed
+        SimpleFeature noGeometry = granule(2, new Envelope(0, 10, 0, 10));
+        noGeometry.setDefaultGeometry(null);
+        builder.add(noGeometry);
+        builder.build();
+        // the temporary column files are gone
+        assertEquals(1, folder.getRoot().list().length);
+
+        PackedGranuleIndex index = new PackedGranuleIndex(builder.file, schema);
+        try {
+            assertEquals(2, index.size());
+            assertEquals(new Envelope(0, 20, 0, 10), index.getBounds());
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+            SimpleFeature first = index.getFeature(0, fb);
+            assertEquals("granules.0", first.getID());
+            assertTrue(JTS.toGeometry(new Envelope(0, 10, 0, 10)).equalsExact(
+                    (Polygon) first.getDefaultGeometry()));
+            assertEquals("granule_0.tif", first.getAttribute("location"));
+            assertEquals(new Date(1000), first.getAttribute("time"));
+            assertEquals(0.5, first.getAttribute("elevation"));
+            assertEquals(Integer.valueOf(0), first.getAttribute("band"));
+            assertEquals(Boolean.TRUE, first.getAttribute("valid"));
+
+            SimpleFeature second = index.getFeature(1, fb);
+            assertEquals("granules.1", second.getID());
+            assertNotNull(second.getDefaultGeometry());
+            for (String name : new String[] { "location", "time", "elevation", "band", "valid" }) {
+                assertNull(second.getAttribute(name));
+            }
+
+            assertArrayEquals(new int[] { 0, 1 }, index.query(new Envelope(5, 15, 5, 6)));
+            assertArrayEquals(new int[] { 1 }, index.query(new Envelope(15, 16, 5, 6)));
+            assertEquals(0, index.query(new Envelope(30, 40, 30, 40)).length);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testEmptyAndSingle() throws Exception {
+        PackedGranuleIndex.Builder builder = builder(new File(folder.getRoot(), "empty.gmi"));
+        builder.build();
+        PackedGranuleIndex index = new PackedGranuleIndex(builder.file, schema);
+        try {
+            assertEquals(0, index.size());
+            assertTrue(index.getBounds().isNull());
+            assertEquals(0, index.query(new Envelope(-180, 180, -90, 90)).length);
+        } finally {
+            index.close();
+        }
+
+        builder = builder(new File(folder.getRoot(), "single.gmi"));
+        builder.add(granule(0, new Envelope(0, 1, 0, 1)));
+        builder.build();
+        index = new PackedGranuleIndex(builder.file, schema);
+        try {
+            assertArrayEquals(new int[] { 0 }, index.query(new Envelope(0.5, 2, 0.5, 2)));
+            assertEquals(0, index.query(new Envelope(2, 3, 2, 3)).length);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testSchemaMismatch() throws Exception {
+        PackedGranuleIndex.Builder builder = builder(new File(folder.getRoot(), "index.gmi"));
+        builder.build();
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("granules");
+        tb.add("the_geom", Polygon.class);
+        tb.add("location", String.class);
+        new PackedGranuleIndex(builder.file, tb.buildFeatureType());
+    }
+
+    private PackedGranuleIndex.Builder builder(File file) throws Exception {
+        return new PackedGranuleIndex.Builder(file, schema, 4);
+    }
+
+    private SimpleFeature granule(int i, Envelope envelope) {
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        fb.set("the_geom", JTS.toGeometry(envelope));
+        fb.set("location", "granule_" + i + ".tif");
+        fb.set("time", new Date(1000 * (i + 1)));
+        fb.set("elevation", i + 0.5);
+        fb.set("band", i);
+        fb.set("valid", i % 2 == 0);
+        return fb.buildFeature("granules." + i);
+    }
+}
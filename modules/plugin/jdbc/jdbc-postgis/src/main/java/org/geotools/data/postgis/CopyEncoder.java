@@ -0,0 +1,182 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.geometry.jts.CurvedGeometry;
+import org.geotools.geometry.jts.CurvedRing;
+import org.geotools.geometry.jts.WKTWriter2;
+import org.geotools.jdbc.ColumnMetadata;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Encodes rows in the text format of the PostgreSQL <code>COPY ... FROM STDIN</code> command.
+ * <p>
+ * The text format is used instead of the binary one as the server parses the values according to
+ * the target column types, the binary format would require an exact match of the type widths.
+ * Geometries are encoded as hex EWKB, curved ones as EWKT.
+ */
+class CopyEncoder {
+
+    static final String NULL = "\\N";
+
+    static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * The EWKB flag marking the presence of a SRID after the geometry type
+     */
+    static final int EWKB_SRID_FLAG = 0x20000000;
+
+    List<ColumnMetadata> columns;
+
+    WKBWriter writer2d = new WKBWriter(2);
+
+    WKBWriter writer3d = new WKBWriter(3);
+
+    CopyEncoder(List<ColumnMetadata> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Appends the row to the buffer, values separated by tabs and terminated by a newline
+     */
+    void encodeRow(Object[] row, StringBuilder sb) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            ColumnMetadata column = columns.get(i);
+            encodeValue(row[i], column.getBinding(), column.getSrid(), sb);
+        }
+        sb.append('\n');
+    }
+
+    void encodeValue(Object value, Class binding, Integer srid, StringBuilder sb) {
+        if (value == null) {
+            sb.append(NULL);
+        } else if (value instanceof Geometry) {
+            Geometry g = (Geometry) value;
+            if (g.isEmpty()) {
+                // same as the insert code path
+                sb.append(NULL);
+            } else {
+                encodeGeometry(g, srid == null ? -1 : srid, sb);
+            }
+        } else if (value instanceof byte[]) {
+            // hex bytea, the backslash is escaped for the COPY text format
+            sb.append("\\\\x");
+            appendHex((byte[]) value, sb);
+        } else if (value instanceof Boolean) {
+            sb.append(((Boolean) value).booleanValue() ? 't' : 'f');
+        } else if (value instanceof Date) {
+            Date date = (Date) value;
+            if (binding != null && BigDate.class.isAssignableFrom(binding)) {
+                sb.append(date.getTime());
+            } else if (value instanceof java.sql.Date || value instanceof java.sql.Time
+                    || value instanceof Timestamp) {
+                sb.append(value.toString());
+            } else {
+                sb.append(new Timestamp(date.getTime()).toString());
+            }
+        } else {
+            escape(value.toString(), sb);
+        }
+    }
+
+    void encodeGeometry(Geometry g, int srid, StringBuilder sb) {
+        if (g instanceof CurvedGeometry) {
+            // WKB cannot represent the curves, PostGIS parses EWKT as well
+            StringBuilder wkt = new StringBuilder();
+            if (srid > 0) {
+                wkt.append("SRID=").append(srid).append(";");
+            }
+            wkt.append(new WKTWriter2(hasZ(g) ? 3 : 2).write(g));
+            escape(wkt.toString(), sb);
+            return;
+        }
+        if (g instanceof LinearRing && !(g instanceof CurvedRing)) {
+            // postgis does not handle linear rings, convert to just a line string
+            g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+        }
+
+        byte[] wkb = (hasZ(g) ? writer3d : writer2d).write(g);
+        if (srid <= 0) {
+            appendHex(wkb, sb);
+            return;
+        }
+        // turn into EWKB: flag the type and insert the srid after it, the writer uses big endian
+        int type = ((wkb[1] & 0xFF) << 24) | ((wkb[2] & 0xFF) << 16) | ((wkb[3] & 0xFF) << 8)
+                | (wkb[4] & 0xFF);
+        type |= EWKB_SRID_FLAG;
+        byte[] header = new byte[] { wkb[0], (byte) (type >>> 24), (byte) (type >>> 16),
+                (byte) (type >>> 8), (byte) type, (byte) (srid >>> 24), (byte) (srid >>> 16),
+                (byte) (srid >>> 8), (byte) srid };
+        appendHex(header, sb);
+        appendHex(wkb, 5, wkb.length, sb);
+    }
+
+    /**
+     * Checks only the first coordinate, a geometry is not expected to mix dimensions
+     */
+    static boolean hasZ(Geometry g) {
+        Coordinate c = g.getCoordinate();
+        return c != null && !Double.isNaN(c.z);
+    }
+
+    static void appendHex(byte[] bytes, StringBuilder sb) {
+        appendHex(bytes, 0, bytes.length, sb);
+    }
+
+    static void appendHex(byte[] bytes, int start, int end, StringBuilder sb) {
+        for (int i = start; i < end; i++) {
+            sb.append(HEX[(bytes[i] >> 4) & 0x0F]);
+            sb.append(HEX[bytes[i] & 0x0F]);
+        }
+    }
+
+    /**
+     * Escapes the characters having a special meaning in the COPY text format
+     */
+    static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+}
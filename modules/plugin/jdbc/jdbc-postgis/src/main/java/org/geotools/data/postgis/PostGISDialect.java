@@ -30,13 +30,18 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
+import org.geotools.data.DataSourceException;
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.CircularRing;
 import org.geotools.geometry.jts.CircularString;
@@ -57,6 +62,8 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
@@ -160,6 +167,11 @@ public class PostGISDialect extends BasicSQLDialect {
 
     static final Version V_2_2_0 = new Version("2.2.0");
 
+    /**
+     * The highest precision PostGIS accepts for TWKB encoding
+     */
+    static final int MAX_TWKB_PRECISION = 7;
+
     static final Version PGSQL_V_9_0 = new Version("9.0");
     
     static final Version PGSQL_V_9_1 = new Version("9.1");
@@ -178,6 +190,8 @@ public class PostGISDialect extends BasicSQLDialect {
     
     boolean simplifyEnabled = true;
     
+    boolean twkbEnabled = true;
+    
     Version version, pgsqlVersion;
 
     public boolean isLooseBBOXEnabled() {
@@ -229,6 +243,21 @@ public class PostGISDialect extends BasicSQLDialect {
         this.simplifyEnabled = simplifyEnabled;
     }
 
+    public boolean isTWKBEnabled() {
+        return twkbEnabled;
+    }
+
+    /**
+     * Enables/disables usage of ST_AsTWKB to transfer the simplified geometries, with a
+     * precision derived from the simplification distance. Requires PostGIS 2.2 or newer, older
+     * versions keep on using WKB.
+     * 
+     * @param twkbEnabled
+     */
+    public void setTWKBEnabled(boolean twkbEnabled) {
+        this.twkbEnabled = twkbEnabled;
+    }
+
 
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
@@ -260,11 +289,55 @@ public class PostGISDialect extends BasicSQLDialect {
     }
 
     ThreadLocal<WKBAttributeIO> wkbReader = new ThreadLocal<WKBAttributeIO>();
+    
+    ThreadLocal<TWKBReader> twkbReader = new ThreadLocal<TWKBReader>();
+
+    /**
+     * Amount of characters accumulated before sending them to the server during a COPY
+     */
+    static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Sentinel value used to mark that the unwrapper lookup happened already, and an unwrapper was
+     * not found
+     */
+    static final UnWrapper UNWRAPPER_NOT_FOUND = new UnWrapper() {
+
+        @Override
+        public Statement unwrap(Statement statement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Connection unwrap(Connection conn) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean canUnwrap(Statement st) {
+            return false;
+        }
+
+        @Override
+        public boolean canUnwrap(Connection conn) {
+            return false;
+        }
+    };
+
+    /**
+     * Map of <code>UnWrapper</code> objects keyed by the class of <code>Connection</code> it is an
+     * unwrapper for
+     */
+    Map<Class<? extends Connection>, UnWrapper> uwMap =
+            new ConcurrentHashMap<Class<? extends Connection>, UnWrapper>();
 
     @Override
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor,
             ResultSet rs, String column, GeometryFactory factory, Connection cx)
             throws IOException, SQLException {
+        if (twkbEnabled && isBinaryColumn(rs, rs.findColumn(column))) {
+            return readTWKB(rs.getBytes(column), factory);
+        }
         WKBAttributeIO reader = getWKBReader(factory);
         
         return (Geometry) reader.read(rs, column);
@@ -273,11 +346,39 @@ public class PostGISDialect extends BasicSQLDialect {
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor,
             ResultSet rs, int column, GeometryFactory factory, Connection cx)
             throws IOException, SQLException {
+        if (twkbEnabled && isBinaryColumn(rs, column)) {
+            return readTWKB(rs.getBytes(column), factory);
+        }
         WKBAttributeIO reader = getWKBReader(factory);
         
         return (Geometry) reader.read(rs, column);
     }
 
+    /**
+     * The WKB geometries are base64 encoded text, only the TWKB ones are selected as raw bytea
+     */
+    private boolean isBinaryColumn(ResultSet rs, int column) throws SQLException {
+        return rs.getMetaData().getColumnType(column) == Types.BINARY;
+    }
+
+    private Geometry readTWKB(byte[] bytes, GeometryFactory factory) throws IOException {
+        if (bytes == null) {
+            return null;
+        }
+        TWKBReader reader = twkbReader.get();
+        if (reader == null) {
+            reader = new TWKBReader(factory);
+            twkbReader.set(reader);
+        } else {
+            reader.setGeometryFactory(factory);
+        }
+        try {
+            return reader.read(bytes);
+        } catch (ParseException e) {
+            throw new DataSourceException("An exception occurred while parsing TWKB data", e);
+        }
+    }
+
     private WKBAttributeIO getWKBReader(GeometryFactory factory) {
         WKBAttributeIO reader = wkbReader.get();
         if(reader == null) {
@@ -341,7 +442,13 @@ public class PostGISDialect extends BasicSQLDialect {
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
                 sql.append("),'base64')");
             } else {
-                if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
+                if (isTWKBSupported(gatt)) {
+                    // TWKB is compact enough to be transferred as raw bytea
+                    sql.append("ST_AsTWKB(ST_Simplify(" + getForce2DFunction() + "(");
+                    encodeColumnName(prefix, gatt.getLocalName(), sql);
+                    sql.append("), " + distance + preserveCollapsed + "), "
+                            + getTWKBPrecision(distance) + ")");
+                } else if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
                     sql.append("encode(ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
                     sql.append("), " + distance + preserveCollapsed + ")),'base64')");
@@ -362,6 +469,27 @@ public class PostGISDialect extends BasicSQLDialect {
         }
     }
 
+    /**
+     * Returns true if the simplified geometries of the attribute can be encoded in TWKB, which
+     * does not support curves
+     */
+    boolean isTWKBSupported(GeometryDescriptor gatt) {
+        return twkbEnabled && version != null && version.compareTo(V_2_2_0) >= 0
+                && NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding());
+    }
+
+    /**
+     * Returns the number of decimal digits the TWKB encoding should preserve, for the rounding
+     * error to be a small fraction of the simplification distance
+     */
+    static int getTWKBPrecision(Double distance) {
+        if (distance == null || !(distance > 0) || Double.isInfinite(distance)) {
+            return MAX_TWKB_PRECISION;
+        }
+        int precision = (int) Math.ceil(-Math.log10(distance)) + 1;
+        return Math.max(-MAX_TWKB_PRECISION, Math.min(MAX_TWKB_PRECISION, precision));
+    }
+
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn,
             StringBuffer sql) {
@@ -800,6 +928,30 @@ public class PostGISDialect extends BasicSQLDialect {
         return null;
     }
 
+    @Override
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        Statement st = cx.createStatement();
+        try {
+            String sql = "SELECT " + encodeNextSequenceValue(schemaName, sequenceName)
+                    + " FROM generate_series(1, " + count + ")";
+
+            dataStore.getLogger().fine(sql);
+            ResultSet rs = st.executeQuery(sql);
+            try {
+                List<Object> values = new ArrayList<Object>(count);
+                while (rs.next()) {
+                    values.add(rs.getLong(1));
+                }
+                return values;
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+    }
+
     @Override
     public String encodeNextSequenceValue(String schemaName, String sequenceName) {
         return "nextval('" + sequenceName + "')";
@@ -1096,6 +1248,111 @@ public class PostGISDialect extends BasicSQLDialect {
         }
     }
 
+    @Override
+    public boolean isBulkLoadSupported() {
+        return true;
+    }
+
+    /**
+     * Loads the rows with <code>COPY ... FROM STDIN</code> in text format, see
+     * {@link CopyEncoder}
+     */
+    @Override
+    public boolean bulkLoad(SimpleFeatureType featureType, List<ColumnMetadata> columns,
+            Iterator<Object[]> rows, Connection cx) throws SQLException, IOException {
+        PGConnection pgConnection = unwrapConnection(cx);
+        if (pgConnection == null) {
+            LOGGER.fine("Could not reach the native PostgreSQL connection, cannot use COPY");
+            return false;
+        }
+
+        StringBuffer sql = new StringBuffer("COPY ");
+        if (dataStore.getDatabaseSchema() != null) {
+            encodeSchemaName(dataStore.getDatabaseSchema(), sql);
+            sql.append(".");
+        }
+        encodeTableName(featureType.getTypeName(), sql);
+        sql.append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            encodeColumnName(null, columns.get(i).getName(), sql);
+        }
+        sql.append(") FROM STDIN");
+        dataStore.getLogger().fine(sql.toString());
+
+        CopyIn copy = pgConnection.getCopyAPI().copyIn(sql.toString());
+        try {
+            CopyEncoder encoder = new CopyEncoder(columns);
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE * 2);
+            while (rows.hasNext()) {
+                encoder.encodeRow(rows.next(), buffer);
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    byte[] bytes = buffer.toString().getBytes("UTF-8");
+                    copy.writeToCopy(bytes, 0, bytes.length);
+                    buffer.setLength(0);
+                }
+            }
+            if (buffer.length() > 0) {
+                byte[] bytes = buffer.toString().getBytes("UTF-8");
+                copy.writeToCopy(bytes, 0, bytes.length);
+            }
+            long count = copy.endCopy();
+            dataStore.getLogger().fine("Copied " + count + " rows");
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtains the native PostgreSQL connection, or null if it cannot be reached
+     */
+    PGConnection unwrapConnection(Connection cx) throws SQLException {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+
+        try {
+            // Unwrap the connection multiple levels as necessary, keeping a map of UnWrappers
+            // to avoid searching the registry every time
+            Connection testCon = cx;
+            Connection toUnwrap;
+            do {
+                UnWrapper unwrapper = uwMap.get(testCon.getClass());
+                if (unwrapper == null) {
+                    unwrapper = DataSourceFinder.getUnWrapper(testCon);
+                    if (unwrapper == null) {
+                        unwrapper = UNWRAPPER_NOT_FOUND;
+                    }
+                    uwMap.put(testCon.getClass(), unwrapper);
+                }
+                if (unwrapper == UNWRAPPER_NOT_FOUND) {
+                    // give up and do Java 6 unwrap below
+                    break;
+                }
+                toUnwrap = testCon;
+                testCon = unwrapper.unwrap(testCon);
+                if (testCon instanceof PGConnection) {
+                    return (PGConnection) testCon;
+                }
+            } while (testCon != null && testCon != toUnwrap);
+
+            // try to use java 6 unwrapping
+            if (cx.isWrapperFor(PGConnection.class)) {
+                return cx.unwrap(PGConnection.class);
+            }
+        } catch (Throwable t) {
+            // old DBCP versions will throw an Error on unwrap
+            LOGGER.log(Level.FINER, "Failed to unwrap connection", t);
+        }
+
+        return null;
+    }
+
     @Override
     public FilterToSQL createFilterToSQL() {
         PostgisFilterToSQL sql = new PostgisFilterToSQL(this);
@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.geotools.factory.Hints;
 import org.geotools.jdbc.ColumnMetadata;
@@ -151,6 +154,23 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         return delegate.encodeNextSequenceValue(schemaName, sequenceName);
     }
 
+    @Override
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        return delegate.getNextSequenceValues(schemaName, sequenceName, count, cx);
+    }
+
+    @Override
+    public boolean isBulkLoadSupported() {
+        return delegate.isBulkLoadSupported();
+    }
+
+    @Override
+    public boolean bulkLoad(SimpleFeatureType featureType, List<ColumnMetadata> columns,
+            Iterator<Object[]> rows, Connection cx) throws SQLException, IOException {
+        return delegate.bulkLoad(featureType, columns, rows, cx);
+    }
+
     public String getSequenceForColumn(String schemaName, String tableName,
             String columnName, Connection cx) throws SQLException {
         return delegate.getSequenceForColumn(schemaName, tableName, columnName,
@@ -203,6 +223,18 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         delegate.setLooseBBOXEnabled(looseBBOXEnabled);
     }
 
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        // with prepared statements the driver can transfer the TWKB bytea in binary form
+        delegate.encodeGeometryColumnSimplified(gatt, prefix, srid, sql, distance);
+    }
+
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+
     public boolean isEncodeBBOXFilterAsEnvelope() {
         return delegate.isEncodeBBOXFilterAsEnvelope();
     }
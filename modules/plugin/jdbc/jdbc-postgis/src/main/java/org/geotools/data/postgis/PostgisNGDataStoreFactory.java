@@ -85,6 +85,12 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
     public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification", Boolean.class, 
             "When enabled, operations such as map rendering will pass a hint that will enable the usage of ST_Simplify", false, Boolean.TRUE);
     
+    /**
+     * Enables usage of ST_AsTWKB to transfer the simplified geometries
+     */
+    public static final Param TWKB = new Param("Use TWKB for simplified geometries", Boolean.class, 
+            "When enabled, and the database is PostGIS 2.2 or newer, the geometries simplified for map rendering will be transferred as TWKB, with a precision derived from the simplification distance", false, Boolean.TRUE);
+    
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new PostGISDialect(dataStore);
@@ -156,6 +162,10 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
         
+        // check TWKB transfer of the simplified geometries (on by default)
+        Boolean twkb = (Boolean) TWKB.lookUp(params);
+        dialect.setTWKBEnabled(twkb == null || twkb);
+        
         // encode BBOX filter with wrapping ST_Envelope (GEOT-5167)
         Boolean encodeBBOXAsEnvelope = false;
         String largeGeometriesOptimized = System.getProperty("org.geotools.data.postgis.largeGeometriesOptimize");
@@ -182,6 +192,7 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(TWKB.key, TWKB);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
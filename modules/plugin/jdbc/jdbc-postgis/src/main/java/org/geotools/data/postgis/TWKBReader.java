@@ -0,0 +1,373 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * Reads a {@link Geometry} from the Tiny Well-Known Binary format produced by the PostGIS
+ * <code>ST_AsTWKB</code> function.
+ * <p>
+ * The ordinates are decoded straight from the byte array into packed arrays, when the geometry
+ * factory uses a {@link LiteCoordinateSequenceFactory} they become the backing store of the
+ * coordinate sequences, without intermediate objects. M values are read and dropped. Rings with
+ * too few points, as the rounding of the TWKB encoding can produce, are repaired the same way
+ * {@link com.vividsolutions.jts.io.WKBReader} does.
+ * <p>
+ * This class is designed to be reused to read multiple geometries, but it's not thread-safe
+ */
+public class TWKBReader {
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int GEOMETRYCOLLECTION = 7;
+
+    static final int BBOX_FLAG = 0x01;
+
+    static final int SIZE_FLAG = 0x02;
+
+    static final int IDLIST_FLAG = 0x04;
+
+    static final int EXTENDED_DIMS_FLAG = 0x08;
+
+    static final int EMPTY_FLAG = 0x10;
+
+    GeometryFactory factory;
+
+    CoordinateSequenceFactory csFactory;
+
+    boolean liteSequences;
+
+    byte[] bytes;
+
+    int position;
+
+    // per geometry state
+    int dimensions;
+
+    boolean hasZ;
+
+    boolean hasM;
+
+    // the precision can be negative, the scales are kept as powers of ten greater than one
+    // to avoid the representation error of fractional scales
+    double xyScale;
+
+    boolean xyMultiply;
+
+    double zScale;
+
+    long[] previous = new long[4];
+
+    public TWKBReader(GeometryFactory factory) {
+        setGeometryFactory(factory);
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+        this.liteSequences = csFactory instanceof LiteCoordinateSequenceFactory;
+    }
+
+    /**
+     * Reads a single geometry from the TWKB byte array
+     *
+     * @throws ParseException if the TWKB is ill-formed
+     */
+    public Geometry read(byte[] bytes) throws ParseException {
+        this.bytes = bytes;
+        this.position = 0;
+        try {
+            return readGeometry();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ParseException("Unexpected end of TWKB data at byte " + position);
+        } finally {
+            this.bytes = null;
+        }
+    }
+
+    Geometry readGeometry() throws ParseException {
+        int typeAndPrecision = bytes[position++] & 0xFF;
+        int type = typeAndPrecision & 0x0F;
+        int precision = zigZagDecode(typeAndPrecision >> 4);
+        xyScale = Math.pow(10, Math.abs(precision));
+        xyMultiply = precision < 0;
+
+        int metadata = bytes[position++] & 0xFF;
+        hasZ = false;
+        hasM = false;
+        if ((metadata & EXTENDED_DIMS_FLAG) != 0) {
+            int extended = bytes[position++] & 0xFF;
+            hasZ = (extended & 0x01) != 0;
+            hasM = (extended & 0x02) != 0;
+            zScale = Math.pow(10, (extended >> 2) & 0x07);
+        }
+        dimensions = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        if ((metadata & SIZE_FLAG) != 0) {
+            readUnsigned();
+        }
+        if ((metadata & BBOX_FLAG) != 0) {
+            // min and delta for each dimension, not needed
+            for (int i = 0; i < dimensions * 2; i++) {
+                readUnsigned();
+            }
+        }
+        boolean empty = (metadata & EMPTY_FLAG) != 0;
+        boolean idList = (metadata & IDLIST_FLAG) != 0;
+        for (int i = 0; i < previous.length; i++) {
+            previous[i] = 0;
+        }
+
+        switch (type) {
+        case POINT:
+            if (empty) {
+                return factory.createPoint(createSequence(new double[0], 0));
+            }
+            return factory.createPoint(readPoints(1, 1));
+        case LINESTRING:
+            if (empty) {
+                return factory.createLineString(createSequence(new double[0], 0));
+            }
+            return readLineString();
+        case POLYGON:
+            if (empty) {
+                return factory.createPolygon(null, null);
+            }
+            return readPolygon();
+        case MULTIPOINT: {
+            if (empty) {
+                return factory.createMultiPoint(new Point[0]);
+            }
+            Point[] points = new Point[readCount(idList)];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = factory.createPoint(readPoints(1, 1));
+            }
+            return factory.createMultiPoint(points);
+        }
+        case MULTILINESTRING: {
+            if (empty) {
+                return factory.createMultiLineString(new LineString[0]);
+            }
+            LineString[] lines = new LineString[readCount(idList)];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readLineString();
+            }
+            return factory.createMultiLineString(lines);
+        }
+        case MULTIPOLYGON: {
+            if (empty) {
+                return factory.createMultiPolygon(new Polygon[0]);
+            }
+            Polygon[] polygons = new Polygon[readCount(idList)];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = readPolygon();
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        case GEOMETRYCOLLECTION: {
+            if (empty) {
+                return factory.createGeometryCollection(new Geometry[0]);
+            }
+            // each member has its own header
+            Geometry[] geometries = new Geometry[readCount(idList)];
+            for (int i = 0; i < geometries.length; i++) {
+                geometries[i] = readGeometry();
+            }
+            return factory.createGeometryCollection(geometries);
+        }
+        default:
+            throw new ParseException("Unknown TWKB geometry type " + type);
+        }
+    }
+
+    /**
+     * Reads the number of members of a multi geometry, skipping the id list if present
+     */
+    int readCount(boolean idList) throws ParseException {
+        // each member takes at least one byte
+        int count = readSize(1);
+        if (idList) {
+            for (int i = 0; i < count; i++) {
+                readUnsigned();
+            }
+        }
+        return count;
+    }
+
+    LineString readLineString() throws ParseException {
+        int count = readSize(dimensions);
+        // repair degenerate lines
+        return factory.createLineString(readPoints(count, count == 1 ? 2 : count));
+    }
+
+    Polygon readPolygon() throws ParseException {
+        int ringCount = readSize(1);
+        if (ringCount == 0) {
+            return factory.createPolygon(null, null);
+        }
+        LinearRing shell = readLinearRing();
+        LinearRing[] holes = new LinearRing[ringCount - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readLinearRing();
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    LinearRing readLinearRing() throws ParseException {
+        int count = readSize(dimensions);
+        if (count == 0) {
+            return factory.createLinearRing(createSequence(new double[0], 0));
+        }
+        // make room for closing the ring and padding it to the minimum size, if need be
+        int outputDimension = hasZ ? 3 : 2;
+        double[] ordinates = readOrdinates(count, Math.max(count + 1, 4));
+        int size = count;
+        if (!isClosed(ordinates, size, outputDimension)) {
+            System.arraycopy(ordinates, 0, ordinates, size * outputDimension, outputDimension);
+            size++;
+        }
+        while (size < 4) {
+            System.arraycopy(ordinates, 0, ordinates, size * outputDimension, outputDimension);
+            size++;
+        }
+        if (size * outputDimension < ordinates.length) {
+            double[] trimmed = new double[size * outputDimension];
+            System.arraycopy(ordinates, 0, trimmed, 0, trimmed.length);
+            ordinates = trimmed;
+        }
+        return factory.createLinearRing(createSequence(ordinates, outputDimension));
+    }
+
+    private boolean isClosed(double[] ordinates, int size, int dimension) {
+        int last = (size - 1) * dimension;
+        return ordinates[0] == ordinates[last] && ordinates[1] == ordinates[last + 1];
+    }
+
+    /**
+     * Reads the specified number of points, padding the sequence to the specified size by
+     * repeating the last point
+     */
+    CoordinateSequence readPoints(int count, int size) {
+        double[] ordinates = readOrdinates(count, size);
+        int outputDimension = hasZ ? 3 : 2;
+        for (int i = count; i < size && count > 0; i++) {
+            System.arraycopy(ordinates, (count - 1) * outputDimension, ordinates, i
+                    * outputDimension, outputDimension);
+        }
+        return createSequence(ordinates, outputDimension);
+    }
+
+    /**
+     * Reads the delta encoded ordinates of the specified number of points into an array that can
+     * hold size points
+     */
+    double[] readOrdinates(int count, int size) {
+        int outputDimension = hasZ ? 3 : 2;
+        double[] ordinates = new double[size * outputDimension];
+        int o = 0;
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                long value = previous[d] + readSigned();
+                previous[d] = value;
+                if (d < 2) {
+                    ordinates[o++] = xyMultiply ? value * xyScale : value / xyScale;
+                } else if (d == 2 && hasZ) {
+                    ordinates[o++] = value / zScale;
+                }
+                // M values are dropped
+            }
+        }
+        return ordinates;
+    }
+
+    CoordinateSequence createSequence(double[] ordinates, int dimension) {
+        if (liteSequences) {
+            return new LiteCoordinateSequence(ordinates, dimension == 0 ? 2 : dimension);
+        }
+        if (dimension == 0) {
+            return csFactory.create(0, 2);
+        }
+        int size = ordinates.length / dimension;
+        CoordinateSequence cs = csFactory.create(size, dimension);
+        for (int i = 0, o = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                cs.setOrdinate(i, d, ordinates[o++]);
+            }
+        }
+        return cs;
+    }
+
+    /**
+     * Reads an element count, checking it against the bytes left, each element taking at least
+     * the specified number of bytes, so that a corrupt count does not end up allocating a huge
+     * array
+     *
+     * @throws ParseException if the count cannot fit in the remaining bytes
+     */
+    int readSize(int minBytesPerElement) throws ParseException {
+        int start = position;
+        long count = readUnsigned();
+        long remaining = bytes.length - position;
+        if (count < 0 || count > remaining / minBytesPerElement) {
+            throw new ParseException("Invalid TWKB element count " + count + " at byte " + start
+                    + ", only " + remaining + " bytes left");
+        }
+        return (int) count;
+    }
+
+    long readUnsigned() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return result;
+    }
+
+    long readSigned() {
+        long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int zigZagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
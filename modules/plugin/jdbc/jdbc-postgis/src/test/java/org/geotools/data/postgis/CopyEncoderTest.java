@@ -0,0 +1,130 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.*;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.jdbc.ColumnMetadata;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class CopyEncoderTest {
+
+    @Test
+    public void testEscaping() {
+        StringBuilder sb = new StringBuilder();
+        CopyEncoder.escape("a\tb\nc\rd\\e", sb);
+        assertEquals("a\\tb\\nc\\rd\\\\e", sb.toString());
+    }
+
+    @Test
+    public void testRow() throws Exception {
+        List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        columns.add(column("name", String.class, null));
+        columns.add(column("flag", Boolean.class, null));
+        columns.add(column("data", byte[].class, null));
+        columns.add(column("missing", Integer.class, null));
+        columns.add(column("date", BigDate.class, null));
+        columns.add(column("id", Long.class, null));
+        CopyEncoder encoder = new CopyEncoder(columns);
+
+        StringBuilder sb = new StringBuilder();
+        encoder.encodeRow(new Object[] { "multi\nline", Boolean.TRUE,
+                new byte[] { 0x01, (byte) 0xAB }, null, new Date(1234), 10L }, sb);
+        assertEquals("multi\\nline\tt\t\\\\x01ab\t\\N\t1234\t10\n", sb.toString());
+    }
+
+    @Test
+    public void testTimestamp() {
+        List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        columns.add(column("ts", Timestamp.class, null));
+        CopyEncoder encoder = new CopyEncoder(columns);
+        Timestamp ts = Timestamp.valueOf("2016-01-02 03:04:05.6");
+
+        StringBuilder sb = new StringBuilder();
+        encoder.encodeRow(new Object[] { ts }, sb);
+        assertEquals("2016-01-02 03:04:05.6\n", sb.toString());
+
+        // plain dates are turned into timestamps
+        sb.setLength(0);
+        encoder.encodeRow(new Object[] { new Date(ts.getTime()) }, sb);
+        assertEquals("2016-01-02 03:04:05.6\n", sb.toString());
+    }
+
+    @Test
+    public void testEWKB() throws Exception {
+        CopyEncoder encoder = new CopyEncoder(new ArrayList<ColumnMetadata>());
+        Geometry point = new WKTReader().read("POINT(1 2)");
+
+        StringBuilder sb = new StringBuilder();
+        encoder.encodeGeometry(point, 4326, sb);
+        byte[] ewkb = WKBReader.hexToBytes(sb.toString());
+        // big endian, point type with the srid flag, then the srid
+        assertEquals(0, ewkb[0]);
+        assertEquals("20000001", sb.substring(2, 10));
+        assertEquals(String.format("%08x", 4326), sb.substring(10, 18));
+
+        // the JTS reader understands the EWKB srid
+        Geometry read = new WKBReader().read(ewkb);
+        assertTrue(read instanceof Point);
+        assertTrue(read.equalsExact(point));
+        assertEquals(4326, read.getSRID());
+
+        // no srid, plain WKB
+        sb.setLength(0);
+        encoder.encodeGeometry(point, -1, sb);
+        assertEquals("0000000001", sb.substring(0, 10));
+    }
+
+    @Test
+    public void testEWKB3D() throws Exception {
+        CopyEncoder encoder = new CopyEncoder(new ArrayList<ColumnMetadata>());
+        Geometry line = new WKTReader().read("LINESTRING(0 0 1, 1 1 2)");
+
+        StringBuilder sb = new StringBuilder();
+        encoder.encodeGeometry(line, 3003, sb);
+        // the z flag is preserved along with the srid one
+        assertEquals("a0000002", sb.substring(2, 10));
+        Geometry read = new WKBReader().read(WKBReader.hexToBytes(sb.toString()));
+        assertEquals(2, read.getCoordinates()[1].z, 0);
+    }
+
+    @Test
+    public void testEmptyGeometry() throws Exception {
+        CopyEncoder encoder = new CopyEncoder(new ArrayList<ColumnMetadata>());
+        StringBuilder sb = new StringBuilder();
+        encoder.encodeValue(new WKTReader().read("POINT EMPTY"), Point.class, 4326, sb);
+        assertEquals(CopyEncoder.NULL, sb.toString());
+    }
+
+    private ColumnMetadata column(String name, Class<?> binding, Integer srid) {
+        ColumnMetadata column = new ColumnMetadata();
+        column.setName(name);
+        column.setBinding(binding);
+        column.setSrid(srid);
+        return column;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TWKBReaderTest {
+
+    TWKBReader reader = new TWKBReader(new GeometryFactory());
+
+    @Test
+    public void testPoint() throws Exception {
+        // the example in the TWKB specification
+        Geometry g = reader.read(bytes(0x01, 0x00, 0x02, 0x04));
+        assertTrue(g instanceof Point);
+        assertTrue(g.equalsExact(geometry("POINT(1 2)")));
+    }
+
+    @Test
+    public void testLineStringWithPrecision() throws Exception {
+        // LINESTRING(1.5 2.25, 3 4.75) with two decimals, deltas are 150 225, 150 250
+        TWKBBuilder b = new TWKBBuilder(2, 2, 0x00);
+        b.unsigned(2).signed(150).signed(225).signed(150).signed(250);
+        Geometry g = reader.read(b.toByteArray());
+        assertTrue(g instanceof LineString);
+        assertTrue(g.equalsExact(geometry("LINESTRING(1.5 2.25, 3 4.75)")));
+    }
+
+    @Test
+    public void testNegativePrecision() throws Exception {
+        // POINT(1200 -3400) rounded to hundreds
+        TWKBBuilder b = new TWKBBuilder(1, -2, 0x00);
+        b.signed(12).signed(-34);
+        assertTrue(reader.read(b.toByteArray()).equalsExact(geometry("POINT(1200 -3400)")));
+    }
+
+    @Test
+    public void testPolygonDeltasAcrossRings() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(3, 0, 0x00);
+        b.unsigned(2);
+        b.unsigned(5).point(0, 0).point(10, 0).point(10, 10).point(0, 10).point(0, 0);
+        b.unsigned(5).point(2, 2).point(4, 2).point(4, 4).point(2, 4).point(2, 2);
+        Geometry g = reader.read(b.toByteArray());
+        assertTrue(g instanceof Polygon);
+        assertTrue(g.equalsExact(geometry("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), "
+                + "(2 2, 4 2, 4 4, 2 4, 2 2))")));
+    }
+
+    @Test
+    public void testRepairCollapsedRing() throws Exception {
+        // a ring the rounding reduced to three points, not closed
+        TWKBBuilder b = new TWKBBuilder(3, 0, 0x00);
+        b.unsigned(1).unsigned(3).point(0, 0).point(1, 0).point(1, 1);
+        Polygon p = (Polygon) reader.read(b.toByteArray());
+        assertTrue(p.getExteriorRing().isClosed());
+        assertEquals(4, p.getExteriorRing().getNumPoints());
+    }
+
+    @Test
+    public void testMultiPolygonWithIdsAndBBox() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(6, 0, TWKBReader.BBOX_FLAG | TWKBReader.SIZE_FLAG
+                | TWKBReader.IDLIST_FLAG);
+        // size and bbox are skipped
+        b.unsigned(123).signed(0).unsigned(30).signed(0).unsigned(30);
+        b.unsigned(2).signed(7).signed(8);
+        b.unsigned(1).unsigned(4).point(0, 0).point(10, 0).point(10, 10).point(0, 0);
+        b.unsigned(1).unsigned(4).point(20, 20).point(30, 20).point(30, 30).point(20, 20);
+        Geometry g = reader.read(b.toByteArray());
+        assertTrue(g instanceof MultiPolygon);
+        assertTrue(g.equalsExact(geometry("MULTIPOLYGON(((0 0, 10 0, 10 10, 0 0)), "
+                + "((20 20, 30 20, 30 30, 20 20)))")));
+    }
+
+    @Test
+    public void testCollection() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(7, 0, 0x00);
+        b.unsigned(2);
+        b.header(1, 0, 0x00).point(5, 5);
+        b.header(2, 1, 0x00).unsigned(2).point(10, 10).point(5, 5);
+        Geometry g = reader.read(b.toByteArray());
+        assertTrue(g instanceof GeometryCollection);
+        // each member restarts the deltas
+        assertTrue(g.equalsExact(geometry("GEOMETRYCOLLECTION(POINT(5 5), "
+                + "LINESTRING(10 10, 5 5))")));
+    }
+
+    @Test
+    public void testZAndM() throws Exception {
+        // POINT ZM (1 2 3.5 4), z with one decimal, m dropped
+        TWKBBuilder b = new TWKBBuilder(1, 0, TWKBReader.EXTENDED_DIMS_FLAG);
+        b.bytes(0x01 | 0x02 | (1 << 2));
+        b.signed(1).signed(2).signed(35).signed(4);
+        Point p = (Point) reader.read(b.toByteArray());
+        assertEquals(1, p.getX(), 0);
+        assertEquals(2, p.getY(), 0);
+        assertEquals(3.5, p.getCoordinate().z, 0);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(3, 0, TWKBReader.EMPTY_FLAG);
+        assertTrue(reader.read(b.toByteArray()).isEmpty());
+    }
+
+    @Test
+    public void testLiteCoordinateSequences() throws Exception {
+        TWKBReader lite = new TWKBReader(new GeometryFactory(new LiteCoordinateSequenceFactory()));
+        TWKBBuilder b = new TWKBBuilder(2, 0, 0x00);
+        b.unsigned(2).point(1, 2).point(3, 4);
+        LineString ls = (LineString) lite.read(b.toByteArray());
+        assertTrue(ls.getCoordinateSequence() instanceof LiteCoordinateSequence);
+        assertArrayEquals(new double[] { 1, 2, 3, 4 },
+                ((LiteCoordinateSequence) ls.getCoordinateSequence()).getArray(), 0);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testTruncated() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(2, 0, 0x00);
+        b.unsigned(3).point(1, 2);
+        reader.read(b.toByteArray());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testCorruptLineStringCount() throws Exception {
+        // a count that would overflow an int, and allocate gigabytes if trusted
+        TWKBBuilder b = new TWKBBuilder(2, 0, 0x00);
+        b.unsigned(0xFFFFFFFFL).point(1, 2);
+        reader.read(b.toByteArray());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testCorruptRingCount() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(3, 0, 0x00);
+        b.unsigned(1).unsigned(Integer.MAX_VALUE).point(0, 0).point(1, 0).point(0, 0);
+        reader.read(b.toByteArray());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testCorruptMemberCount() throws Exception {
+        TWKBBuilder b = new TWKBBuilder(6, 0, 0x00);
+        b.unsigned(Long.MAX_VALUE);
+        reader.read(b.toByteArray());
+    }
+
+    @Test
+    public void testPrecision() {
+        assertEquals(PostGISDialect.MAX_TWKB_PRECISION, PostGISDialect.getTWKBPrecision(null));
+        assertEquals(PostGISDialect.MAX_TWKB_PRECISION, PostGISDialect.getTWKBPrecision(0d));
+        assertEquals(1, PostGISDialect.getTWKBPrecision(1d));
+        assertEquals(3, PostGISDialect.getTWKBPrecision(0.05));
+        assertEquals(-1, PostGISDialect.getTWKBPrecision(500d));
+        assertEquals(7, PostGISDialect.getTWKBPrecision(1e-9));
+        assertEquals(-7, PostGISDialect.getTWKBPrecision(1e12));
+    }
+
+    private Geometry geometry(String wkt) throws Exception {
+        return new WKTReader().read(wkt);
+    }
+
+    private byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Minimal TWKB writer, the points are delta encoded against the previous one
+     */
+    static class TWKBBuilder {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        long px, py;
+
+        long scale;
+
+        TWKBBuilder(int type, int precision, int metadata) {
+            header(type, precision, metadata);
+        }
+
+        TWKBBuilder header(int type, int precision, int metadata) {
+            int zigzag = (precision << 1) ^ (precision >> 31);
+            bos.write(type | (zigzag << 4));
+            bos.write(metadata);
+            px = py = 0;
+            scale = precision > 0 ? (long) Math.pow(10, precision) : 1;
+            return this;
+        }
+
+        TWKBBuilder bytes(int... values) {
+            for (int value : values) {
+                bos.write(value);
+            }
+            return this;
+        }
+
+        TWKBBuilder unsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bos.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bos.write((int) value);
+            return this;
+        }
+
+        TWKBBuilder signed(long value) {
+            return unsigned((value << 1) ^ (value >> 63));
+        }
+
+        TWKBBuilder point(double x, double y) {
+            long ix = Math.round(x * scale);
+            long iy = Math.round(y * scale);
+            signed(ix - px);
+            signed(iy - py);
+            px = ix;
+            py = iy;
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bos.toByteArray();
+        }
+    }
+}
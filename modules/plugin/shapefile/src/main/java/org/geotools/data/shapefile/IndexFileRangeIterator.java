@@ -0,0 +1,95 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.shp.IndexFile;
+
+/**
+ * Returns the record number and offset of a contiguous range of records, as found in the .shx
+ * file, in the same format used by the spatial indexes. Used to split a shapefile scan among
+ * multiple {@link IndexedShapefileFeatureReader}
+ */
+class IndexFileRangeIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    IndexFile shx;
+
+    int current;
+
+    final int end;
+
+    /**
+     * @param shx The index file, will be closed along with the iterator
+     * @param start The first record, zero based
+     * @param end One past the last record
+     */
+    IndexFileRangeIterator(IndexFile shx, int start, int end) {
+        this.shx = shx;
+        this.current = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current < end;
+    }
+
+    @Override
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements available");
+        }
+        try {
+            Data data = new Data(DATA_DEFINITION);
+            data.addValue(current + 1);
+            data.addValue((long) shx.getOffsetInBytes(current));
+            current++;
+            return data;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the offset of record " + current, e);
+        } catch (TreeException e) {
+            // cannot happen, the values match the definition
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shx != null) {
+            shx.close();
+            shx = null;
+        }
+    }
+}
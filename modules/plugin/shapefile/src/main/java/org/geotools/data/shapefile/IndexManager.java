@@ -27,6 +27,7 @@ import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
@@ -52,6 +53,17 @@ class IndexManager {
 
     CachedQuadTree cachedTree;
 
+    /**
+     * The memory mapped packed R-tree, shared by all the readers. Stays null when the quadtree is
+     * in use
+     */
+    PackedRTree packedTree;
+
+    /**
+     * Last modified date of the packed R-tree file when it was mapped
+     */
+    long packedTreeLastModified;
+
     ShapefileDataStore store;
     
     /**
@@ -92,12 +104,18 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = store.getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
 
+                if (indexType == PRX) {
+                    // a mapped file cannot be replaced on Windows
+                    releasePackedRTree();
+                }
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
 
                 return true;
@@ -176,7 +194,7 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && shpFiles.exists(store.getSpatialIndexType());
     }
 
     /**
@@ -297,6 +315,23 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (store.getSpatialIndexType() == PRX) {
+            while (true) {
+                PackedRTree tree = openPackedRTree();
+                if (tree == null || bbox.contains(tree.getBounds())) {
+                    return null;
+                }
+                try {
+                    return tree.search(bbox);
+                } catch (IllegalStateException e) {
+                    // the tree got replaced by a rebuilt one and closed in the meantime, retry
+                    if (!tree.isClosed()) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -373,7 +408,54 @@ class IndexManager {
         }
     }
 
+    /**
+     * Returns the shared packed R-tree, mapping it if necessary, or null if the index is not
+     * available
+     * 
+     * @return
+     * @throws IOException
+     */
+    PackedRTree openPackedRTree() throws IOException {
+        if (!shpFiles.isLocal()) {
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(PRX, writer);
+        try {
+            File treeFile = DataUtilities.urlToFile(treeURL);
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                return null;
+            }
+
+            // the mapped file is never modified in place, a rebuilt index is a new file
+            synchronized (this) {
+                long lastModified = treeFile.lastModified();
+                if (packedTree == null || packedTreeLastModified != lastModified) {
+                    if (packedTree != null) {
+                        // release the stale mapping, it would keep the old file locked on Windows
+                        packedTree.close();
+                    }
+                    packedTree = PackedRTree.open(treeFile);
+                    packedTreeLastModified = lastModified;
+                }
+                return packedTree;
+            }
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
+    /**
+     * Unmaps the shared packed R-tree, if any
+     */
+    synchronized void releasePackedRTree() {
+        if (packedTree != null) {
+            packedTree.close();
+            packedTree = null;
+        }
+    }
+
     public void dispose() {
         this.cachedTree = null;
+        releasePackedRTree();
     }
 }
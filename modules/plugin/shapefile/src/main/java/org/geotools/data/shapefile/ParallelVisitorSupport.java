@@ -0,0 +1,101 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.util.List;
+
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.opengis.feature.FeatureVisitor;
+
+/**
+ * Splits the aggregation visitors whose partial results can be merged into one copy per thread,
+ * and merges the partial results back into the original visitor.
+ * <p>
+ * Only the exact visitor classes are supported, subclasses might collect state that the merge
+ * does not know about
+ */
+class ParallelVisitorSupport {
+
+    /**
+     * Returns true if the visitor can be split among threads
+     */
+    static boolean isSupported(FeatureVisitor visitor) {
+        Class<?> clazz = visitor.getClass();
+        if (clazz == UniqueVisitor.class) {
+            // paging needs to see the values in order
+            return !((UniqueVisitor) visitor).hasLimits();
+        }
+        return clazz == CountVisitor.class || clazz == BoundsVisitor.class
+                || clazz == SumVisitor.class;
+    }
+
+    /**
+     * Creates an empty visitor computing the same aggregate as the specified one
+     */
+    static FeatureCalc newPartial(FeatureVisitor visitor) {
+        if (visitor instanceof CountVisitor) {
+            return new CountVisitor();
+        } else if (visitor instanceof BoundsVisitor) {
+            return new BoundsVisitor();
+        } else if (visitor instanceof SumVisitor) {
+            return new SumVisitor(((SumVisitor) visitor).getExpression());
+        } else if (visitor instanceof UniqueVisitor) {
+            UniqueVisitor original = (UniqueVisitor) visitor;
+            UniqueVisitor partial = new UniqueVisitor(original.getExpression());
+            partial.setPreserveOrder(original.isPreserveOrder());
+            return partial;
+        }
+        throw new IllegalArgumentException("Unsupported visitor " + visitor);
+    }
+
+    /**
+     * Merges the partial results into the original visitor. The partials must be provided in the
+     * same order as the record ranges they visited, so that the unique values preserving the order
+     * come out the same as in a sequential visit
+     */
+    static void merge(FeatureVisitor visitor, List<FeatureCalc> partials) {
+        if (visitor instanceof BoundsVisitor) {
+            // no setter, but the bounds are live
+            BoundsVisitor bounds = (BoundsVisitor) visitor;
+            for (FeatureCalc partial : partials) {
+                bounds.getBounds().include(((BoundsVisitor) partial).getBounds());
+            }
+            return;
+        }
+
+        CalcResult result = ((FeatureCalc) visitor).getResult();
+        for (FeatureCalc partial : partials) {
+            result = result.merge(partial.getResult());
+        }
+        if (result == CalcResult.NULL_RESULT) {
+            // nothing visited, leave the visitor untouched as a sequential visit would
+            return;
+        }
+        if (visitor instanceof CountVisitor) {
+            ((CountVisitor) visitor).setValue(result.toInt());
+        } else if (visitor instanceof SumVisitor) {
+            ((SumVisitor) visitor).setValue(result.getValue());
+        } else if (visitor instanceof UniqueVisitor) {
+            ((UniqueVisitor) visitor).setValue(result.getValue());
+        }
+    }
+}
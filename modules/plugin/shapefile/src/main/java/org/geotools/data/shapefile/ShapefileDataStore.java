@@ -33,6 +33,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 
 import org.geotools.data.DataSourceException;
@@ -113,6 +114,10 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     boolean fidIndexed = true;
 
+    ShpFileType spatialIndexType = ShpFileType.QIX;
+
+    ExecutorService visitorExecutor;
+
     IndexManager indexManager;
 
     ShapefileSetManager shpManager;
@@ -199,6 +204,52 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.indexed = indexed;
     }
     
+    /**
+     * The type of spatial index used by the store, either {@link ShpFileType#QIX} (the default)
+     * or {@link ShpFileType#PRX}
+     * 
+     * @return
+     */
+    public ShpFileType getSpatialIndexType() {
+        return spatialIndexType;
+    }
+
+    /**
+     * Sets the type of spatial index to be used, and eventually created, by this store. Valid
+     * values are {@link ShpFileType#QIX} for the quadtree index and {@link ShpFileType#PRX} for
+     * the memory mapped packed R-tree one
+     * 
+     * @param spatialIndexType
+     */
+    public void setSpatialIndexType(ShpFileType spatialIndexType) {
+        if (spatialIndexType != ShpFileType.QIX && spatialIndexType != ShpFileType.PRX) {
+            throw new IllegalArgumentException("Unsupported spatial index type "
+                    + spatialIndexType + ", valid values are QIX and PRX");
+        }
+        this.spatialIndexType = spatialIndexType;
+    }
+
+    /**
+     * The executor used to visit the shapefile in parallel, or null if visits are sequential
+     * 
+     * @return
+     */
+    public ExecutorService getVisitorExecutor() {
+        return visitorExecutor;
+    }
+
+    /**
+     * Sets the executor used to run the count, bounds, sum and unique visitors on large
+     * shapefiles in parallel, each thread reading a separate range of records located via the
+     * .shx file. The executor is not owned by the store, it won't be shut down on dispose. By
+     * default visits are sequential.
+     * 
+     * @param visitorExecutor The executor, or null to disable parallel visits
+     */
+    public void setVisitorExecutor(ExecutorService visitorExecutor) {
+        this.visitorExecutor = visitorExecutor;
+    }
+
     /**
      * The current max shapefile size
      * @return
@@ -438,6 +489,9 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     @Override
     public void dispose() {
         super.dispose();
+        if (indexManager != null) {
+            indexManager.dispose();
+        }
         if (shpFiles != null) {
             shpFiles.dispose();
             shpFiles = null;
@@ -36,6 +36,7 @@ import org.geotools.data.FileDataStore;
 import org.geotools.data.FileDataStoreFactorySpi;
 import org.geotools.data.directory.DirectoryDataStore;
 import org.geotools.data.directory.FileStoreFactory;
+import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.util.KVP;
 import org.geotools.util.logging.Logging;
@@ -139,6 +140,16 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             Boolean.class, "enable/disable the use of spatial index for local shapefiles", false,
             true, new KVP(Param.LEVEL, "advanced"));
 
+    /**
+     * Optional - the type of spatial index to use, either the quadtree (qix) or the memory mapped
+     * packed R-tree (prx)
+     */
+    public static final Param SPATIAL_INDEX_TYPE = new Param("spatial index type",
+            String.class, "the type of spatial index to use, qix (quadtree) or prx (packed R-tree)",
+            false, ShpFileType.QIX.extension, new KVP(Param.LEVEL, "advanced", Param.OPTIONS,
+                    Arrays.asList(new String[] { ShpFileType.QIX.extension,
+                            ShpFileType.PRX.extension })));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -149,7 +160,7 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
 
     public Param[] getParametersInfo() {
         return new Param[] { URLP, NAMESPACEP, ENABLE_SPATIAL_INDEX, CREATE_SPATIAL_INDEX, DBFCHARSET, DBFTIMEZONE,
-                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE };
+                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE, SPATIAL_INDEX_TYPE };
     }
 
     public boolean isAvailable() {
@@ -173,6 +184,15 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             // should not be needed as default is TRUE
             isEnableSpatialIndex = Boolean.TRUE;
         }
+        String spatialIndexType = lookup(SPATIAL_INDEX_TYPE, params, String.class);
+        ShpFileType indexType;
+        if (ShpFileType.PRX.extension.equalsIgnoreCase(spatialIndexType)) {
+            indexType = ShpFileType.PRX;
+        } else if (ShpFileType.QIX.extension.equalsIgnoreCase(spatialIndexType)) {
+            indexType = ShpFileType.QIX;
+        } else {
+            throw new IOException("Unsupported spatial index type " + spatialIndexType);
+        }
         
         // are we creating a directory of shapefiles store, or a single one?
         File dir = DataUtilities.urlToFile(url);
@@ -198,6 +218,7 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            store.setSpatialIndexType(indexType);
             return store;
         }
     }
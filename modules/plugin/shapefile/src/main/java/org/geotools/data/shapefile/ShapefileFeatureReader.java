@@ -17,6 +17,7 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -32,6 +33,7 @@ import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.geometry.jts.LiteCoordinateSequence;
 import org.geotools.renderer.ScreenMap;
 import org.geotools.util.logging.Logging;
@@ -68,6 +70,12 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     int[] dbfindexes;
 
+    /**
+     * The attributes that are not needed to evaluate the filter, and whose decoding is delayed
+     * until the filter has accepted the feature, or null if all attributes are decoded upfront
+     */
+    boolean[] deferredAttributes;
+
     SimpleFeatureBuilder builder;
 
     SimpleFeature nextFeature;
@@ -132,6 +140,18 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+
+            // only copy and decode the dbf fields we are actually going to return
+            int[] fields = new int[dbfindexes.length];
+            int fieldCount = 0;
+            for (int index : dbfindexes) {
+                if (index >= 0) {
+                    fields[fieldCount++] = index;
+                }
+            }
+            if (fieldCount < head.getNumFields()) {
+                dbf.setFieldsToRead(Arrays.copyOf(fields, fieldCount));
+            }
         }
     }
 
@@ -250,6 +270,8 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
             for (int i = 0; i < dbfindexes.length; i++) {
                 if (dbfindexes[i] == -1) {
                     builder.add(geometry);
+                } else if (deferredAttributes != null && deferredAttributes[i]) {
+                    builder.add(null);
                 } else {
                     builder.add(row.read(dbfindexes[i]));
                 }
@@ -265,6 +287,14 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
             if (!filter.evaluate(feature)) {
                 return null;
             }
+            // the feature is a keeper, decode the attributes the filter did not need
+            if (deferredAttributes != null) {
+                for (int i = 0; i < deferredAttributes.length; i++) {
+                    if (deferredAttributes[i]) {
+                        feature.setAttribute(i, row.read(dbfindexes[i]));
+                    }
+                }
+            }
         }
 
         // update screenmap if present, now that we have the certainty
@@ -371,6 +401,33 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     public void setFilter(Filter filter) {
         this.filter = filter;
+        this.deferredAttributes = null;
+        if (filter == null || dbfindexes == null) {
+            return;
+        }
+
+        // figure out which dbf attributes can be decoded after the filter evaluation
+        FilterAttributeExtractor extractor = new FilterAttributeExtractor(schema);
+        filter.accept(extractor, null);
+        boolean[] deferred = new boolean[dbfindexes.length];
+        for (int i = 0; i < dbfindexes.length; i++) {
+            deferred[i] = dbfindexes[i] != -1;
+        }
+        for (String name : extractor.getAttributeNameSet()) {
+            int index = schema.indexOf(name);
+            if (index >= 0) {
+                deferred[index] = false;
+            } else if (!"".equals(name)) {
+                // not a plain attribute name (e.g., an xpath), cannot tell what it uses
+                return;
+            }
+        }
+        for (boolean d : deferred) {
+            if (d) {
+                this.deferredAttributes = deferred;
+                break;
+            }
+        }
     }
 
 }
@@ -28,6 +28,10 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,6 +43,7 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
@@ -58,6 +63,7 @@ import org.geotools.feature.AttributeTypeBuilder;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.FeatureCalc;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -102,6 +108,11 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 class ShapefileFeatureSource extends ContentFeatureSource {
 
+    /**
+     * The minimum number of records each thread reads during a parallel visit
+     */
+    static final int MIN_SPLIT_RECORDS = 10000;
+
     /**
      * Attribute extract that resolves empty PropertyName
      * references to the default geometry where appropriate.
@@ -314,17 +325,9 @@ class ShapefileFeatureSource extends ContentFeatureSource {
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query q)
             throws IOException {
         SimpleFeatureType resultSchema = getResultSchema(q);
-        SimpleFeatureType readSchema = getReadSchema(q);
-        GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-            if(bbox == null) {
-                bbox = new ReferencedEnvelope();
-            }
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -360,6 +363,34 @@ class ShapefileFeatureSource extends ContentFeatureSource {
             fidReader = new IndexedFidReader(shpFiles);
         }
 
+        return openReader(q, bbox, goodRecs, fidReader);
+    }
+
+    /**
+     * Extracts the bounds of the query filter, if any
+     */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+            if(bbox == null) {
+                bbox = new ReferencedEnvelope();
+            }
+        }
+        return bbox;
+    }
+
+    /**
+     * Sets up the feature reader, reading either the whole shapefile or just the records in
+     * goodRecs, and retypes it to the query result schema
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> openReader(Query q, Envelope bbox,
+            CloseableIterator<Data> goodRecs, IndexedFidReader fidReader) throws IOException {
+        SimpleFeatureType resultSchema = getResultSchema(q);
+        SimpleFeatureType readSchema = getReadSchema(q);
+        GeometryFactory geometryFactory = getGeometryFactory(q);
+        Filter filter = q != null ? q.getFilter() : null;
+
         // setup the feature readers
         ShapefileSetManager shpManager = getDataStore().shpManager;
         ShapefileReader shapeReader = shpManager.openShapeReader(geometryFactory, goodRecs != null);
@@ -596,7 +627,121 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        ExecutorService executor = getDataStore().getVisitorExecutor();
+        if (executor != null && ParallelVisitorSupport.isSupported(visitor)) {
+            query = resolvePropertyNames(joinQuery(query));
+            if (isParallelVisitable(query) && visitInParallel(executor, query, visitor)) {
+                return true;
+            }
+        }
         return super.handleVisitor(query, visitor);
     }
 
+    /**
+     * Checks the query can be run as a plain scan of the shapefile, without any of the wrappers
+     * {@link #getReader(Query)} might add, and without using the indexes
+     */
+    boolean isParallelVisitable(Query query) {
+        if (getTransaction() != null && getTransaction() != Transaction.AUTO_COMMIT) {
+            return false;
+        }
+        if (!query.getJoins().isEmpty() || (query.getSortBy() != null && query.getSortBy().length > 0)
+                || query.getStartIndex() != null || !query.isMaxFeaturesUnlimited()
+                || query.getCoordinateSystem() != null
+                || query.getCoordinateSystemReproject() != null) {
+            return false;
+        }
+        Filter filter = query.getFilter();
+        if (filter instanceof Id) {
+            return false;
+        }
+        // a spatial index lookup will be faster than scanning everything
+        Envelope bbox = getTargetBBox(query);
+        ShapefileDataStore ds = getDataStore();
+        if (ds.isIndexed() && !bbox.isNull() && !Double.isInfinite(bbox.getWidth())
+                && !Double.isInfinite(bbox.getHeight())) {
+            return !ds.indexManager.isSpatialIndexAvailable() && !ds.isIndexCreationEnabled();
+        }
+        return true;
+    }
+
+    /**
+     * Splits the shapefile in ranges of records using the .shx file, and visits each of them in a
+     * separate thread with its own copy of the visitor, merging the results at the end
+     * 
+     * @return false if the shapefile is too small to be worth splitting, or has no .shx file
+     */
+    boolean visitInParallel(ExecutorService executor, final Query query, FeatureVisitor visitor)
+            throws IOException {
+        final ShapefileSetManager shpManager = getDataStore().shpManager;
+        IndexFile shx = shpManager.openIndexFile();
+        if (shx == null) {
+            return false;
+        }
+        int count;
+        try {
+            count = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+        int splits = Math.min(Runtime.getRuntime().availableProcessors(), count
+                / MIN_SPLIT_RECORDS);
+        if (splits < 2) {
+            return false;
+        }
+
+        final Envelope bbox = getTargetBBox(query);
+        List<Future<FeatureCalc>> futures = new ArrayList<Future<FeatureCalc>>();
+        try {
+            for (int i = 0; i < splits; i++) {
+                final int start = (int) ((long) count * i / splits);
+                final int end = (int) ((long) count * (i + 1) / splits);
+                final FeatureCalc partial = ParallelVisitorSupport.newPartial(visitor);
+                futures.add(executor.submit(new Callable<FeatureCalc>() {
+
+                    @Override
+                    public FeatureCalc call() throws Exception {
+                        IndexFileRangeIterator records = new IndexFileRangeIterator(
+                                shpManager.openIndexFile(), start, end);
+                        FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+                        try {
+                            reader = openReader(query, bbox, records, null);
+                        } catch (IOException e) {
+                            records.close();
+                            throw e;
+                        }
+                        try {
+                            while (reader.hasNext()) {
+                                partial.visit(reader.next());
+                            }
+                        } finally {
+                            reader.close();
+                        }
+                        return partial;
+                    }
+                }));
+            }
+
+            List<FeatureCalc> partials = new ArrayList<FeatureCalc>();
+            for (Future<FeatureCalc> future : futures) {
+                partials.add(future.get());
+            }
+            ParallelVisitorSupport.merge(visitor, partials);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while visiting " + query.getTypeName(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Problem visiting " + query.getTypeName(), e.getCause());
+        } finally {
+            // stop the other splits if one failed
+            for (Future<FeatureCalc> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
 }
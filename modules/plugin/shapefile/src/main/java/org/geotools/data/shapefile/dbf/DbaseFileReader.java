@@ -113,6 +113,20 @@ public class DbaseFileReader implements FileReader {
     
     int[] fieldOffsets;
 
+    /**
+     * The fields that are actually copied out of the buffer and decoded, or null if all the
+     * fields are read
+     */
+    boolean[] readFields;
+
+    /**
+     * The first and one past the last record byte, deleted flag excluded, that need to be copied
+     * out of the buffer in order to decode the {@link #readFields}
+     */
+    int readStart;
+
+    int readEnd;
+
     int cnt = 1;
 
     Row row;
@@ -132,6 +146,12 @@ public class DbaseFileReader implements FileReader {
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
 
+    /**
+     * The powers of ten that can be represented exactly as doubles
+     */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+            1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
     
     /**
      * Creates a new instance of DBaseFileReader
@@ -216,7 +236,8 @@ public class DbaseFileReader implements FileReader {
                 fieldOffsets[i] = fieldOffsets[i -1] + header.getFieldLength(i - 1);
         }
         bytes = new byte[header.getRecordLength() - 1];
-        
+        readStart = 0;
+        readEnd = bytes.length;
 
         // check if we working with a latin-1 char Charset
         final String cname = stringCharset.name();
@@ -275,6 +296,33 @@ public class DbaseFileReader implements FileReader {
         return header;
     }
 
+    /**
+     * Restricts the fields that will be read to the specified ones, the bytes of all the other
+     * fields will be skipped over without being copied or decoded, and reading them will return
+     * null. Passing null restores the default behavior of reading all the fields.
+     * 
+     * @param fields The field numbers to be read (zero based), or null to read all of them
+     */
+    public void setFieldsToRead(final int[] fields) {
+        if (fields == null) {
+            readFields = null;
+            readStart = 0;
+            readEnd = bytes.length;
+        } else {
+            readFields = new boolean[header.getNumFields()];
+            readStart = bytes.length;
+            readEnd = 0;
+            for (int field : fields) {
+                readFields[field] = true;
+                readStart = Math.min(readStart, fieldOffsets[field]);
+                readEnd = Math.max(readEnd, fieldOffsets[field] + fieldLengths[field]);
+            }
+            if (readStart > readEnd) {
+                readStart = readEnd = 0;
+            }
+        }
+    }
+
     /**
      * Clean up all resources associated with this reader.<B>Highly recomended.</B>
      * 
@@ -427,9 +475,11 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            // only copy the bytes of the fields we are going to read
+            final int position = buffer.position();
+            buffer.position(position + readStart);
+            buffer.get(bytes, readStart, readEnd - readStart);
+            buffer.position(position + bytes.length);
 
             foundRecord = true;
         }
@@ -454,6 +504,10 @@ public class DbaseFileReader implements FileReader {
         final char type = fieldTypes[fieldNum];
         final int fieldLen = fieldLengths[fieldNum];
         Object object = null;
+        if (readFields != null && !readFields[fieldNum]) {
+            // the field bytes have not been copied, see setFieldsToRead
+            return null;
+        }
         if (fieldLen > 0) {
             switch (type) {
             // (L)logical (T,t,F,f,Y,y,N,n)
@@ -497,6 +551,18 @@ public class DbaseFileReader implements FileReader {
                 // If the first 8 characters are '0', this is a null date
                 for (int i = 0; i < 8; i++) {
                     if (bytes[fieldOffset+i] != '0') {
+                        final int year = parseDigits(fieldOffset, 4);
+                        final int month = parseDigits(fieldOffset + 4, 2);
+                        final int day = parseDigits(fieldOffset + 6, 2);
+                        if (year >= 0 && month >= 0 && day >= 0) {
+                            calendar.clear();
+                            calendar.set(Calendar.YEAR, year);
+                            calendar.set(Calendar.MONTH, month - 1);
+                            calendar.set(Calendar.DAY_OF_MONTH, day);
+                            object = calendar.getTime();
+                            break;
+                        }
+                        // not plain digits, let the JDK parser sort it out
                         try {
                             String tempString = fastParse(bytes,fieldOffset,4); 
                             final int tempYear = Integer.parseInt(tempString);
@@ -548,9 +614,21 @@ public class DbaseFileReader implements FileReader {
                 // numbers that begin with '*' are considered null
                 if (bytes[fieldOffset] == '*') {
                     break;
-                } else {
+                }
+                Class clazz = header.getFieldClass(fieldNum);
+                if (clazz == Integer.class || clazz == Long.class) {
+                    // fast path, parse the digits without allocating any String
+                    final long value = parseLong(fieldOffset, fieldLen);
+                    if (value != Long.MIN_VALUE) {
+                        if (clazz == Integer.class && value >= Integer.MIN_VALUE
+                                && value <= Integer.MAX_VALUE) {
+                            object = Integer.valueOf((int) value);
+                        } else {
+                            object = Long.valueOf(value);
+                        }
+                        break;
+                    }
                     final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
-                    Class clazz = header.getFieldClass(fieldNum);
                     if (clazz == Integer.class) {
                         try {
                             object = Integer.parseInt(string);
@@ -575,6 +653,11 @@ public class DbaseFileReader implements FileReader {
             case 'f':
             case 'F': 
                 if (bytes[fieldOffset] != '*') {
+                    final double value = parseDouble(fieldOffset, fieldLen);
+                    if (!Double.isNaN(value)) {
+                        object = value;
+                        break;
+                    }
                     try {
                         object = Double.parseDouble(fastParse(bytes,fieldOffset,fieldLen));
                     } catch (final NumberFormatException e) {
@@ -610,6 +693,105 @@ public class DbaseFileReader implements FileReader {
         return new String(chars);
     }
 
+    /**
+     * Parses an optionally signed integral number, surrounded by blanks, straight out of the
+     * record bytes
+     * 
+     * @return The number, or {@link Long#MIN_VALUE} if the field contains anything else, or has
+     *         too many digits to be sure it fits in a long
+     */
+    long parseLong(final int fieldOffset, final int fieldLen) {
+        int start = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        // same blanks as String.trim()
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        if (start == end || end - start > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a plain decimal number, surrounded by blanks and without exponent, straight out of
+     * the record bytes. With at most 15 digits both the digits and the power of ten are exact
+     * doubles, so a single division gives the same correctly rounded result as
+     * {@link Double#parseDouble(String)}
+     * 
+     * @return The number, or {@link Double#NaN} if the field cannot be parsed this way
+     */
+    double parseDouble(final int fieldOffset, final int fieldLen) {
+        int start = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = start; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (++digits > 15) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a fixed length sequence of digits, returns -1 if any other char is found
+     */
+    int parseDigits(final int offset, final int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
     public static void main(final String[] args) throws Exception {
         final DbaseFileReader reader = new DbaseFileReader(new ShpFiles(args[0]),
                 false, Charset.forName("ISO-8859-1"), null);
@@ -55,6 +55,11 @@ public enum ShpFileType {
      * by fid also so that the fids stay consistent across deletes and adds
      */
     FIX("fix"),
+    /**
+     * the .prx file, a Hilbert packed static R-tree spatial index of the shapefile, searched
+     * directly on its memory mapped contents
+     */
+    PRX("prx"),
     /**
      * the .shp.xml file, it contains the metadata about the shapefile
      */
@@ -0,0 +1,340 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.resources.NIOUtilities;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A static, Hilbert packed R-tree stored in a flat file and searched directly on its memory
+ * mapped contents. The tree does not allocate any object while visiting the nodes, and since it
+ * only performs absolute reads on the mapped buffer, a single instance can be safely shared among
+ * multiple threads. The mapping is released by {@link #close()}, once the searches running at
+ * that time are completed.
+ * <p>
+ * The file layout (little endian) is:
+ * <ul>
+ * <li>the header: magic, version, node size, item count, level count, the first entry of each
+ * level (plus one past the last entry) and the overall bounds</li>
+ * <li>the entries, level by level starting from the leaves, each one made of the float bounds
+ * (rounded outwards) and an int reference, that is the record number for the leaves and the
+ * position of the first child for the inner nodes</li>
+ * <li>the shapefile offset, in 16 bit words, of each leaf, in the same order as the leaves</li>
+ * </ul>
+ *
+ * @see PackedRTreeBuilder
+ */
+public class PackedRTree {
+
+    static final byte[] MAGIC = new byte[] { 'G', 'T', 'P', 'R' };
+
+    static final int VERSION = 1;
+
+    /**
+     * Size of each entry in bytes, four floats and an int
+     */
+    static final int ENTRY_SIZE = 20;
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    final ByteBuffer buffer;
+
+    final int nodeSize;
+
+    final int numItems;
+
+    /**
+     * The first entry of each level, plus the one past the last entry of the root level
+     */
+    final int[] levelStarts;
+
+    final int entriesStart;
+
+    final int offsetsStart;
+
+    final Envelope bounds;
+
+    /**
+     * Searches hold the read lock, so that the buffer is not unmapped while they are reading it
+     */
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    boolean closed;
+
+    /**
+     * Memory maps the specified packed R-tree file
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static PackedRTree open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PackedRTree(buffer);
+        }
+    }
+
+    PackedRTree(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < 24) {
+            throw new IOException("Invalid packed R-tree, the file is too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Invalid packed R-tree, wrong magic number");
+            }
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported packed R-tree version " + version);
+        }
+        this.nodeSize = buffer.getInt(8);
+        this.numItems = buffer.getInt(12);
+        int numLevels = buffer.getInt(16);
+        this.levelStarts = new int[numLevels + 1];
+        int position = 20;
+        for (int i = 0; i <= numLevels; i++) {
+            levelStarts[i] = buffer.getInt(position);
+            position += 4;
+        }
+        double minX = buffer.getDouble(position);
+        double minY = buffer.getDouble(position + 8);
+        double maxX = buffer.getDouble(position + 16);
+        double maxY = buffer.getDouble(position + 24);
+        this.bounds = numItems > 0 ? new Envelope(minX, maxX, minY, maxY) : new Envelope();
+        this.entriesStart = headerSize(numLevels);
+        this.offsetsStart = entriesStart + levelStarts[numLevels] * ENTRY_SIZE;
+        if (buffer.limit() < offsetsStart + numItems * 4) {
+            throw new IOException("Invalid packed R-tree, the file is truncated");
+        }
+    }
+
+    /**
+     * The header size, padded to a multiple of 8 bytes
+     */
+    static int headerSize(int numLevels) {
+        int size = 20 + (numLevels + 1) * 4 + 32;
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * The bounds of all the items in the tree
+     *
+     * @return
+     */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * The number of items stored in the tree
+     *
+     * @return
+     */
+    public int getCount() {
+        return numItems;
+    }
+
+    /**
+     * Collects the record number and the shapefile offset (in 16 bit words) of the items whose
+     * bounds intersect the search area, packed in a long with the record number in the upper 32
+     * bits, and sorted so that the records can be read sequentially
+     *
+     * @param minX
+     * @param minY
+     * @param maxX
+     * @param maxY
+     * @return
+     */
+    public long[] searchRecords(double minX, double minY, double maxX, double maxY) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The packed R-tree has been closed");
+            }
+            return searchMapped(minX, minY, maxX, maxY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] searchMapped(double minX, double minY, double maxX, double maxY) {
+        long[] results = new long[16];
+        int count = 0;
+        if (numItems == 0) {
+            return new long[0];
+        }
+
+        // stack of entry positions to visit, it can never be deeper than nodeSize per level
+        int[] stack = new int[nodeSize * levelStarts.length];
+        int[] stackLevels = new int[stack.length];
+        int top = 0;
+        int rootLevel = levelStarts.length - 2;
+        for (int i = levelStarts[rootLevel]; i < levelStarts[rootLevel + 1]; i++) {
+            stack[top] = i;
+            stackLevels[top] = rootLevel;
+            top++;
+        }
+        while (top > 0) {
+            top--;
+            int entry = stack[top];
+            int level = stackLevels[top];
+            int position = entriesStart + entry * ENTRY_SIZE;
+            if (buffer.getFloat(position) > maxX || buffer.getFloat(position + 4) > maxY
+                    || buffer.getFloat(position + 8) < minX
+                    || buffer.getFloat(position + 12) < minY) {
+                continue;
+            }
+            int reference = buffer.getInt(position + 16);
+            if (level == 0) {
+                if (count == results.length) {
+                    results = Arrays.copyOf(results, count * 2);
+                }
+                int offset = buffer.getInt(offsetsStart + (entry - levelStarts[0]) * 4);
+                results[count++] = ((long) reference << 32) | (offset & 0xFFFFFFFFL);
+            } else {
+                int childLevel = level - 1;
+                int end = Math.min(reference + nodeSize, levelStarts[childLevel + 1]);
+                for (int child = reference; child < end; child++) {
+                    stack[top] = child;
+                    stackLevels[top] = childLevel;
+                    top++;
+                }
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(results, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Releases the memory mapped buffer, waiting for the running searches to complete. The tree
+     * cannot be searched anymore after this call.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                NIOUtilities.clean(buffer, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the tree has been closed
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        lock.readLock().lock();
+        try {
+            return closed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the tree, returning {@link Data} objects containing the 1-based record number and
+     * the offset in bytes of the matching records in the shapefile, in the same way as the
+     * quadtree index does
+     *
+     * @param bbox
+     * @return
+     * @throws TreeException
+     */
+    public CloseableIterator<Data> search(Envelope bbox) throws TreeException {
+        return new SearchIterator(searchRecords(bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(),
+                bbox.getMaxY()));
+    }
+
+    /**
+     * Iterates over the packed search results, building the {@link Data} objects on demand
+     */
+    static class SearchIterator implements CloseableIterator<Data> {
+
+        long[] records;
+
+        int idx = 0;
+
+        SearchIterator(long[] records) {
+            this.records = records;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx < records.length;
+        }
+
+        @Override
+        public Data next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more elements available");
+            }
+            long record = records[idx++];
+            int recno = (int) (record >>> 32);
+            long offset = (record & 0xFFFFFFFFL) * 2;
+            try {
+                Data data = new Data(DATA_DEFINITION);
+                data.addValue(recno + 1);
+                data.addValue(offset);
+                return data;
+            } catch (TreeException e) {
+                // cannot happen, the values match the definition
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            records = null;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Builds a {@link PackedRTree} file. The items are sorted along the Hilbert curve of their
+ * centers, and then packed bottom up in nodes of the configured size.
+ * <p>
+ * The builder keeps 28 bytes per item in memory, the tree is meant to be built offline or at
+ * store startup, not on the fly.
+ */
+public class PackedRTreeBuilder {
+
+    /**
+     * The default number of children per node
+     */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /**
+     * Number of bits per axis of the grid used to compute the Hilbert values, kept small enough
+     * to pack the value and the item position in a positive long
+     */
+    static final int HILBERT_BITS = 15;
+
+    final int nodeSize;
+
+    float[] boxes;
+
+    int[] records;
+
+    int[] offsets;
+
+    int count;
+
+    final Envelope bounds = new Envelope();
+
+    /**
+     * Builds a tree with the default node size
+     *
+     * @param capacity The expected number of items, used to size the internal arrays
+     */
+    public PackedRTreeBuilder(int capacity) {
+        this(capacity, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * @param capacity The expected number of items, used to size the internal arrays
+     * @param nodeSize The number of children per node
+     */
+    public PackedRTreeBuilder(int capacity, int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2");
+        }
+        this.nodeSize = nodeSize;
+        capacity = Math.max(capacity, 1);
+        this.boxes = new float[capacity * 4];
+        this.records = new int[capacity];
+        this.offsets = new int[capacity];
+    }
+
+    /**
+     * Adds an item to the tree
+     *
+     * @param record The record number, zero based
+     * @param offset The record offset in the shapefile, in 16 bit words
+     */
+    public void add(int record, int offset, double minX, double minY, double maxX, double maxY) {
+        if (count == records.length) {
+            int size = count * 2;
+            boxes = Arrays.copyOf(boxes, size * 4);
+            records = Arrays.copyOf(records, size);
+            offsets = Arrays.copyOf(offsets, size);
+        }
+        boxes[count * 4] = floor(minX);
+        boxes[count * 4 + 1] = floor(minY);
+        boxes[count * 4 + 2] = ceil(maxX);
+        boxes[count * 4 + 3] = ceil(maxY);
+        records[count] = record;
+        offsets[count] = offset;
+        bounds.expandToInclude(minX, minY);
+        bounds.expandToInclude(maxX, maxY);
+        count++;
+    }
+
+    /**
+     * Rounds down to the nearest float, so that the float box contains the double one
+     */
+    static float floor(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    /**
+     * Rounds up to the nearest float, so that the float box contains the double one
+     */
+    static float ceil(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+
+    /**
+     * Sorts the items, packs the tree and writes it down in the specified file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        // sort the items along the hilbert curve
+        int[] order = hilbertOrder();
+
+        // compute the level sizes, up to the single root
+        int numLevels = 1;
+        int levelSize = count;
+        while (levelSize > 1) {
+            levelSize = (levelSize + nodeSize - 1) / nodeSize;
+            numLevels++;
+        }
+        if (count == 0) {
+            numLevels = 1;
+        }
+        int[] levelStarts = new int[numLevels + 1];
+        levelSize = count;
+        for (int i = 0; i < numLevels; i++) {
+            levelStarts[i + 1] = levelStarts[i] + levelSize;
+            levelSize = (levelSize + nodeSize - 1) / nodeSize;
+        }
+        int numEntries = levelStarts[numLevels];
+
+        // build the entries, leaves first
+        float[] entryBoxes = new float[numEntries * 4];
+        int[] references = new int[numEntries];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(boxes, order[i] * 4, entryBoxes, i * 4, 4);
+            references[i] = records[order[i]];
+        }
+        for (int level = 1; level < numLevels; level++) {
+            int childStart = levelStarts[level - 1];
+            int childEnd = levelStarts[level];
+            int entry = levelStarts[level];
+            for (int child = childStart; child < childEnd; child += nodeSize, entry++) {
+                float minX = Float.POSITIVE_INFINITY;
+                float minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY;
+                float maxY = Float.NEGATIVE_INFINITY;
+                int end = Math.min(child + nodeSize, childEnd);
+                for (int i = child; i < end; i++) {
+                    minX = Math.min(minX, entryBoxes[i * 4]);
+                    minY = Math.min(minY, entryBoxes[i * 4 + 1]);
+                    maxX = Math.max(maxX, entryBoxes[i * 4 + 2]);
+                    maxY = Math.max(maxY, entryBoxes[i * 4 + 3]);
+                }
+                entryBoxes[entry * 4] = minX;
+                entryBoxes[entry * 4 + 1] = minY;
+                entryBoxes[entry * 4 + 2] = maxX;
+                entryBoxes[entry * 4 + 3] = maxY;
+                references[entry] = child;
+            }
+        }
+
+        try (FileOutputStream fos = new FileOutputStream(file);
+                FileChannel channel = fos.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(
+                    ByteOrder.LITTLE_ENDIAN);
+
+            // header
+            buffer.put(PackedRTree.MAGIC);
+            buffer.putInt(PackedRTree.VERSION);
+            buffer.putInt(nodeSize);
+            buffer.putInt(count);
+            buffer.putInt(numLevels);
+            for (int i = 0; i <= numLevels; i++) {
+                buffer.putInt(levelStarts[i]);
+            }
+            buffer.putDouble(bounds.getMinX());
+            buffer.putDouble(bounds.getMinY());
+            buffer.putDouble(bounds.getMaxX());
+            buffer.putDouble(bounds.getMaxY());
+            while (buffer.position() < PackedRTree.headerSize(numLevels)) {
+                buffer.put((byte) 0);
+            }
+
+            // entries
+            for (int i = 0; i < numEntries; i++) {
+                if (buffer.remaining() < PackedRTree.ENTRY_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putFloat(entryBoxes[i * 4]);
+                buffer.putFloat(entryBoxes[i * 4 + 1]);
+                buffer.putFloat(entryBoxes[i * 4 + 2]);
+                buffer.putFloat(entryBoxes[i * 4 + 3]);
+                buffer.putInt(references[i]);
+            }
+
+            // leaf offsets
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 4) {
+                    flush(buffer, channel);
+                }
+                buffer.putInt(offsets[order[i]]);
+            }
+            flush(buffer, channel);
+        }
+    }
+
+    private void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the item positions sorted by the Hilbert value of their center
+     */
+    int[] hilbertOrder() {
+        int side = (1 << HILBERT_BITS) - 1;
+        double width = bounds.getWidth();
+        double height = bounds.getHeight();
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            double cx = (boxes[i * 4] + boxes[i * 4 + 2]) / 2;
+            double cy = (boxes[i * 4 + 1] + boxes[i * 4 + 3]) / 2;
+            int x = width > 0 ? (int) (side * (cx - bounds.getMinX()) / width) : 0;
+            int y = height > 0 ? (int) (side * (cy - bounds.getMinY()) / height) : 0;
+            x = Math.max(0, Math.min(side, x));
+            y = Math.max(0, Math.min(side, y));
+            keys[i] = (hilbert(x, y) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Computes the distance along the Hilbert curve of the specified grid cell
+     */
+    static long hilbert(int x, int y) {
+        final int n = 1 << HILBERT_BITS;
+        long d = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
@@ -17,13 +17,17 @@
 package org.geotools.data.shapefile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Locale;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -107,6 +111,66 @@ public class DbaseFileTest extends TestCaseSupport {
         dbf2.close();
     }
 
+    @Test
+    public void testFieldsToRead() throws Exception {
+        DbaseFileReader dbf2 = new DbaseFileReader(shpFiles, false,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            dbf2.setFieldsToRead(new int[] { 4, 0, 100 });
+            Object[] attrs = new Object[dbf.getHeader().getNumFields()];
+            while (dbf.hasNext()) {
+                dbf.readEntry(attrs);
+                DbaseFileReader.Row r = dbf2.readRow();
+                assertEquals(attrs[0], r.read(0));
+                assertEquals(attrs[4], r.read(4));
+                assertEquals(attrs[100], r.read(100));
+                assertNull(r.read(1));
+                assertNull(r.read(251));
+            }
+            assertFalse(dbf2.hasNext());
+        } finally {
+            dbf2.close();
+        }
+    }
+
+    @Test
+    public void testNumbersAndDates() throws Exception {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("int", 'N', 9, 0);
+        header.addColumn("long", 'N', 19, 0);
+        header.addColumn("double", 'N', 20, 5);
+        header.addColumn("float", 'F', 20, 5);
+        header.addColumn("date", 'D', 8, 0);
+        header.setNumRecords(100);
+        File f = getTempFile();
+        FileOutputStream fout = new FileOutputStream(f);
+        DbaseFileWriter writer = new DbaseFileWriter(header, fout.getChannel(),
+                Charset.defaultCharset());
+        Object[][] expected = new Object[header.getNumRecords()][];
+        Calendar calendar = Calendar.getInstance(Locale.US);
+        for (int i = 0; i < header.getNumRecords(); i++) {
+            calendar.clear();
+            calendar.set(1950 + i, i % 12, 1 + i % 28);
+            expected[i] = new Object[] { i * 1001 - 50000, i * 123456789L - 5000000000L,
+                    i * 1.25 - 33.5, -i * 0.03125, calendar.getTime() };
+            writer.write(expected[i]);
+        }
+        writer.close();
+
+        DbaseFileReader r = new DbaseFileReader(new ShpFiles(f), false,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            for (int i = 0; r.hasNext(); i++) {
+                Object[] values = r.readEntry();
+                for (int j = 0; j < values.length; j++) {
+                    assertEquals(expected[i][j], values[j]);
+                }
+            }
+        } finally {
+            r.close();
+        }
+    }
+
     @Test
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
@@ -464,6 +464,48 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds.dispose();
     }
 
+    @Test
+    public void testQueryAttributeFilterPropertySubset() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore ds = new ShapefileDataStore(shpFile.toURI().toURL());
+        SimpleFeatureSource fs = ds.getFeatureSource();
+
+        // the filter only needs PERSONS, the other attributes are decoded after evaluating it
+        Filter filter = ff.greater(ff.property("PERSONS"), ff.literal(5000000));
+        Query q = new Query(ds.getTypeNames()[0], filter, new String[] { "STATE_NAME",
+                "PERSONS", "LAND_KM" });
+        Map<String, SimpleFeature> expected = new HashMap<String, SimpleFeature>();
+        SimpleFeatureIterator it = fs.getFeatures(filter).features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                expected.put(f.getID(), f);
+            }
+        } finally {
+            it.close();
+        }
+        assertTrue(expected.size() > 0);
+
+        it = fs.getFeatures(q).features();
+        int count = 0;
+        try {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                SimpleFeature original = expected.get(f.getID());
+                assertNotNull(original);
+                assertEquals(3, f.getAttributeCount());
+                for (String name : q.getPropertyNames()) {
+                    assertEquals(original.getAttribute(name), f.getAttribute(name));
+                }
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(expected.size(), count);
+        ds.dispose();
+    }
+
     @Test
     public void testFidFilter() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
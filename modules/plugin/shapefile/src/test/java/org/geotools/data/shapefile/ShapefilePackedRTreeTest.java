@@ -0,0 +1,188 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
+import org.geotools.data.shapefile.index.rtree.PackedRTreeBuilder;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Tests the packed R-tree spatial index
+ */
+public class ShapefilePackedRTreeTest extends TestCaseSupport {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    @Test
+    public void testSearchMatchesBruteForce() throws Exception {
+        Random random = new Random(0);
+        int count = 5000;
+        double[][] boxes = new double[count][];
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(10, 8);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            double w = random.nextDouble() * 2;
+            double h = random.nextDouble() * 2;
+            boxes[i] = new double[] { x, y, x + w, y + h };
+            builder.add(i, i * 10, x, y, x + w, y + h);
+        }
+        File file = getTempFile();
+        builder.write(file);
+
+        PackedRTree tree = PackedRTree.open(file);
+        assertEquals(count, tree.getCount());
+        for (int q = 0; q < 50; q++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Envelope query = new Envelope(x, x + random.nextDouble() * 30, y,
+                    y + random.nextDouble() * 30);
+            Set<Integer> expected = new HashSet<Integer>();
+            for (int i = 0; i < count; i++) {
+                if (query.intersects(new Envelope(boxes[i][0], boxes[i][2], boxes[i][1],
+                        boxes[i][3]))) {
+                    expected.add(i);
+                }
+            }
+
+            long[] records = tree.searchRecords(query.getMinX(), query.getMinY(),
+                    query.getMaxX(), query.getMaxY());
+            Set<Integer> actual = new HashSet<Integer>();
+            int previous = -1;
+            for (long record : records) {
+                int recno = (int) (record >>> 32);
+                int offset = (int) record;
+                assertTrue("Records should be sorted", recno > previous);
+                previous = recno;
+                assertEquals(recno * 10, offset);
+                actual.add(recno);
+            }
+            // the float rounding can only add a few candidates, never lose any
+            assertTrue(actual.containsAll(expected));
+            for (Integer recno : actual) {
+                double[] box = boxes[recno];
+                Envelope expanded = new Envelope(query);
+                expanded.expandBy(1e-3);
+                assertTrue(expanded.intersects(new Envelope(box[0], box[2], box[1], box[3])));
+            }
+        }
+        tree.close();
+    }
+
+    @Test
+    public void testEmptyTree() throws Exception {
+        File file = getTempFile();
+        new PackedRTreeBuilder(0).write(file);
+        PackedRTree tree = PackedRTree.open(file);
+        assertEquals(0, tree.getCount());
+        assertEquals(0, tree.searchRecords(-180, -90, 180, 90).length);
+        tree.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(1);
+        builder.add(0, 50, 0, 0, 1, 1);
+        File file = getTempFile();
+        builder.write(file);
+
+        PackedRTree tree = PackedRTree.open(file);
+        assertEquals(1, tree.searchRecords(0, 0, 1, 1).length);
+        tree.close();
+        assertTrue(tree.isClosed());
+        // closing twice is harmless
+        tree.close();
+        try {
+            tree.searchRecords(0, 0, 1, 1);
+            fail("A closed tree should not be searchable");
+        } catch (IllegalStateException e) {
+            // fine
+        }
+        // the mapping has been released, the file can be removed
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testDataStoreQueries() throws Exception {
+        File shp = copyShapefiles("shapes/statepop.shp");
+        ShapefileDataStore plain = new ShapefileDataStore(shp.toURI().toURL());
+        plain.setIndexed(false);
+
+        ShapefileDataStoreFactory factory = new ShapefileDataStoreFactory();
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(ShapefileDataStoreFactory.URLP.key, shp.toURI().toURL());
+        params.put(ShapefileDataStoreFactory.SPATIAL_INDEX_TYPE.key, "prx");
+        ShapefileDataStore indexed = (ShapefileDataStore) factory.createDataStore(params);
+        assertEquals(ShpFileType.PRX, indexed.getSpatialIndexType());
+
+        try {
+            ReferencedEnvelope bounds = plain.getFeatureSource().getBounds();
+            double w = bounds.getWidth() / 4;
+            double h = bounds.getHeight() / 4;
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    double x = bounds.getMinX() + i * w;
+                    double y = bounds.getMinY() + j * h;
+                    Filter filter = FF.bbox("the_geom", x, y, x + w, y + h, null);
+                    assertEquals(collectIds(plain, filter), collectIds(indexed, filter));
+                }
+            }
+            assertTrue(indexed.indexManager.isSpatialIndexAvailable());
+            assertTrue(indexed.shpFiles.exists(ShpFileType.PRX));
+
+            // disposing the store releases the mapped tree
+            PackedRTree tree = indexed.indexManager.openPackedRTree();
+            assertNotNull(tree);
+            indexed.dispose();
+            assertTrue(tree.isClosed());
+            assertNull(indexed.indexManager.packedTree);
+        } finally {
+            plain.dispose();
+            indexed.dispose();
+        }
+    }
+
+    private Set<String> collectIds(ShapefileDataStore store, Filter filter) throws Exception {
+        Set<String> ids = new HashSet<String>();
+        Query query = new Query(store.getTypeNames()[0], filter);
+        try (SimpleFeatureIterator it = store.getFeatureSource().getFeatures(query).features()) {
+            while (it.hasNext()) {
+                ids.add(it.next().getID());
+            }
+        }
+        return ids;
+    }
+}
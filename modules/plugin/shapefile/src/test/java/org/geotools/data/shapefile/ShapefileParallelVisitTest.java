@@ -0,0 +1,172 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Checks the parallel visits return the same results as the sequential ones
+ */
+public class ShapefileParallelVisitTest extends TestCaseSupport {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    static final int COUNT = ShapefileFeatureSource.MIN_SPLIT_RECORDS * 3 + 17;
+
+    ShapefileDataStore sequential;
+
+    ShapefileDataStore parallel;
+
+    ThreadPoolExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        File shp = getTempFile();
+        ShapefileDataStore writer = new ShapefileDataStore(shp.toURI().toURL());
+        SimpleFeatureType type = DataUtilities.createType("points",
+                "the_geom:Point,value:Integer,category:String");
+        writer.createSchema(type);
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < COUNT; i++) {
+            fb.add(gf.createPoint(new Coordinate(i % 360 - 180, i % 180 - 90)));
+            fb.add(i % 1000);
+            fb.add("c" + (i * 7 % 101));
+            features.add(fb.buildFeature(null));
+        }
+        ((SimpleFeatureStore) writer.getFeatureSource()).addFeatures(DataUtilities
+                .collection(features));
+        writer.dispose();
+
+        sequential = new ShapefileDataStore(shp.toURI().toURL());
+        parallel = new ShapefileDataStore(shp.toURI().toURL());
+        executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        parallel.setVisitorExecutor(executor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sequential.dispose();
+        parallel.dispose();
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        CountVisitor expected = visit(sequential, new CountVisitor(), Filter.INCLUDE);
+        CountVisitor actual = visit(parallel, new CountVisitor(), Filter.INCLUDE);
+        assertEquals(COUNT, expected.getCount());
+        assertEquals(expected.getCount(), actual.getCount());
+        assertParallel();
+    }
+
+    @Test
+    public void testFilteredCount() throws Exception {
+        Filter filter = FF.less(FF.property("value"), FF.literal(100));
+        CountVisitor expected = visit(sequential, new CountVisitor(), filter);
+        CountVisitor actual = visit(parallel, new CountVisitor(), filter);
+        assertEquals(expected.getCount(), actual.getCount());
+        assertParallel();
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        BoundsVisitor expected = visit(sequential, new BoundsVisitor(), Filter.INCLUDE);
+        BoundsVisitor actual = visit(parallel, new BoundsVisitor(), Filter.INCLUDE);
+        assertEquals(expected.getBounds(), actual.getBounds());
+        assertParallel();
+    }
+
+    @Test
+    public void testSum() throws Exception {
+        SumVisitor expected = visit(sequential, new SumVisitor(FF.property("value")),
+                Filter.INCLUDE);
+        SumVisitor actual = visit(parallel, new SumVisitor(FF.property("value")),
+                Filter.INCLUDE);
+        assertEquals(expected.getSum(), actual.getSum());
+        assertParallel();
+    }
+
+    @Test
+    public void testUniquePreserveOrder() throws Exception {
+        UniqueVisitor expected = new UniqueVisitor(FF.property("category"));
+        expected.setPreserveOrder(true);
+        UniqueVisitor actual = new UniqueVisitor(FF.property("category"));
+        actual.setPreserveOrder(true);
+        visit(sequential, expected, Filter.INCLUDE);
+        visit(parallel, actual, Filter.INCLUDE);
+        assertEquals(101, expected.getUnique().size());
+        assertEquals(new ArrayList<Object>(expected.getUnique()),
+                new ArrayList<Object>(actual.getUnique()));
+        assertParallel();
+    }
+
+    @Test
+    public void testUnsupportedVisitor() throws Exception {
+        MaxVisitor expected = visit(sequential, new MaxVisitor(FF.property("value")),
+                Filter.INCLUDE);
+        MaxVisitor actual = visit(parallel, new MaxVisitor(FF.property("value")),
+                Filter.INCLUDE);
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(0, executor.getTaskCount());
+    }
+
+    private <T extends FeatureCalc> T visit(ShapefileDataStore store, T visitor, Filter filter)
+            throws Exception {
+        Query query = new Query(store.getTypeNames()[0], filter);
+        store.getFeatureSource().getFeatures(query).accepts(visitor, null);
+        return visitor;
+    }
+
+    private void assertParallel() {
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(executor.getTaskCount() > 1);
+        }
+    }
+}